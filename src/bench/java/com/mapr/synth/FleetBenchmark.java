@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth;
+
+import com.mapr.synth.drive.Engine;
+import com.mapr.synth.drive.Fleet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares simulating a fleet of cars one {@link Engine} at a time with simulating them all at
+ * once in a {@link Fleet}.  Each operation advances every car by one second of driving, so cars
+ * simulated per second is the score times the size of the fleet.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FleetBenchmark {
+    @Param({"1000", "100000"})
+    public int cars;
+
+    private Engine[] engines;
+    private Fleet fleet;
+    private double[] target;
+    private double[] brake;
+    private double engineTime;
+
+    @Setup
+    public void setup() {
+        Random rand = new Random(1);
+        engines = new Engine[cars];
+        fleet = new Fleet(cars);
+        target = new double[cars];
+        brake = new double[cars];
+        for (int i = 0; i < cars; i++) {
+            engines[i] = new Engine();
+            target[i] = rand.nextDouble() * 35;
+            brake[i] = rand.nextBoolean() ? 0.1 : 0;
+        }
+        engineTime = 0;
+    }
+
+    @Benchmark
+    public Engine[] engines() {
+        engineTime += 1;
+        for (int i = 0; i < cars; i++) {
+            engines[i].stepToTime(engineTime, target[i], brake[i]);
+        }
+        return engines;
+    }
+
+    @Benchmark
+    public Fleet fleet() {
+        fleet.stepToTime(fleet.getTime() + 1, target, brake);
+        return fleet;
+    }
+}
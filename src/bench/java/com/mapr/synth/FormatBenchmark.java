@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Resources;
+import com.mapr.synth.samplers.RowBuffer;
+import com.mapr.synth.samplers.SchemaSampler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how fast each output format can write rows that have already been sampled.  Scores
+ * are in rows per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormatBenchmark {
+    private static final int ROWS = 1000;
+
+    @Param({"JSON", "TSV", "CSV", "XML", "COLUMNAR"})
+    public Synth.Format format;
+
+    private final OutputStream out = ByteStreams.nullOutputStream();
+
+    private SchemaSampler s;
+    private RowBuffer[] rows = new RowBuffer[ROWS];
+    private JsonNode[] trees = new JsonNode[ROWS];
+
+    private RowWriter writer;
+    private XmlMapper xmlMapper;
+    private XMLStreamWriter xml;
+
+    @Setup
+    public void setup() throws IOException, XMLStreamException {
+        s = new SchemaSampler(Resources.asCharSource(Resources.getResource("schema003.json"), Charsets.UTF_8).read());
+        for (int i = 0; i < ROWS; i++) {
+            rows[i] = s.newRow();
+            s.sample(rows[i]);
+            trees[i] = rows[i].asJson();
+        }
+
+        switch (format) {
+            case XML:
+                // the same way that Synth does it
+                xml = XMLOutputFactory.newFactory().createXMLStreamWriter(out);
+                xml.writeStartDocument();
+                xml.writeStartElement("root");
+                xmlMapper = new XmlMapper();
+                xmlMapper.enable(SerializationFeature.INDENT_OUTPUT);
+                break;
+            case COLUMNAR:
+                break;
+            default:
+                writer = new RowWriter(out, format, Synth.Quote.DOUBLE_QUOTE, s.getFieldNames());
+                break;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void write() throws IOException, XMLStreamException {
+        switch (format) {
+            case XML:
+                for (JsonNode tree : trees) {
+                    xmlMapper.writeValue(xml, tree);
+                    xml.writeCharacters("\n");
+                }
+                break;
+            case COLUMNAR:
+                // one row group per invocation, footer and all
+                ColumnarWriter columns = new ColumnarWriter(out, s.getFieldNames(), ROWS);
+                columns.header();
+                for (RowBuffer row : rows) {
+                    columns.write(row);
+                }
+                columns.finish();
+                break;
+            default:
+                for (RowBuffer row : rows) {
+                    writer.write(row);
+                }
+                writer.flush();
+                break;
+        }
+    }
+}
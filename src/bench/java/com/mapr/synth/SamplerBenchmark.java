@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth;
+
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Sets;
+import com.mapr.synth.samplers.FieldSampler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures each kind of sampler on its own, both on one thread and with several threads that each
+ * have their own sampler the way that Synth's worker threads each have their own copy of the schema.
+ * The second shows how well shared tables and allocation scale.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SamplerBenchmark {
+    // a simple definition of every sampler that FieldSampler knows about
+    static final Map<String, String> SPECS = ImmutableMap.<String, String>builder()
+            .put("address", "{class:'address'}")
+            .put("array-flatten", "{class:'array-flatten', value:{class:'sequence', array:[{class:'sequence', base:{class:'int'}, length:3}, {class:'sequence', base:{class:'os'}, length:2}]}}")
+            .put("event", "{class:'event', rate:'10/s'}")
+            .put("browser", "{class:'browser'}")
+            .put("changer", "{class:'changer', values:[{name:'x', class:'int'}, {name:'y', class:'int'}], rate:'0.15/d', offset:'1d', start:'2015-07-01 0:00', end:'2015-08-01 0:00'}")
+            .put("common-point-of-compromise", "{class:'common-point-of-compromise', exploitStart:'2014-01-20 00:00:00', exploitEnd:'2014-02-20 00:00:00', end:'2014-03-31 00:00:00'}")
+            .put("commuter", "{class:'commuter', start:'2014-01-01 00:00:00', end:'2014-01-01 12:00:00', home:{class:'zip', fields:'latitude, longitude, zip'}, work:20}")
+            .put("country", "{class:'country'}")
+            .put("date", "{class:'date', format:'MM/dd/yyyy'}")
+            .put("lookup", "{class:'lookup', resource:'data.json', skew:1}")
+            .put("flatten", "{class:'flatten', value:{class:'map', value:[{name:'a', class:'int'}, {name:'b', class:'os'}]}}")
+            .put("foreign-key", "{class:'foreign-key', size:10000}")
+            .put("gamma", "{class:'gamma', alpha:0.2, beta:0.2}")
+            .put("header", "{class:'header'}")
+            .put("id", "{class:'id'}")
+            .put("int", "{class:'int', min:10, max:1000}")
+            .put("join", "{class:'join', value:{class:'sequence', base:{class:'int', min:3, max:9}, length:5}}")
+            .put("language", "{class:'language'}")
+            .put("pitman_yor", "{class:'pitman_yor', alpha:1000, d:0.5}")
+            .put("map", "{class:'map', value:[{name:'a', class:'int'}, {name:'b', class:'os'}]}")
+            .put("name", "{class:'name', type:'first_last'}")
+            .put("os", "{class:'os'}")
+            .put("random-walk", "{class:'random-walk'}")
+            .put("sequence", "{class:'sequence', base:{class:'int', min:3, max:9}, length:5}")
+            .put("ssn", "{class:'ssn'}")
+            .put("state", "{class:'state'}")
+            .put("street-name", "{class:'street-name'}")
+            .put("string", "{class:'string', dist:{YES:0.95, NO:0.05, NA:1}}")
+            .put("uuid", "{class:'uuid'}")
+            .put("vector", "{class:'vector', mean:0, sd:10, length:100}")
+            .put("vin", "{class:'vin'}")
+            .put("word", "{class:'word'}")
+            .put("zip", "{class:'zip'}")
+            .build();
+
+    // keep in step with SPECS
+    @Param({"address", "array-flatten", "event", "browser", "changer", "common-point-of-compromise", "commuter",
+            "country", "date", "lookup", "flatten", "foreign-key", "gamma", "header", "id", "int", "join", "language",
+            "pitman_yor", "map", "name", "os", "random-walk", "sequence", "ssn", "state", "street-name", "string",
+            "uuid", "vector", "vin", "word", "zip"})
+    public String sampler;
+
+    private FieldSampler s;
+
+    @Setup
+    public void setup() throws IOException {
+        Set<String> registered = Sets.newHashSet();
+        for (JsonSubTypes.Type type : FieldSampler.class.getAnnotation(JsonSubTypes.class).value()) {
+            registered.add(type.name());
+        }
+        Preconditions.checkState(registered.equals(SPECS.keySet()),
+                "Samplers without benchmarks: %s", Sets.symmetricDifference(registered, SPECS.keySet()));
+
+        s = FieldSampler.newSampler(SPECS.get(sampler));
+        s.setName(sampler);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public JsonNode single() {
+        return s.sample();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public JsonNode parallel() {
+        return s.sample();
+    }
+}
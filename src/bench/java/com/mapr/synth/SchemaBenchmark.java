@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.base.Charsets;
+import com.google.common.io.Resources;
+import com.mapr.synth.samplers.RowBuffer;
+import com.mapr.synth.samplers.SchemaSampler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures whole rows from the test schemas, both as a tree of JsonNodes and into a row buffer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SchemaBenchmark {
+    // all of the test schemas except the empty one, the ones that are supposed to fail and
+    // schema008, which needs a file in the current directory
+    @Param({"schema001.json", "schema002.json", "schema003.json", "schema004.json", "schema005.json",
+            "schema006.json", "schema007.json", "schema009.json", "schema010.json", "schema011.json",
+            "schema012.json", "schema013.json", "schema014.json", "schema015.json", "schema016.json",
+            "schema017.json", "schema019.json", "schema021.json", "schema022.json", "schema023.json",
+            "schema025.json", "schema026.json", "schema027.json", "schema028.json", "schema029.json",
+            "schema030.json"})
+    public String schema;
+
+    private SchemaSampler s;
+    private RowBuffer row;
+
+    @Setup
+    public void setup() throws IOException {
+        s = new SchemaSampler(Resources.asCharSource(Resources.getResource(schema), Charsets.UTF_8).read());
+        row = s.newRow();
+    }
+
+    @Benchmark
+    public JsonNode tree() {
+        return s.sample();
+    }
+
+    @Benchmark
+    public RowBuffer row() {
+        s.sample(row);
+        return row;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.mapr.synth.samplers.SchemaSampler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long it takes a fresh JVM to build a schema that uses most of the bundled data files
+ * and produce its first row, with and without the binary snapshots that the build writes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class StartupBenchmark {
+    // zip is left out since zip.csv isn't always part of the build
+    private static final String SCHEMA = "[" +
+            "{name:'name', class:'name', type:'first_last'}," +
+            "{name:'street', class:'street-name'}," +
+            "{name:'address', class:'address'}," +
+            "{name:'ssn', class:'ssn'}," +
+            "{name:'vin', class:'vin'}," +
+            "{name:'word', class:'word'}," +
+            "{name:'header', class:'header'}," +
+            "{name:'browser', class:'browser'}," +
+            "{name:'country', class:'country'}," +
+            "{name:'language', class:'language'}," +
+            "{name:'state', class:'state'}" +
+            "]";
+
+    @Param({"true", "false"})
+    public boolean snapshots;
+
+    @Setup
+    public void setup() {
+        ResourceRegistry.clear();
+        ResourceTable.setUseSnapshots(snapshots);
+    }
+
+    @Benchmark
+    public JsonNode firstRow() throws IOException {
+        return new SchemaSampler(SCHEMA).sample();
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes gzip data by cutting the input into fixed size blocks and compressing each block as a
+ * separate gzip member on a shared thread pool.  Concatenated members are a legal gzip file, so
+ * gunzip, zcat and GZIPInputStream read the result as if it were compressed all at once.
+ * <p>
+ * Compressed blocks are written in order.  At most maxPending blocks are in flight at any time
+ * so a slow pool pushes back on the writer instead of eating memory.
+ * <p>
+ * Not thread safe, but any number of these streams can share one pool.
+ */
+public class BlockGzipOutputStream extends OutputStream {
+    public static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+
+    // magic, deflate, no flags, no time, no extra flags, unknown OS
+    private static final byte[] HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private static class Block {
+        final byte[] data;
+        int length;
+        Future<byte[]> compressed;
+
+        Block(int size) {
+            data = new byte[size];
+        }
+    }
+
+    private final OutputStream out;
+    private final ExecutorService pool;
+    private final int blockSize;
+    private final int maxPending;
+    private final int level;
+
+    private final Deque<Block> pending = new ArrayDeque<>();
+    private final List<Block> free = Lists.newArrayList();
+    private Block current;
+    private boolean started = false;
+    private boolean finished = false;
+
+    public BlockGzipOutputStream(OutputStream out, ExecutorService pool, int blockSize, int maxPending) {
+        this(out, pool, blockSize, maxPending, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    public BlockGzipOutputStream(OutputStream out, ExecutorService pool, int blockSize, int maxPending, int level) {
+        Preconditions.checkArgument(blockSize > 0, "Block size must be positive");
+        Preconditions.checkArgument(maxPending > 0, "Must allow at least one pending block");
+        this.out = out;
+        this.pool = pool;
+        this.blockSize = blockSize;
+        this.maxPending = maxPending;
+        this.level = level;
+        current = new Block(blockSize);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (current.length == blockSize) {
+            submit();
+        }
+        current.data[current.length++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (current.length == blockSize) {
+                submit();
+            }
+            int n = Math.min(len, blockSize - current.length);
+            System.arraycopy(b, off, current.data, current.length, n);
+            current.length += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Writes out any blocks that are already compressed.  Partial blocks are not compressed early
+     * since that would hurt the compression ratio.
+     */
+    @Override
+    public void flush() throws IOException {
+        while (!pending.isEmpty() && pending.peekFirst().compressed.isDone()) {
+            writeFirst();
+        }
+        out.flush();
+    }
+
+    /**
+     * Compresses and writes everything written so far without closing the underlying stream.
+     */
+    public void finish() throws IOException {
+        if (!finished) {
+            // even empty output needs one member to be a legal gzip file
+            if (current.length > 0 || !started) {
+                submit();
+            }
+            while (!pending.isEmpty()) {
+                writeFirst();
+            }
+            out.flush();
+            finished = true;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void submit() throws IOException {
+        Preconditions.checkState(!finished, "Can't write after finish");
+        started = true;
+        final Block b = current;
+        b.compressed = pool.submit(new Callable<byte[]>() {
+            @Override
+            public byte[] call() throws Exception {
+                return compress(b.data, b.length, level);
+            }
+        });
+        pending.addLast(b);
+
+        // write anything that is done, but wait if too much is in flight
+        while (!pending.isEmpty() && (pending.size() > maxPending || pending.peekFirst().compressed.isDone())) {
+            writeFirst();
+        }
+
+        current = free.isEmpty() ? new Block(blockSize) : free.remove(free.size() - 1);
+        current.length = 0;
+    }
+
+    private void writeFirst() throws IOException {
+        Block b = pending.removeFirst();
+        try {
+            out.write(b.compressed.get());
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException("Interrupted while compressing");
+        } catch (ExecutionException e) {
+            throw new IOException("Compression failed", e.getCause());
+        }
+        b.compressed = null;
+        free.add(b);
+    }
+
+    /**
+     * Returns a complete gzip member holding the first length bytes of data.
+     */
+    static byte[] compress(byte[] data, int length, int level) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            ByteArrayOutputStream r = new ByteArrayOutputStream(length / 4 + 64);
+            r.write(HEADER, 0, HEADER.length);
+
+            deflater.setInput(data, 0, length);
+            deflater.finish();
+            byte[] buf = new byte[64 * 1024];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buf);
+                r.write(buf, 0, n);
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(data, 0, length);
+            writeInt(r, (int) crc.getValue());
+            writeInt(r, length);
+            return r.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    // gzip trailers are little-endian
+    private static void writeInt(ByteArrayOutputStream out, int v) {
+        out.write(v);
+        out.write(v >>> 8);
+        out.write(v >>> 16);
+        out.write(v >>> 24);
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth;
+
+import me.lemire.integercompression.Composition;
+import me.lemire.integercompression.FastPFOR;
+import me.lemire.integercompression.IntWrapper;
+import me.lemire.integercompression.IntegerCODEC;
+import me.lemire.integercompression.VariableByte;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Constants and integer packing shared by {@link ColumnarWriter} and {@link ColumnarReader}.
+ * <p>
+ * A columnar file looks like this:
+ * <pre>
+ *     magic
+ *     row group 0: column chunk 0, column chunk 1, ...
+ *     row group 1: ...
+ *     footer: field names, number of row groups, then for each row group the row count and for
+ *             each column chunk its type, encoding, statistics, offset and length
+ *     offset of footer (8 bytes)
+ *     magic
+ * </pre>
+ * All numbers are big-endian.  Arrays of ints are packed with FastPFOR (with variable byte
+ * coding for the last partial block) and stored as a count of packed ints followed by the ints.
+ */
+class Columnar {
+    static final byte[] MAGIC = {'S', 'Y', 'N', 'C', 'O', 'L', '0', '1'};
+
+    // types of column chunks
+    static final byte LONG = 0;
+    static final byte DOUBLE = 1;
+    static final byte TEXT = 2;
+    // values of any other type are stored as JSON text
+    static final byte JSON = 3;
+
+    // encodings of column chunks
+    static final byte PLAIN = 0;
+    // first value followed by packed zig-zag deltas
+    static final byte DELTA = 1;
+    // minimum value followed by packed offsets from the minimum
+    static final byte FRAME_OF_REFERENCE = 2;
+    // distinct values followed by packed codes
+    static final byte DICTIONARY = 3;
+
+    private Columnar() {
+    }
+
+    // the codecs keep no state between calls, but do keep scratch space so they aren't shared
+    static IntegerCODEC codec() {
+        return new Composition(new FastPFOR(), new VariableByte());
+    }
+
+    static void writeInts(IntegerCODEC codec, DataOutput out, int[] values, int n) throws IOException {
+        if (n == 0) {
+            out.writeInt(0);
+            return;
+        }
+        // FastPFOR never expands data by more than a little per block
+        int[] packed = new int[n + n / 8 + 1024];
+        IntWrapper outPos = new IntWrapper(0);
+        codec.compress(values, new IntWrapper(0), n, packed, outPos);
+        int m = outPos.get();
+
+        ByteBuffer buf = ByteBuffer.allocate(4 * m);
+        buf.asIntBuffer().put(packed, 0, m);
+        out.writeInt(m);
+        out.write(buf.array());
+    }
+
+    static int[] readInts(IntegerCODEC codec, DataInput in, int n) throws IOException {
+        int m = in.readInt();
+        if (n == 0) {
+            return new int[0];
+        }
+        byte[] bytes = new byte[4 * m];
+        in.readFully(bytes);
+        int[] packed = new int[m];
+        ByteBuffer.wrap(bytes).asIntBuffer().get(packed);
+
+        // some codecs write a little past the end of their output
+        int[] values = new int[n + 1024];
+        IntWrapper outPos = new IntWrapper(0);
+        codec.uncompress(packed, new IntWrapper(0), m, values, outPos);
+        if (outPos.get() != n) {
+            throw new IOException(String.format("Expected %d values but found %d", n, outPos.get()));
+        }
+        return values;
+    }
+
+    static int zigzag(long v) {
+        return (int) ((v << 1) ^ (v >> 63));
+    }
+
+    static long unzigzag(int v) {
+        long x = v & 0xffffffffL;
+        return (x >>> 1) ^ -(x & 1);
+    }
+}
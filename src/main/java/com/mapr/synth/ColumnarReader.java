@@ -0,0 +1,381 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.mapr.synth.samplers.RowBuffer;
+import me.lemire.integercompression.IntegerCODEC;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads files written by {@link ColumnarWriter}.
+ * <p>
+ * Rows are read one row group at a time.  Each column of the group is decoded into a primitive
+ * array (or an array of strings, with dictionary entries shared) and rows are then filled from
+ * those arrays.  Statistics for each column chunk are available without decoding anything.
+ * <p>
+ * Not thread safe.
+ */
+public class ColumnarReader implements Closeable {
+    /**
+     * What the footer says about one column of one row group.
+     */
+    public static class ColumnStats {
+        private final byte type;
+        private final byte encoding;
+        private final Number min;
+        private final Number max;
+        private final int distinct;
+        private final long offset;
+        private final int length;
+
+        ColumnStats(byte type, byte encoding, Number min, Number max, int distinct, long offset, int length) {
+            this.type = type;
+            this.encoding = encoding;
+            this.min = min;
+            this.max = max;
+            this.distinct = distinct;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        public boolean isNumeric() {
+            return type == Columnar.LONG || type == Columnar.DOUBLE;
+        }
+
+        public boolean isDictionary() {
+            return encoding == Columnar.DICTIONARY;
+        }
+
+        /**
+         * Returns the smallest value (a Long or a Double) or null for strings.
+         */
+        public Number getMin() {
+            return min;
+        }
+
+        public Number getMax() {
+            return max;
+        }
+
+        /**
+         * Returns the number of distinct strings for dictionary encoded columns and -1 otherwise.
+         */
+        public int getDistinct() {
+            return distinct;
+        }
+
+        /**
+         * Returns the size of the column chunk in bytes.
+         */
+        public int getLength() {
+            return length;
+        }
+    }
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final IntegerCODEC codec = Columnar.codec();
+
+    private final RandomAccessFile file;
+    private final List<String> names;
+    private final int[] groupRows;
+    private final ColumnStats[][] stats;
+    private long rowCount = 0;
+
+    // the decoded row group
+    private int group = -1;
+    private int row = 0;
+    private final byte[] types;
+    private final long[][] longs;
+    private final double[][] doubles;
+    private final String[][] texts;
+
+    /**
+     * Prints the contents of columnar files as JSON lines.
+     */
+    public static void main(String[] args) throws IOException {
+        for (String name : args) {
+            try (ColumnarReader in = new ColumnarReader(new File(name))) {
+                RowBuffer row = in.newRow();
+                StringBuilder line = new StringBuilder();
+                while (in.next(row)) {
+                    line.setLength(0);
+                    row.appendJson(line);
+                    System.out.println(line);
+                }
+            }
+        }
+    }
+
+    public ColumnarReader(File input) throws IOException {
+        file = new RandomAccessFile(input, "r");
+        try {
+            long end = file.length() - Columnar.MAGIC.length - 8;
+            Preconditions.checkArgument(end >= Columnar.MAGIC.length, "%s is too short to be a columnar file", input);
+            checkMagic(0, input);
+            checkMagic(end + 8, input);
+            file.seek(end);
+            long footerOffset = file.readLong();
+
+            byte[] footerBytes = new byte[(int) (end - footerOffset)];
+            file.seek(footerOffset);
+            file.readFully(footerBytes);
+            DataInputStream footer = new DataInputStream(new ByteArrayInputStream(footerBytes));
+
+            int n = footer.readInt();
+            ImmutableList.Builder<String> b = ImmutableList.builder();
+            for (int i = 0; i < n; i++) {
+                b.add(footer.readUTF());
+            }
+            names = b.build();
+
+            int groups = footer.readInt();
+            groupRows = new int[groups];
+            stats = new ColumnStats[groups][n];
+            for (int g = 0; g < groups; g++) {
+                groupRows[g] = footer.readInt();
+                rowCount += groupRows[g];
+                for (int i = 0; i < n; i++) {
+                    stats[g][i] = readStats(footer);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+
+        types = new byte[names.size()];
+        longs = new long[names.size()][];
+        doubles = new double[names.size()][];
+        texts = new String[names.size()][];
+    }
+
+    public List<String> getFieldNames() {
+        return names;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public int getRowGroupCount() {
+        return groupRows.length;
+    }
+
+    public int getRowGroupSize(int group) {
+        return groupRows[group];
+    }
+
+    public ColumnStats getStats(int group, int column) {
+        return stats[group][column];
+    }
+
+    /**
+     * Creates a row buffer laid out for this file.
+     */
+    public RowBuffer newRow() {
+        return new RowBuffer(names);
+    }
+
+    /**
+     * Fills the next row.  Returns false, leaving the row alone, when there are no more rows.
+     */
+    public boolean next(RowBuffer r) throws IOException {
+        while (group < 0 || row == groupRows[group]) {
+            if (group + 1 == groupRows.length) {
+                return false;
+            }
+            readGroup(group + 1);
+        }
+
+        for (int i = 0; i < types.length; i++) {
+            switch (types[i]) {
+                case Columnar.LONG:
+                    r.setLong(i, longs[i][row]);
+                    break;
+                case Columnar.DOUBLE:
+                    r.setDouble(i, doubles[i][row]);
+                    break;
+                case Columnar.TEXT:
+                    r.setText(i, texts[i][row]);
+                    break;
+                default:
+                    r.setNode(i, mapper.readTree(texts[i][row]));
+                    break;
+            }
+        }
+        row++;
+        return true;
+    }
+
+    /**
+     * Positions the reader at the start of a row group, skipping everything before it.
+     */
+    public void readGroup(int g) throws IOException {
+        int n = groupRows[g];
+        for (int i = 0; i < names.size(); i++) {
+            ColumnStats s = stats[g][i];
+            byte[] chunkBytes = new byte[s.length];
+            file.seek(s.offset);
+            file.readFully(chunkBytes);
+            DataInputStream chunk = new DataInputStream(new ByteArrayInputStream(chunkBytes));
+
+            byte encoding = chunk.readByte();
+            Preconditions.checkState(encoding == s.encoding, "Column chunk doesn't match footer");
+            types[i] = s.type;
+            switch (s.type) {
+                case Columnar.LONG:
+                    longs[i] = readLongs(encoding, chunk, n, longs[i]);
+                    break;
+                case Columnar.DOUBLE:
+                    doubles[i] = ensure(doubles[i], n);
+                    for (int j = 0; j < n; j++) {
+                        doubles[i][j] = chunk.readDouble();
+                    }
+                    break;
+                default:
+                    texts[i] = readStrings(encoding, chunk, n);
+                    break;
+            }
+        }
+        group = g;
+        row = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    private long[] readLongs(byte encoding, DataInputStream chunk, int n, long[] v) throws IOException {
+        v = ensure(v, n);
+        switch (encoding) {
+            case Columnar.DELTA: {
+                long x = chunk.readLong();
+                int[] deltas = Columnar.readInts(codec, chunk, n - 1);
+                v[0] = x;
+                for (int j = 1; j < n; j++) {
+                    x += Columnar.unzigzag(deltas[j - 1]);
+                    v[j] = x;
+                }
+                break;
+            }
+            case Columnar.FRAME_OF_REFERENCE: {
+                long min = chunk.readLong();
+                int[] offsets = Columnar.readInts(codec, chunk, n);
+                for (int j = 0; j < n; j++) {
+                    v[j] = min + (offsets[j] & 0xffffffffL);
+                }
+                break;
+            }
+            case Columnar.PLAIN:
+                for (int j = 0; j < n; j++) {
+                    v[j] = chunk.readLong();
+                }
+                break;
+            default:
+                throw new IOException("Unknown encoding for integers: " + encoding);
+        }
+        return v;
+    }
+
+    private String[] readStrings(byte encoding, DataInputStream chunk, int n) throws IOException {
+        switch (encoding) {
+            case Columnar.DICTIONARY: {
+                int size = chunk.readInt();
+                String[] entries = readPlainStrings(chunk, size);
+                int[] codes = Columnar.readInts(codec, chunk, n);
+                String[] r = new String[n];
+                for (int j = 0; j < n; j++) {
+                    r[j] = entries[codes[j]];
+                }
+                return r;
+            }
+            case Columnar.PLAIN:
+                return readPlainStrings(chunk, n);
+            default:
+                throw new IOException("Unknown encoding for strings: " + encoding);
+        }
+    }
+
+    private String[] readPlainStrings(DataInputStream chunk, int n) throws IOException {
+        int[] lengths = Columnar.readInts(codec, chunk, n);
+        String[] r = new String[n];
+        byte[] buf = new byte[1024];
+        for (int j = 0; j < n; j++) {
+            if (lengths[j] > buf.length) {
+                buf = new byte[Math.max(lengths[j], 2 * buf.length)];
+            }
+            chunk.readFully(buf, 0, lengths[j]);
+            r[j] = new String(buf, 0, lengths[j], Charsets.UTF_8);
+        }
+        return r;
+    }
+
+    private ColumnStats readStats(DataInputStream footer) throws IOException {
+        byte type = footer.readByte();
+        byte encoding = footer.readByte();
+        Number min = null;
+        Number max = null;
+        int distinct = -1;
+        switch (type) {
+            case Columnar.LONG:
+                min = footer.readLong();
+                max = footer.readLong();
+                break;
+            case Columnar.DOUBLE:
+                min = footer.readDouble();
+                max = footer.readDouble();
+                break;
+            default:
+                distinct = footer.readInt();
+                break;
+        }
+        long offset = footer.readLong();
+        int length = footer.readInt();
+        return new ColumnStats(type, encoding, min, max, distinct, offset, length);
+    }
+
+    private void checkMagic(long offset, File input) throws IOException {
+        byte[] magic = new byte[Columnar.MAGIC.length];
+        file.seek(offset);
+        file.readFully(magic);
+        Preconditions.checkArgument(Arrays.equals(magic, Columnar.MAGIC), "%s is not a columnar file", input);
+    }
+
+    private static long[] ensure(long[] v, int n) {
+        return v != null && v.length >= n ? v : new long[n];
+    }
+
+    private static double[] ensure(double[] v, int n) {
+        return v != null && v.length >= n ? v : new double[n];
+    }
+}
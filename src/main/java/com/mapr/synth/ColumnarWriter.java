@@ -0,0 +1,349 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth;
+
+import com.fasterxml.jackson.databind.node.TextNode;
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.mapr.synth.samplers.RowBuffer;
+import me.lemire.integercompression.IntegerCODEC;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes rows in a compact columnar binary format that can be read back with {@link ColumnarReader}.
+ * <p>
+ * Rows are buffered into row groups.  Within a group each column is stored separately using
+ * the best of a few simple encodings:
+ * <ul>
+ * <li>integers are stored as deltas from the previous value (good for ids and other sequences)
+ * or as offsets from the smallest value (good for random integers) and packed with FastPFOR</li>
+ * <li>strings with few distinct values (names of countries, browsers, dates and so on) are
+ * stored as a dictionary plus packed codes</li>
+ * <li>other strings are stored as packed lengths plus the UTF-8 bytes</li>
+ * <li>doubles are stored as is</li>
+ * <li>anything else, such as nested objects and arrays, is stored as JSON text</li>
+ * </ul>
+ * The footer has the location of each column chunk and statistics for it (minimum and
+ * maximum for numbers, number of distinct values for strings).
+ * <p>
+ * Schemas with flattened fields don't have a fixed set of columns and can't be written this way.
+ * <p>
+ * Not thread safe.
+ */
+public class ColumnarWriter implements RowOutput {
+    public static final int DEFAULT_ROW_GROUP_SIZE = 64 * 1024;
+
+    // strings with more distinct values than this in a row group are not worth a dictionary
+    private static final double MAX_DICTIONARY_FRACTION = 0.5;
+
+    private final DataOutputStream out;
+    private final List<String> names;
+    private final int groupSize;
+    private final IntegerCODEC codec = Columnar.codec();
+
+    // values for the current row group, one array per column
+    private final RowBuffer.Kind[][] kinds;
+    private final long[][] longs;
+    private final double[][] doubles;
+    private final String[][] texts;
+    private int rows = 0;
+
+    // everything needed for the footer
+    private final List<Integer> groupRows = Lists.newArrayList();
+    private final ByteArrayOutputStream footerBytes = new ByteArrayOutputStream();
+    private final DataOutputStream footer = new DataOutputStream(footerBytes);
+
+    // DataOutputStream only counts up to 2GB so we keep track of where we are ourselves
+    private long position = 0;
+    private boolean started = false;
+    private boolean finished = false;
+
+    public ColumnarWriter(OutputStream out, List<String> names) {
+        this(out, names, DEFAULT_ROW_GROUP_SIZE);
+    }
+
+    public ColumnarWriter(OutputStream out, List<String> names, int groupSize) {
+        Preconditions.checkArgument(groupSize > 0, "Row groups must have at least one row");
+        this.out = new DataOutputStream(out);
+        this.names = names;
+        this.groupSize = groupSize;
+
+        int n = names.size();
+        kinds = new RowBuffer.Kind[n][groupSize];
+        longs = new long[n][groupSize];
+        doubles = new double[n][groupSize];
+        texts = new String[n][groupSize];
+    }
+
+    /**
+     * Just writes the magic number since everything about the columns goes into the footer.
+     */
+    @Override
+    public void header() throws IOException {
+        start();
+    }
+
+    @Override
+    public void write(RowBuffer row) throws IOException {
+        Preconditions.checkState(!finished, "Can't write after finish");
+        Preconditions.checkArgument(row.getTree() == null && row.size() == names.size(),
+                "Columnar output needs a schema with one column per field and no flattened fields");
+        start();
+
+        for (int i = 0; i < names.size(); i++) {
+            RowBuffer.Kind kind = row.getKind(i);
+            kinds[i][rows] = kind;
+            switch (kind) {
+                case LONG:
+                    longs[i][rows] = row.getLong(i);
+                    break;
+                case DOUBLE:
+                    doubles[i][rows] = row.getDouble(i);
+                    break;
+                case TEXT:
+                case BYTES:
+                    texts[i][rows] = row.getText(i);
+                    break;
+                default:
+                    texts[i][rows] = row.getNode(i).toString();
+                    break;
+            }
+        }
+        rows++;
+        if (rows == groupSize) {
+            writeGroup();
+        }
+    }
+
+    /**
+     * Flushes the underlying stream.  Buffered rows stay buffered until their row group is full.
+     */
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Writes any buffered rows and the footer.
+     */
+    @Override
+    public void finish() throws IOException {
+        if (!finished) {
+            start();
+            if (rows > 0) {
+                writeGroup();
+            }
+
+            long footerOffset = position;
+            out.writeInt(names.size());
+            for (String name : names) {
+                out.writeUTF(name);
+            }
+            out.writeInt(groupRows.size());
+            footer.flush();
+            footerBytes.writeTo(out);
+            out.writeLong(footerOffset);
+            out.write(Columnar.MAGIC);
+            out.flush();
+            finished = true;
+        }
+    }
+
+    private void start() throws IOException {
+        if (!started) {
+            out.write(Columnar.MAGIC);
+            position += Columnar.MAGIC.length;
+            started = true;
+        }
+    }
+
+    private void writeGroup() throws IOException {
+        footer.writeInt(rows);
+        for (int i = 0; i < names.size(); i++) {
+            ByteArrayOutputStream chunkBytes = new ByteArrayOutputStream();
+            DataOutputStream chunk = new DataOutputStream(chunkBytes);
+            writeColumn(i, chunk);
+            chunk.flush();
+
+            // the type, encoding and statistics are already in the footer
+            footer.writeLong(position);
+            footer.writeInt(chunkBytes.size());
+            chunkBytes.writeTo(out);
+            position += chunkBytes.size();
+        }
+        groupRows.add(rows);
+        rows = 0;
+    }
+
+    private void writeColumn(int column, DataOutputStream chunk) throws IOException {
+        RowBuffer.Kind[] k = kinds[column];
+        RowBuffer.Kind first = k[0] == RowBuffer.Kind.BYTES ? RowBuffer.Kind.TEXT : k[0];
+        boolean uniform = true;
+        for (int j = 1; j < rows && uniform; j++) {
+            RowBuffer.Kind kind = k[j] == RowBuffer.Kind.BYTES ? RowBuffer.Kind.TEXT : k[j];
+            uniform = kind == first;
+        }
+
+        if (uniform && first == RowBuffer.Kind.LONG) {
+            writeLongs(longs[column], chunk);
+        } else if (uniform && first == RowBuffer.Kind.DOUBLE) {
+            double[] v = doubles[column];
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            chunk.writeByte(Columnar.PLAIN);
+            for (int j = 0; j < rows; j++) {
+                chunk.writeDouble(v[j]);
+                min = Math.min(min, v[j]);
+                max = Math.max(max, v[j]);
+            }
+            footer.writeByte(Columnar.DOUBLE);
+            footer.writeByte(Columnar.PLAIN);
+            footer.writeDouble(min);
+            footer.writeDouble(max);
+        } else if (uniform && first == RowBuffer.Kind.TEXT) {
+            writeStrings(Columnar.TEXT, texts[column], chunk);
+        } else {
+            // mixed or complex values all become JSON
+            String[] json = texts[column];
+            for (int j = 0; j < rows; j++) {
+                switch (k[j]) {
+                    case LONG:
+                        json[j] = Long.toString(longs[column][j]);
+                        break;
+                    case DOUBLE:
+                        json[j] = Double.toString(doubles[column][j]);
+                        break;
+                    case TEXT:
+                    case BYTES:
+                        json[j] = new TextNode(json[j]).toString();
+                        break;
+                    default:
+                        // already JSON
+                        break;
+                }
+            }
+            writeStrings(Columnar.JSON, json, chunk);
+        }
+    }
+
+    private void writeLongs(long[] v, DataOutputStream chunk) throws IOException {
+        long min = v[0];
+        long max = v[0];
+        boolean deltasFit = true;
+        // bitwise or of the zig-zag deltas tells us how wide they are
+        int deltaBits = 0;
+        for (int j = 1; j < rows; j++) {
+            min = Math.min(min, v[j]);
+            max = Math.max(max, v[j]);
+            long delta = v[j] - v[j - 1];
+            deltasFit &= delta == (int) delta;
+            deltaBits |= Columnar.zigzag(delta);
+        }
+
+        int[] packed = new int[rows];
+        byte encoding;
+        // deltas win if they need no more bits than offsets from the minimum (a negative range overflowed)
+        long range = max - min;
+        if (deltasFit && (range < 0 || Integer.toUnsignedLong(deltaBits) <= Long.highestOneBit(range) * 2 - 1)) {
+            encoding = Columnar.DELTA;
+            chunk.writeByte(encoding);
+            chunk.writeLong(v[0]);
+            for (int j = 1; j < rows; j++) {
+                packed[j - 1] = Columnar.zigzag(v[j] - v[j - 1]);
+            }
+            Columnar.writeInts(codec, chunk, packed, rows - 1);
+        } else if (range >= 0 && range <= 0xffffffffL) {
+            encoding = Columnar.FRAME_OF_REFERENCE;
+            chunk.writeByte(encoding);
+            chunk.writeLong(min);
+            for (int j = 0; j < rows; j++) {
+                packed[j] = (int) (v[j] - min);
+            }
+            Columnar.writeInts(codec, chunk, packed, rows);
+        } else {
+            encoding = Columnar.PLAIN;
+            chunk.writeByte(encoding);
+            for (int j = 0; j < rows; j++) {
+                chunk.writeLong(v[j]);
+            }
+        }
+        footer.writeByte(Columnar.LONG);
+        footer.writeByte(encoding);
+        footer.writeLong(min);
+        footer.writeLong(max);
+    }
+
+    private void writeStrings(byte type, String[] v, DataOutputStream chunk) throws IOException {
+        Map<String, Integer> dictionary = Maps.newHashMap();
+        int[] codes = new int[rows];
+        int limit = (int) (rows * MAX_DICTIONARY_FRACTION) + 1;
+        for (int j = 0; j < rows && dictionary.size() <= limit; j++) {
+            Integer code = dictionary.get(v[j]);
+            if (code == null) {
+                code = dictionary.size();
+                dictionary.put(v[j], code);
+            }
+            codes[j] = code;
+        }
+
+        footer.writeByte(type);
+        if (dictionary.size() <= limit) {
+            String[] entries = new String[dictionary.size()];
+            for (Map.Entry<String, Integer> entry : dictionary.entrySet()) {
+                entries[entry.getValue()] = entry.getKey();
+            }
+            chunk.writeByte(Columnar.DICTIONARY);
+            chunk.writeInt(entries.length);
+            writeStrings(entries, entries.length, chunk);
+            Columnar.writeInts(codec, chunk, codes, rows);
+
+            footer.writeByte(Columnar.DICTIONARY);
+            footer.writeInt(entries.length);
+        } else {
+            chunk.writeByte(Columnar.PLAIN);
+            writeStrings(v, rows, chunk);
+
+            footer.writeByte(Columnar.PLAIN);
+            footer.writeInt(-1);
+        }
+    }
+
+    // packed lengths followed by all of the bytes
+    private void writeStrings(String[] v, int n, DataOutputStream chunk) throws IOException {
+        byte[][] bytes = new byte[n][];
+        int[] lengths = new int[n];
+        for (int j = 0; j < n; j++) {
+            bytes[j] = v[j].getBytes(Charsets.UTF_8);
+            lengths[j] = bytes[j].length;
+        }
+        Columnar.writeInts(codec, chunk, lengths, n);
+        for (byte[] b : bytes) {
+            chunk.write(b);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth;
+
+import com.google.common.base.Preconditions;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes each output file to a named pipe so that another process on the same machine can
+ * consume the data without it ever touching the disk.  Pipes that don't exist yet are created
+ * with mkfifo.  Opening a pipe blocks until the reader opens the other end.
+ */
+public class FifoSink extends FileSink {
+    public FifoSink(File dir, String pattern, int firstFile, int batchSize) {
+        super(dir, pattern, firstFile, batchSize);
+    }
+
+    @Override
+    protected OutputStream connect(int file) throws IOException {
+        File f = file(file);
+        if (!f.exists()) {
+            Process p = new ProcessBuilder("mkfifo", f.getPath()).inheritIO().start();
+            try {
+                Preconditions.checkState(p.waitFor() == 0, "Couldn't create named pipe %s", f);
+            } catch (InterruptedException e) {
+                throw new IOException("Interrupted while creating named pipe " + f, e);
+            }
+        }
+        Preconditions.checkState(!f.isFile(), "%s is a plain file, not a named pipe", f);
+        return new FileOutputStream(f);
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes each output file to a file in a directory.
+ */
+public class FileSink extends Sink {
+    private final File dir;
+    private final String pattern;
+    private final int firstFile;
+
+    /**
+     * @param dir       Where to put the files.
+     * @param pattern   Format for file names, given the file number.
+     * @param firstFile The number of the first file.
+     */
+    public FileSink(File dir, String pattern, int firstFile, int batchSize) {
+        super(batchSize, false);
+        this.dir = dir;
+        this.pattern = pattern;
+        this.firstFile = firstFile;
+    }
+
+    protected File file(int file) {
+        return new File(dir, String.format(pattern, firstFile + file));
+    }
+
+    @Override
+    protected OutputStream connect(int file) throws IOException {
+        return Files.newOutputStream(file(file).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+}
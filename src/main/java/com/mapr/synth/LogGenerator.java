@@ -20,10 +20,11 @@
 package com.mapr.synth;
 
 import com.google.common.collect.Queues;
+import com.mapr.synth.distributions.FastRandom;
 import com.mapr.synth.distributions.LongTail;
+import com.mapr.synth.distributions.SplitRandom;
 import com.mapr.synth.distributions.TermGenerator;
 import com.mapr.synth.distributions.WordGenerator;
-import org.apache.mahout.common.RandomUtils;
 import org.apache.mahout.math.jet.random.AbstractContinousDistribution;
 import org.apache.mahout.math.jet.random.Uniform;
 import org.apache.mahout.math.random.Sampler;
@@ -42,7 +43,7 @@ public class LogGenerator implements Sampler<LogLine> {
     private PriorityQueue<User> users = Queues.newPriorityQueue();
 
     private LongTail<InetAddress> ipGenerator = new LongTail<InetAddress>(1, 0.5) {
-        Random gen = new Random();
+        Random gen = new SplitRandom();
 
         @Override
         protected InetAddress createThing() {
@@ -64,8 +65,11 @@ public class LogGenerator implements Sampler<LogLine> {
     private TermGenerator terms = new TermGenerator(words, 1, 0.8);
     private TermGenerator geo = new TermGenerator(new WordGenerator(null, "geo-codes"), 10, 0);
 
+    // users are split off from this so they each have their own generator
+    private FastRandom rand = new SplitRandom();
+
     // the average user visits once per day, but there is a LOT of variation between users
-    private AbstractContinousDistribution sessionRateDistribution = new Uniform(1.0 / 24 / 3600, 1.0 / 24 / 3600, RandomUtils.getRandom());
+    private AbstractContinousDistribution sessionRateDistribution = new Uniform(1.0 / 24 / 3600, 1.0 / 24 / 3600, rand);
 
     public Iterable<User> getUsers() {
         return users;
@@ -73,7 +77,7 @@ public class LogGenerator implements Sampler<LogLine> {
 
     public LogGenerator(int userCount) {
         for (int i = 0; i < userCount; i++) {
-            users.add(new User(ipGenerator.sample(), geo.sample(), terms, sessionRateDistribution.nextDouble()));
+            users.add(new User(ipGenerator.sample(), geo.sample(), terms, sessionRateDistribution.nextDouble(), rand.split()));
         }
     }
 
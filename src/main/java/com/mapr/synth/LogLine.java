@@ -20,11 +20,12 @@
 package com.mapr.synth;
 
 import com.google.common.collect.ImmutableSet;
+import com.mapr.synth.distributions.FastRandom;
+import com.mapr.synth.distributions.SplitRandom;
 
 import java.net.InetAddress;
 import java.util.Formatter;
 import java.util.List;
-import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -37,7 +38,6 @@ public class LogLine implements Comparable<LogLine> {
     // these add up to enough to cause 0.3% of the queries to be 5x slower
     private static final Set<String> slowWords = ImmutableSet.of("company", "office", "boss", "law",
             "chocolate", "drinking", "table", "english");
-    private final Random rand = new Random();
 
     private InetAddress ip;
     private long cookie;
@@ -47,14 +47,22 @@ public class LogLine implements Comparable<LogLine> {
     private int id = counter.addAndGet(1);
 
     public LogLine(double t, InetAddress ip, long cookie, List<String> query) {
+        this(t, ip, cookie, query, new SplitRandom());
+    }
+
+    /**
+     * Creates a log line using a generator that belongs to the caller so that we don't need a
+     * new generator for every line.
+     */
+    public LogLine(double t, InetAddress ip, long cookie, List<String> query, FastRandom rand) {
         this.t = t;
         this.cookie = cookie;
         this.ip = ip;
         this.query = query;
-        this.responseTime = sampleResponseTime(query);
+        this.responseTime = sampleResponseTime(query, rand);
     }
 
-    private double sampleResponseTime(List<String> query) {
+    private double sampleResponseTime(List<String> query, FastRandom rand) {
         double mean = 0;
         for (String s : query) {
             if (slowWords.contains(s)) {
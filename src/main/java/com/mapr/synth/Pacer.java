@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth;
+
+import com.google.common.base.Preconditions;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Spreads rows out over time instead of generating them as fast as possible.  One pacer is
+ * shared by all of the threads that are generating data.
+ * <p>
+ * At a fixed rate, threads reserve a batch of rows at a time.  Each reservation gets the next
+ * slot of a global schedule so the rate holds for all threads together and nobody calls
+ * nanoTime for each row.  Threads that fall behind catch up by skipping their waits until
+ * they are back on schedule.
+ * <p>
+ * Paced by event time, each row is due when the wall clock has advanced as far past the
+ * start as the row's time stamp has advanced past the first time stamp, divided by the
+ * speed-up.
+ * <p>
+ * In both cases, the lag is how far behind schedule rows are when they become due.
+ */
+public class Pacer {
+    // we park until this close to a deadline and then yield for the rest to keep jitter down
+    private static final long SPIN_NANOS = 50000;
+
+    // want batches of about a millisecond of rows
+    private static final int MAX_BATCH = 1000;
+
+    private final double nanosPerRow;
+    private final double speedup;
+    private final int timeField;
+    private final int batchSize;
+
+    private final long start = System.nanoTime();
+    private final AtomicLong reserved = new AtomicLong();
+    private final AtomicLong firstTime = new AtomicLong(Long.MIN_VALUE);
+
+    // the last time we looked at the clock, so deadlines in the past don't need a fresh look
+    private volatile long now = start;
+    // but we look now and then anyway to keep the lag up to date (races here don't matter)
+    private int checks = 0;
+
+    private volatile long lag = 0;
+    private volatile long maxLag = 0;
+
+    private Pacer(double nanosPerRow, double speedup, int timeField) {
+        this.nanosPerRow = nanosPerRow;
+        this.speedup = speedup;
+        this.timeField = timeField;
+        if (nanosPerRow > 0) {
+            batchSize = (int) Math.max(1, Math.min(MAX_BATCH, 1e6 / nanosPerRow));
+        } else {
+            batchSize = MAX_BATCH;
+        }
+    }
+
+    /**
+     * Paces output to a fixed number of rows per second.
+     */
+    public static Pacer atRate(double rowsPerSecond) {
+        Preconditions.checkArgument(rowsPerSecond > 0, "Rate must be positive");
+        return new Pacer(1e9 / rowsPerSecond, 0, -1);
+    }
+
+    /**
+     * Paces output so that rows come out at the times given by one of their fields.
+     *
+     * @param timeField Which field of each row has the time stamp.
+     * @param speedup   How much faster than real-time to go.
+     */
+    public static Pacer byEventTime(int timeField, double speedup) {
+        Preconditions.checkArgument(speedup > 0, "Speed-up must be positive");
+        return new Pacer(0, speedup, timeField);
+    }
+
+    /**
+     * Returns the field that has the time stamps or -1 if rows are paced at a fixed rate.
+     */
+    public int getTimeField() {
+        return timeField;
+    }
+
+    /**
+     * Returns how many rows to reserve at a time at a fixed rate.
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Reserves the next rows on the schedule and returns when they may be written.
+     */
+    public long reserve(int rows) {
+        Preconditions.checkState(timeField < 0, "Can't reserve rows when pacing by event time");
+        long first = reserved.getAndAdd(rows);
+        return start + (long) (first * nanosPerRow);
+    }
+
+    /**
+     * Returns when a row with the given time stamp may be written.
+     */
+    public long deadline(long eventMillis) {
+        firstTime.compareAndSet(Long.MIN_VALUE, eventMillis);
+        return start + (long) ((eventMillis - firstTime.get()) * 1e6 / speedup);
+    }
+
+    /**
+     * Tells whether a deadline has passed without waiting.  Callers can use this to flush their
+     * output before they wait.
+     */
+    public boolean isDue(long deadline) {
+        if (deadline <= now && (++checks & 1023) != 0) {
+            return true;
+        }
+        now = System.nanoTime();
+        if (deadline <= now) {
+            lag = now - deadline;
+            maxLag = Math.max(maxLag, lag);
+            return true;
+        }
+        lag = 0;
+        return false;
+    }
+
+    /**
+     * Waits until a deadline.
+     */
+    public void waitUntil(long deadline) throws InterruptedException {
+        long t = System.nanoTime();
+        if (t >= deadline) {
+            lag = t - deadline;
+            maxLag = Math.max(maxLag, lag);
+        } else {
+            lag = 0;
+            while (t < deadline) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                if (deadline - t > SPIN_NANOS) {
+                    LockSupport.parkNanos(deadline - t - SPIN_NANOS);
+                } else {
+                    Thread.yield();
+                }
+                t = System.nanoTime();
+            }
+        }
+        now = t;
+    }
+
+    /**
+     * Returns how late, in seconds, the most recent row that was behind schedule was.  This is
+     * zero when we are keeping up.
+     */
+    public double getLag() {
+        return lag * 1e-9;
+    }
+
+    public double getMaxLag() {
+        return maxLag * 1e-9;
+    }
+}
@@ -0,0 +1,356 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.mapr.synth.samplers.RowBuffer;
+import com.mapr.synth.samplers.SchemaSampler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Splits generation of data into three stages that run on separate threads so that slow
+ * disks don't stall sampling and vice versa.
+ * <p>
+ * Each output file has one generator thread and a fixed number of pre-allocated batches of rows.
+ * A batch is filled by the generator, handed to a serializer thread that encodes the rows
+ * into the batch's byte block and then handed to a writer thread that copies the block to the
+ * file.  After that the batch goes back to the generator.  All hand-offs go through bounded queues
+ * so when any stage falls behind, the stages before it block until it catches up.
+ * <p>
+ * Every file is always handled by the same serializer and the same writer so rows come out
+ * in the order they were generated.
+ */
+public class Pipeline {
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    public static final int DEFAULT_DEPTH = 4;
+
+    // how long to wait on a queue before checking whether some other stage has failed
+    private static final long POLL_MILLIS = 100;
+
+    /**
+     * Opens the stream that a particular file should be written to.
+     */
+    public interface Output {
+        OutputStream open(int file) throws IOException;
+    }
+
+    /**
+     * Keeps track of how busy the threads in one stage have been.
+     */
+    public static class Stage {
+        private final String name;
+        private final int threads;
+        private final AtomicLong busy = new AtomicLong();
+
+        Stage(String name, int threads) {
+            this.name = name;
+            this.threads = threads;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the fraction of the available thread time that this stage has spent working
+         * rather than waiting on its neighbours.
+         */
+        public double utilization(double elapsedSeconds) {
+            return busy.get() * 1e-9 / (elapsedSeconds * threads);
+        }
+    }
+
+    private static class Batch {
+        final int file;
+        final RowBuffer[] rows;
+        final ByteArrayOutputStream block = new ByteArrayOutputStream();
+        final RowWriter writer;
+        int count;
+        boolean header;
+        boolean last;
+
+        Batch(int file, SchemaSampler sampler, int batchSize, Synth.Format format, Synth.Quote quote) {
+            this.file = file;
+            rows = new RowBuffer[batchSize];
+            for (int i = 0; i < batchSize; i++) {
+                rows[i] = sampler.newRow();
+            }
+            writer = new RowWriter(block, format, quote, sampler.getFieldNames(), 16 * 1024);
+        }
+    }
+
+    private final List<SchemaSampler> samplers;
+    private final int serializers;
+    private final int writers;
+    private final int batchSize;
+
+    private final List<BlockingQueue<Batch>> free = Lists.newArrayList();
+    private final List<BlockingQueue<Batch>> toSerialize = Lists.newArrayList();
+    private final List<BlockingQueue<Batch>> toWrite = Lists.newArrayList();
+
+    private final Stage generate;
+    private final Stage serialize;
+    private final Stage write;
+
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    private Pacer pacer = null;
+
+    /**
+     * Creates a pipeline where each file has its own sampler.  Samplers aren't thread safe so these
+     * must all be distinct, normally positioned at the first row of each file.
+     */
+    public Pipeline(List<SchemaSampler> samplers, Synth.Format format, Synth.Quote quote, int serializers, int writers) {
+        this(samplers, format, quote, serializers, writers, DEFAULT_BATCH_SIZE, DEFAULT_DEPTH);
+    }
+
+    public Pipeline(List<SchemaSampler> samplers, Synth.Format format, Synth.Quote quote, int serializers, int writers, int batchSize, int depth) {
+        int files = samplers.size();
+        Preconditions.checkArgument(files > 0 && serializers > 0 && writers > 0, "Each stage needs at least one thread");
+        Preconditions.checkArgument(batchSize > 0 && depth > 0, "Batch size and depth must be positive");
+
+        this.samplers = samplers;
+        this.serializers = serializers;
+        this.writers = writers;
+        this.batchSize = batchSize;
+
+        for (int i = 0; i < files; i++) {
+            BlockingQueue<Batch> q = new ArrayBlockingQueue<>(depth);
+            for (int j = 0; j < depth; j++) {
+                q.add(new Batch(i, samplers.get(i), batchSize, format, quote));
+            }
+            free.add(q);
+        }
+        // every batch in flight can fit in any queue, so puts downstream only block when things are very unbalanced
+        for (int i = 0; i < serializers; i++) {
+            toSerialize.add(new ArrayBlockingQueue<Batch>(files * depth));
+        }
+        for (int i = 0; i < writers; i++) {
+            toWrite.add(new ArrayBlockingQueue<Batch>(files * depth));
+        }
+
+        generate = new Stage("generate", files);
+        serialize = new Stage("serialize", serializers);
+        write = new Stage("write", writers);
+    }
+
+    /**
+     * Limits the rate at which batches are generated.  Pacing by event time isn't supported
+     * since rows would be held up in batches anyway.
+     */
+    public void setPacer(Pacer pacer) {
+        Preconditions.checkArgument(pacer.getTimeField() < 0, "Pipelines can only be paced at a fixed rate");
+        this.pacer = pacer;
+    }
+
+    public List<Stage> getStages() {
+        return Lists.newArrayList(generate, serialize, write);
+    }
+
+    /**
+     * Returns one task per thread for all three stages.  The generator tasks return the number of
+     * rows they produced, the others return zero.
+     *
+     * @param counts   How many rows to put into each file.
+     * @param output   Where to write each file.
+     * @param rowCount Incremented as rows are generated.
+     */
+    public List<Callable<Long>> tasks(long[] counts, final Output output, final AtomicLong rowCount) {
+        Preconditions.checkArgument(counts.length == free.size(), "Need one count per file");
+
+        List<Callable<Long>> r = Lists.newArrayList();
+        for (int i = 0; i < counts.length; i++) {
+            final int file = i;
+            final long count = counts[i];
+            r.add(new Callable<Long>() {
+                @Override
+                public Long call() throws Exception {
+                    try {
+                        return generate(file, count, rowCount);
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                        throw e;
+                    }
+                }
+            });
+        }
+
+        for (int i = 0; i < serializers; i++) {
+            final int id = i;
+            r.add(new Callable<Long>() {
+                @Override
+                public Long call() throws Exception {
+                    try {
+                        serialize(id);
+                        return 0L;
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                        throw e;
+                    }
+                }
+            });
+        }
+
+        for (int i = 0; i < writers; i++) {
+            final int id = i;
+            r.add(new Callable<Long>() {
+                @Override
+                public Long call() throws Exception {
+                    try {
+                        write(id, output);
+                        return 0L;
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                        throw e;
+                    }
+                }
+            });
+        }
+        return r;
+    }
+
+    private long generate(int file, long count, AtomicLong rowCount) throws InterruptedException {
+        SchemaSampler sampler = samplers.get(file);
+        long rows = 0;
+        boolean first = true;
+        do {
+            Batch b = take(free.get(file));
+
+            int k = (int) Math.min(batchSize, count - rows);
+            if (pacer != null) {
+                pacer.waitUntil(pacer.reserve(k));
+            }
+
+            long t0 = System.nanoTime();
+            for (int i = 0; i < k; i++) {
+                sampler.sample(b.rows[i]);
+            }
+            generate.busy.addAndGet(System.nanoTime() - t0);
+
+            rows += k;
+            b.count = k;
+            b.header = first;
+            b.last = rows == count;
+            first = false;
+
+            put(toSerialize.get(file % serializers), b);
+            rowCount.addAndGet(k);
+        } while (rows < count);
+        return rows;
+    }
+
+    private void serialize(int id) throws InterruptedException, IOException {
+        int open = filesFor(id, serializers);
+        BlockingQueue<Batch> in = toSerialize.get(id);
+        while (open > 0) {
+            Batch b = take(in);
+
+            long t0 = System.nanoTime();
+            b.block.reset();
+            if (b.header) {
+                b.writer.header();
+            }
+            for (int i = 0; i < b.count; i++) {
+                b.writer.write(b.rows[i]);
+            }
+            b.writer.flush();
+            serialize.busy.addAndGet(System.nanoTime() - t0);
+
+            if (b.last) {
+                open--;
+            }
+            put(toWrite.get(b.file % writers), b);
+        }
+    }
+
+    private void write(int id, Output output) throws InterruptedException, IOException {
+        int open = filesFor(id, writers);
+        Map<Integer, OutputStream> streams = Maps.newHashMap();
+        BlockingQueue<Batch> in = toWrite.get(id);
+        try {
+            while (open > 0) {
+                Batch b = take(in);
+
+                long t0 = System.nanoTime();
+                OutputStream out = streams.get(b.file);
+                if (out == null) {
+                    out = output.open(b.file);
+                    streams.put(b.file, out);
+                }
+                b.block.writeTo(out);
+                boolean last = b.last;
+                if (last) {
+                    streams.remove(b.file).close();
+                }
+                write.busy.addAndGet(System.nanoTime() - t0);
+
+                put(free.get(b.file), b);
+                if (last) {
+                    open--;
+                }
+            }
+        } finally {
+            for (OutputStream out : streams.values()) {
+                out.close();
+            }
+        }
+    }
+
+    // how many files are handled by thread id out of n
+    private int filesFor(int id, int n) {
+        int files = free.size();
+        return files / n + (id < files % n ? 1 : 0);
+    }
+
+    private Batch take(BlockingQueue<Batch> q) throws InterruptedException {
+        while (true) {
+            checkFailure();
+            Batch b = q.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            if (b != null) {
+                return b;
+            }
+        }
+    }
+
+    private void put(BlockingQueue<Batch> q, Batch b) throws InterruptedException {
+        while (!q.offer(b, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+            checkFailure();
+        }
+    }
+
+    private void checkFailure() {
+        if (failure.get() != null) {
+            throw new IllegalStateException("Another stage of the pipeline failed", failure.get());
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Process wide store for data built from resource files such as name lists and zip code tables.
+ * <p>
+ * Each entry is loaded on first use, exactly once, no matter how many samplers or threads ask for
+ * it at the same time.  Callers that arrive while an entry is loading wait for it rather than
+ * loading their own copy.  Entries must be immutable, or at least thread safe, since everybody
+ * shares them.
+ */
+public final class ResourceRegistry {
+    private static final ConcurrentMap<String, FutureTask<Object>> entries = new ConcurrentHashMap<>();
+
+    public interface Loader<T> {
+        T load() throws IOException;
+    }
+
+    private ResourceRegistry() {
+    }
+
+    /**
+     * Returns the entry with a particular key, loading it if need be.  Keys should include
+     * everything that affects the result, such as the resource name and how it is parsed.
+     * <p>
+     * If loading fails, the exception is passed to the caller (wrapped if it is checked) and the
+     * next request for the same key will try again.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T get(String key, final Loader<T> loader) {
+        FutureTask<Object> task = entries.get(key);
+        if (task == null) {
+            FutureTask<Object> fresh = new FutureTask<>(new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    return loader.load();
+                }
+            });
+            task = entries.putIfAbsent(key, fresh);
+            if (task == null) {
+                task = fresh;
+                task.run();
+            }
+        }
+
+        try {
+            return (T) task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading " + key, e);
+        } catch (ExecutionException e) {
+            entries.remove(key, task);
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            } else {
+                throw new RuntimeException("Couldn't read built-in resource for " + key, cause);
+            }
+        }
+    }
+
+    /**
+     * Forgets all entries so that they will be loaded again.  Samplers that already have
+     * references keep using them.  Mostly useful for measuring start-up time.
+     */
+    public static void clear() {
+        entries.clear();
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth;
+
+import com.google.common.collect.ImmutableList;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Writes binary snapshots of the built-in resource tables so that samplers don't have to parse
+ * text at start-up.  The build runs this after compiling and puts the snapshots next to the
+ * classes so they end up in the jar.
+ * <p>
+ * Each table has to be listed here along with the way that its sampler parses it.  A table that
+ * isn't listed, is parsed differently than its snapshot or has changed since the snapshot was
+ * made is simply read from the text.
+ */
+public class ResourceSnapshot {
+    static class Spec {
+        final String resource;
+        final char delimiter;
+        final boolean quoted;
+        final boolean trim;
+
+        Spec(String resource, char delimiter, boolean quoted, boolean trim) {
+            this.resource = resource;
+            this.delimiter = delimiter;
+            this.quoted = quoted;
+            this.trim = trim;
+        }
+    }
+
+    static final List<Spec> TABLES = ImmutableList.of(
+            // NameSampler and StreetNameSampler
+            new Spec("dist.male.first", ResourceTable.WHITESPACE, false, false),
+            new Spec("dist.female.first", ResourceTable.WHITESPACE, false, false),
+            new Spec("dist.all.last", ResourceTable.WHITESPACE, false, false),
+            new Spec("street-name-seeds", '\t', false, false),
+
+            new Spec("zip.csv", ',', true, false),
+            new Spec("ssn-seeds", ',', false, true),
+
+            // WordGenerator
+            new Spec("word-frequency-seed", '\t', false, false),
+            new Spec("other-words", '\t', false, false),
+            new Spec("geo-codes", '\t', false, false),
+
+            // StringSampler and its sub-classes
+            new Spec("dist.browser", '\t', false, true),
+            new Spec("dist.country", '\t', false, true),
+            new Spec("dist.language", '\t', false, true),
+            new Spec("dist.os", '\t', false, true),
+            new Spec("dist.states", '\t', false, true),
+            new Spec("user-agents/chrome", '\t', false, true),
+            new Spec("user-agents/firefox", '\t', false, true),
+            new Spec("user-agents/ie", '\t', false, true),
+            new Spec("user-agents/mobile", '\t', false, true),
+            new Spec("user-agents/opera", '\t', false, true),
+            new Spec("user-agents/safari", '\t', false, true),
+
+            // VinSampler
+            new Spec("vin-make.tsv", '\t', false, false),
+            new Spec("vin-by-make.tsv", '\t', false, false),
+            new Spec("vin-by-country.tsv", '\t', false, false),
+            new Spec("ford-restraints.tsv", '\t', false, false),
+            new Spec("ford-models.tsv", '\t', false, false),
+            new Spec("ford-engines.tsv", '\t', false, false),
+            new Spec("bmw-models.tsv", '\t', false, false),
+            new Spec("bmw-plants.tsv", '\t', false, false)
+    );
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: ResourceSnapshot output-directory");
+            System.exit(1);
+        }
+        File root = new File(args[0]);
+
+        int count = 0;
+        for (Spec spec : TABLES) {
+            if (ResourceSnapshot.class.getClassLoader().getResource(spec.resource) == null) {
+                System.out.printf("Skipping snapshot of %s, resource not found\n", spec.resource);
+                continue;
+            }
+            ResourceTable table = ResourceTable.parse(spec.resource, spec.delimiter, spec.quoted, spec.trim);
+            File out = new File(root, ResourceTable.snapshotName(spec.resource));
+            if (!out.getParentFile().isDirectory() && !out.getParentFile().mkdirs()) {
+                throw new IOException("Can't create directory " + out.getParentFile());
+            }
+            try (OutputStream s = new BufferedOutputStream(new FileOutputStream(out))) {
+                table.writeSnapshot(s);
+            }
+            count++;
+        }
+        System.out.printf("Wrote %d resource snapshots to %s\n", count, new File(root, "snapshots"));
+    }
+}
@@ -0,0 +1,392 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.io.Resources;
+import org.apache.mahout.math.list.IntArrayList;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * A delimited text resource parsed into rows of fields with all of the field values kept in a
+ * {@link StringArena}.  Lines that start with # are comments.  The last comment, split the same
+ * way as the data, is kept as the header since that is where our data files name their columns.
+ * <p>
+ * Immutable and safe to share.  Use {@link #get} to share one copy through the {@link ResourceRegistry}.
+ * <p>
+ * The build stores a binary snapshot of each built-in table (see {@link ResourceSnapshot}).  When
+ * a snapshot exists for a resource, was parsed the same way and was made from text with the same
+ * length and CRC-32 as the resource that would be parsed now, it is memory-mapped and copied
+ * straight into the arrays here instead of parsing the text.
+ */
+public final class ResourceTable {
+    /**
+     * Use as the delimiter to split fields on runs of white space, ignoring any at the ends.
+     */
+    public static final char WHITESPACE = 0;
+
+    private static final int SNAPSHOT_MAGIC = 0x4c535254;
+    private static final int SNAPSHOT_VERSION = 2;
+
+    private static volatile boolean useSnapshots = true;
+
+    private final char delimiter;
+    private final boolean quoted;
+    private final boolean trim;
+
+    // identifies the text that this was parsed from
+    private final long sourceLength;
+    private final long sourceCrc;
+
+    private final StringArena strings;
+    private final int[] cells;
+    // the fields for row i are cells[rowStart[i]] ... cells[rowStart[i + 1] - 1]
+    private final int[] rowStart;
+    private final int[] lines;
+    private final List<String> header;
+
+    private ResourceTable(char delimiter, boolean quoted, boolean trim, long sourceLength, long sourceCrc,
+                          StringArena strings, int[] cells, int[] rowStart, int[] lines, List<String> header) {
+        this.delimiter = delimiter;
+        this.quoted = quoted;
+        this.trim = trim;
+        this.sourceLength = sourceLength;
+        this.sourceCrc = sourceCrc;
+        this.strings = strings;
+        this.cells = cells;
+        this.rowStart = rowStart;
+        this.lines = lines;
+        this.header = header;
+    }
+
+    /**
+     * Turns the use of snapshots on or off.  Mostly useful for measuring how much they help.
+     */
+    public static void setUseSnapshots(boolean useSnapshots) {
+        ResourceTable.useSnapshots = useSnapshots;
+    }
+
+    /**
+     * Returns the shared copy of a resource, reading it if this is the first request.
+     *
+     * @param resource  The name of the resource.
+     * @param delimiter The character between fields, or {@link #WHITESPACE}.
+     * @param quoted    If true, fields that start with a double quote extend to the next double quote.
+     * @param trim      If true, white space around fields is dropped.
+     */
+    public static ResourceTable get(final String resource, final char delimiter, final boolean quoted, final boolean trim) {
+        String key = String.format("table:%s:%d:%s:%s", resource, (int) delimiter, quoted, trim);
+        return ResourceRegistry.get(key, new ResourceRegistry.Loader<ResourceTable>() {
+            @Override
+            public ResourceTable load() throws IOException {
+                return read(resource, delimiter, quoted, trim);
+            }
+        });
+    }
+
+    /**
+     * Reads a private copy of a resource, from its snapshot if there is a suitable one.
+     */
+    public static ResourceTable read(String resource, char delimiter, boolean quoted, boolean trim) throws IOException {
+        byte[] source = Resources.toByteArray(Resources.getResource(resource));
+        if (useSnapshots) {
+            ResourceTable r = readSnapshot(resource);
+            // a stale snapshot or one for some other resource of the same name is ignored
+            if (r != null && r.delimiter == delimiter && r.quoted == quoted && r.trim == trim
+                    && r.sourceLength == source.length && r.sourceCrc == crc(source)) {
+                return r;
+            }
+        }
+        return parse(source, delimiter, quoted, trim);
+    }
+
+    /**
+     * Parses the text of a resource, ignoring any snapshot.
+     */
+    public static ResourceTable parse(String resource, char delimiter, boolean quoted, boolean trim) throws IOException {
+        return parse(Resources.toByteArray(Resources.getResource(resource)), delimiter, quoted, trim);
+    }
+
+    private static ResourceTable parse(byte[] source, char delimiter, boolean quoted, boolean trim) {
+        String text = new String(source, Charsets.UTF_8);
+
+        StringArena.Builder strings = new StringArena.Builder();
+        IntArrayList cells = new IntArrayList();
+        IntArrayList rowStart = new IntArrayList();
+        IntArrayList lines = new IntArrayList();
+        List<String> header = null;
+
+        List<String> fields = Lists.newArrayList();
+        int line = 0;
+        int start = 0;
+        while (start < text.length()) {
+            int end = text.indexOf('\n', start);
+            int next = end < 0 ? text.length() : end + 1;
+            if (end < 0) {
+                end = text.length();
+            }
+            if (end > start && text.charAt(end - 1) == '\r') {
+                end--;
+            }
+
+            fields.clear();
+            boolean comment = end > start && text.charAt(start) == '#';
+            split(text, comment ? start + 1 : start, end, delimiter, quoted, trim, fields);
+            if (comment) {
+                header = ImmutableList.copyOf(fields);
+            } else {
+                rowStart.add(cells.size());
+                lines.add(line);
+                for (String field : fields) {
+                    cells.add(strings.add(field));
+                }
+            }
+            line++;
+            start = next;
+        }
+        rowStart.add(cells.size());
+        return new ResourceTable(delimiter, quoted, trim, source.length, crc(source),
+                strings.build(), trimmed(cells), trimmed(rowStart), trimmed(lines), header);
+    }
+
+    private static long crc(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length);
+        return crc.getValue();
+    }
+
+    private static int[] trimmed(IntArrayList list) {
+        list.trimToSize();
+        return list.elements();
+    }
+
+    /**
+     * Returns the name of the resource that holds the snapshot of a resource.
+     */
+    public static String snapshotName(String resource) {
+        return "snapshots/" + resource + ".bin";
+    }
+
+    /**
+     * Writes this table in the form that {@link #read} can map back in.
+     */
+    public void writeSnapshot(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(SNAPSHOT_MAGIC);
+        data.writeInt(SNAPSHOT_VERSION);
+        data.writeChar(delimiter);
+        data.writeBoolean(quoted);
+        data.writeBoolean(trim);
+        data.writeLong(sourceLength);
+        data.writeLong(sourceCrc);
+
+        if (header == null) {
+            data.writeInt(-1);
+        } else {
+            data.writeInt(header.size());
+            for (String name : header) {
+                byte[] b = name.getBytes(Charsets.UTF_8);
+                data.writeInt(b.length);
+                data.write(b);
+            }
+        }
+
+        data.writeInt(strings.bytes().length);
+        data.write(strings.bytes());
+        writeInts(data, strings.offsets());
+        writeInts(data, cells);
+        writeInts(data, rowStart);
+        writeInts(data, lines);
+        data.flush();
+    }
+
+    private static void writeInts(DataOutputStream data, int[] values) throws IOException {
+        data.writeInt(values.length);
+        for (int v : values) {
+            data.writeInt(v);
+        }
+    }
+
+    // returns null if there is no snapshot or it is from some other version
+    static ResourceTable readSnapshot(String resource) throws IOException {
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        URL url = (loader != null ? loader : ResourceTable.class.getClassLoader()).getResource(snapshotName(resource));
+        if (url == null) {
+            return null;
+        }
+
+        ByteBuffer buf = map(url);
+        if (buf.getInt() != SNAPSHOT_MAGIC || buf.getInt() != SNAPSHOT_VERSION) {
+            return null;
+        }
+        char delimiter = buf.getChar();
+        boolean quoted = buf.get() != 0;
+        boolean trim = buf.get() != 0;
+        long sourceLength = buf.getLong();
+        long sourceCrc = buf.getLong();
+
+        List<String> header = null;
+        int n = buf.getInt();
+        if (n >= 0) {
+            List<String> names = Lists.newArrayList();
+            for (int i = 0; i < n; i++) {
+                byte[] b = new byte[buf.getInt()];
+                buf.get(b);
+                names.add(new String(b, Charsets.UTF_8));
+            }
+            header = ImmutableList.copyOf(names);
+        }
+
+        byte[] bytes = new byte[buf.getInt()];
+        buf.get(bytes);
+        StringArena strings = StringArena.wrap(bytes, readInts(buf));
+        int[] cells = readInts(buf);
+        int[] rowStart = readInts(buf);
+        int[] lines = readInts(buf);
+        return new ResourceTable(delimiter, quoted, trim, sourceLength, sourceCrc, strings, cells, rowStart, lines, header);
+    }
+
+    private static int[] readInts(ByteBuffer buf) {
+        int[] r = new int[buf.getInt()];
+        buf.asIntBuffer().get(r);
+        buf.position(buf.position() + 4 * r.length);
+        return r;
+    }
+
+    // files are mapped, anything else (such as an entry in a jar) has to be read
+    private static ByteBuffer map(URL url) throws IOException {
+        if ("file".equals(url.getProtocol())) {
+            try (FileChannel channel = FileChannel.open(Paths.get(url.toURI()), StandardOpenOption.READ)) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            } catch (URISyntaxException e) {
+                throw new IOException("Bad snapshot location " + url, e);
+            }
+        } else {
+            return ByteBuffer.wrap(Resources.toByteArray(url));
+        }
+    }
+
+    private static void split(String text, int start, int end, char delimiter, boolean quoted, boolean trim, List<String> fields) {
+        if (delimiter == WHITESPACE) {
+            int pos = start;
+            while (true) {
+                while (pos < end && Character.isWhitespace(text.charAt(pos))) {
+                    pos++;
+                }
+                if (pos >= end) {
+                    return;
+                }
+                int fieldStart = pos;
+                while (pos < end && !Character.isWhitespace(text.charAt(pos))) {
+                    pos++;
+                }
+                fields.add(text.substring(fieldStart, pos));
+            }
+        }
+
+        int pos = start;
+        while (true) {
+            String field;
+            if (trim) {
+                while (pos < end && text.charAt(pos) != delimiter && Character.isWhitespace(text.charAt(pos))) {
+                    pos++;
+                }
+            }
+            if (quoted && pos < end && text.charAt(pos) == '"') {
+                int close = text.indexOf('"', pos + 1);
+                Preconditions.checkState(close >= 0 && close < end, "Unclosed quoted string");
+                field = text.substring(pos + 1, close);
+                int d = text.indexOf(delimiter, close + 1);
+                pos = d < 0 || d > end ? end : d;
+            } else {
+                int d = text.indexOf(delimiter, pos);
+                int fieldEnd = d < 0 || d > end ? end : d;
+                field = text.substring(pos, fieldEnd);
+                pos = fieldEnd;
+            }
+            fields.add(trim ? field.trim() : field);
+            if (pos >= end) {
+                break;
+            }
+            // skip the delimiter, a delimiter at the very end gives one last empty field
+            pos++;
+        }
+    }
+
+    /**
+     * Returns the fields of the last comment line, or null if there were no comments.
+     */
+    public List<String> getHeader() {
+        return header;
+    }
+
+    public int rows() {
+        return rowStart.length - 1;
+    }
+
+    public int columns(int row) {
+        return rowStart[row + 1] - rowStart[row];
+    }
+
+    /**
+     * Returns the index in {@link #strings()} of a field.  Equal values have the same index.
+     */
+    public int id(int row, int column) {
+        Preconditions.checkElementIndex(column, columns(row));
+        return cells[rowStart[row] + column];
+    }
+
+    public String get(int row, int column) {
+        return strings.get(id(row, column));
+    }
+
+    public List<String> getRow(int row) {
+        List<String> r = Lists.newArrayList();
+        for (int i = 0; i < columns(row); i++) {
+            r.add(get(row, i));
+        }
+        return r;
+    }
+
+    /**
+     * Returns the line number (counting from zero and including comments) that a row came from.
+     */
+    public int line(int row) {
+        return lines[row];
+    }
+
+    public StringArena strings() {
+        return strings;
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth;
+
+import com.mapr.synth.samplers.RowBuffer;
+
+import java.io.IOException;
+
+/**
+ * Encodes rows onto an output stream.  None of these methods close the stream.
+ */
+public interface RowOutput {
+    /**
+     * Writes whatever has to come before the first row, if anything.
+     */
+    void header() throws IOException;
+
+    void write(RowBuffer row) throws IOException;
+
+    /**
+     * Pushes out as much as possible of what has been written so far.
+     */
+    void flush() throws IOException;
+
+    /**
+     * Writes everything including any trailer.  No more rows can be written after this.
+     */
+    void finish() throws IOException;
+}
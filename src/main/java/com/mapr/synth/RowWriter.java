@@ -0,0 +1,408 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth;
+
+import com.fasterxml.jackson.core.io.CharTypes;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.base.Charsets;
+import com.mapr.synth.samplers.RowBuffer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Encodes rows as CSV, TSV or JSON lines straight into a reusable UTF-8 byte buffer which
+ * is written to the underlying stream in large blocks.
+ * <p>
+ * Escaping is done by table lookup on 7-bit characters.  This is safe on UTF-8 data because
+ * every byte of a multi-byte sequence has the high bit set.  The output is the same as the
+ * old printf based formatting in {@link Synth}:
+ * <ul>
+ * <li><em>DOUBLE_QUOTE</em> - each value is written as JSON so strings are quoted and escaped</li>
+ * <li><em>OPTIMISTIC</em> - values are written as plain text with no escaping at all</li>
+ * <li><em>BACK_SLASH</em> - commas, white space and back-slashes are preceded by a back-slash</li>
+ * </ul>
+ * <p>
+ * Not thread safe.
+ */
+public class RowWriter implements RowOutput {
+    public static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes(Charsets.US_ASCII);
+
+    // for JSON, 0 means copy as is, -1 means \\u00XX and anything else is the short escape letter
+    private static final int[] JSON_ESCAPES = new int[128];
+    // for BACK_SLASH, true means the character needs a back-slash in front of it
+    private static final boolean[] SLASH_ESCAPES = new boolean[128];
+
+    static {
+        for (int i = 0; i < 32; i++) {
+            JSON_ESCAPES[i] = -1;
+        }
+        JSON_ESCAPES['"'] = '"';
+        JSON_ESCAPES['\\'] = '\\';
+        JSON_ESCAPES['\b'] = 'b';
+        JSON_ESCAPES['\t'] = 't';
+        JSON_ESCAPES['\f'] = 'f';
+        JSON_ESCAPES['\n'] = 'n';
+        JSON_ESCAPES['\r'] = 'r';
+
+        // these are the characters matched by ([,\t\s\\])
+        for (char c : new char[]{',', '\t', ' ', '\n', 0x0B, '\f', '\r', '\\'}) {
+            SLASH_ESCAPES[c] = true;
+        }
+    }
+
+    private final OutputStream out;
+    private final Synth.Format format;
+    private final Synth.Quote quote;
+    private final List<String> names;
+    private final byte separator;
+
+    // for JSON, these hold {"name": or ,"name": so field names are only encoded once
+    private final byte[][] prefixes;
+
+    private final byte[] buf;
+    private int pos = 0;
+
+    // scratch space for formatting longs
+    private final byte[] digits = new byte[20];
+
+    public RowWriter(OutputStream out, Synth.Format format, Synth.Quote quote, List<String> names) {
+        this(out, format, quote, names, DEFAULT_BUFFER_SIZE);
+    }
+
+    public RowWriter(OutputStream out, Synth.Format format, Synth.Quote quote, List<String> names, int bufferSize) {
+        this.out = out;
+        this.format = format;
+        this.quote = quote;
+        this.names = names;
+        this.buf = new byte[Math.max(bufferSize, 64)];
+
+        switch (format) {
+            case CSV:
+                separator = ',';
+                prefixes = null;
+                break;
+            case TSV:
+                separator = '\t';
+                prefixes = null;
+                break;
+            case JSON:
+                separator = ',';
+                prefixes = new byte[names.size()][];
+                for (int i = 0; i < names.size(); i++) {
+                    StringBuilder prefix = new StringBuilder(i == 0 ? "{\"" : ",\"");
+                    CharTypes.appendQuoted(prefix, names.get(i));
+                    prefix.append("\":");
+                    prefixes[i] = prefix.toString().getBytes(Charsets.UTF_8);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException(String.format("Can't write %s format as rows", format));
+        }
+    }
+
+    /**
+     * Writes the line of field names that starts CSV and TSV files.  Does nothing for JSON.
+     */
+    @Override
+    public void header() throws IOException {
+        if (format != Synth.Format.JSON) {
+            for (int i = 0; i < names.size(); i++) {
+                if (i > 0) {
+                    put(separator);
+                }
+                writeRaw(names.get(i));
+            }
+            put((byte) '\n');
+        }
+    }
+
+    @Override
+    public void write(RowBuffer row) throws IOException {
+        if (format == Synth.Format.JSON) {
+            writeJsonRow(row);
+        } else {
+            for (int i = 0; i < row.size(); i++) {
+                if (i > 0) {
+                    put(separator);
+                }
+                switch (quote) {
+                    case DOUBLE_QUOTE:
+                        writeJsonValue(row, i);
+                        break;
+                    case OPTIMISTIC:
+                        writeText(row, i, false);
+                        break;
+                    case BACK_SLASH:
+                        writeText(row, i, true);
+                        break;
+                }
+            }
+        }
+        put((byte) '\n');
+    }
+
+    /**
+     * Writes any buffered bytes to the underlying stream and flushes it.
+     */
+    @Override
+    public void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    /**
+     * Same as flush since line oriented formats have nothing after the last row.
+     */
+    @Override
+    public void finish() throws IOException {
+        flush();
+    }
+
+    private void writeJsonRow(RowBuffer row) throws IOException {
+        JsonNode tree = row.getTree();
+        if (tree != null) {
+            // flattened records don't line up with the field names
+            writeRaw(tree.toString());
+            return;
+        }
+        for (int i = 0; i < row.size(); i++) {
+            put(prefixes[i]);
+            writeJsonValue(row, i);
+        }
+        if (row.size() == 0) {
+            put((byte) '{');
+        }
+        put((byte) '}');
+    }
+
+    private void writeJsonValue(RowBuffer row, int slot) throws IOException {
+        switch (row.getKind(slot)) {
+            case LONG:
+                writeLong(row.getLong(slot));
+                break;
+            case DOUBLE:
+                writeRaw(Double.toString(row.getDouble(slot)));
+                break;
+            case TEXT:
+                put((byte) '"');
+                writeJsonString(row.getText(slot));
+                put((byte) '"');
+                break;
+            case BYTES:
+                put((byte) '"');
+                writeJsonBytes(row.getBytes(slot), row.getOffset(slot), row.getLength(slot));
+                put((byte) '"');
+                break;
+            default:
+                writeRaw(row.getNode(slot).toString());
+                break;
+        }
+    }
+
+    private void writeText(RowBuffer row, int slot, boolean backSlash) throws IOException {
+        switch (row.getKind(slot)) {
+            case LONG:
+                // digits and minus signs never need escaping
+                writeLong(row.getLong(slot));
+                break;
+            case BYTES:
+                if (backSlash) {
+                    writeSlashedBytes(row.getBytes(slot), row.getOffset(slot), row.getLength(slot));
+                } else {
+                    put(row.getBytes(slot), row.getOffset(slot), row.getLength(slot));
+                }
+                break;
+            default:
+                if (backSlash) {
+                    writeSlashedString(row.asText(slot));
+                } else {
+                    writeRaw(row.asText(slot));
+                }
+                break;
+        }
+    }
+
+    private void writeLong(long v) throws IOException {
+        ensure(20);
+        if (v == Long.MIN_VALUE) {
+            writeRaw(Long.toString(v));
+            return;
+        }
+        if (v < 0) {
+            buf[pos++] = '-';
+            v = -v;
+        }
+        int n = 0;
+        do {
+            digits[n++] = (byte) ('0' + v % 10);
+            v /= 10;
+        } while (v > 0);
+        while (n > 0) {
+            buf[pos++] = digits[--n];
+        }
+    }
+
+    private void writeRaw(String s) throws IOException {
+        int n = s.length();
+        for (int i = 0; i < n; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                put((byte) c);
+            } else {
+                i = putUtf8(s, i);
+            }
+        }
+    }
+
+    private void writeSlashedString(String s) throws IOException {
+        int n = s.length();
+        for (int i = 0; i < n; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                if (SLASH_ESCAPES[c]) {
+                    put((byte) '\\');
+                }
+                put((byte) c);
+            } else {
+                i = putUtf8(s, i);
+            }
+        }
+    }
+
+    private void writeSlashedBytes(byte[] data, int offset, int length) throws IOException {
+        for (int i = offset; i < offset + length; i++) {
+            byte b = data[i];
+            if (b >= 0 && SLASH_ESCAPES[b]) {
+                put((byte) '\\');
+            }
+            put(b);
+        }
+    }
+
+    private void writeJsonString(String s) throws IOException {
+        int n = s.length();
+        for (int i = 0; i < n; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                putJsonAscii(c);
+            } else {
+                i = putUtf8(s, i);
+            }
+        }
+    }
+
+    private void writeJsonBytes(byte[] data, int offset, int length) throws IOException {
+        for (int i = offset; i < offset + length; i++) {
+            byte b = data[i];
+            if (b >= 0) {
+                putJsonAscii(b);
+            } else {
+                put(b);
+            }
+        }
+    }
+
+    private void putJsonAscii(int c) throws IOException {
+        int escape = JSON_ESCAPES[c];
+        if (escape == 0) {
+            put((byte) c);
+        } else {
+            ensure(6);
+            buf[pos++] = '\\';
+            if (escape > 0) {
+                buf[pos++] = (byte) escape;
+            } else {
+                buf[pos++] = 'u';
+                buf[pos++] = '0';
+                buf[pos++] = '0';
+                buf[pos++] = HEX[c >> 4];
+                buf[pos++] = HEX[c & 0xf];
+            }
+        }
+    }
+
+    /**
+     * Encodes the non-ASCII character at position i.  Returns the index of the last char
+     * consumed, which is i + 1 for a surrogate pair.
+     */
+    private int putUtf8(String s, int i) throws IOException {
+        ensure(4);
+        char c = s.charAt(i);
+        if (c < 0x800) {
+            buf[pos++] = (byte) (0xc0 | (c >> 6));
+            buf[pos++] = (byte) (0x80 | (c & 0x3f));
+        } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+            int cp = Character.toCodePoint(c, s.charAt(i + 1));
+            buf[pos++] = (byte) (0xf0 | (cp >> 18));
+            buf[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+            buf[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+            buf[pos++] = (byte) (0x80 | (cp & 0x3f));
+            return i + 1;
+        } else if (Character.isSurrogate(c)) {
+            // unpaired surrogates can't be encoded, String.getBytes would also write a ?
+            buf[pos++] = '?';
+        } else {
+            buf[pos++] = (byte) (0xe0 | (c >> 12));
+            buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+            buf[pos++] = (byte) (0x80 | (c & 0x3f));
+        }
+        return i;
+    }
+
+    private void put(byte b) throws IOException {
+        if (pos == buf.length) {
+            drain();
+        }
+        buf[pos++] = b;
+    }
+
+    private void put(byte[] data) throws IOException {
+        put(data, 0, data.length);
+    }
+
+    private void put(byte[] data, int offset, int length) throws IOException {
+        if (pos + length > buf.length) {
+            drain();
+            if (length > buf.length) {
+                out.write(data, offset, length);
+                return;
+            }
+        }
+        System.arraycopy(data, offset, buf, pos, length);
+        pos += length;
+    }
+
+    private void ensure(int n) throws IOException {
+        if (pos + n > buf.length) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        if (pos > 0) {
+            out.write(buf, 0, pos);
+            pos = 0;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth;
+
+import com.google.common.base.Preconditions;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Somewhere to send generated data.  Each output file (one per thread, or per generator when
+ * pipelined) gets its own stream from {@link #open(int)}.
+ * <p>
+ * Streams from a sink collect data into batches and hand each batch to the underlying stream in a
+ * single write.  The sink keeps counts of bytes and batches written and of how long the writes took,
+ * summed over all of its streams.  Sinks that feed line-oriented consumers can ask for batches to end
+ * on a line boundary so that a batch can be sent again after a failure without splitting a line.
+ */
+public abstract class Sink implements Pipeline.Output {
+    public static final int DEFAULT_BATCH_SIZE = 64 * 1024;
+
+    private final int batchSize;
+    private final boolean wholeLines;
+
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong writeNanos = new AtomicLong();
+    private final AtomicLong maxWriteNanos = new AtomicLong();
+
+    protected Sink(int batchSize, boolean wholeLines) {
+        Preconditions.checkArgument(batchSize > 0, "Batch size must be positive");
+        this.batchSize = batchSize;
+        this.wholeLines = wholeLines;
+    }
+
+    /**
+     * Opens the underlying stream for a file.  Data arrives in batches.
+     */
+    protected abstract OutputStream connect(int file) throws IOException;
+
+    @Override
+    public OutputStream open(int file) throws IOException {
+        return new Batcher(connect(file));
+    }
+
+    /**
+     * Tells whether files sent here should start with a header line.  Sinks that are a single
+     * stream of records for somebody else to consume don't want them.
+     */
+    public boolean hasHeaders() {
+        return true;
+    }
+
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    public long getBatches() {
+        return batches.get();
+    }
+
+    /**
+     * Returns the average time, in seconds, that writing a batch took.
+     */
+    public double getMeanLatency() {
+        long n = batches.get();
+        return n == 0 ? 0 : writeNanos.get() * 1e-9 / n;
+    }
+
+    public double getMaxLatency() {
+        return maxWriteNanos.get() * 1e-9;
+    }
+
+    /**
+     * Returns how many times a lost connection has been re-established.
+     */
+    public long getReconnects() {
+        return 0;
+    }
+
+    private void record(int length, long nanos) {
+        bytes.addAndGet(length);
+        batches.incrementAndGet();
+        writeNanos.addAndGet(nanos);
+        long max = maxWriteNanos.get();
+        while (nanos > max && !maxWriteNanos.compareAndSet(max, nanos)) {
+            max = maxWriteNanos.get();
+        }
+    }
+
+    private class Batcher extends OutputStream {
+        private final OutputStream out;
+        private final byte[] buffer = new byte[batchSize];
+        private int count = 0;
+
+        Batcher(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == buffer.length) {
+                send(false);
+            }
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (count == buffer.length) {
+                    send(false);
+                }
+                int n = Math.min(len, buffer.length - count);
+                System.arraycopy(b, off, buffer, count, n);
+                count += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        // sends the buffer, or just the lines in it unless this is the end
+        private void send(boolean all) throws IOException {
+            int n = count;
+            if (wholeLines && !all) {
+                while (n > 0 && buffer[n - 1] != '\n') {
+                    n--;
+                }
+                if (n == 0) {
+                    // a line longer than a batch has to be split anyway
+                    n = count;
+                }
+            }
+            if (n > 0) {
+                long t0 = System.nanoTime();
+                out.write(buffer, 0, n);
+                record(n, System.nanoTime() - t0);
+                System.arraycopy(buffer, n, buffer, 0, count - n);
+                count -= n;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            send(true);
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                out.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends newline delimited records to a TCP server, one connection per output file.
+ * <p>
+ * Batches always end on a line boundary.  If a write fails, we reconnect (backing off between
+ * attempts) and send the whole batch again on the new connection, so the receiver never sees
+ * half a line.  Data that the old connection had accepted but not delivered is lost, and a
+ * batch that was partly delivered before the failure can be seen twice.
+ */
+public class SocketSink extends Sink {
+    private static final int CONNECT_TIMEOUT_MILLIS = 10000;
+    private static final long FIRST_BACKOFF_MILLIS = 50;
+    private static final long MAX_BACKOFF_MILLIS = 5000;
+
+    private final InetSocketAddress address;
+    private final int maxRetries;
+    private final AtomicLong reconnects = new AtomicLong();
+
+    public SocketSink(String host, int port, int batchSize, int maxRetries) {
+        super(batchSize, true);
+        this.address = new InetSocketAddress(host, port);
+        this.maxRetries = maxRetries;
+    }
+
+    @Override
+    protected OutputStream connect(int file) throws IOException {
+        return new Connection();
+    }
+
+    @Override
+    public boolean hasHeaders() {
+        return false;
+    }
+
+    @Override
+    public long getReconnects() {
+        return reconnects.get();
+    }
+
+    private Socket openSocket() throws IOException {
+        Socket s = new Socket();
+        try {
+            s.connect(address, CONNECT_TIMEOUT_MILLIS);
+            // batches are already big, and when output is paced we want them sent right away
+            s.setTcpNoDelay(true);
+            return s;
+        } catch (IOException e) {
+            s.close();
+            throw e;
+        }
+    }
+
+    private class Connection extends OutputStream {
+        private Socket socket;
+
+        Connection() throws IOException {
+            socket = openSocket();
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            long backoff = FIRST_BACKOFF_MILLIS;
+            int retries = 0;
+            while (true) {
+                try {
+                    if (socket == null) {
+                        socket = openSocket();
+                        reconnects.incrementAndGet();
+                    }
+                    socket.getOutputStream().write(b, off, len);
+                    return;
+                } catch (IOException e) {
+                    if (socket != null) {
+                        socket.close();
+                        socket = null;
+                    }
+                    if (retries++ >= maxRetries) {
+                        throw e;
+                    }
+                    try {
+                        Thread.sleep(backoff);
+                    } catch (InterruptedException interrupted) {
+                        throw new InterruptedIOException("Interrupted while reconnecting to " + address);
+                    }
+                    backoff = Math.min(2 * backoff, MAX_BACKOFF_MILLIS);
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (socket != null) {
+                socket.close();
+                socket = null;
+            }
+        }
+    }
+}
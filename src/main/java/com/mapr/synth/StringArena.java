@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Maps;
+import org.apache.mahout.math.list.IntArrayList;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Many strings packed as UTF-8 into a single byte array.  This takes a fraction of the memory of
+ * separate String objects and lets rows copy the bytes of a value directly.  Strings are added
+ * through a {@link Builder} which stores equal strings only once.
+ * <p>
+ * Immutable and safe to share between threads.
+ */
+public final class StringArena {
+    private final byte[] bytes;
+    // string i is bytes[offsets[i]] ... bytes[offsets[i + 1] - 1]
+    private final int[] offsets;
+
+    private StringArena(byte[] bytes, int[] offsets) {
+        this.bytes = bytes;
+        this.offsets = offsets;
+    }
+
+    // for reading snapshots
+    static StringArena wrap(byte[] bytes, int[] offsets) {
+        return new StringArena(bytes, offsets);
+    }
+
+    // for writing snapshots
+    int[] offsets() {
+        return offsets;
+    }
+
+    public int size() {
+        return offsets.length - 1;
+    }
+
+    public String get(int i) {
+        return new String(bytes, offsets[i], offsets[i + 1] - offsets[i], Charsets.UTF_8);
+    }
+
+    /**
+     * Returns the shared byte array.  This must not be modified.
+     */
+    public byte[] bytes() {
+        return bytes;
+    }
+
+    public int offset(int i) {
+        return offsets[i];
+    }
+
+    public int length(int i) {
+        return offsets[i + 1] - offsets[i];
+    }
+
+    public static class Builder {
+        private final Map<String, Integer> ids = Maps.newHashMap();
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final IntArrayList offsets = new IntArrayList();
+
+        public Builder() {
+            offsets.add(0);
+        }
+
+        /**
+         * Adds a string unless an equal one is already present.
+         *
+         * @return The index of the string in the arena that will be built.
+         */
+        public int add(String s) {
+            Integer id = ids.get(s);
+            if (id == null) {
+                id = ids.size();
+                ids.put(s, id);
+                byte[] b = s.getBytes(Charsets.UTF_8);
+                bytes.write(b, 0, b.length);
+                offsets.add(bytes.size());
+            }
+            return id;
+        }
+
+        public StringArena build() {
+            return new StringArena(bytes.toByteArray(), Arrays.copyOf(offsets.elements(), offsets.size()));
+        }
+    }
+}
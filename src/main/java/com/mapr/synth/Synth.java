@@ -25,6 +25,8 @@ import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
+import com.mapr.synth.samplers.Profiler;
+import com.mapr.synth.samplers.RowBuffer;
 import com.mapr.synth.samplers.SchemaSampler;
 import freemarker.template.Configuration;
 import freemarker.template.Template;
@@ -34,7 +36,7 @@ import org.kohsuke.args4j.CmdLineException;
 import org.kohsuke.args4j.CmdLineParser;
 import org.kohsuke.args4j.Option;
 import org.kohsuke.args4j.OptionDef;
-import org.kohsuke.args4j.spi.IntOptionHandler;
+import org.kohsuke.args4j.spi.LongOptionHandler;
 import org.kohsuke.args4j.spi.Setter;
 
 import java.io.*;
@@ -43,14 +45,14 @@ import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
 import java.lang.management.ManagementFactory;
 import java.lang.management.ThreadMXBean;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
 import java.security.AccessControlException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Generates plausible database tables in JSON, CSV or TSV format according to the data design
@@ -68,10 +70,16 @@ public class Synth {
         } catch (CmdLineException e) {
             System.err.println("Usage: " +
                     "[ -count <number>G|M|K ] " +
+                    "[-shard i/N] " +
                     "-schema schema-file " +
                     "[-quote DOUBLE_QUOTE|BACK_SLASH|OPTIMISTIC] " +
-                    "[-format JSON|TSV|CSV|XML ] " +
+                    "[-format JSON|TSV|CSV|XML|COLUMNAR ] " +
                     "[-threads n] " +
+                    "[-serializers n [-writers n]] " +
+                    "[-seed n] " +
+                    "[-compress NONE|GZIP [-block-size <number>M|K]] " +
+                    "[-rate <rows/s>K|M | -pace-field time-field [-speedup factor]] " +
+                    "[-sink file|stdout|fifo|tcp:host:port [-sink-batch <bytes>K|M] [-sink-retries n]] [-profile] " +
                     "[-output output-directory-name] ");
             throw e;
         }
@@ -82,13 +90,55 @@ public class Synth {
         Preconditions.checkArgument(opts.template == null || opts.template.exists(),
                 "Please specify a valid template file");
 
-        if (opts.threads > 1) {
+        Preconditions.checkArgument(opts.serializers >= 0 && opts.writers > 0,
+                "Must have a non-negative number of serializers and at least one writer");
+
+        if (opts.serializers > 0) {
+            Preconditions.checkArgument(opts.template == null && opts.format != Format.XML && opts.format != Format.COLUMNAR,
+                    "Pipelined output can't be used with templates, XML or columnar output");
+        }
+
+        Preconditions.checkArgument(opts.template == null || opts.format != Format.COLUMNAR,
+                "Templates can't be used with columnar output");
+
+        Preconditions.checkArgument(opts.rate == 0 || opts.paceField == null,
+                "Can't pace by both rate and event time");
+        if (opts.paceField != null) {
+            Preconditions.checkArgument(opts.template == null && opts.format != Format.XML && opts.serializers == 0,
+                    "Pacing by event time can't be used with templates, XML or pipelined output");
+        }
+
+        Matcher shardSpec = Pattern.compile("(\\d+)/(\\d+)").matcher(opts.shard);
+        Preconditions.checkArgument(shardSpec.matches(), "Shard should be i/N, not %s", opts.shard);
+        int shard = Integer.parseInt(shardSpec.group(1));
+        int shards = Integer.parseInt(shardSpec.group(2));
+        Preconditions.checkArgument(shard < shards, "Shard number must be less than the number of shards");
+
+        Preconditions.checkArgument(opts.blockSize > 0 && opts.blockSize <= Integer.MAX_VALUE / 2,
+                "Compression block size must be positive and less than 1G");
+
+        Matcher tcpSpec = null;
+        if (opts.sink != null && opts.sink.startsWith("tcp:")) {
+            tcpSpec = Pattern.compile("tcp:(.+):(\\d+)").matcher(opts.sink);
+            Preconditions.checkArgument(tcpSpec.matches(), "TCP sink should be tcp:host:port, not %s", opts.sink);
+            Preconditions.checkArgument(opts.compress == Compression.NONE && opts.format != Format.COLUMNAR && opts.format != Format.XML,
+                    "Data sent over TCP must be uncompressed lines of text");
+        } else if (opts.sink != null) {
+            Preconditions.checkArgument(Arrays.asList("file", "stdout", "fifo").contains(opts.sink), "Unknown sink %s", opts.sink);
+            Preconditions.checkArgument("stdout".equals(opts.sink) == "-".equals(opts.output),
+                    "Use -output with file and fifo sinks, but not with stdout");
+        }
+        Preconditions.checkArgument(opts.sinkBatch > 0 && opts.sinkBatch <= Integer.MAX_VALUE / 2,
+                "Sink batch size must be positive and less than 1G");
+        Preconditions.checkArgument(opts.sinkRetries >= 0, "Number of sink retries must be non-negative");
+
+        if (opts.threads > 1 && tcpSpec == null) {
             Preconditions.checkArgument(!"-".equals(opts.output),
                     "If more than on thread is used, you have to use -output to set the output directory");
         }
 
         File outputDir = new File(opts.output);
-        if (!"-".equals(opts.output)) {
+        if (!"-".equals(opts.output) && tcpSpec == null) {
             if (!outputDir.exists()) {
                 Preconditions.checkState(outputDir.mkdirs(), String.format("Couldn't create output directory %s", opts.output));
             }
@@ -99,9 +149,32 @@ public class Synth {
         if (opts.schema == null) {
             throw new IllegalArgumentException("Must specify schema file using [-schema filename] option");
         }
-        final SchemaSampler sampler = new SchemaSampler(opts.schema);
+        // this process only generates its own contiguous piece of the rows
+        long shardStart = firstRow(opts.count, shard, shards);
+        long shardCount = firstRow(opts.count, shard + 1, shards) - shardStart;
+
+        // file numbers are unique across shards as long as all shards use the same number of threads
+        final int firstFile = shard * opts.threads;
+
+        final SchemaSampler sampler = new SchemaSampler(opts.schema, firstFile);
+        if (opts.seed != null) {
+            // checks up front that every field can be seeded
+            sampler.setSeed(opts.seed);
+        }
+        sampler.seek(shardStart);
         final AtomicLong rowCount = new AtomicLong();
 
+        final Pacer pacer;
+        if (opts.rate > 0) {
+            pacer = Pacer.atRate(opts.rate);
+        } else if (opts.paceField != null) {
+            int field = sampler.getFieldNames().indexOf(opts.paceField);
+            Preconditions.checkArgument(field >= 0, "No field named %s to pace by", opts.paceField);
+            pacer = Pacer.byEventTime(field, opts.speedup);
+        } else {
+            pacer = null;
+        }
+
         Template template = null;
         if (opts.template != null) {
             final Configuration cfg = new Configuration(Configuration.VERSION_2_3_21);
@@ -112,19 +185,85 @@ public class Synth {
             template = cfg.getTemplate(opts.template.getName());
         }
 
-        final List<ReportingWorker> tasks = Lists.newArrayList();
-        int limit = (opts.count + opts.threads - 1) / opts.threads;
-        int remaining = opts.count;
+        long[] counts = new long[opts.threads];
         for (int i = 0; i < opts.threads; i++) {
+            counts[i] = firstRow(shardCount, i + 1, opts.threads) - firstRow(shardCount, i, opts.threads);
+        }
+        // samplers aren't thread safe so each thread gets its own copy of the schema positioned at the
+        // first row of its file.  With a seed, the concatenated files are then the same no matter how
+        // many threads there are
+        List<SchemaSampler> samplers = Lists.newArrayList();
+        long firstRow = shardStart;
+        for (int i = 0; i < opts.threads; i++) {
+            SchemaSampler s = sampler;
+            if (i > 0) {
+                s = new SchemaSampler(opts.schema, firstFile + i);
+                if (opts.seed != null) {
+                    s.setSeed(opts.seed);
+                }
+                s.seek(firstRow);
+            }
+            // ids that can't be tied to the row number are interleaved across all of the files
+            s.setCopy(firstFile + i, shards * opts.threads);
+            samplers.add(s);
+            firstRow += counts[i];
+        }
+
+        final Profiler profiler;
+        if (opts.profile) {
+            // entries with the same name are shared so the report covers all threads
+            profiler = new Profiler();
+            for (SchemaSampler s : samplers) {
+                s.profile(profiler, "");
+            }
+        } else {
+            profiler = null;
+        }
 
-            final int count = Math.min(limit, remaining);
-            remaining -= count;
+        final Sink sink;
+        if (tcpSpec != null) {
+            sink = new SocketSink(tcpSpec.group(1), Integer.parseInt(tcpSpec.group(2)), (int) opts.sinkBatch, opts.sinkRetries);
+        } else if ("-".equals(opts.output)) {
+            sink = new StdoutSink((int) opts.sinkBatch);
+        } else if ("fifo".equals(opts.sink)) {
+            sink = new FifoSink(outputDir, namePattern(opts), firstFile, (int) opts.sinkBatch);
+        } else {
+            sink = new FileSink(outputDir, namePattern(opts), firstFile, (int) opts.sinkBatch);
+        }
+
+        // compression is done on a separate pool so that it can use all of the cores no matter
+        // how many files we are writing
+        final ExecutorService compressors = opts.compress == Compression.NONE ? null :
+                Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
 
-            tasks.add(new ReportingWorker(opts, sampler, template, rowCount, count, i));
+        final List<ReportingWorker> tasks = Lists.newArrayList();
+        final List<Callable<Long>> work = Lists.newArrayList();
+        final Pipeline pipeline;
+        if (opts.serializers > 0) {
+            if (pacer != null) {
+                // small batches so that paced rows trickle out instead of coming in bursts
+                pipeline = new Pipeline(samplers, opts.format, opts.quote, opts.serializers, opts.writers,
+                        pacer.getBatchSize(), Pipeline.DEFAULT_DEPTH);
+                pipeline.setPacer(pacer);
+            } else {
+                pipeline = new Pipeline(samplers, opts.format, opts.quote, opts.serializers, opts.writers);
+            }
+            work.addAll(pipeline.tasks(counts, new Pipeline.Output() {
+                @Override
+                public OutputStream open(int file) throws IOException {
+                    return compressed(opts, compressors, sink.open(file));
+                }
+            }, rowCount));
+        } else {
+            pipeline = null;
+            for (int i = 0; i < opts.threads; i++) {
+                tasks.add(new ReportingWorker(opts, samplers.get(i), template, sink, compressors, pacer, rowCount, counts[i], i, firstFile + i));
+            }
+            work.addAll(tasks);
         }
 
         final double t0 = System.nanoTime() * 1e-9;
-        ExecutorService pool = Executors.newFixedThreadPool(opts.threads);
+        ExecutorService pool = Executors.newFixedThreadPool(work.size());
         ScheduledExecutorService blinker = Executors.newScheduledThreadPool(1);
         final AtomicBoolean finalRun = new AtomicBoolean(false);
 
@@ -138,7 +277,20 @@ public class Synth {
             public void run() {
                 double t = System.nanoTime() * 1e-9;
                 long n = rowCount.get();
-                System.err.printf("%s\t%d\t%.1f\t%d\t%.1f\t%.3f\n", finalRun.get() ? "F" : "R", opts.threads, t - t0, n, n / (t - t0), (n - oldN) / (t - oldT));
+                System.err.printf("%s\t%d\t%.1f\t%d\t%.1f\t%.3f", finalRun.get() ? "F" : "R", opts.threads, t - t0, n, n / (t - t0), (n - oldN) / (t - oldT));
+                if (pipeline != null) {
+                    for (Pipeline.Stage stage : pipeline.getStages()) {
+                        System.err.printf("\t%s=%.2f", stage.getName(), stage.utilization(t - t0));
+                    }
+                }
+                if (pacer != null) {
+                    System.err.printf("\tlag=%.3f\tmax-lag=%.3f", pacer.getLag(), pacer.getMaxLag());
+                }
+                if (opts.sink != null) {
+                    System.err.printf("\tMB/s=%.1f\tbatch-ms=%.3f\tmax-batch-ms=%.3f\treconnects=%d",
+                            sink.getBytes() / (t - t0) / 1e6, sink.getMeanLatency() * 1e3, sink.getMaxLatency() * 1e3, sink.getReconnects());
+                }
+                System.err.printf("\n");
                 for (ReportingWorker task : tasks) {
                     ReportingWorker.ThreadReport r = task.report();
                     sideLog.printf("\t%d\t%.2f\t%.2f\t%.2f\t%.1f\t%.1f\n", r.fileNumber, r.threadTime, r.userTime, r.wallTime, r.rows / r.threadTime, r.rows / r.wallTime);
@@ -147,32 +299,64 @@ public class Synth {
                 oldT = t;
             }
         };
-        if (!"-".equals(opts.output)) {
+        if (!(sink instanceof StdoutSink)) {
             blinker.scheduleAtFixedRate(blink, 0, 10, TimeUnit.SECONDS);
         }
-        List<Future<Integer>> results = pool.invokeAll(tasks);
+        List<Future<Long>> results = pool.invokeAll(work);
 
-        int total = 0;
-        for (Future<Integer> result : results) {
+        long total = 0;
+        for (Future<Long> result : results) {
             total += result.get();
         }
-        Preconditions.checkState(total == opts.count,
-                String.format("Expected to generate %d lines of output, but actually generated %d", opts.count, total));
+        Preconditions.checkState(total == shardCount,
+                String.format("Expected to generate %d lines of output, but actually generated %d", shardCount, total));
         pool.shutdownNow();
+        if (compressors != null) {
+            compressors.shutdownNow();
+        }
         blinker.shutdownNow();
         finalRun.set(true);
         sideLog.close();
         blink.run();
+        if (profiler != null) {
+            profiler.report(System.err);
+        }
+    }
+
+    /**
+     * Returns the first row of a part when count rows are split into nearly equal contiguous parts.
+     * Splitting the same way at every level means that row ranges don't depend on the number of
+     * parts used at the level above.
+     */
+    static long firstRow(long count, int part, int parts) {
+        return count / parts * part + Math.min(part, count % parts);
+    }
+
+    /**
+     * Wraps an output stream so that it compresses according to the options.  Closing or finishing
+     * the result writes out any data still being compressed.
+     */
+    static OutputStream compressed(Options opts, ExecutorService compressors, OutputStream out) {
+        switch (opts.compress) {
+            case GZIP:
+                // enough blocks in flight to keep every compressor busy, but not much more
+                int cores = Runtime.getRuntime().availableProcessors();
+                int pending = Math.max(2, (cores + opts.threads - 1) / opts.threads);
+                return new BlockGzipOutputStream(out, compressors, (int) opts.blockSize, pending);
+            case NONE:
+            default:
+                return out;
+        }
     }
 
-    private static class ReportingWorker implements Callable<Integer> {
+    private static class ReportingWorker implements Callable<Long> {
         private final Options opts;
         private final SchemaSampler sampler;
+        private final RowBuffer row;
         private final AtomicLong rowCount;
-        private final int count;
+        private final long count;
         private final int fileNumber;
-        private final String extension;
-        int localCount;
+        long localCount;
         private ThreadMXBean mx;
         private AtomicLong wallTime;
         private AtomicLong threadTime;
@@ -182,11 +366,16 @@ public class Synth {
         final AtomicLong lastThreadTime;
         final AtomicLong lastRowCount;
         final Template template;
+        final Sink sink;
+        final int file;
+        final ExecutorService compressors;
+        final Pacer pacer;
 
         private static XmlMapper xmlMapper;
         private static XMLStreamWriter sw;
 
-        ReportingWorker(final Options opts, final SchemaSampler sampler, final Template template, final AtomicLong rowCount, final int count, final int fileNumber) {
+        ReportingWorker(final Options opts, final SchemaSampler sampler, final Template template, final Sink sink, final ExecutorService compressors,
+                        final Pacer pacer, final AtomicLong rowCount, final long count, final int file, final int fileNumber) {
             mx = ManagementFactory.getThreadMXBean();
             try {
                 if (mx.isThreadCpuTimeSupported())
@@ -200,25 +389,15 @@ public class Synth {
 
             this.opts = opts;
             this.sampler = sampler;
+            this.row = sampler.newRow();
             this.rowCount = rowCount;
             this.count = count;
             this.fileNumber = fileNumber;
             this.template = template;
-            switch (opts.format) {
-                default:
-                case JSON:
-                    this.extension = ".json";
-                    break;
-                case TSV:
-                    this.extension = ".tsv";
-                    break;
-                case CSV:
-                    this.extension = ".csv";
-                    break;
-                case XML:
-                    this.extension = ".xml";
-                    break;
-            }
+            this.sink = sink;
+            this.file = file;
+            this.compressors = compressors;
+            this.pacer = pacer;
             localCount = this.count;
             lastWall = new AtomicLong(System.nanoTime());
             wallTime = new AtomicLong(lastWall.get());
@@ -230,43 +409,95 @@ public class Synth {
         }
 
         @Override
-        public Integer call() throws Exception {
-            if ("-".equals(opts.output)) {
-                return generateFile(opts, sampler, template, System.out, localCount);
-            } else {
-                Path outputPath = new File(opts.output, String.format("synth-%04d.%s", fileNumber, extension)).toPath();
-
-                try (PrintStream out = new PrintStream(Files.newOutputStream(outputPath,
-                        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))) {
-
-                    if (opts.format == Format.XML) {
-                        XMLOutputFactory f = XMLOutputFactory.newFactory();
-                        sw = f.createXMLStreamWriter(out);
-                        sw.writeStartDocument();
-                        sw.writeCharacters("\n");
-                        sw.writeStartElement("root");
-                        sw.writeCharacters("\n");
+        public Long call() throws Exception {
+            try (OutputStream stream = compressed(opts, compressors, sink.open(file))) {
+                // row writers go straight to the stream so that write errors get through, but XML and
+                // templates need a PrintStream which swallows them, so we have to check for those
+                PrintStream out = new PrintStream(stream);
+                if (opts.format == Format.XML) {
+                    XMLOutputFactory f = XMLOutputFactory.newFactory();
+                    sw = f.createXMLStreamWriter(out);
+                    sw.writeStartDocument();
+                    sw.writeCharacters("\n");
+                    sw.writeStartElement("root");
+                    sw.writeCharacters("\n");
+
+                    xmlMapper = new XmlMapper();
+                    xmlMapper.enable(SerializationFeature.INDENT_OUTPUT);
+                }
 
-                        xmlMapper = new XmlMapper();
-                        xmlMapper.enable(SerializationFeature.INDENT_OUTPUT);
+                RowOutput writer = rowWriter(opts, template, sampler, stream);
+                if (sink.hasHeaders()) {
+                    if (writer != null) {
+                        writer.header();
+                    } else {
+                        header(opts.format, sampler.getFieldNames(), out);
                     }
+                }
+                long rows = generateAll(writer, out);
 
-                    header(opts.format, sampler.getFieldNames(), out);
-                    int rows = 0;
-                    while (rows < localCount) {
-                        int k = Math.min(localCount - rows, REPORTING_DELTA);
-                        rows += k;
-                        rowCount.addAndGet(generateFile(opts, sampler, template, out, k));
-                        wallTime.set(System.nanoTime());
-                        threadTime.set(mx.getCurrentThreadCpuTime());
-                        userTime.set(mx.getCurrentThreadUserTime());
-                    }
+                if (writer != null) {
+                    writer.finish();
+                }
+                if (opts.format == Format.XML) {
+                    sw.close();
+                }
+                if (writer == null) {
+                    checkError(out);
+                }
+                return rows;
+            }
+        }
 
-                    if (opts.format == Format.XML) {
-                        sw.close();
+        private long generateAll(RowOutput writer, PrintStream out) throws IOException, TemplateException, InterruptedException {
+            long rows = 0;
+            while (rows < localCount) {
+                long k = Math.min(localCount - rows, REPORTING_DELTA);
+                if (pacer != null && pacer.getTimeField() < 0) {
+                    k = Math.min(k, pacer.getBatchSize());
+                    long deadline = pacer.reserve((int) k);
+                    if (!pacer.isDue(deadline)) {
+                        flush(writer, out);
+                        pacer.waitUntil(deadline);
                     }
-                    return rows;
                 }
+                rows += k;
+                rowCount.addAndGet(generateFile(opts, sampler, row, writer, template, out, k, pacer));
+                if (writer == null) {
+                    checkError(out);
+                }
+                wallTime.set(System.nanoTime());
+                threadTime.set(mx.getCurrentThreadCpuTime());
+                userTime.set(mx.getCurrentThreadUserTime());
+            }
+            return rows;
+        }
+
+        // pushes rows out before we wait so that paced output really is spread out
+        private static void flush(RowOutput writer, PrintStream out) throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            out.flush();
+        }
+
+        private static void checkError(PrintStream out) throws IOException {
+            if (out.checkError()) {
+                throw new IOException("Error writing output");
+            }
+        }
+
+        /**
+         * Returns a byte level writer if the output is plain rows, or null if rows have to go through
+         * a template or the XML mapper.
+         */
+        private static RowOutput rowWriter(Options opts, Template template, SchemaSampler sampler, OutputStream out) {
+            if (template != null || opts.format == Format.XML) {
+                return null;
+            } else if (opts.format == Format.COLUMNAR) {
+                return new ColumnarWriter(out, sampler.getFieldNames());
+            } else {
+                return new RowWriter(out, opts.format, opts.quote, sampler.getFieldNames());
             }
         }
 
@@ -282,38 +513,38 @@ public class Synth {
         }
 
 
-        public static int generateFile(Options opts, SchemaSampler s, Template template, PrintStream out, int count) throws IOException, TemplateException {
+        public static long generateFile(Options opts, SchemaSampler s, RowBuffer row, RowOutput writer, Template template, PrintStream out, long count, Pacer pacer)
+                throws IOException, TemplateException, InterruptedException {
+            int timeField = pacer == null ? -1 : pacer.getTimeField();
             if (template != null) {
-                PrintWriter writer = new PrintWriter(out);
+                PrintWriter printer = new PrintWriter(out);
 
-                for (int i = 0; i < count; i++) {
-                    template.process(s.sample(), writer);
+                for (long i = 0; i < count; i++) {
+                    template.process(s.sample(), printer);
+                }
+                printer.flush();
+            } else if (opts.format == Format.XML) {
+                // XML output walks the tree anyway so there is no point in going through a row
+                for (long i = 0; i < count; i++) {
+                    printXml(s.sample());
                 }
             } else {
-                for (int i = 0; i < count; i++) {
-                    format(opts.format, opts.quote, s.getFieldNames(), s.sample(), out);
+                for (long i = 0; i < count; i++) {
+                    s.sample(row);
+                    if (timeField >= 0) {
+                        long deadline = pacer.deadline(s.parseTime(timeField, row.asText(timeField)));
+                        if (!pacer.isDue(deadline)) {
+                            flush(writer, out);
+                            pacer.waitUntil(deadline);
+                        }
+                    }
+                    writer.write(row);
                 }
             }
 
             return count;
         }
 
-        private static void format(Format format, Quote quoteConvention, List<String> names, JsonNode fields, PrintStream out) throws IOException {
-            switch (format) {
-                case JSON:
-                    out.printf("%s\n", fields.toString());
-                    break;
-                case TSV:
-                    printDelimited(quoteConvention, names, fields, "\t", out);
-                    break;
-                case CSV:
-                    printDelimited(quoteConvention, names, fields, ",", out);
-                    break;
-                case XML:
-                    printXml(fields);
-            }
-        }
-
         private static void printXml(JsonNode fields) throws IOException {
             xmlMapper.writeValue(sw, fields);
             try {
@@ -323,25 +554,6 @@ public class Synth {
             }
         }
 
-        private static void printDelimited(Quote quoteConvention, List<String> names, JsonNode fields, String separator, PrintStream out) {
-            String x = "";
-            for (String name : names) {
-                switch (quoteConvention) {
-                    case DOUBLE_QUOTE:
-                        out.printf("%s%s", x, fields.get(name));
-                        break;
-                    case OPTIMISTIC:
-                        out.printf("%s%s", x, fields.get(name).asText());
-                        break;
-                    case BACK_SLASH:
-                        out.printf("%s%s", x, fields.get(name).asText().replaceAll("([,\t\\s\\\\])", "\\\\$1"));
-                        break;
-                }
-                x = separator;
-            }
-            out.printf("\n");
-        }
-
         public ThreadReport report() {
             return new ThreadReport();
         }
@@ -380,44 +592,40 @@ public class Synth {
         }
     }
 
-    static Joiner withCommas = Joiner.on(",");
-    static Joiner withTabs = Joiner.on("\t");
-
-    private static void format(Format format, Quote quoteConvention, List<String> names, JsonNode fields, PrintStream out) {
-        switch (format) {
+    /**
+     * Returns the format for output file names given the file number.
+     */
+    static String namePattern(Options opts) {
+        String extension;
+        switch (opts.format) {
+            default:
             case JSON:
-                out.printf("%s\n", fields.toString());
+                extension = ".json";
                 break;
             case TSV:
-                printDelimited(quoteConvention, names, fields, "\t", out);
+                extension = ".tsv";
                 break;
             case CSV:
-                printDelimited(quoteConvention, names, fields, ",", out);
+                extension = ".csv";
+                break;
+            case XML:
+                extension = ".xml";
+                break;
+            case COLUMNAR:
+                extension = ".col";
                 break;
         }
-    }
-
-    private static void printDelimited(Quote quoteConvention, List<String> names, JsonNode fields, String separator, PrintStream out) {
-        String x = "";
-        for (String name : names) {
-            switch (quoteConvention) {
-                case DOUBLE_QUOTE:
-                    out.printf("%s%s", x, fields.get(name));
-                    break;
-                case OPTIMISTIC:
-                    out.printf("%s%s", x, fields.get(name).asText());
-                    break;
-                case BACK_SLASH:
-                    out.printf("%s%s", x, fields.get(name).asText().replaceAll("([,\t\\s\\\\])", "\\\\$1"));
-                    break;
-            }
-            x = separator;
+        if (opts.compress == Compression.GZIP) {
+            extension += ".gz";
         }
-        out.printf("\n");
+        return "synth-%04d." + extension;
     }
 
+    static Joiner withCommas = Joiner.on(",");
+    static Joiner withTabs = Joiner.on("\t");
+
     public enum Format {
-        JSON, TSV, CSV, XML
+        JSON, TSV, CSV, XML, COLUMNAR
     }
 
 
@@ -425,6 +633,10 @@ public class Synth {
         DOUBLE_QUOTE, BACK_SLASH, OPTIMISTIC
     }
 
+    public enum Compression {
+        NONE, GZIP
+    }
+
     private static class Options {
         @Option(name = "-output")
         String output = "-";
@@ -432,8 +644,20 @@ public class Synth {
         @Option(name = "-threads")
         int threads = 1;
 
+        @Option(name = "-serializers")
+        int serializers = 0;
+
+        @Option(name = "-writers")
+        int writers = 1;
+
+        @Option(name = "-seed")
+        Long seed = null;
+
         @Option(name = "-count", handler = SizeParser.class)
-        int count = 1000;
+        long count = 1000;
+
+        @Option(name = "-shard")
+        String shard = "0/1";
 
         @Option(name = "-schema", required = true)
         File schema;
@@ -447,31 +671,61 @@ public class Synth {
         @Option(name = "-quote")
         Quote quote = Quote.DOUBLE_QUOTE;
 
-        public static class SizeParser extends IntOptionHandler {
-            public SizeParser(CmdLineParser parser, OptionDef option, Setter<? super Integer> setter) {
+        @Option(name = "-rate", handler = SizeParser.class)
+        long rate = 0;
+
+        @Option(name = "-pace-field")
+        String paceField = null;
+
+        @Option(name = "-speedup")
+        double speedup = 1;
+
+        @Option(name = "-sink")
+        String sink = null;
+
+        @Option(name = "-sink-batch", handler = SizeParser.class)
+        long sinkBatch = Sink.DEFAULT_BATCH_SIZE;
+
+        // how many times to try to reconnect before giving up on a TCP sink
+        @Option(name = "-sink-retries")
+        int sinkRetries = 10;
+
+        @Option(name = "-profile")
+        boolean profile = false;
+
+        @Option(name = "-compress")
+        Compression compress = Compression.NONE;
+
+        @Option(name = "-block-size", handler = SizeParser.class)
+        long blockSize = BlockGzipOutputStream.DEFAULT_BLOCK_SIZE;
+
+        public static class SizeParser extends LongOptionHandler {
+            public SizeParser(CmdLineParser parser, OptionDef option, Setter<? super Long> setter) {
                 super(parser, option, setter);
             }
 
             @Override
-            protected Integer parse(String argument) throws NumberFormatException {
-                int n = Integer.parseInt(argument.replaceAll("[kKMG]?$", ""));
-
-                switch (argument.charAt(argument.length() - 1)) {
-                    case 'G':
-                        n *= 1e9;
-                        break;
-                    case 'M':
-                        n *= 1e6;
-                        break;
-                    case 'K':
-                    case 'k':
-                        n *= 1e3;
-                        break;
-                    default:
-                        // no suffix leads here
-                        break;
+            protected Long parse(String argument) throws NumberFormatException {
+                long n = Long.parseLong(argument.replaceAll("[kKMGT]?$", ""));
+
+                try {
+                    switch (argument.charAt(argument.length() - 1)) {
+                        case 'T':
+                            return Math.multiplyExact(n, 1000000000000L);
+                        case 'G':
+                            return Math.multiplyExact(n, 1000000000L);
+                        case 'M':
+                            return Math.multiplyExact(n, 1000000L);
+                        case 'K':
+                        case 'k':
+                            return Math.multiplyExact(n, 1000L);
+                        default:
+                            // no suffix leads here
+                            return n;
+                    }
+                } catch (ArithmeticException e) {
+                    throw new NumberFormatException("Count is too large: " + argument);
                 }
-                return n;
             }
         }
     }
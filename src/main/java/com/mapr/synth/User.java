@@ -20,10 +20,9 @@
 package com.mapr.synth;
 
 import com.google.common.collect.Lists;
+import com.mapr.synth.distributions.FastRandom;
+import com.mapr.synth.distributions.SplitRandom;
 import com.mapr.synth.distributions.TermGenerator;
-import org.apache.mahout.common.RandomUtils;
-import org.apache.mahout.math.jet.random.AbstractContinousDistribution;
-import org.apache.mahout.math.jet.random.Exponential;
 
 import java.net.InetAddress;
 import java.util.List;
@@ -38,10 +37,10 @@ public class User implements Comparable<User> {
 
     private int id;
 
-    private AbstractContinousDistribution queryLengthDistribution = new Exponential(0.4, RandomUtils.getRandom());
-    private AbstractContinousDistribution sessionTimeDistribution;
+    // all of this user's random choices come from here
+    private final FastRandom rand;
 
-    private long cookie = RandomUtils.getRandom().nextLong();
+    private long cookie;
 
     private TermGenerator terms;
     private InetAddress address;
@@ -49,18 +48,26 @@ public class User implements Comparable<User> {
     private double rate;
 
     private double nextSession;
-    private AbstractContinousDistribution queryTimeDistribution = new Exponential(1.0 / 120, RandomUtils.getRandom());
-    private AbstractContinousDistribution sessionLengthDistribution = new Exponential(1.0 / 4, RandomUtils.getRandom());
+
+    // mean number of words in a query less one, seconds between queries and queries per session
+    private static final double QUERY_LENGTH = 2.5;
+    private static final double QUERY_TIME = 120;
+    private static final double SESSION_LENGTH = 4;
 
     public User(InetAddress address, String geoCode, TermGenerator terms, double period) {
+        this(address, geoCode, terms, period, new SplitRandom());
+    }
+
+    public User(InetAddress address, String geoCode, TermGenerator terms, double period, FastRandom rand) {
         this.terms = terms;
         this.geoCode = geoCode;
         this.address = address;
         this.rate = period;
-        this.sessionTimeDistribution = new Exponential(period, RandomUtils.getRandom());
+        this.rand = rand;
 
+        cookie = rand.nextLong();
         id = idCounter.addAndGet(1);
-        nextSession = sessionTimeDistribution.nextDouble();
+        nextSession = rand.nextExponential() / rate;
     }
 
     public InetAddress getAddress() {
@@ -72,7 +79,7 @@ public class User implements Comparable<User> {
     }
 
     public List<String> getQuery() {
-        int n = queryLengthDistribution.nextInt() + 1;
+        int n = (int) Math.round(QUERY_LENGTH * rand.nextExponential()) + 1;
         List<String> r = Lists.newArrayList();
         for (int i = 0; i < n; i++) {
             r.add(terms.sample());
@@ -89,13 +96,13 @@ public class User implements Comparable<User> {
     }
 
     public void session(PriorityQueue<LogLine> eventBuffer) {
-        int sessionLength = (int) (sessionLengthDistribution.nextDouble() + 1);
+        int sessionLength = (int) (SESSION_LENGTH * rand.nextExponential() + 1);
         double t = nextSession;
         for (int i = 0; i < sessionLength; i++) {
-            eventBuffer.add(new LogLine(t, this));
-            t += queryTimeDistribution.nextDouble();
+            eventBuffer.add(new LogLine(t, address, cookie, getQuery(), rand));
+            t += QUERY_TIME * rand.nextExponential();
         }
-        nextSession += sessionTimeDistribution.nextDouble();
+        nextSession += rand.nextExponential() / rate;
     }
 
     @Override
@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth.distributions;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * An immutable discrete distribution that is sampled in constant time using Vose's version of
+ * Walker's alias method.  See "A Linear Algorithm For Generating Random Numbers With a Given
+ * Distribution", IEEE Transactions on Software Engineering 17(9), 1991.
+ * <p>
+ * The n outcomes are packed into n columns of equal height, each holding at most two outcomes.  A
+ * single uniform value picks a column and a height within it, so there is no search at all.  Since
+ * nothing changes after construction, a table can be shared by any number of threads as long as
+ * each brings its own random number generator.
+ */
+public final class AliasTable<T> {
+    private final List<T> values;
+    private final double[] weights;
+
+    // column i holds outcome i below cut[i] and outcome alias[i] above it
+    private final double[] cut;
+    private final int[] alias;
+
+    public AliasTable(List<T> values, double[] weights) {
+        int n = values.size();
+        Preconditions.checkArgument(n > 0, "Need at least one value");
+        Preconditions.checkArgument(weights.length == n, "Need one weight per value");
+
+        this.values = ImmutableList.copyOf(values);
+        this.weights = weights.clone();
+
+        double total = 0;
+        for (double w : weights) {
+            Preconditions.checkArgument(w >= 0 && !Double.isInfinite(w), "Weights must be non-negative and finite");
+            total += w;
+        }
+        Preconditions.checkArgument(total > 0, "Weights must not all be zero");
+
+        cut = new double[n];
+        alias = new int[n];
+        double[] p = new double[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallCount = 0;
+        int largeCount = 0;
+        for (int i = 0; i < n; i++) {
+            p[i] = weights[i] * n / total;
+            alias[i] = i;
+            if (p[i] < 1) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+            cut[less] = p[less];
+            alias[less] = more;
+            // subtracting like this loses less precision than p[more] -= 1 - p[less]
+            p[more] = (p[more] + p[less]) - 1;
+            if (p[more] < 1) {
+                small[smallCount++] = more;
+            } else {
+                large[largeCount++] = more;
+            }
+        }
+        // anything left over is within round-off of a full column
+        while (largeCount > 0) {
+            cut[large[--largeCount]] = 1;
+        }
+        while (smallCount > 0) {
+            cut[small[--smallCount]] = 1;
+        }
+    }
+
+    /**
+     * Builds a table with the entries of a map in iteration order.
+     */
+    public static <T> AliasTable<T> of(Map<T, ? extends Number> weights) {
+        List<T> values = Lists.newArrayList();
+        double[] w = new double[weights.size()];
+        int i = 0;
+        for (Map.Entry<T, ? extends Number> entry : weights.entrySet()) {
+            values.add(entry.getKey());
+            w[i++] = entry.getValue().doubleValue();
+        }
+        return new AliasTable<>(values, w);
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    public T get(int i) {
+        return values.get(i);
+    }
+
+    public List<T> getValues() {
+        return values;
+    }
+
+    public double getWeight(int i) {
+        return weights[i];
+    }
+
+    /**
+     * Returns the index of an outcome given a value uniformly distributed in [0, 1).
+     */
+    public int sampleIndex(double u) {
+        double x = u * cut.length;
+        int column = Math.min((int) x, cut.length - 1);
+        return x - column < cut[column] ? column : alias[column];
+    }
+
+    public int sampleIndex(Random rand) {
+        return sampleIndex(rand.nextDouble());
+    }
+
+    public T sample(Random rand) {
+        return values.get(sampleIndex(rand.nextDouble()));
+    }
+}
@@ -20,10 +20,12 @@
 package com.mapr.synth.distributions;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
 import org.apache.mahout.common.RandomUtils;
-import org.apache.mahout.math.list.DoubleArrayList;
 import org.apache.mahout.math.random.Sampler;
 
+import java.util.List;
+
 import java.util.Random;
 
 /**
@@ -32,13 +34,27 @@ import java.util.Random;
  * The number of values drawn exactly once will asymptotically be equal to the discount parameter
  * as the total number of draws T increases without bound.  The number of unique values sampled will
  * increase as O(alpha * log T) if discount = 0 or O(alpha * T^discount) for discount > 0.
+ * <p>
+ * The discounted weights of the existing values are kept in a {@link FenwickTree} so both picking a
+ * value and updating its count take O(log n) time in the number of unique values.  This class is
+ * not thread safe, see {@link ConcurrentChineseRestaurant} for a version that is.
  */
 public final class ChineseRestaurant implements Sampler<Integer> {
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
     private final double alpha;
     private double weight = 0;
     private double discount = 0;
-    private final DoubleArrayList weights = new DoubleArrayList();
-    private final Random rand = RandomUtils.getRandom();
+
+    // raw counts, chunked like the tree so growing never copies them
+    private final List<double[]> counts = Lists.newArrayList();
+    // count - discount for each value that has a positive count
+    private final FenwickTree tables = new FenwickTree();
+    // number of values with a positive count
+    private int occupied = 0;
+    private Random rand = new SplitRandom();
 
     /**
      * Constructs a Dirichlet process sampler.  This is done by setting discount = 0.
@@ -64,24 +80,18 @@ public final class ChineseRestaurant implements Sampler<Integer> {
     }
 
     @Override
-    public synchronized Integer sample() {
-        double u = rand.nextDouble() * (alpha + weight);
-        for (int j = 0; j < weights.size(); j++) {
-            // select existing options with probability (w_j - d) / (alpha + w)
-            if (u < weights.get(j) - discount) {
-                weights.set(j, weights.get(j) + 1);
-                weight++;
-                return j;
-            } else {
-                u -= weights.get(j) - discount;
-            }
+    public Integer sample() {
+        // existing value j is picked with probability (w_j - d) / (alpha + w) and a new one
+        // with probability (alpha + d*t) / (alpha + w) where t is the number of values seen so far
+        double existing = tables.total();
+        double u = rand.nextDouble() * (existing + alpha + discount * occupied);
+        int j = u < existing ? tables.find(u) : tables.size();
+        if (j >= tables.size()) {
+            // either a new value was picked or round-off walked us off the end
+            j = tables.size();
         }
-
-        // if no existing item selected, pick new item with probability (alpha - d*t) / (alpha + w)
-        // where t is number of pre-existing cases
-        weights.add(1);
-        weight++;
-        return weights.size() - 1;
+        setCount(j, j < tables.size() ? counts.get(j >>> CHUNK_BITS)[j & CHUNK_MASK] + 1 : 1);
+        return j;
     }
 
     /**
@@ -89,7 +99,7 @@ public final class ChineseRestaurant implements Sampler<Integer> {
      */
     @SuppressWarnings("unused")
     public int size() {
-        return weights.size();
+        return tables.size();
     }
 
     /**
@@ -108,22 +118,31 @@ public final class ChineseRestaurant implements Sampler<Integer> {
     public int count(int j) {
         Preconditions.checkArgument(j >= 0);
 
-        if (j < weights.size()) {
-            return (int) weights.get(j);
+        if (j < tables.size()) {
+            return (int) counts.get(j >>> CHUNK_BITS)[j & CHUNK_MASK];
         } else {
             return 0;
         }
     }
 
     public void setCount(int term, double count) {
-        while (weights.size() <= term) {
-            weights.add(0);
+        Preconditions.checkArgument(term >= 0 && count >= 0);
+        while (tables.size() <= term) {
+            if ((tables.size() & CHUNK_MASK) == 0) {
+                counts.add(new double[CHUNK_SIZE]);
+            }
+            tables.append(0);
         }
-        weight += (count - weights.get(term));
-        weights.set(term, count);
+        double[] chunk = counts.get(term >>> CHUNK_BITS);
+        double old = chunk[term & CHUNK_MASK];
+        chunk[term & CHUNK_MASK] = count;
+        weight += count - old;
+        occupied += (count > 0 ? 1 : 0) - (old > 0 ? 1 : 0);
+        tables.set(term, count > 0 ? Math.max(0, count - discount) : 0);
     }
 
     public void setSeed(long seed) {
-        rand.setSeed(seed);
+        // same generator as before SplitRandom so that seeded output doesn't change
+        rand = RandomUtils.getRandom(seed);
     }
 }
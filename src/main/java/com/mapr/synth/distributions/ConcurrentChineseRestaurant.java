@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth.distributions;
+
+import com.google.common.base.Preconditions;
+import org.apache.mahout.math.random.Sampler;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A {@link ChineseRestaurant} that many threads can sample from at once.
+ * <p>
+ * Counts are kept as a Fenwick tree of atomic longs.  Drawing an existing value only takes the
+ * shared side of a read-write lock and then increments the O(log n) tree nodes that cover it, so
+ * threads drawing different values rarely touch the same memory.  Only adding a new value takes
+ * the exclusive lock.  Concurrent draws may see each other's updates partially applied which
+ * skews individual probabilities by a few counts at most, but no draw is ever lost.
+ * <p>
+ * Since every value is created by a draw, all counts are at least one and the discounted weight of
+ * a tree node is simply its count less the discount times the number of values it covers.
+ */
+public final class ConcurrentChineseRestaurant implements Sampler<Integer> {
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final double alpha;
+    private final double discount;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // node k (counting from 1) holds the number of draws of the lowbit(k) values ending at value k - 1
+    private volatile AtomicLongArray[] nodes = new AtomicLongArray[0];
+    private volatile int size = 0;
+    private final AtomicLong total = new AtomicLong();
+
+    private final ThreadLocal<Random> rand = new ThreadLocal<Random>() {
+        @Override
+        protected Random initialValue() {
+            return new SplitRandom();
+        }
+    };
+
+    /**
+     * Constructs a Pitman-Yor sampler.
+     *
+     * @param alpha    The strength parameter that drives the number of unique values as a function of draws.
+     * @param discount The discount parameter that drives the percentage of values that occur once in a large sample.
+     */
+    public ConcurrentChineseRestaurant(double alpha, double discount) {
+        Preconditions.checkArgument(alpha > 0);
+        Preconditions.checkArgument(discount >= 0 && discount <= 1);
+        this.alpha = alpha;
+        this.discount = discount;
+    }
+
+    /**
+     * Samples using a generator private to the calling thread.
+     */
+    @Override
+    public Integer sample() {
+        return sample(rand.get());
+    }
+
+    /**
+     * Samples using the caller's generator which must not be shared with other threads.
+     */
+    public int sample(Random gen) {
+        lock.readLock().lock();
+        try {
+            int n = size;
+            long w = total.get();
+            double u = gen.nextDouble() * (w + alpha);
+            if (u < w - discount * n) {
+                int j = find(u, n);
+                // j == n means that concurrent updates made us overshoot, treat that as a new value
+                if (j < n) {
+                    for (int k = j + 1; k <= n; k += k & -k) {
+                        nodes[k >>> CHUNK_BITS].incrementAndGet(k & CHUNK_MASK);
+                    }
+                    total.incrementAndGet();
+                    return j;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return append();
+    }
+
+    /**
+     * @return the number of unique values that have been returned.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number draws so far.
+     */
+    public long count() {
+        return total.get();
+    }
+
+    /**
+     * @param j Which value to test.
+     * @return The number of times that j has been returned so far.
+     */
+    public long count(int j) {
+        Preconditions.checkArgument(j >= 0);
+        lock.readLock().lock();
+        try {
+            return j < size ? prefix(j + 1) - prefix(j) : 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int append() {
+        lock.writeLock().lock();
+        try {
+            int n = size;
+            int k = n + 1;
+            if (nodes.length <= (k >>> CHUNK_BITS)) {
+                // only the chunk references are copied, never the counts
+                AtomicLongArray[] grown = Arrays.copyOf(nodes, (k >>> CHUNK_BITS) + 1);
+                grown[k >>> CHUNK_BITS] = new AtomicLongArray(CHUNK_SIZE);
+                nodes = grown;
+            }
+            long sum = 1;
+            for (int i = n; i > k - (k & -k); i -= i & -i) {
+                sum += node(i);
+            }
+            nodes[k >>> CHUNK_BITS].set(k & CHUNK_MASK, sum);
+            total.incrementAndGet();
+            size = k;
+            return n;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // the value at which the discounted cumulative weight passes u
+    private int find(double u, int n) {
+        int pos = 0;
+        for (int step = Integer.highestOneBit(Math.max(n, 1)); step > 0; step >>= 1) {
+            int next = pos + step;
+            if (next <= n) {
+                double v = node(next) - discount * step;
+                if (v <= u) {
+                    pos = next;
+                    u -= v;
+                }
+            }
+        }
+        return pos;
+    }
+
+    private long prefix(int n) {
+        long sum = 0;
+        for (int k = n; k > 0; k -= k & -k) {
+            sum += node(k);
+        }
+        return sum;
+    }
+
+    private long node(int k) {
+        return nodes[k >>> CHUNK_BITS].get(k & CHUNK_MASK);
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth.distributions;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Random;
+
+/**
+ * The random number generators used by samplers.  Sub-classes only have to supply 64 random bits at
+ * a time and a way to split off an independent generator.  Everything else is derived from
+ * {@link #nextLong()} without any locking, so unlike {@link java.util.Random} these generators are not
+ * thread safe.  Use {@link #split()} to give each thread or each field its own generator instead.
+ * <p>
+ * Gaussian and exponential values come from the ziggurat method which needs a single 64-bit value
+ * and no logarithms or square roots for about 99% of draws.
+ * <p>
+ * This extends {@link java.util.Random} so that it can be handed to anything that wants one, including
+ * the Mahout distributions.
+ */
+public abstract class FastRandom extends Random {
+    static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    protected FastRandom() {
+        // Random's constructor calls setSeed before sub-class fields are initialized
+        super(0);
+    }
+
+    @Override
+    public abstract long nextLong();
+
+    /**
+     * Returns a new generator whose values are statistically independent of this one.  The
+     * new generator's state is derived from this one so splitting a seeded generator is repeatable.
+     */
+    public abstract FastRandom split();
+
+    @Override
+    protected int next(int bits) {
+        return (int) (nextLong() >>> (64 - bits));
+    }
+
+    @Override
+    public int nextInt() {
+        return (int) (nextLong() >>> 32);
+    }
+
+    /**
+     * Returns a uniform value in [0, bound) using Lemire's multiply and shift which avoids
+     * a division nearly all of the time.
+     */
+    @Override
+    public int nextInt(int bound) {
+        Preconditions.checkArgument(bound > 0, "Bound must be positive");
+        long m = (nextLong() >>> 32) * bound;
+        long low = m & 0xffffffffL;
+        if (low < bound) {
+            long threshold = (0x100000000L - bound) % bound;
+            while (low < threshold) {
+                m = (nextLong() >>> 32) * bound;
+                low = m & 0xffffffffL;
+            }
+        }
+        return (int) (m >>> 32);
+    }
+
+    @Override
+    public double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    @Override
+    public boolean nextBoolean() {
+        return nextLong() < 0;
+    }
+
+    /**
+     * Returns a normally distributed value with mean 0 and standard deviation 1.  Unlike
+     * {@link java.util.Random#nextGaussian()} no value is cached, so the result only depends on
+     * the state of the generator.
+     */
+    @Override
+    public double nextGaussian() {
+        return Ziggurat.normal(this);
+    }
+
+    /**
+     * Returns an exponentially distributed value with mean 1.
+     */
+    public double nextExponential() {
+        return Ziggurat.exponential(this);
+    }
+
+    // the SplitMix64 finalizer, a.k.a. David Stafford's Mix13
+    static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth.distributions;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+
+import java.util.List;
+
+/**
+ * A growable list of non-negative weights that supports changing a weight, finding prefix sums and
+ * finding the element that a point in the cumulative distribution falls in, all in O(log n) time.
+ * See Fenwick, "A New Data Structure for Cumulative Frequency Tables", Software: Practice and
+ * Experience 24(3), 1994.
+ * <p>
+ * Storage is split into fixed size chunks so that growing the list never copies more than the
+ * chunk references.  Not thread safe.
+ */
+public final class FenwickTree {
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    // node i (counting from 1) holds the sum of the lowbit(i) values ending at element i - 1
+    private final List<double[]> nodes = Lists.newArrayList();
+    private final List<double[]> values = Lists.newArrayList();
+    private int size = 0;
+    private double total = 0;
+
+    public int size() {
+        return size;
+    }
+
+    public double total() {
+        return total;
+    }
+
+    public double get(int i) {
+        Preconditions.checkElementIndex(i, size);
+        return values.get(i >>> CHUNK_BITS)[i & CHUNK_MASK];
+    }
+
+    /**
+     * Adds a new element to the end.
+     */
+    public void append(double value) {
+        Preconditions.checkArgument(value >= 0, "Weights must be non-negative");
+        if ((size & CHUNK_MASK) == 0) {
+            values.add(new double[CHUNK_SIZE]);
+        }
+        values.get(size >>> CHUNK_BITS)[size & CHUNK_MASK] = value;
+
+        size++;
+        if (nodes.size() <= (size >>> CHUNK_BITS)) {
+            nodes.add(new double[CHUNK_SIZE]);
+        }
+        // the new node covers this value and the nodes that it is the parent of
+        double sum = value;
+        int lowBit = size & -size;
+        for (int i = size - 1; i > size - lowBit; i -= i & -i) {
+            sum += node(i);
+        }
+        nodes.get(size >>> CHUNK_BITS)[size & CHUNK_MASK] = sum;
+        total += value;
+    }
+
+    public void set(int i, double value) {
+        add(i, value - get(i));
+    }
+
+    public void add(int i, double delta) {
+        Preconditions.checkElementIndex(i, size);
+        double[] chunk = values.get(i >>> CHUNK_BITS);
+        Preconditions.checkArgument(chunk[i & CHUNK_MASK] + delta >= 0, "Weights must be non-negative");
+        chunk[i & CHUNK_MASK] += delta;
+        for (int k = i + 1; k <= size; k += k & -k) {
+            nodes.get(k >>> CHUNK_BITS)[k & CHUNK_MASK] += delta;
+        }
+        total += delta;
+    }
+
+    /**
+     * Returns the sum of the first n weights.
+     */
+    public double prefix(int n) {
+        Preconditions.checkPositionIndex(n, size);
+        double sum = 0;
+        for (int k = n; k > 0; k -= k & -k) {
+            sum += node(k);
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the element i such that prefix(i) &lt;= u &lt; prefix(i + 1), skipping any elements
+     * with zero weight.  Returns size() if u is not less than the total.
+     */
+    public int find(double u) {
+        int pos = 0;
+        for (int step = Integer.highestOneBit(Math.max(size, 1)); step > 0; step >>= 1) {
+            int next = pos + step;
+            if (next <= size) {
+                double v = node(next);
+                if (v <= u) {
+                    pos = next;
+                    u -= v;
+                }
+            }
+        }
+        return pos;
+    }
+
+    private double node(int k) {
+        return nodes.get(k >>> CHUNK_BITS)[k & CHUNK_MASK];
+    }
+}
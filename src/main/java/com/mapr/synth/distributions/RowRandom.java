@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth.distributions;
+
+/**
+ * A counter based random number generator.  The stream of values is a pure function of a seed, a
+ * row number and a field number so any row can be regenerated without generating the rows
+ * before it.  This is what lets us produce the same data no matter how rows are split across threads,
+ * processes or machines.
+ * <p>
+ * The i-th value is the SplitMix64 finalizer applied to key + i * golden-ratio where the key is
+ * a hash of (seed, row, field).  This passes BigCrush and is a good deal faster than the
+ * synchronized linear congruential generator in {@link java.util.Random}.
+ * <p>
+ * Like all {@link FastRandom}s, this is not thread safe and nextGaussian doesn't cache a second value
+ * (so that repositioning the generator really does determine everything that follows).
+ */
+public class RowRandom extends FastRandom {
+    // deliberately not initialized here since Random's constructor calls setSeed before field initializers run
+    private long seed;
+    private long row;
+    private int field;
+
+    private long key;
+    private long counter;
+
+    public RowRandom(long seed, int field) {
+        this.seed = seed;
+        this.field = field;
+        setRow(0);
+    }
+
+    /**
+     * Positions the generator at the start of the stream for a particular row.
+     */
+    public void setRow(long row) {
+        this.row = row;
+        key = mix64(seed + mix64(row * GOLDEN_GAMMA + mix64(field + 1L)));
+        counter = 0;
+    }
+
+    public long getRow() {
+        return row;
+    }
+
+    public int getField() {
+        return field;
+    }
+
+    @Override
+    public void setSeed(long seed) {
+        this.seed = seed;
+        setRow(row);
+    }
+
+    @Override
+    public long nextLong() {
+        counter += GOLDEN_GAMMA;
+        return mix64(key + counter);
+    }
+
+    /**
+     * Splits off a generator seeded from the current position so it is still a function of
+     * seed, row and field.
+     */
+    @Override
+    public FastRandom split() {
+        return new SplitRandom(nextLong());
+    }
+}
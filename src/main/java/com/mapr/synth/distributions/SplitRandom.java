@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth.distributions;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A SplitMix64 generator.  This is the same algorithm as {@link java.util.SplittableRandom} (so the
+ * same seed gives the same values), but it is a {@link FastRandom} so it has ziggurat Gaussian and
+ * exponential values and can be used anywhere a {@link java.util.Random} is wanted.
+ * <p>
+ * Not thread safe.  Split a generator for each thread that needs one.
+ */
+public class SplitRandom extends FastRandom {
+    // unseeded generators get well separated starting points from this
+    private static final AtomicLong seeder = new AtomicLong(mix64(System.currentTimeMillis()) ^ mix64(System.nanoTime()));
+
+    private long state;
+    private long gamma;
+
+    public SplitRandom() {
+        long s = seeder.getAndAdd(2 * GOLDEN_GAMMA);
+        state = mix64(s);
+        gamma = mixGamma(s + GOLDEN_GAMMA);
+    }
+
+    public SplitRandom(long seed) {
+        this(seed, GOLDEN_GAMMA);
+    }
+
+    private SplitRandom(long state, long gamma) {
+        this.state = state;
+        this.gamma = gamma;
+    }
+
+    @Override
+    public void setSeed(long seed) {
+        state = seed;
+        gamma = GOLDEN_GAMMA;
+    }
+
+    @Override
+    public long nextLong() {
+        state += gamma;
+        return mix64(state);
+    }
+
+    @Override
+    public SplitRandom split() {
+        long s = nextLong();
+        state += gamma;
+        return new SplitRandom(s, mixGamma(state));
+    }
+
+    // makes an odd increment with enough bit transitions to give a good sequence
+    private static long mixGamma(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        z = (z ^ (z >>> 33)) | 1L;
+        int n = Long.bitCount(z ^ (z >>> 1));
+        return (n < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+    }
+}
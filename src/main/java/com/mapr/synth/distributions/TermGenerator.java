@@ -25,7 +25,7 @@ import org.apache.mahout.math.random.Sampler;
  * Generate words at random from a specialized vocabulary.  Every term generator's
  * frequency distribution has a common basis, but each will diverge after initialization.
  *
- * Thread safe for sampling
+ * Not thread safe.  Each generator carries its own history so give every thread its own generator.
  */
 public class TermGenerator implements Sampler<String> {
     // the word generator handles the problem of making up new words
@@ -55,8 +55,6 @@ public class TermGenerator implements Sampler<String> {
     }
 
     public String sample() {
-      synchronized (this) {
         return distribution.sample();
-      }
     }
 }
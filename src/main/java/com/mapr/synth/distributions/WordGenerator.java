@@ -19,19 +19,12 @@
 
 package com.mapr.synth.distributions;
 
-import com.google.common.base.Charsets;
-import com.google.common.base.Splitter;
-import com.google.common.collect.Lists;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
-import com.google.common.io.LineProcessor;
-import com.google.common.io.Resources;
+import com.mapr.synth.ResourceTable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
 
 /**
@@ -39,83 +32,76 @@ import java.util.Map;
  * are taken from a resource that has frequencies in it.  These frequencies can be used to initialize term
  * generators to a common language.  The next batch of words are taken from a long list of words with no frequencies.
  * After that, words are coined by using an integer count.
+ * <p>
+ * Both resources are read through the {@link com.mapr.synth.ResourceRegistry} so all generators share one copy.
+ * The list of other words is only read when it is first needed.  Thread safe.
  */
 public class WordGenerator {
-    private final Logger log = LoggerFactory.getLogger(WordGenerator.class);
+    private static final Logger log = LoggerFactory.getLogger(WordGenerator.class);
 
-    private BufferedReader wordReader;
-    private final List<String> words = Lists.newArrayList();
-    private final Map<String, Integer> baseWeights = Maps.newLinkedHashMap();
+    private final String others;
+    private final ResourceTable seedWords;
+    private final Map<String, Integer> baseWeights;
+    private final int seedCount;
+    private volatile ResourceTable otherWords = null;
 
     public WordGenerator(String seed, String others) {
+        this.others = others;
+
         // read the common words
+        ResourceTable table = null;
+        Map<String, Integer> weights = Maps.newLinkedHashMap();
         if (seed != null) {
             try {
-                Resources.readLines(Resources.getResource(seed), Charsets.UTF_8,
-                        new LineProcessor<Object>() {
-                            private boolean header = true;
-                            private final Splitter onTabs = Splitter.on("\t");
-
-                            public boolean processLine(String s) throws IOException {
-                                if (!s.startsWith("#")) {
-                                    if (!header) {
-                                        Iterator<String> fields = onTabs.split(s).iterator();
-                                        fields.next();
-                                        String word = fields.next();
-                                        words.add(word);
-                                        int count = (int) Math.rint(Double.parseDouble(fields.next()));
-                                        baseWeights.put(word, count);
-                                    } else {
-                                        header = false;
-                                    }
-                                }
-                                return true;
-                            }
-
-                            public Object getResult() {
-                                return null;
-                            }
-                        });
-            } catch (IOException e) {
+                table = ResourceTable.get(seed, '\t', false, false);
+                // the first line that isn't a comment has column names
+                for (int row = 1; row < table.rows(); row++) {
+                    weights.put(table.get(row, 1), (int) Math.rint(Double.parseDouble(table.get(row, 2))));
+                }
+            } catch (RuntimeException e) {
                 log.error("Can't read resource \"{}\", will continue without realistic words", seed);
+                table = null;
+                weights.clear();
             }
         }
+        seedWords = table;
+        seedCount = table == null ? 0 : Math.max(0, table.rows() - 1);
+        baseWeights = ImmutableMap.copyOf(weights);
+    }
 
-        try {
-          wordReader = new BufferedReader(Resources.newReaderSupplier(Resources.getResource(others), Charsets.UTF_8).getInput());
-        } catch (IOException e) {
-            log.error("Can't read resource \"{}\", will continue without realistic words", others);
-            wordReader = null;
+    public String getString(int n) {
+        if (n < seedCount) {
+            return seedWords.get(n + 1, 1);
         }
 
+        ResourceTable words = otherWords();
+        if (words != null && n - seedCount < words.rows()) {
+            return words.get(n - seedCount, 0);
+        } else {
+            return "w-" + n;
+        }
     }
 
-    public String getString(int n) {
-        if (n >= words.size()) {
-            synchronized (this) {
-                while (n >= words.size()) {
-                    try {
-                        String w = wordReader.readLine();
-                        if (w != null) {
-                            words.add(w);
-                        } else {
-                            words.add("w-" + n);
-                        }
-                    } catch (IOException e) {
-                        log.error("Error reading other words resource", e);
-                        words.add("w-" + n);
-                    }
-                }
+    private ResourceTable otherWords() {
+        if (otherWords == null && others != null) {
+            try {
+                otherWords = ResourceTable.get(others, '\t', false, false);
+            } catch (RuntimeException e) {
+                log.error("Can't read resource \"{}\", will continue without realistic words", others);
+                return null;
             }
         }
-        return words.get(n);
+        return otherWords;
     }
 
     public Map<String, Integer> getBaseWeights() {
         return baseWeights;
     }
 
+    /**
+     * Returns the number of words that have frequencies.
+     */
     public int size() {
-        return words.size();
+        return seedCount;
     }
 }
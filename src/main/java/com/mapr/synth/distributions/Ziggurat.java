@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth.distributions;
+
+/**
+ * Marsaglia and Tsang's ziggurat method for normal and exponential values.  See "The Ziggurat
+ * Method for Generating Random Variables", Journal of Statistical Software 5(8), 2000.
+ * <p>
+ * The density is covered by layers of equal area.  A random layer and a random point across it are
+ * picked, and if the point falls inside the part of the layer that is entirely under the density (which
+ * it nearly always does), it is the answer.  Otherwise we fall back to an exact test or, for
+ * the bottom layer, to sampling the tail.
+ * <p>
+ * The original code takes both the layer and the point from a single 32-bit value which correlates them
+ * slightly.  We take the layer from the low bits of a 64-bit value and the point from the high 32.
+ */
+final class Ziggurat {
+    private static final int NORMAL_LAYERS = 128;
+    private static final double NORMAL_R = 3.442619855899;
+    private static final double NORMAL_V = 9.91256303526217e-3;
+
+    private static final int EXP_LAYERS = 256;
+    private static final double EXP_R = 7.697117470131487;
+    private static final double EXP_V = 3.949659822581572e-3;
+
+    private static final long[] kn = new long[NORMAL_LAYERS];
+    private static final double[] wn = new double[NORMAL_LAYERS];
+    private static final double[] fn = new double[NORMAL_LAYERS];
+
+    private static final long[] ke = new long[EXP_LAYERS];
+    private static final double[] we = new double[EXP_LAYERS];
+    private static final double[] fe = new double[EXP_LAYERS];
+
+    static {
+        double m1 = 2147483648.0;
+        double dn = NORMAL_R;
+        double tn = dn;
+        double q = NORMAL_V / Math.exp(-0.5 * dn * dn);
+        kn[0] = (long) ((dn / q) * m1);
+        kn[1] = 0;
+        wn[0] = q / m1;
+        wn[NORMAL_LAYERS - 1] = dn / m1;
+        fn[0] = 1;
+        fn[NORMAL_LAYERS - 1] = Math.exp(-0.5 * dn * dn);
+        for (int i = NORMAL_LAYERS - 2; i >= 1; i--) {
+            dn = Math.sqrt(-2 * Math.log(NORMAL_V / dn + Math.exp(-0.5 * dn * dn)));
+            kn[i + 1] = (long) ((dn / tn) * m1);
+            tn = dn;
+            fn[i] = Math.exp(-0.5 * dn * dn);
+            wn[i] = dn / m1;
+        }
+
+        double m2 = 4294967296.0;
+        double de = EXP_R;
+        double te = de;
+        q = EXP_V / Math.exp(-de);
+        ke[0] = (long) ((de / q) * m2);
+        ke[1] = 0;
+        we[0] = q / m2;
+        we[EXP_LAYERS - 1] = de / m2;
+        fe[0] = 1;
+        fe[EXP_LAYERS - 1] = Math.exp(-de);
+        for (int i = EXP_LAYERS - 2; i >= 1; i--) {
+            de = -Math.log(EXP_V / de + Math.exp(-de));
+            ke[i + 1] = (long) ((de / te) * m2);
+            te = de;
+            fe[i] = Math.exp(-de);
+            we[i] = de / m2;
+        }
+    }
+
+    private Ziggurat() {
+    }
+
+    static double normal(FastRandom rand) {
+        while (true) {
+            long bits = rand.nextLong();
+            int i = (int) bits & (NORMAL_LAYERS - 1);
+            // signed, so this covers both halves of the density
+            long h = bits >> 32;
+            double x = h * wn[i];
+            if (Math.abs(h) < kn[i]) {
+                return x;
+            }
+            if (i == 0) {
+                // the tail beyond R, using Marsaglia's method for the normal tail
+                double y;
+                do {
+                    x = -Math.log(1 - rand.nextDouble()) / NORMAL_R;
+                    y = -Math.log(1 - rand.nextDouble());
+                } while (y + y < x * x);
+                return h > 0 ? NORMAL_R + x : -NORMAL_R - x;
+            }
+            if (fn[i] + rand.nextDouble() * (fn[i - 1] - fn[i]) < Math.exp(-0.5 * x * x)) {
+                return x;
+            }
+        }
+    }
+
+    static double exponential(FastRandom rand) {
+        double offset = 0;
+        while (true) {
+            long bits = rand.nextLong();
+            int i = (int) bits & (EXP_LAYERS - 1);
+            long j = bits >>> 32;
+            double x = j * we[i];
+            if (j < ke[i]) {
+                return offset + x;
+            }
+            if (i == 0) {
+                // the exponential has no memory so the tail is just another exponential shifted by R
+                offset += EXP_R;
+                continue;
+            }
+            if (fe[i] + rand.nextDouble() * (fe[i - 1] - fe[i]) < Math.exp(-x)) {
+                return offset + x;
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth.distributions;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Random;
+
+/**
+ * Samples integers in [0, n) with probability proportional to (i + 1)^-exponent without any
+ * table so memory use is constant and set-up is instant no matter how large n is.
+ * <p>
+ * This uses the rejection-inversion method from Hörmann and Derflinger, "Rejection-inversion to
+ * generate variates from monotone discrete distributions", ACM TOMACS 6(3), 1996.  A continuous
+ * hat function is inverted and the few points that fall outside the histogram are rejected.  The
+ * expected number of iterations is bounded by a small constant for all n and exponents, so each
+ * draw costs a few logs and exps.
+ * <p>
+ * Immutable and thread safe as long as each thread passes its own generator.
+ */
+public final class Zipf {
+    private final long n;
+    private final double exponent;
+
+    private final double hIntegralX1;
+    private final double hIntegralN;
+    private final double s;
+
+    public Zipf(long n, double exponent) {
+        Preconditions.checkArgument(n > 0, "Need at least one value");
+        Preconditions.checkArgument(exponent >= 0, "Exponent must be non-negative");
+        this.n = n;
+        this.exponent = exponent;
+
+        hIntegralX1 = hIntegral(1.5) - 1;
+        hIntegralN = hIntegral(n + 0.5);
+        s = 2 - hIntegralInverse(hIntegral(2.5) - h(2));
+    }
+
+    public long size() {
+        return n;
+    }
+
+    public double getExponent() {
+        return exponent;
+    }
+
+    public long sample(Random rand) {
+        while (true) {
+            double u = hIntegralN + rand.nextDouble() * (hIntegralX1 - hIntegralN);
+            double x = hIntegralInverse(u);
+            long k = (long) (x + 0.5);
+            // round-off can push us a hair outside the support
+            if (k < 1) {
+                k = 1;
+            } else if (k > n) {
+                k = n;
+            }
+            // the first test accepts most points without evaluating h
+            if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) {
+                return k - 1;
+            }
+        }
+    }
+
+    // the unnormalized density, x^-exponent
+    private double h(double x) {
+        return Math.exp(-exponent * Math.log(x));
+    }
+
+    // integral of h from 1 to x, written to stay accurate when exponent is near 1
+    private double hIntegral(double x) {
+        double logX = Math.log(x);
+        return expm1OverX((1 - exponent) * logX) * logX;
+    }
+
+    private double hIntegralInverse(double x) {
+        double t = x * (1 - exponent);
+        if (t < -1) {
+            t = -1;
+        }
+        return Math.exp(log1pOverX(t) * x);
+    }
+
+    // log(1 + x) / x with the limit at 0 filled in
+    private static double log1pOverX(double x) {
+        if (Math.abs(x) > 1e-8) {
+            return Math.log1p(x) / x;
+        } else {
+            return 1 - x * (0.5 - x * (1.0 / 3 - 0.25 * x));
+        }
+    }
+
+    // (exp(x) - 1) / x with the limit at 0 filled in
+    private static double expm1OverX(double x) {
+        if (Math.abs(x) > 1e-8) {
+            return Math.expm1(x) / x;
+        } else {
+            return 1 + x * 0.5 * (1 + x / 3 * (1 + 0.25 * x));
+        }
+    }
+}
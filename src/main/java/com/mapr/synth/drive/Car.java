@@ -19,10 +19,14 @@
 
 package com.mapr.synth.drive;
 
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import org.apache.commons.math3.geometry.euclidean.threed.Vector3D;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 
 import static java.lang.Math.log;
@@ -71,6 +75,10 @@ public class Car {
     private Engine engine;
     private double sampleTime = 1;
 
+    // recently driven routes keyed by start and end, least recently used first
+    private Map<List<Vector3D>, List<Segment>> routes = null;
+    private double replan = 1;
+
     public Car(Engine engine) {
         this.engine = engine;
     }
@@ -147,12 +155,70 @@ public class Car {
     }
 
     double driveTo(Random rand, double t, GeoPoint start, GeoPoint end, Callback callback) {
-        List<Segment> plan = plan(start, end, rand);
-        final GeoPoint currentPosition = new GeoPoint(start.as3D());
-        for (Segment segment : plan) {
-            t = simulate(t, currentPosition, rand, segment, callback);
+        Drive drive = startDrive(rand, t, start, end);
+        while (drive.hasNext()) {
+            drive.next(callback);
+        }
+        return drive.getTime();
+    }
+
+    /**
+     * Plans a trip that can then be driven one segment at a time.  This produces exactly the
+     * same trip as {@link #driveTo(Random, double, GeoPoint, GeoPoint, Callback)} as long as
+     * nothing else uses the random number generator in the meantime.
+     */
+    Drive startDrive(Random rand, double t, GeoPoint start, GeoPoint end) {
+        return new Drive(rand, t, route(start, end, rand), new GeoPoint(start.as3D()));
+    }
+
+    /**
+     * Returns the route for a trip, re-using the route from the last time this car went between
+     * the same two places unless it decides to plan a new one.
+     */
+    List<Segment> route(GeoPoint start, GeoPoint end, Random rand) {
+        if (routes == null) {
+            return plan(start, end, rand);
+        }
+        List<Vector3D> key = ImmutableList.of(start.as3D(), end.as3D());
+        List<Segment> r = routes.get(key);
+        if (r == null || rand.nextDouble() < replan) {
+            r = plan(start, end, rand);
+            routes.put(key, r);
+        }
+        return r;
+    }
+
+    /**
+     * A trip in progress.
+     */
+    class Drive {
+        private final Random rand;
+        private final List<Segment> plan;
+        private final GeoPoint currentPosition;
+        private double t;
+        private int next = 0;
+
+        private Drive(Random rand, double t, List<Segment> plan, GeoPoint currentPosition) {
+            this.rand = rand;
+            this.t = t;
+            this.plan = plan;
+            this.currentPosition = currentPosition;
+        }
+
+        boolean hasNext() {
+            return next < plan.size();
+        }
+
+        /**
+         * Drives the next segment of the trip.
+         */
+        void next(Callback callback) {
+            t = simulate(t, currentPosition, rand, plan.get(next++), callback);
+        }
+
+        double getTime() {
+            return t;
         }
-        return t;
     }
 
     public Engine getEngine() {
@@ -163,6 +229,31 @@ public class Car {
         this.sampleTime = sampleTime;
     }
 
+    /**
+     * Makes the car remember the routes it has driven so that a trip between the same two places
+     * usually follows the same roads, the way that real commutes do.  Segments are never changed
+     * once planned so the same route can be driven any number of times.
+     *
+     * @param capacity How many routes to remember.  When more are needed, the one driven least
+     *                 recently is forgotten.  Zero means that every trip is planned from scratch.
+     * @param replan   The chance that a remembered route is planned again anyway.
+     */
+    public void setRouteCache(final int capacity, double replan) {
+        Preconditions.checkArgument(capacity >= 0, "Route cache capacity must be non-negative");
+        Preconditions.checkArgument(replan >= 0 && replan <= 1, "Probability of re-planning must be in [0, 1], was %s", replan);
+        this.replan = replan;
+        if (capacity == 0) {
+            routes = null;
+        } else {
+            routes = new LinkedHashMap<List<Vector3D>, List<Segment>>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<List<Vector3D>, List<Segment>> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+    }
+
     public static abstract class Callback {
         abstract void call(double t, Engine arg, GeoPoint position);
     }
@@ -24,7 +24,11 @@ import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.DoubleNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.base.Preconditions;
+import com.mapr.synth.distributions.RowRandom;
+import com.mapr.synth.distributions.SplitRandom;
 import com.mapr.synth.samplers.FieldSampler;
+import com.mapr.synth.samplers.Profiler;
 
 import java.io.IOException;
 import java.text.DateFormat;
@@ -33,10 +37,9 @@ import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.GregorianCalendar;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Random;
 import java.util.TimeZone;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
 
 /**
  * Emulates a commuter who drives to work and back home and who runs errands around their home.
@@ -73,15 +76,13 @@ public class Commuter extends FieldSampler {
 
     private static final double DAY_IN_S = 24 * 3600.0;
     private static final JsonNodeFactory FACTORY = JsonNodeFactory.withExactBigDecimals(false);
-    @SuppressWarnings("unused")
-    private static final int RECORD_LIMIT = 2000;
 
     // simulation period in seconds
     private double start;
     private double end;
 
     // internal mechanics
-    Random rand = new Random();
+    Random rand = new SplitRandom();
     DateFormat df;
     final static private ThreadLocal<GregorianCalendar> cal = new ThreadLocal<GregorianCalendar>() {
         @Override
@@ -94,12 +95,12 @@ public class Commuter extends FieldSampler {
     boolean atHome;
 
     double sampleTime = 1;
+    // how many routes each car remembers and how often it tries a new one anyway
+    private int routes = 0;
+    private double replan = 0.1;
     private FieldSampler homeSampler;
     private FieldSampler workSampler;
 
-    @SuppressWarnings("unused")
-    private BlockingQueue<JsonNode> resultBuffer = new LinkedBlockingQueue<>();
-
     private boolean isFlat;
 
     public Commuter() throws ParseException {
@@ -117,81 +118,230 @@ public class Commuter extends FieldSampler {
 
     @Override
     public JsonNode sample() {
-        final Car car = new Car();
-        car.setSampleTime(sampleTime);
-        car.getEngine().setTime(start);
-
-        JsonNode homeLocation = homeSampler.sample();
-        GeoPoint home = new GeoPoint(Util.toDegrees(homeLocation, "latitude"), Util.toDegrees(homeLocation, "longitude"));
-
-        double radius = workSampler.sample().asDouble();
-        GeoPoint work = home.nearby(radius, rand);
-
-        //---------------
-        ObjectNode base = new ObjectNode(FACTORY);
-        base.putObject("home").setAll((ObjectNode) homeLocation);
-
-        work.asJson(base.putObject("work"));
-        ArrayNode trips = new ArrayNode(FACTORY);
-
-        for (double t = start; t < end; ) {
-            double tCommute = search(atHome, t, Util.nextExponentialTime(rand, 1));
-            if (atHome) {
-                double tErrand = t + Util.nextExponentialTime(rand, (isWeekend(t) ? WEEKEND_ERRAND_RATE : WEEKDAY_ERRAND_RATE) / DAY_IN_S);
-                while (tErrand < tCommute && tErrand < end) {
-                    GeoPoint nearby = home.nearby(ERRAND_SIZE_KM, rand);
-                    ObjectNode trip = trips.addObject();
-                    ArrayNode data = trip.putArray("data");
-                    t = drive(tErrand, car, home, nearby, data);
-                    recordTrip(tErrand, t - tErrand, "errand_out", 2 * home.distance(nearby), trip);
+        Simulation sim = new Simulation();
+        if (!isFlat) {
+            ArrayNode trips = new ArrayNode(FACTORY);
+            for (ObjectNode trip = sim.nextTrip(); trip != null; trip = sim.nextTrip()) {
+                trips.add(trip);
+            }
+            ObjectNode x = sim.base.deepCopy();
+            x.set("trips", trips);
+            return x;
+        } else {
+            ArrayNode r = new ArrayNode(FACTORY);
+            for (Iterator<JsonNode> it = sim.points(); it.hasNext(); ) {
+                r.add(it.next());
+            }
+            return r;
+        }
+    }
+
+    /**
+     * In flat form, returns the data points as they are simulated rather than all at once.  Only the
+     * points of one trip are kept at a time, so memory use doesn't depend on how long the simulation
+     * runs.  Points can't come out as the car produces them since each of them includes the length
+     * of the whole trip.
+     */
+    @Override
+    public Iterator<JsonNode> stream() {
+        return isFlat ? new Simulation().points() : null;
+    }
+
+    /**
+     * One trip that a commuter has decided to make.
+     */
+    static class Leg {
+        final double start;
+        final GeoPoint from;
+        final GeoPoint to;
+        final String type;
+        final double distance;
+
+        Leg(double start, GeoPoint from, GeoPoint to, String type, double distance) {
+            this.start = start;
+            this.from = from;
+            this.to = to;
+            this.type = type;
+            this.distance = distance;
+        }
+    }
+
+    /**
+     * Starts a new simulation of this commuter's car from the start time.
+     */
+    Simulation newSimulation() {
+        return new Simulation();
+    }
+
+    /**
+     * The state of the simulation of one commuter's car.  Each call to {@link #nextTrip()} picks up
+     * where the last one left off and simulates one more trip.
+     * <p>
+     * Deciding on a trip is separate from driving it so that others can drive trips in their own way.
+     * Each leg from {@link #nextLeg()} has to be driven and then reported with {@link #arrived(double)}
+     * before asking for the next one.
+     */
+    class Simulation {
+        private final Car car = new Car();
+        private final GeoPoint home;
+        private final GeoPoint work;
+        private final ObjectNode base = new ObjectNode(FACTORY);
+
+        private double t = start;
+        // when we are at home, the time of the next commute and the next errand
+        private boolean planned = false;
+        private double tCommute;
+        private double tErrand;
+        // where we are coming back from if we are half way through an errand
+        private GeoPoint errand = null;
+        private Leg current = null;
+
+        Simulation() {
+            car.setSampleTime(sampleTime);
+            car.setRouteCache(routes, replan);
+            car.getEngine().setTime(start);
+
+            JsonNode homeLocation = homeSampler.sample();
+            home = new GeoPoint(Util.toDegrees(homeLocation, "latitude"), Util.toDegrees(homeLocation, "longitude"));
+
+            double radius = workSampler.sample().asDouble();
+            work = home.nearby(radius, rand);
+
+            base.putObject("home").setAll((ObjectNode) homeLocation);
+            work.asJson(base.putObject("work"));
+        }
+
+        /**
+         * Starts driving a trip from {@link #nextLeg()} so that it can be driven one segment at a time.
+         */
+        Car.Drive startDrive(Leg leg) {
+            car.getEngine().setTime(leg.start);
+            return car.startDrive(rand, leg.start, leg.from, leg.to);
+        }
+
+        /**
+         * Simulates the next trip.
+         *
+         * @return The trip with all of its data points, or null if the simulation is over.
+         */
+        ObjectNode nextTrip() {
+            Leg leg = nextLeg();
+            if (leg == null) {
+                return null;
+            }
+            ObjectNode trip = new ObjectNode(FACTORY);
+            ArrayNode data = trip.putArray("data");
+            double t1 = drive(leg.start, car, leg.from, leg.to, data);
+            recordTrip(leg.start, t1 - leg.start, leg.type, leg.distance, trip);
+            arrived(t1);
+            return trip;
+        }
+
+        /**
+         * Decides on the next trip.
+         *
+         * @return The trip, or null if the simulation is over.
+         */
+        Leg nextLeg() {
+            Preconditions.checkState(current == null, "Previous trip hasn't been driven");
+            while (true) {
+                if (!planned) {
+                    if (t >= end) {
+                        return null;
+                    }
+                    tCommute = search(atHome, t, Util.nextExponentialTime(rand, 1));
+                    if (!atHome) {
+                        return leg(tCommute, work, home, "to_home", home.distance(work));
+                    }
+                    tErrand = t + Util.nextExponentialTime(rand, (isWeekend(t) ? WEEKEND_ERRAND_RATE : WEEKDAY_ERRAND_RATE) / DAY_IN_S);
+                    planned = true;
+                }
+
+                if (errand != null) {
                     t += rand.nextDouble() * 900 + 300;
-                    double t0 = t;
-                    trip = trips.addObject();
-                    data = trip.putArray("data");
-                    t = drive(t0, car, nearby, home, data);
-                    recordTrip(t0, t - t0, "errand_return", 2 * home.distance(nearby), trip);
-                    tErrand = t + Util.nextExponentialTime(rand, WEEKEND_ERRAND_RATE / DAY_IN_S);
+                    return leg(t, errand, home, "errand_return", 2 * home.distance(errand));
+                }
+                if (tErrand < tCommute && tErrand < end) {
+                    errand = home.nearby(ERRAND_SIZE_KM, rand);
+                    return leg(tErrand, home, errand, "errand_out", 2 * home.distance(errand));
                 }
+
+                planned = false;
                 if (tCommute < end) {
-                    ObjectNode trip = trips.addObject();
-                    ArrayNode data = trip.putArray("data");
-                    t = drive(tCommute, car, home, work, data);
-                    recordTrip(tCommute, t - tCommute, "to_work", home.distance(work), trip);
+                    return leg(tCommute, home, work, "to_work", home.distance(work));
+                }
+            }
+        }
 
+        private Leg leg(double start, GeoPoint from, GeoPoint to, String type, double distance) {
+            current = new Leg(start, from, to, type, distance);
+            return current;
+        }
+
+        /**
+         * Records that the last trip from {@link #nextLeg()} has been driven.
+         *
+         * @param t When the trip ended.
+         */
+        void arrived(double t) {
+            Preconditions.checkState(current != null, "No trip to finish");
+            this.t = t;
+            switch (current.type) {
+                case "errand_return":
+                    tErrand = t + Util.nextExponentialTime(rand, WEEKEND_ERRAND_RATE / DAY_IN_S);
+                    errand = null;
+                    break;
+                case "to_home":
+                case "to_work":
                     atHome = !atHome;
-                }
-            } else {
-                ObjectNode trip = trips.addObject();
-                ArrayNode data = trip.putArray("data");
-                t = drive(tCommute, car, work, home, data);
-                recordTrip(tCommute, t - tCommute, "to_home", home.distance(work), trip);
-                atHome = !atHome;
+                    break;
+                default:
+                    // still out on an errand
+                    break;
             }
+            current = null;
         }
 
-        if (!isFlat) {
-            ObjectNode x = base.deepCopy();
-            x.set("trips", trips);
-            return x;
-        } else {
-            ArrayNode r = new ArrayNode(FACTORY);
-            for (JsonNode trip : trips) {
-                ObjectNode x = base.deepCopy();
-                Iterator<String> jx = trip.fieldNames();
-                while (jx.hasNext()) {
-                    String field = jx.next();
-                    if (!field.equals("data")) {
-                        x.set(field, trip.get(field));
+        /**
+         * Returns the data points of all trips, each combined with the description of the commuter
+         * and the trip.
+         */
+        Iterator<JsonNode> points() {
+            return new Iterator<JsonNode>() {
+                private ObjectNode trip = null;
+                private Iterator<JsonNode> data = null;
+
+                @Override
+                public boolean hasNext() {
+                    while (data == null || !data.hasNext()) {
+                        ObjectNode next = nextTrip();
+                        if (next == null) {
+                            return false;
+                        }
+                        data = next.remove("data").elements();
+                        trip = new ObjectNode(FACTORY);
+                        trip.setAll(base);
+                        trip.setAll(next);
                     }
+                    return true;
                 }
-                for (JsonNode dataPoint : trip.get("data")) {
-                    ObjectNode y = x.deepCopy();
-                    y.setAll((ObjectNode) dataPoint);
-                    r.add(y);
+
+                @Override
+                public JsonNode next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    ObjectNode y = new ObjectNode(FACTORY);
+                    y.setAll(trip);
+                    y.setAll((ObjectNode) data.next());
+                    return y;
                 }
-            }
 
-            return r;
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
         }
     }
 
@@ -290,6 +440,18 @@ public class Commuter extends FieldSampler {
         this.sampleTime = sampleTime;
     }
 
+    @SuppressWarnings("unused")
+    public void setRoutes(int routes) {
+        Preconditions.checkArgument(routes >= 0, "Number of routes to remember must be non-negative");
+        this.routes = routes;
+    }
+
+    @SuppressWarnings("unused")
+    public void setReplan(double replan) {
+        Preconditions.checkArgument(replan >= 0 && replan <= 1, "Probability of re-planning must be in [0, 1], was %s", replan);
+        this.replan = replan;
+    }
+
     @SuppressWarnings("unused")
     public void setHome(JsonNode value) throws IOException {
         if (value.isObject()) {
@@ -309,12 +471,41 @@ public class Commuter extends FieldSampler {
                 public JsonNode sample() {
                     return new DoubleNode(Math.sqrt(1 / base.sample().asDouble()));
                 }
+
+                @Override
+                public void setRowRandom(RowRandom random) {
+                    base.setRowRandom(random);
+                }
             };
         } else if (value.isNumber()) {
             workSampler = constant(value.asDouble());
         }
     }
 
+    /**
+     * Makes the home and work locations come from the given generator instead of the samplers' own.
+     * Together with {@link #rand}, this makes the whole simulation reproducible.
+     */
+    void setLocationRandom(RowRandom random) {
+        if (homeSampler != null) {
+            homeSampler.setRowRandom(random);
+        }
+        if (workSampler != null) {
+            workSampler.setRowRandom(random);
+        }
+    }
+
+    @Override
+    public FieldSampler profiled(Profiler profiler, String name) {
+        if (homeSampler != null) {
+            homeSampler = homeSampler.profiled(profiler, name + ".home");
+        }
+        if (workSampler != null) {
+            workSampler = workSampler.profiled(profiler, name + ".work");
+        }
+        return super.profiled(profiler, name);
+    }
+
     @SuppressWarnings("unused")
     public void setFlat(boolean isFlat) {
         this.isFlat = isFlat;
@@ -40,38 +40,40 @@ import java.io.Serializable;
  * is kind of a hack.
  */
 public class Engine implements Serializable {
+    // the constants are shared with Fleet, which has to have exactly the same physics
 
-    private static final double THROTTLE_CONTROL_GAIN = 50;
-    private static final double MAX_THROTTLE = 100;
-    private static final double ACCELERATION_BACKOFF = 30;
+    static final double THROTTLE_CONTROL_GAIN = 50;
+    static final double MAX_THROTTLE = 100;
+    static final double ACCELERATION_BACKOFF = 30;
 
     // observed transmission properties for typical turbo-diesel
-    private static final double[] MPS_BY_RPM = {
+    static final double[] MPS_BY_RPM = {
             4.4704 / 2000, 8.9408 / 2000, 13.4112 / 2000, 13.4112 / 1500, 17.8816 / 1500, 22.3520 / 1500, 22.3520 / 1000
     };
-    private static final int TOP_GEAR = MPS_BY_RPM.length - 1;
-    private static final double ZERO_TORQUE_RPM = 3500;
+    static final int TOP_GEAR = MPS_BY_RPM.length - 1;
+    static final double ZERO_TORQUE_RPM = 3500;
 
-    private static final double LOW_SHIFT = 1000;
-    private static final double HIGH_SHIFT = 2000;
+    static final double LOW_SHIFT = 1000;
+    static final double HIGH_SHIFT = 2000;
 
     // The throttle has some turbo delay.
     public static final double THROTTLE_TIME_CONSTANT = 0.8;
 
     // in kg, not a super light car
-    private static final double VEHICLE_MASS = 2000;
+    static final double VEHICLE_MASS = 2000;
 
     // in watts (this is about 200 HP)
-    private static final double MAX_POWER = 150e3;
-    private static final double TORQUE_AT_ZERO = (4 * MAX_POWER / ZERO_TORQUE_RPM);
+    static final double MAX_POWER = 150e3;
+    static final double TORQUE_AT_ZERO = (4 * MAX_POWER / ZERO_TORQUE_RPM);
 
     // assuming 150 MPH absolute max speed
-    private static final double DRAG_COEFFICIENT = 0.4875334;
-    private static final double SHIFT_TIME = 0.1;
-    private static final double BRAKING_GAIN = 1;
+    static final double DRAG_COEFFICIENT = 0.4875334;
+    static final double SHIFT_TIME = 0.1;
+    static final double BRAKING_GAIN = 1;
 
     // this determines the time resolution of our computation (in s)
-    private double dt = 0.01;
+    static final double DT = 0.01;
+    private double dt = DT;
 
     private double currentTime = 0;
 
@@ -0,0 +1,228 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth.drive;
+
+import com.google.common.base.Preconditions;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static com.mapr.synth.drive.Engine.*;
+
+/**
+ * Simulates the engines of a whole fleet of cars at once.  The physics are exactly those of
+ * {@link Engine}, down to the last bit, but the state of the cars is kept in parallel arrays of
+ * primitives and all cars are advanced together, one time step at a time.  That keeps the inner
+ * loop free of object references and lets large fleets be split into blocks of cars that are
+ * simulated in parallel.
+ * <p>
+ * All cars share one clock.  Each call to {@link #stepToTime(double, double[], double[])} can give
+ * every car its own target speed and braking limit.
+ * <p>
+ * Not thread safe, although a single step uses many threads internally.
+ */
+public class Fleet {
+    // small enough that a block's state stays in cache through a time step
+    private static final int BLOCK = 1024;
+
+    private final int n;
+    private final ForkJoinPool pool;
+
+    private double currentTime = 0;
+
+    private final double[] throttle;
+    private final double[] brakeForce;
+    private final double[] shiftTimeOut;
+    private final int[] gear;
+    private final double[] speed;
+    private final double[] rpm;
+    private final double[] acceleration;
+    private final double[] distance;
+
+    public Fleet(int n) {
+        this(n, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a fleet of stopped cars.
+     *
+     * @param n    How many cars.
+     * @param pool Where to run blocks of cars in parallel.
+     */
+    public Fleet(int n, ForkJoinPool pool) {
+        Preconditions.checkArgument(n > 0, "Fleet must have at least one car");
+        this.n = n;
+        this.pool = pool;
+        throttle = new double[n];
+        brakeForce = new double[n];
+        shiftTimeOut = new double[n];
+        gear = new int[n];
+        speed = new double[n];
+        rpm = new double[n];
+        acceleration = new double[n];
+        distance = new double[n];
+    }
+
+    public int size() {
+        return n;
+    }
+
+    /**
+     * Runs the simulation of all cars up to just past the desired sampleTime.
+     *
+     * @param sampleTime  When to stop the simulation and return
+     * @param speedTarget The speed each car would like to reach
+     * @param maxBrake    The maximum amount of braking for each car in g's.
+     */
+    public void stepToTime(final double sampleTime, final double[] speedTarget, final double[] maxBrake) {
+        Preconditions.checkArgument(speedTarget.length == n && maxBrake.length == n, "Need a target and brake limit for each of %s cars", n);
+        if (n <= BLOCK) {
+            step(0, n, sampleTime, speedTarget, maxBrake);
+        } else {
+            pool.invoke(new Blocks(0, n, sampleTime, speedTarget, maxBrake));
+        }
+        // the same arithmetic as each block did, so the clock stays exactly in step with Engine
+        while (currentTime < sampleTime) {
+            currentTime += DT;
+        }
+    }
+
+    private class Blocks extends RecursiveAction {
+        private final int lo;
+        private final int hi;
+        private final double sampleTime;
+        private final double[] speedTarget;
+        private final double[] maxBrake;
+
+        Blocks(int lo, int hi, double sampleTime, double[] speedTarget, double[] maxBrake) {
+            this.lo = lo;
+            this.hi = hi;
+            this.sampleTime = sampleTime;
+            this.speedTarget = speedTarget;
+            this.maxBrake = maxBrake;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= BLOCK) {
+                step(lo, hi, sampleTime, speedTarget, maxBrake);
+            } else {
+                int mid = lo + (hi - lo) / 2;
+                invokeAll(new Blocks(lo, mid, sampleTime, speedTarget, maxBrake), new Blocks(mid, hi, sampleTime, speedTarget, maxBrake));
+            }
+        }
+    }
+
+    // advances cars lo (inclusive) to hi (exclusive), see Engine.stepToTime for what all this means
+    private void step(int lo, int hi, double sampleTime, double[] speedTarget, double[] maxBrake) {
+        final double[] throttle = this.throttle;
+        final double[] brakeForce = this.brakeForce;
+        final double[] shiftTimeOut = this.shiftTimeOut;
+        final int[] gear = this.gear;
+        final double[] speed = this.speed;
+        final double[] rpm = this.rpm;
+        final double[] acceleration = this.acceleration;
+        final double[] distance = this.distance;
+        final double dt = DT;
+
+        for (double t = currentTime; t < sampleTime; t += dt) {
+            for (int i = lo; i < hi; i++) {
+                double v = speed[i];
+                double target = speedTarget[i];
+
+                double desiredThrottle = THROTTLE_CONTROL_GAIN * (target - v) - ACCELERATION_BACKOFF * acceleration[i];
+                desiredThrottle = Math.min(MAX_THROTTLE, desiredThrottle);
+                desiredThrottle = Math.max(0, desiredThrottle);
+
+                double th = throttle[i];
+                th += (desiredThrottle - th) / THROTTLE_TIME_CONSTANT * dt;
+                throttle[i] = th;
+
+                int g = gear[i];
+                double r = v / MPS_BY_RPM[g] + 200;
+                if (r > HIGH_SHIFT && g < TOP_GEAR) {
+                    g++;
+                    shiftTimeOut[i] = t + SHIFT_TIME;
+                } else if (r < LOW_SHIFT && g > 0) {
+                    g--;
+                    shiftTimeOut[i] = t + SHIFT_TIME;
+                }
+                gear[i] = g;
+                r = v / MPS_BY_RPM[g] + 200;
+                rpm[i] = r;
+
+                double powerSetting = th / 100.0 - 0.05;
+                if (shiftTimeOut[i] > t) {
+                    powerSetting = 0;
+                }
+                double engineForce = TORQUE_AT_ZERO / MPS_BY_RPM[g] * (1.0 - r / ZERO_TORQUE_RPM) * powerSetting;
+                double dragForce = DRAG_COEFFICIENT * v * v;
+
+                double brake = 0;
+                double limit = maxBrake[i];
+                if (limit > 0 && th < 2 && target < v) {
+                    brake = brakeForce[i] + VEHICLE_MASS * BRAKING_GAIN * (v - target) * dt;
+                    brake = Math.min(brake, VEHICLE_MASS * limit * Constants.G);
+                }
+                brakeForce[i] = brake;
+
+                double netForce = engineForce - dragForce - brake;
+                double a = Math.min(8, netForce / VEHICLE_MASS);
+                acceleration[i] = a;
+
+                double newSpeed = Math.max(0, v + a * dt);
+                speed[i] = newSpeed;
+                distance[i] += (v + newSpeed) * dt / 2;
+            }
+        }
+    }
+
+    public double getTime() {
+        return currentTime;
+    }
+
+    public void setTime(double time) {
+        this.currentTime = time;
+    }
+
+    public double getSpeed(int car) {
+        return speed[car];
+    }
+
+    public double getThrottle(int car) {
+        return throttle[car];
+    }
+
+    public double getRpm(int car) {
+        return rpm[car];
+    }
+
+    public int getGear(int car) {
+        return gear[car];
+    }
+
+    public double getDistance(int car) {
+        return distance[car];
+    }
+
+    public void setDistance(int car, double distance) {
+        this.distance[car] = distance;
+    }
+}
@@ -0,0 +1,431 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth.drive;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import com.mapr.synth.ColumnarWriter;
+import com.mapr.synth.RowOutput;
+import com.mapr.synth.RowWriter;
+import com.mapr.synth.Synth;
+import com.mapr.synth.distributions.RowRandom;
+import com.mapr.synth.distributions.SplitRandom;
+import com.mapr.synth.samplers.FieldSampler;
+import com.mapr.synth.samplers.RowBuffer;
+import org.kohsuke.args4j.CmdLineException;
+import org.kohsuke.args4j.CmdLineParser;
+import org.kohsuke.args4j.Option;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Produces a single time-ordered stream of telemetry readings from a whole fleet of commuters.
+ * <p>
+ * Each vehicle is simulated just as the {@code commuter} sampler would simulate it, using the
+ * same definition.  Simulations run on a pool of threads, one segment of a trip at a time, and no
+ * vehicle gets more than a few segments ahead of the output.  The output thread merges the
+ * readings of all vehicles with a heap that has one entry per vehicle.  Memory use depends on the
+ * size of the fleet and the lookahead, but not on how long a time the simulation covers.
+ */
+public class FleetTelemetry {
+    public static final List<String> FIELDS = ImmutableList.of(
+            "vehicle", "t", "timestamp", "type", "latitude", "longitude", "mph", "rpm", "throttle");
+
+    public static final int DEFAULT_LOOKAHEAD = 4;
+
+    private final List<Commuter> commuters = Lists.newArrayList();
+    private final int threads;
+    private final int lookahead;
+
+    private final DateFormat df;
+    // timestamps are only formatted once per second if the format doesn't show fractions
+    private final boolean wholeSeconds;
+    private long lastSecond = Long.MIN_VALUE;
+    private String lastTimestamp = null;
+
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    /**
+     * Sets up the simulation of a fleet.
+     *
+     * @param commuter  The definition of a commuter field, as it would appear in a schema.
+     * @param vehicles  How many vehicles to simulate.
+     * @param threads   How many threads to simulate them with.
+     * @param lookahead How many segments of driving each vehicle can be simulated ahead of the output.
+     */
+    public FleetTelemetry(String commuter, int vehicles, int threads, int lookahead) throws IOException {
+        Preconditions.checkArgument(vehicles > 0 && threads > 0 && lookahead > 0,
+                "Need at least one vehicle, thread and segment of lookahead");
+        this.threads = threads;
+        this.lookahead = lookahead;
+        for (int i = 0; i < vehicles; i++) {
+            FieldSampler s = FieldSampler.newSampler(commuter);
+            Preconditions.checkArgument(s instanceof Commuter, "Fleet telemetry needs a commuter, not %s", s.getClass().getSimpleName());
+            commuters.add((Commuter) s);
+        }
+        df = commuters.get(0).df;
+        wholeSeconds = !(df instanceof SimpleDateFormat) || !((SimpleDateFormat) df).toPattern().contains("S");
+    }
+
+    /**
+     * Makes the output reproducible.  Vehicle i samples its home and work locations using a
+     * {@link RowRandom} for (seed, i) and drives all of its trips using seed + i.  Home and work
+     * samplers that can't be used with a fixed seed cause an IllegalArgumentException.
+     */
+    public void setSeed(long seed) {
+        for (int i = 0; i < commuters.size(); i++) {
+            commuters.get(i).setLocationRandom(new RowRandom(seed, i));
+            commuters.get(i).rand = new SplitRandom(seed + i);
+        }
+    }
+
+    /**
+     * Writes readings in time order until every simulation is over or enough readings have been written.
+     * The rows have the fields in {@link #FIELDS}.  This can only be done once.
+     *
+     * @param out   Where to write the readings.
+     * @param limit The most readings to write.
+     * @return How many readings were written.
+     */
+    public long run(RowOutput out, long limit) throws IOException, InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Lane> lanes = Lists.newArrayList();
+            for (int i = 0; i < commuters.size(); i++) {
+                Lane lane = new Lane(i, commuters.get(i), pool);
+                lanes.add(lane);
+                lane.refill();
+            }
+
+            // ties go to the lower numbered vehicle so the order doesn't depend on thread timing
+            PriorityQueue<Lane> heap = new PriorityQueue<>(lanes.size(), new Comparator<Lane>() {
+                @Override
+                public int compare(Lane a, Lane b) {
+                    int r = Double.compare(a.current.t[a.pos], b.current.t[b.pos]);
+                    return r != 0 ? r : Integer.compare(a.id, b.id);
+                }
+            });
+            for (Lane lane : lanes) {
+                if (lane.advance()) {
+                    heap.add(lane);
+                }
+            }
+
+            out.header();
+            RowBuffer row = new RowBuffer(FIELDS);
+            long rows = 0;
+            while (rows < limit && !heap.isEmpty()) {
+                Lane lane = heap.poll();
+                Chunk c = lane.current;
+                int i = lane.pos;
+                row.setLong(0, lane.id);
+                row.setDouble(1, c.t[i]);
+                row.setText(2, timestamp(c.t[i]));
+                row.setText(3, c.type);
+                row.setDouble(4, c.latitude[i]);
+                row.setDouble(5, c.longitude[i]);
+                row.setDouble(6, c.mph[i]);
+                row.setDouble(7, c.rpm[i]);
+                row.setDouble(8, c.throttle[i]);
+                out.write(row);
+                rows++;
+
+                if (lane.advance()) {
+                    heap.add(lane);
+                }
+            }
+            out.finish();
+            return rows;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private String timestamp(double t) {
+        if (!wholeSeconds) {
+            return df.format(new Date((long) (t * 1000)));
+        }
+        long second = (long) Math.floor(t);
+        if (second != lastSecond) {
+            lastSecond = second;
+            lastTimestamp = df.format(new Date(second * 1000));
+        }
+        return lastTimestamp;
+    }
+
+    /**
+     * The readings from one segment of one trip.
+     */
+    private static class Chunk extends Car.Callback {
+        private final String type;
+        private int size = 0;
+        private double[] t = new double[256];
+        private double[] latitude = new double[256];
+        private double[] longitude = new double[256];
+        private double[] mph = new double[256];
+        private double[] rpm = new double[256];
+        private double[] throttle = new double[256];
+
+        Chunk(String type) {
+            this.type = type;
+        }
+
+        @Override
+        void call(double time, Engine engine, GeoPoint position) {
+            if (size == t.length) {
+                int n = 2 * size;
+                t = Arrays.copyOf(t, n);
+                latitude = Arrays.copyOf(latitude, n);
+                longitude = Arrays.copyOf(longitude, n);
+                mph = Arrays.copyOf(mph, n);
+                rpm = Arrays.copyOf(rpm, n);
+                throttle = Arrays.copyOf(throttle, n);
+            }
+            t[size] = time;
+            // same conversion as GeoPoint.asJson
+            latitude[size] = 180 / Math.PI * Math.asin(position.r.getZ());
+            longitude[size] = 180 / Math.PI * Math.atan2(position.r.getY(), position.r.getX());
+            mph[size] = engine.getSpeed() * Constants.MPH;
+            rpm[size] = engine.getRpm();
+            throttle[size] = engine.getThrottle();
+            size++;
+        }
+    }
+
+    /**
+     * One vehicle, its simulation and the readings that have been simulated but not yet written.
+     * The simulation is advanced by at most one pool thread at a time and the output thread reads
+     * the finished chunks.  All hand-offs happen under the lane's lock.
+     */
+    private class Lane implements Runnable {
+        private final int id;
+        private final Commuter commuter;
+        private final ExecutorService pool;
+
+        // only touched by the thread running the simulation
+        private Commuter.Simulation simulation = null;
+        private Commuter.Leg leg = null;
+        private Car.Drive drive = null;
+        private double arrival = Double.NEGATIVE_INFINITY;
+
+        // guarded by this
+        private final Queue<Chunk> ready = new ArrayDeque<>();
+        private boolean busy = false;
+        private boolean finished = false;
+
+        // only touched by the output thread
+        private Chunk current = null;
+        private int pos = 0;
+
+        Lane(int id, Commuter commuter, ExecutorService pool) {
+            this.id = id;
+            this.commuter = commuter;
+            this.pool = pool;
+        }
+
+        // starts simulating the next segment if there is room for it
+        synchronized void refill() {
+            if (!busy && !finished && ready.size() < lookahead) {
+                try {
+                    pool.execute(this);
+                    busy = true;
+                } catch (RejectedExecutionException e) {
+                    // the pool is only shut down once the output is done
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            Chunk c;
+            try {
+                c = simulate();
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+                c = null;
+            }
+            synchronized (this) {
+                busy = false;
+                if (c == null) {
+                    finished = true;
+                } else {
+                    ready.add(c);
+                }
+                notifyAll();
+            }
+            refill();
+        }
+
+        private Chunk simulate() {
+            if (simulation == null) {
+                simulation = commuter.newSimulation();
+            }
+            while (true) {
+                if (drive == null) {
+                    leg = simulation.nextLeg();
+                    if (leg == null) {
+                        return null;
+                    }
+                    // a commute can be planned for before the car gets back from an errand, but
+                    // readings from one vehicle have to stay in order so it leaves when it can
+                    Commuter.Leg start = leg;
+                    if (leg.start < arrival) {
+                        start = new Commuter.Leg(arrival, leg.from, leg.to, leg.type, leg.distance);
+                    }
+                    drive = simulation.startDrive(start);
+                }
+                if (drive.hasNext()) {
+                    Chunk c = new Chunk(leg.type);
+                    drive.next(c);
+                    if (c.size > 0) {
+                        return c;
+                    }
+                } else {
+                    arrival = drive.getTime();
+                    simulation.arrived(arrival);
+                    drive = null;
+                }
+            }
+        }
+
+        /**
+         * Moves to the next reading, waiting for it to be simulated if need be.
+         *
+         * @return False if this vehicle has no more readings.
+         */
+        boolean advance() throws InterruptedException {
+            pos++;
+            if (current == null || pos >= current.size) {
+                current = take();
+                pos = 0;
+            }
+            return current != null;
+        }
+
+        private Chunk take() throws InterruptedException {
+            Chunk c;
+            synchronized (this) {
+                while (ready.isEmpty() && !finished) {
+                    wait();
+                }
+                if (failure.get() != null) {
+                    throw new IllegalStateException("Simulation of a vehicle failed", failure.get());
+                }
+                c = ready.poll();
+            }
+            refill();
+            return c;
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException, CmdLineException {
+        Options opts = new Options();
+        CmdLineParser parser = new CmdLineParser(opts);
+        try {
+            parser.parseArgument(args);
+        } catch (CmdLineException e) {
+            System.err.println("Usage: " +
+                    "-commuter commuter-definition " +
+                    "[-vehicles n] " +
+                    "[-threads n] " +
+                    "[-lookahead segments] " +
+                    "[-count n] " +
+                    "[-seed n] " +
+                    "[-format JSON|TSV|CSV|COLUMNAR] " +
+                    "[-quote DOUBLE_QUOTE|BACK_SLASH|OPTIMISTIC] " +
+                    "[-output file]");
+            throw e;
+        }
+        Preconditions.checkArgument(opts.format != Synth.Format.XML, "Fleet telemetry can't be written as XML");
+
+        FleetTelemetry fleet = new FleetTelemetry(Files.toString(opts.commuter, Charsets.UTF_8), opts.vehicles, opts.threads, opts.lookahead);
+        if (opts.seed != null) {
+            fleet.setSeed(opts.seed);
+        }
+
+        OutputStream out = "-".equals(opts.output) ? System.out : new BufferedOutputStream(new FileOutputStream(opts.output), 1 << 16);
+        try {
+            RowOutput writer;
+            if (opts.format == Synth.Format.COLUMNAR) {
+                writer = new ColumnarWriter(out, FIELDS);
+            } else {
+                writer = new RowWriter(out, opts.format, opts.quote, FIELDS);
+            }
+            long t0 = System.nanoTime();
+            long rows = fleet.run(writer, opts.count);
+            double elapsed = (System.nanoTime() - t0) * 1e-9;
+            System.err.printf("%d readings from %d vehicles in %.1f s (%.0f readings/s)\n", rows, opts.vehicles, elapsed, rows / elapsed);
+        } finally {
+            out.flush();
+            if (out != System.out) {
+                out.close();
+            }
+        }
+    }
+
+    private static class Options {
+        @Option(name = "-commuter", required = true)
+        File commuter;
+
+        @Option(name = "-vehicles")
+        int vehicles = 100;
+
+        @Option(name = "-threads")
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        @Option(name = "-lookahead")
+        int lookahead = DEFAULT_LOOKAHEAD;
+
+        @Option(name = "-count")
+        long count = Long.MAX_VALUE;
+
+        @Option(name = "-seed")
+        Long seed = null;
+
+        @Option(name = "-format")
+        Synth.Format format = Synth.Format.CSV;
+
+        @Option(name = "-quote")
+        Synth.Quote quote = Synth.Quote.DOUBLE_QUOTE;
+
+        @Option(name = "-output")
+        String output = "-";
+    }
+}
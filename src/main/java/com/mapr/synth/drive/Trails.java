@@ -19,6 +19,7 @@
 
 package com.mapr.synth.drive;
 
+import com.mapr.synth.distributions.SplitRandom;
 import com.tdunning.math.stats.AVLTreeDigest;
 import com.tdunning.math.stats.TDigest;
 import org.apache.commons.math3.geometry.euclidean.threed.Vector3D;
@@ -50,7 +51,7 @@ public class Trails extends PApplet {
         input = q;
         pool.submit(new Producer(q));
         speedDistribution = new AVLTreeDigest(300);
-        noise = new Random();
+        noise = new SplitRandom();
 
         speed = new Stripchart(10, 430, 460, 80, 1, 0, 0, 90);
         rpm = new Stripchart(10, 520, 460, 80, 1, 0, 0, 2200);
@@ -20,6 +20,7 @@
 package com.mapr.synth.drive;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.mapr.synth.distributions.FastRandom;
 
 import java.util.Random;
 
@@ -36,6 +37,9 @@ public class Util {
     }
 
     static double nextExponentialTime(Random rand, double rate) {
+        if (rand instanceof FastRandom) {
+            return ((FastRandom) rand).nextExponential() / rate;
+        }
         return -Math.log(1 - rand.nextDouble()) / rate;
     }
 
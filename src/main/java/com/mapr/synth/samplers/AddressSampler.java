@@ -21,11 +21,13 @@ package com.mapr.synth.samplers;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.TextNode;
+import com.mapr.synth.distributions.RowRandom;
 
 /**
  * Sample kind of plausible addresses
  *
- * Thread safe
+ * The street name tables are shared between instances, but each instance should only be used
+ * from a single thread since the house numbers and random state are not synchronized.
  */
 public class AddressSampler extends FieldSampler {
 
@@ -41,4 +43,10 @@ public class AddressSampler extends FieldSampler {
     public JsonNode sample() {
         return new TextNode(number.sample().asInt() + " " + street.sample().asText());
     }
+
+    @Override
+    public void setRowRandom(RowRandom random) {
+        street.setRowRandom(random);
+        number.setRowRandom(random);
+    }
 }
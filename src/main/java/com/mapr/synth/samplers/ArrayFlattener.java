@@ -24,11 +24,12 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.mapr.synth.distributions.RowRandom;
 
 /**
  * Delegate to another sampler which generates a list of lists.  Flatten that list into a single list.
  * <p>
- * Thread safe for sampling
+ * Each instance should only be used by one thread since it is no safer than the sampler it wraps.
  */
 public class ArrayFlattener extends FieldSampler {
     private JsonNodeFactory nodeFactory = JsonNodeFactory.withExactBigDecimals(false);
@@ -39,6 +40,32 @@ public class ArrayFlattener extends FieldSampler {
         this.delegate = delegate;
     }
 
+    @Override
+    public FieldSampler profiled(Profiler profiler, String name) {
+        delegate = delegate.profiled(profiler, name + ".value");
+        return super.profiled(profiler, name);
+    }
+
+    @Override
+    public void setRowRandom(RowRandom random) {
+        delegate.setRowRandom(random);
+    }
+
+    @Override
+    public void seek(long row) {
+        delegate.seek(row);
+    }
+
+    @Override
+    public void setCopy(int copy, int copies) {
+        delegate.setCopy(copy, copies);
+    }
+
+    @Override
+    public void setRepeated() {
+        delegate.setRepeated();
+    }
+
     @Override
     public JsonNode sample() {
         JsonNode value = delegate.sample();
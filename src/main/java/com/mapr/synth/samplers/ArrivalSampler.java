@@ -23,12 +23,12 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.TextNode;
 import com.google.common.collect.ImmutableMap;
 import com.mapr.synth.FancyTimeFormatter;
-import org.apache.mahout.common.RandomUtils;
+import com.mapr.synth.distributions.FastRandom;
+import com.mapr.synth.distributions.SplitRandom;
 
 import java.text.ParseException;
 import java.util.Date;
 import java.util.Map;
-import java.util.Random;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -45,10 +45,10 @@ import java.util.regex.Pattern;
  * <li><em>start </em>- the time of the first event</li>
  * </il>
  *
- * Thread safe
+ * Not thread safe.  Each thread has its own copy of the schema and thus its own sequence of events.
  */
 public class ArrivalSampler extends FieldSampler {
-    private final Random base;
+    private final FastRandom base;
     private final Pattern ratePattern = Pattern.compile("([0-9.e\\-]+)(/[smhd])?");
 
     private final Map<String, TimeUnit> unitMap = ImmutableMap.of(
@@ -64,7 +64,7 @@ public class ArrivalSampler extends FieldSampler {
     private double start = System.currentTimeMillis();
 
     public ArrivalSampler() {
-        base = RandomUtils.getRandom();
+        base = new SplitRandom();
     }
 
     @SuppressWarnings("UnusedDeclaration")
@@ -95,12 +95,28 @@ public class ArrivalSampler extends FieldSampler {
         this.start = df.parse(start).getTime();
     }
 
+    @Override
+    public long parseTime(String value) {
+        try {
+            return df.parse(value).getTime();
+        } catch (ParseException e) {
+            throw new IllegalArgumentException(String.format("Can't parse time %s", value), e);
+        }
+    }
+
     @Override
     public JsonNode sample() {
-      synchronized (this) {
-        TextNode r = new TextNode(df.format(new Date((long) start)));
-        start += minInterval - meanInterval * Math.log(1 - base.nextDouble());
+        return new TextNode(nextTime());
+    }
+
+    @Override
+    public void sample(RowBuffer row, int slot) {
+        row.setText(slot, nextTime());
+    }
+
+    private String nextTime() {
+        String r = df.format(new Date((long) start));
+        start += minInterval + meanInterval * base.nextExponential();
         return r;
-      }
     }
 }
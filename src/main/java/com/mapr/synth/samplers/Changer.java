@@ -26,6 +26,8 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.mapr.synth.FancyTimeFormatter;
+import com.mapr.synth.distributions.FastRandom;
+import com.mapr.synth.distributions.SplitRandom;
 import org.apache.mahout.math.jet.random.Gamma;
 
 import java.text.ParseException;
@@ -101,7 +103,7 @@ public class Changer extends FieldSampler {
 
     private JsonNodeFactory nodeFactory = JsonNodeFactory.withExactBigDecimals(false);
 
-    private Random gen = new Random();
+    private FastRandom gen = new SplitRandom();
     private double end = System.currentTimeMillis();
     private double start = System.currentTimeMillis() - TimeUnit.MILLISECONDS.convert(100, TimeUnit.DAYS);
 
@@ -213,6 +215,16 @@ public class Changer extends FieldSampler {
         this.end = df.parse(end).getTime();
     }
 
+    @Override
+    public FieldSampler profiled(Profiler profiler, String name) {
+        List<FieldSampler> profiled = Lists.newArrayList();
+        for (FieldSampler field : fields) {
+            profiled.add(field.profiled(profiler, name + "." + field.getName()));
+        }
+        fields = profiled;
+        return super.profiled(profiler, name);
+    }
+
     @Override
     public JsonNode sample() {
         ArrayNode history = new ArrayNode(nodeFactory);
@@ -224,7 +236,7 @@ public class Changer extends FieldSampler {
             changes.put(fieldNames.get(i), IntNode.valueOf(0));
         }
 
-        double t = start - meanInterval * Math.log(1 - gen.nextDouble());
+        double t = start + meanInterval * gen.nextExponential();
         while (t < end) {
             Date now = new Date((long) t);
 
@@ -255,7 +267,7 @@ public class Changer extends FieldSampler {
                 changes.put(fieldNames.get(change), IntNode.valueOf(0));
             }
 
-            t += minInterval - meanInterval * Math.log(1 - gen.nextDouble());
+            t += minInterval + meanInterval * gen.nextExponential();
         }
         return history;
     }
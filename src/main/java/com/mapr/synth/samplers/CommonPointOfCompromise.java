@@ -22,6 +22,7 @@ package com.mapr.synth.samplers;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.*;
 import com.mapr.synth.distributions.ChineseRestaurant;
+import com.mapr.synth.distributions.SplitRandom;
 import org.apache.mahout.math.jet.random.Exponential;
 import org.apache.mahout.math.jet.random.Gamma;
 
@@ -59,7 +60,7 @@ import java.util.concurrent.TimeUnit;
  * </ul>
  */
 public class CommonPointOfCompromise extends FieldSampler {
-    Random gen = new Random();
+    Random gen = new SplitRandom();
 
     // how many average transactions per day?
     Gamma transactionsPerDay = new Gamma(2, 1, gen);
@@ -95,7 +96,9 @@ public class CommonPointOfCompromise extends FieldSampler {
 
     @SuppressWarnings("unused")
     public void setSeed(long seed) {
-        gen.setSeed(seed);
+        // a seed means java.util.Random so old seeds reproduce old transactions
+        gen = new Random(seed);
+        transactionsPerDay = new Gamma(2, 1, gen);
         merchant.setSeed(seed);
     }
 
@@ -22,7 +22,8 @@ package com.mapr.synth.samplers;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.TextNode;
 import com.mapr.synth.FancyTimeFormatter;
-import org.apache.mahout.common.RandomUtils;
+import com.mapr.synth.distributions.RowRandom;
+import com.mapr.synth.distributions.SplitRandom;
 import org.apache.mahout.math.jet.random.AbstractContinousDistribution;
 import org.apache.mahout.math.jet.random.Exponential;
 import org.apache.mahout.math.jet.random.Uniform;
@@ -40,7 +41,7 @@ import java.util.concurrent.TimeUnit;
  * as dates in yyyy-MM-dd default format or whatever format is specified with the format
  * option (note that options are parsed in order).
  *
- * Thread safe
+ * Not thread safe since the date format isn't.
  */
 public class DateSampler extends FieldSampler {
     private static final long EPOCH = new GregorianCalendar(2013, 7, 1).getTimeInMillis();
@@ -49,7 +50,7 @@ public class DateSampler extends FieldSampler {
 
     private FancyTimeFormatter df = new FancyTimeFormatter("yyyy-MM-dd");
     private AbstractContinousDistribution base =
-            new Exponential(1.0 / TimeUnit.MILLISECONDS.convert(100, TimeUnit.DAYS), RandomUtils.getRandom());
+            new Exponential(1.0 / TimeUnit.MILLISECONDS.convert(100, TimeUnit.DAYS), new SplitRandom());
 
     public DateSampler() {
     }
@@ -62,20 +63,41 @@ public class DateSampler extends FieldSampler {
     @SuppressWarnings("UnusedDeclaration")
     public void setStart(String start) throws ParseException {
         this.start = df.parse(start).getTime();
-        base = new Uniform(0, this.end - this.start, RandomUtils.getRandom());
+        base = new Uniform(0, this.end - this.start, new SplitRandom());
     }
 
     @SuppressWarnings("UnusedDeclaration")
     public void setEnd(String end) throws ParseException {
         this.end = df.parse(end).getTime();
-        base = new Uniform(0, this.end - this.start, RandomUtils.getRandom());
+        base = new Uniform(0, this.end - this.start, new SplitRandom());
+    }
+
+    @Override
+    public void setRowRandom(RowRandom random) {
+        base.setRandomGenerator(random);
+    }
+
+    @Override
+    public long parseTime(String value) {
+        try {
+            return df.parse(value).getTime();
+        } catch (ParseException e) {
+            throw new IllegalArgumentException(String.format("Can't parse time %s", value), e);
+        }
     }
 
     @Override
     public JsonNode sample() {
-      synchronized (this) {
+        return new TextNode(nextDate());
+    }
+
+    @Override
+    public void sample(RowBuffer row, int slot) {
+        row.setText(slot, nextDate());
+    }
+
+    private String nextDate() {
         long t = (long) Math.rint(base.nextDouble());
-        return new TextNode(df.format(new java.util.Date(end - t)));
-      }
+        return df.format(new java.util.Date(end - t));
     }
 }
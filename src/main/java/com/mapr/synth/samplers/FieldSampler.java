@@ -27,10 +27,12 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.DoubleNode;
 import com.mapr.synth.OperatingSystemSampler;
+import com.mapr.synth.distributions.RowRandom;
 import com.mapr.synth.drive.Commuter;
 import org.apache.mahout.math.random.Sampler;
 
 import java.io.IOException;
+import java.util.Iterator;
 
 @JsonTypeInfo(use = JsonTypeInfo.Id.NAME, include = JsonTypeInfo.As.PROPERTY, property = "class")
 @JsonSubTypes({
@@ -91,9 +93,95 @@ public abstract class FieldSampler implements Sampler<JsonNode> {
             public JsonNode sample() {
                 return sd;
             }
+
+            @Override
+            public void setRowRandom(RowRandom random) {
+                // constants have nothing to randomize
+            }
         };
     }
 
+    /**
+     * Samples a value directly into a slot of a row buffer.  By default this just stores the
+     * result of {@link #sample()}, but samplers that produce numbers or strings they already have
+     * on hand override this to avoid allocating a JsonNode for every value.
+     *
+     * @param row  The row being filled.
+     * @param slot Which slot of the row this sampler owns.
+     */
+    public void sample(RowBuffer row, int slot) {
+        row.setNode(slot, sample());
+    }
+
+    /**
+     * Samples a flattened field as a series of values that are produced as they are needed rather
+     * than as one array.  Samplers whose arrays can be too big to keep in memory override this.
+     * The default returns null, which means that {@link #sample()} should be used instead.
+     */
+    public Iterator<JsonNode> stream() {
+        return null;
+    }
+
+    /**
+     * Makes this sampler draw all of its randomness from a generator that is repositioned at the
+     * start of each row.  This is how a fixed seed produces the same data no matter how rows are
+     * split between threads.  Samplers whose values depend on the samples before them can't do
+     * that and keep this default, which refuses.
+     *
+     * @param random The generator for the top-level field that contains this sampler.
+     */
+    public void setRowRandom(RowRandom random) {
+        throw new IllegalArgumentException(String.format("Field %s (%s) can't be used with a fixed seed because its values depend on earlier rows",
+                getName(), getClass().getSimpleName()));
+    }
+
+    /**
+     * Tells this sampler that the next sample is for record number {@code row} of the full
+     * data set rather than the first.  Only samplers that count records, like id, care about this.
+     */
+    public void seek(long row) {
+        // most samplers don't care
+    }
+
+    /**
+     * Tells this sampler that it is number {@code copy} of {@code copies} copies of the same schema
+     * that generate parts of the same data in parallel.  Only samplers that have to keep values
+     * unique across copies without the help of {@link #seek(long)}, like an id inside a sequence,
+     * care about this.
+     */
+    public void setCopy(int copy, int copies) {
+        // most samplers don't care
+    }
+
+    /**
+     * Tells this sampler that it is inside a sequence that samples it any number of times for
+     * each record, so its values can't be tied to the record number.
+     */
+    public void setRepeated() {
+        // most samplers don't care
+    }
+
+    /**
+     * Converts a value produced by this sampler back into milliseconds since the epoch.  This
+     * lets output be paced by event time, so only samplers that produce times support it.
+     *
+     * @param value The text of a value produced by this sampler.
+     */
+    public long parseTime(String value) {
+        throw new IllegalArgumentException(String.format("Field %s (%s) doesn't produce times", getName(), getClass().getSimpleName()));
+    }
+
+    /**
+     * Returns a version of this sampler that records how much it costs in a profiler.  Samplers
+     * that contain other samplers override this so that their parts get profiled as well.
+     *
+     * @param profiler Where to record costs.
+     * @param name     What to call this sampler in the profile.
+     */
+    public FieldSampler profiled(Profiler profiler, String name) {
+        return profiler.wrap(this, name);
+    }
+
     public String getName() {
         return name;
     }
@@ -29,89 +29,189 @@ import com.google.common.base.Preconditions;
 import com.google.common.base.Splitter;
 import com.google.common.collect.Lists;
 import com.google.common.io.*;
+import com.mapr.synth.ResourceRegistry;
+import com.mapr.synth.distributions.RowRandom;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
 import java.util.Iterator;
 import java.util.List;
 
 /**
  * Samples lines from a file
  *
- * Thread safe for sampling
+ * The contents of each file are only parsed once no matter how many copies of the schema
+ * there are since they are kept in the {@link ResourceRegistry}, but a single sampler should
+ * not be shared between threads.
+ * <p>
+ * Normally the whole file is parsed into memory.  With {@code mapped} set, the file is mapped
+ * instead and only the line that is drawn gets parsed, which is how lookup tables bigger than the
+ * heap can be used.  Mapping works for .csv, .tsv and .jsonl (one JSON value per line) files.
  */
 public class FileSampler extends FieldSampler {
+    private static final JsonNodeFactory nf = JsonNodeFactory.withExactBigDecimals(false);
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private String lookup;
+    private boolean isResource;
+    private boolean mapped = false;
+    private boolean cacheIndex = false;
+
+    // resolved on first use since the options can come in any order
     private JsonNode data;
-    private IntegerSampler index;
-    private int skew = Integer.MAX_VALUE;
+    private MappedLines lines;
+    private Splitter splitter;
+    private List<String> names;
+    private int firstLine;
+
+    private IntegerSampler index = new IntegerSampler();
 
     public FileSampler() {
+        index.setMin(0);
     }
 
     @SuppressWarnings("unused")
-    public void setFile(String lookup) throws IOException {
-        if (lookup.matches(".*\\.json")) {
-            readJsonData(Files.newInputStreamSupplier(new File(lookup)));
-        } else {
-            List<String> lines = Files.readLines(new File(lookup), Charsets.UTF_8);
-            readDelimitedData(lookup, lines);
-        }
+    public void setFile(String lookup) {
+        this.lookup = lookup;
+        this.isResource = false;
+        reset();
+    }
 
-        setupIndex();
+    @SuppressWarnings({"UnusedDeclaration"})
+    public void setResource(String lookup) {
+        this.lookup = lookup;
+        this.isResource = true;
+        reset();
     }
 
-    private void setupIndex() {
-        index = new IntegerSampler();
-        index.setMin(0);
-        index.setMax(data.size());
-        if (skew != Integer.MAX_VALUE) {
-            index.setSkew(skew);
-        }
+    /**
+     * Maps the file into memory rather than reading it.  Lines are parsed when they are sampled.
+     */
+    @SuppressWarnings({"UnusedDeclaration"})
+    public void setMapped(boolean mapped) {
+        this.mapped = mapped;
+        reset();
     }
 
+    /**
+     * Keeps the offsets of the lines of a mapped file in a file next to it with .idx appended to
+     * the name so that the next run doesn't have to read the whole file to find them.
+     */
     @SuppressWarnings({"UnusedDeclaration"})
-    public void setResource(String lookup) throws IOException {
-        if (lookup.matches(".*\\.json")) {
-            readJsonData(Resources.newInputStreamSupplier(Resources.getResource(lookup)));
+    public void setCacheIndex(boolean cacheIndex) {
+        this.cacheIndex = cacheIndex;
+        reset();
+    }
+
+    private void reset() {
+        data = null;
+        lines = null;
+    }
+
+    private void setup() {
+        Preconditions.checkState(lookup != null, "Lookup needs a file or a resource");
+        int rows;
+        if (mapped) {
+            final File file = mappableFile();
+            lines = ResourceRegistry.get("mapped:" + file.getAbsolutePath() + ":" + cacheIndex, new ResourceRegistry.Loader<MappedLines>() {
+                @Override
+                public MappedLines load() throws IOException {
+                    return MappedLines.open(file, cacheIndex);
+                }
+            });
+            if (lookup.matches(".*\\.jsonl")) {
+                splitter = null;
+                firstLine = 0;
+            } else {
+                splitter = splitter(lookup, "Mapped lookups must have a .csv, .tsv or .jsonl suffix");
+                Preconditions.checkArgument(lines.size() > 0, "No header in %s", lookup);
+                names = Lists.newArrayList(splitter.split(lines.get(0)));
+                firstLine = 1;
+            }
+            rows = lines.size() - firstLine;
         } else {
-            List<String> lines = Resources.readLines(Resources.getResource(lookup), Charsets.UTF_8);
-            readDelimitedData(lookup, lines);
+            data = ResourceRegistry.get((isResource ? "resource:" : "file:") + lookup, new ResourceRegistry.Loader<JsonNode>() {
+                @Override
+                public JsonNode load() throws IOException {
+                    if (lookup.matches(".*\\.json")) {
+                        return readJsonData(isResource ? Resources.newInputStreamSupplier(Resources.getResource(lookup)) : Files.newInputStreamSupplier(new File(lookup)));
+                    } else {
+                        List<String> lines = isResource ? Resources.readLines(Resources.getResource(lookup), Charsets.UTF_8) : Files.readLines(new File(lookup), Charsets.UTF_8);
+                        if (lookup.matches(".*\\.jsonl")) {
+                            return readJsonLines(lines);
+                        } else {
+                            return readDelimitedData(lookup, lines);
+                        }
+                    }
+                }
+            });
+            rows = data.size();
         }
+        Preconditions.checkArgument(rows > 0, "No data in %s", lookup);
+        index.setMax(rows);
+    }
 
-        setupIndex();
+    // resources can be mapped too, but only if they haven't been packed into a jar
+    private File mappableFile() {
+        if (!isResource) {
+            return new File(lookup);
+        }
+        URL url = Resources.getResource(lookup);
+        Preconditions.checkArgument("file".equals(url.getProtocol()), "Can't map %s since it isn't a file", url);
+        try {
+            return new File(url.toURI());
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("Can't map " + url, e);
+        }
     }
 
-    private void readDelimitedData(String lookup, List<String> lines) {
-        Splitter splitter;
+    private static Splitter splitter(String lookup, String message) {
         if (lookup.matches(".*\\.csv")) {
-            splitter = Splitter.on(",");
+            return Splitter.on(",");
         } else if (lookup.matches(".*\\.tsv")) {
-            splitter = Splitter.on("\t");
+            return Splitter.on("\t");
         } else {
-            throw new IllegalArgumentException("Must have file with .csv, .tsv or .json suffix");
+            throw new IllegalArgumentException(message);
         }
+    }
+
+    private static JsonNode readDelimitedData(String lookup, List<String> lines) {
+        Splitter splitter = splitter(lookup, "Must have file with .csv, .tsv, .json or .jsonl suffix");
 
         List<String> names = Lists.newArrayList(splitter.split(lines.get(0)));
-        JsonNodeFactory nf = JsonNodeFactory.withExactBigDecimals(false);
         ArrayNode localData = nf.arrayNode();
         for (String line : lines.subList(1, lines.size())) {
-            ObjectNode r = nf.objectNode();
-            List<String> fields = Lists.newArrayList(splitter.split(line));
-            Preconditions.checkState(names.size() == fields.size(), "Wrong number of fields, expected ", names.size(), fields.size());
-            Iterator<String> ix = names.iterator();
-            for (String field : fields) {
-                r.put(ix.next(), field);
-            }
-            localData.add(r);
+            localData.add(parseLine(splitter, names, line));
+        }
+        return localData;
+    }
+
+    private static ObjectNode parseLine(Splitter splitter, List<String> names, String line) {
+        ObjectNode r = nf.objectNode();
+        List<String> fields = Lists.newArrayList(splitter.split(line));
+        Preconditions.checkState(names.size() == fields.size(), "Wrong number of fields, expected ", names.size(), fields.size());
+        Iterator<String> ix = names.iterator();
+        for (String field : fields) {
+            r.put(ix.next(), field);
+        }
+        return r;
+    }
+
+    private static JsonNode readJsonLines(List<String> lines) throws IOException {
+        ArrayNode localData = nf.arrayNode();
+        for (String line : lines) {
+            localData.add(mapper.readTree(line));
         }
-        data = localData;
+        return localData;
     }
 
-    private void readJsonData(InputSupplier<? extends InputStream> input) throws IOException {
+    private static JsonNode readJsonData(InputSupplier<? extends InputStream> input) throws IOException {
         ObjectMapper om = new ObjectMapper();
         try (InputStream in = input.getInput()) {
-            data = om.readTree(in);
+            return om.readTree(in);
         }
     }
 
@@ -127,17 +227,32 @@ public class FileSampler extends FieldSampler {
      */
     @SuppressWarnings({"UnusedDeclaration"})
     public void setSkew(int skew) {
-        if (index != null) {
-            index.setSkew(skew);
-        } else {
-            this.skew = skew;
-        }
+        index.setSkew(skew);
+    }
+
+    @Override
+    public void setRowRandom(RowRandom random) {
+        index.setRowRandom(random);
     }
 
     @Override
     public JsonNode sample() {
-      synchronized (this) {
-        return data.get(index.sample().asInt());
-      }
+        if (data == null && lines == null) {
+            setup();
+        }
+        int i = index.sample().asInt();
+        if (data != null) {
+            return data.get(i);
+        }
+
+        String line = lines.get(firstLine + i);
+        if (splitter != null) {
+            return parseLine(splitter, names, line);
+        }
+        try {
+            return mapper.readTree(line);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(String.format("Bad JSON on line %d of %s", firstLine + i + 1, lookup), e);
+        }
     }
 }
@@ -24,6 +24,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.mapr.synth.distributions.RowRandom;
 
 import java.util.Iterator;
 
@@ -42,7 +43,7 @@ import java.util.Iterator;
  * By default, the promoted values have names prefixed by the name of the flattener. You can set this
  * prefix to any value you like including the empty string.
  * <p>
- * Thread safe for sampling
+ * The wrapped sampler generally isn't thread safe, so each instance should only be used by one thread.
  */
 public class FlattenSampler extends FieldSampler {
     private JsonNodeFactory nodeFactory = JsonNodeFactory.withExactBigDecimals(false);
@@ -62,6 +63,32 @@ public class FlattenSampler extends FieldSampler {
         this.prefix = prefix;
     }
 
+    @Override
+    public void seek(long row) {
+        delegate.seek(row);
+    }
+
+    @Override
+    public void setCopy(int copy, int copies) {
+        delegate.setCopy(copy, copies);
+    }
+
+    @Override
+    public void setRepeated() {
+        delegate.setRepeated();
+    }
+
+    @Override
+    public FieldSampler profiled(Profiler profiler, String name) {
+        delegate = delegate.profiled(profiler, name + ".value");
+        return super.profiled(profiler, name);
+    }
+
+    @Override
+    public void setRowRandom(RowRandom random) {
+        delegate.setRowRandom(random);
+    }
+
     @Override
     public JsonNode sample() {
         JsonNode value = delegate.sample();
@@ -23,21 +23,37 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.IntNode;
 import com.google.common.base.Preconditions;
-import org.apache.mahout.math.random.Multinomial;
+import com.google.common.collect.Lists;
+import com.mapr.synth.ResourceRegistry;
+import com.mapr.synth.distributions.AliasTable;
+import com.mapr.synth.distributions.RowRandom;
+import com.mapr.synth.distributions.SplitRandom;
+import com.mapr.synth.distributions.Zipf;
+
+import java.util.List;
+import java.util.Random;
 
 /**
  * Samples from a "foreign key" which is really just an integer.
  * <p>
  * The only cleverness here is that we allow a variable amount of key skew.
- *
- * Thread safe
+ * <p>
+ * Up to {@link #TABLE_LIMIT} keys, draws come from an alias table of key weights.  That table only
+ * depends on size and skew, so instances with the same settings share one from the
+ * {@link ResourceRegistry}.  Larger key spaces use a {@link Zipf} sampler which needs no table at
+ * all.  Either way, nothing is built until the first draw so setting size and skew separately
+ * doesn't do the work twice.  Not thread safe.
  */
 @JsonIgnoreProperties({"base"})
 public class ForeignKeySampler extends FieldSampler {
+    public static final int TABLE_LIMIT = 1 << 16;
+
     private int size = 1000;
     private double skew = 0.5;
 
-    private Multinomial<Integer> base;
+    private AliasTable<Integer> base;
+    private Zipf zipf;
+    private Random rand = new SplitRandom();
 
     @SuppressWarnings("UnusedDeclaration")
     public ForeignKeySampler() {
@@ -52,7 +68,7 @@ public class ForeignKeySampler extends FieldSampler {
         Preconditions.checkArgument(size > 0);
         this.size = size;
 
-        setup();
+        reset();
     }
 
     public void setSkew(double skew) {
@@ -61,20 +77,59 @@ public class ForeignKeySampler extends FieldSampler {
 
         this.skew = skew;
 
-        setup();
+        reset();
+    }
+
+    private void reset() {
+        base = null;
+        zipf = null;
     }
 
     private void setup() {
-        base = new Multinomial<>();
-        for (int i = 0; i < size; i++) {
-            base.add(i, Math.pow(i + 1.0, -skew));
+        if (size > TABLE_LIMIT) {
+            zipf = new Zipf(size, skew);
+            return;
         }
+        final int n = size;
+        final double s = skew;
+        base = ResourceRegistry.get("foreign-key:" + n + "/" + s, new ResourceRegistry.Loader<AliasTable<Integer>>() {
+            @Override
+            public AliasTable<Integer> load() {
+                List<Integer> keys = Lists.newArrayList();
+                double[] weights = new double[n];
+                for (int i = 0; i < n; i++) {
+                    keys.add(i);
+                    weights[i] = Math.pow(i + 1.0, -s);
+                }
+                return new AliasTable<>(keys, weights);
+            }
+        });
     }
 
     @Override
     public JsonNode sample() {
-      synchronized (this) {
-        return new IntNode(base.sample());
-      }
+        return new IntNode(draw());
+    }
+
+    @Override
+    public void sample(RowBuffer row, int slot) {
+        row.setLong(slot, draw());
+    }
+
+    // the table is shared so we have to use our own generator
+    private int draw() {
+        if (base == null && zipf == null) {
+            setup();
+        }
+        if (zipf != null) {
+            return (int) zipf.sample(rand);
+        } else {
+            return base.sampleIndex(rand);
+        }
+    }
+
+    @Override
+    public void setRowRandom(RowRandom random) {
+        rand = random;
     }
 }
@@ -21,6 +21,8 @@ package com.mapr.synth.samplers;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.DoubleNode;
+import com.mapr.synth.distributions.RowRandom;
+import com.mapr.synth.distributions.SplitRandom;
 import org.apache.mahout.math.jet.random.Gamma;
 
 import java.util.Random;
@@ -42,13 +44,23 @@ public class GammaSampler extends FieldSampler {
     private double scale = Double.NaN;
 
     private int seed = SEED_NOT_SET;
-    private Gamma rand = new Gamma(alpha, 1 / beta, new Random());
+    private Gamma rand = new Gamma(alpha, 1 / beta, new SplitRandom());
 
     @Override
     public JsonNode sample() {
         return new DoubleNode(rand.nextDouble());
     }
 
+    @Override
+    public void sample(RowBuffer row, int slot) {
+        row.setDouble(slot, rand.nextDouble());
+    }
+
+
+    @Override
+    public void setRowRandom(RowRandom random) {
+        rand.setRandomGenerator(random);
+    }
 
     @SuppressWarnings("UnusedDeclaration")
     public void setSeed(int seed) {
@@ -118,9 +130,10 @@ public class GammaSampler extends FieldSampler {
             throw new IllegalArgumentException("Must use either alpha,beta,rate (or defaults) or dof,scale to parametrize gamma");
         }
         if (seed != SEED_NOT_SET) {
+            // java.util.Random so that a given seed still gives the same values
             rand = new Gamma(a, b, new Random(seed));
         } else {
-            rand = new Gamma(a, b, new Random());
+            rand = new Gamma(a, b, new SplitRandom());
         }
     }
 }
@@ -22,6 +22,9 @@ package com.mapr.synth.samplers;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.TextNode;
 import com.google.common.collect.ImmutableMap;
+import com.mapr.synth.ResourceRegistry;
+import com.mapr.synth.distributions.RowRandom;
+import com.mapr.synth.distributions.SplitRandom;
 import freemarker.cache.ClassTemplateLoader;
 import freemarker.template.Configuration;
 import freemarker.template.Template;
@@ -35,6 +38,8 @@ import java.util.Random;
 
 /**
  * Sample a list of headers in the style of those that might accompany a web request
+ * <p>
+ * Templates and user agent lists are loaded once and shared through the {@link ResourceRegistry}.
  */
 public class HeaderSampler extends FieldSampler {
 
@@ -62,7 +67,7 @@ public class HeaderSampler extends FieldSampler {
             .build();
     private StringSampler language = new LanguageSampler();
 
-    private Random gen = new Random();
+    private Random gen = new SplitRandom();
 
     public void setType(String headerType) throws IOException {
         this.headerType = Type.valueOf(headerType.toUpperCase());
@@ -76,10 +81,6 @@ public class HeaderSampler extends FieldSampler {
 
     // picks which template to use based on header type
     private void setupTemplate() throws IOException {
-        Configuration cfg = new Configuration(Configuration.VERSION_2_3_21);
-        cfg.setDefaultEncoding("UTF-8");
-        cfg.setTemplateExceptionHandler(TemplateExceptionHandler.RETHROW_HANDLER);
-        cfg.setTemplateLoader(new ClassTemplateLoader(getClass(), "/web-headers"));
         String templateName = "header";
         switch (headerType) {
             case MAL3:
@@ -91,7 +92,21 @@ public class HeaderSampler extends FieldSampler {
             default:
                 break;
         }
-        template = cfg.getTemplate(templateName);
+        template = template(templateName);
+    }
+
+    // templates can be shared since processing them doesn't change them
+    private static Template template(final String name) {
+        return ResourceRegistry.get("template:web-headers/" + name, new ResourceRegistry.Loader<Template>() {
+            @Override
+            public Template load() throws IOException {
+                Configuration cfg = new Configuration(Configuration.VERSION_2_3_21);
+                cfg.setDefaultEncoding("UTF-8");
+                cfg.setTemplateExceptionHandler(TemplateExceptionHandler.RETHROW_HANDLER);
+                cfg.setTemplateLoader(new ClassTemplateLoader(HeaderSampler.class, "/web-headers"));
+                return cfg.getTemplate(name);
+            }
+        });
     }
 
     // these methods sample the pieces of the headers
@@ -153,6 +168,16 @@ public class HeaderSampler extends FieldSampler {
         setupTemplate();
     }
 
+    @Override
+    public void setRowRandom(RowRandom random) {
+        gen = random;
+        browser.setRowRandom(random);
+        language.setRowRandom(random);
+        for (StringSampler s : headers.values()) {
+            s.setRowRandom(random);
+        }
+    }
+
     @Override
     public JsonNode sample() {
         boolean isImage = gen.nextDouble() < 0.3;
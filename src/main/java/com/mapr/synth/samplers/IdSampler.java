@@ -21,8 +21,10 @@ package com.mapr.synth.samplers;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.IntNode;
+import com.fasterxml.jackson.databind.node.LongNode;
+import com.mapr.synth.distributions.RowRandom;
 
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Samples from a "foreign key" which is really just an integer.
@@ -30,18 +32,77 @@ import java.util.concurrent.atomic.AtomicInteger;
  * The only cleverness here is that we allow a variable amount of key skew.
  */
 public class IdSampler extends FieldSampler {
-  private AtomicInteger current = new AtomicInteger(0);
+  private AtomicLong current = new AtomicLong(0);
+  private long start = 0;
+  private RowRandom rowRandom = null;
+
+  // inside a sequence, ids don't correspond to records so parallel copies of the schema interleave them
+  private boolean repeated = false;
+  private int step = 1;
 
   public IdSampler() {
   }
 
   @Override
   public JsonNode sample() {
-    return new IntNode(current.getAndIncrement());
+    long id = rowRandom != null ? start + rowRandom.getRow() : current.getAndAdd(step);
+    return id == (int) id ? new IntNode((int) id) : new LongNode(id);
+  }
+
+  @Override
+  public void sample(RowBuffer row, int slot) {
+    if (rowRandom != null) {
+      row.setLong(slot, start + rowRandom.getRow());
+    } else {
+      row.setLong(slot, current.getAndAdd(step));
+    }
+  }
+
+  /**
+   * With a fixed seed, ids are the row number (plus the start) so that they don't depend on
+   * how rows are divided among threads.  That doesn't work inside a sequence, which would just
+   * repeat the same id.
+   */
+  @Override
+  public void setRowRandom(RowRandom random) {
+    if (repeated) {
+      throw new IllegalArgumentException(String.format("Field %s (%s) can't be used with a fixed seed inside a sequence because it would repeat the record number",
+              getName(), getClass().getSimpleName()));
+    }
+    rowRandom = random;
+  }
+
+  /**
+   * Sharded output starts part way through the data so ids have to as well.  Ids inside a
+   * sequence are positioned by {@link #setCopy(int, int)} instead.
+   */
+  @Override
+  public void seek(long row) {
+    if (!repeated) {
+      current.set(start + row);
+    }
+  }
+
+  /**
+   * Ids inside a sequence can't be split into contiguous blocks by record, so copy k of n
+   * generates start + k, start + k + n and so on.
+   */
+  @Override
+  public void setCopy(int copy, int copies) {
+    if (repeated) {
+      step = copies;
+      current.set(start + copy);
+    }
+  }
+
+  @Override
+  public void setRepeated() {
+    repeated = true;
   }
 
   @SuppressWarnings("UnusedDeclaration")
-  public void setStart(int start) {
+  public void setStart(long start) {
+    this.start = start;
     this.current.set(start);
   }
 }
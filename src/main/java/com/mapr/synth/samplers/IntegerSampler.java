@@ -22,14 +22,15 @@ package com.mapr.synth.samplers;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.IntNode;
 import com.fasterxml.jackson.databind.node.TextNode;
-import org.apache.mahout.common.RandomUtils;
+import com.mapr.synth.distributions.RowRandom;
+import com.mapr.synth.distributions.SplitRandom;
 
 import java.util.Random;
 
 /**
  * Samples from a "foreign key" which is really just an integer.
  *
- * Thread safe
+ * Not thread safe, each thread should have its own copy of the schema.
  */
 
 public class IntegerSampler extends FieldSampler {
@@ -40,7 +41,7 @@ public class IntegerSampler extends FieldSampler {
     private String format = null;
 
     public IntegerSampler() {
-        base = RandomUtils.getRandom();
+        base = new SplitRandom();
     }
 
     public void setMax(int max) {
@@ -70,9 +71,32 @@ public class IntegerSampler extends FieldSampler {
         this.format = format;
     }
 
+    @Override
+    public void setRowRandom(RowRandom random) {
+        base = random;
+    }
+
     @Override
     public JsonNode sample() {
-      synchronized (this) {
+        int r = nextInt();
+        if (format == null) {
+            return new IntNode(r);
+        } else {
+            return new TextNode(String.format(format, r));
+        }
+    }
+
+    @Override
+    public void sample(RowBuffer row, int slot) {
+        int r = nextInt();
+        if (format == null) {
+            row.setLong(slot, r);
+        } else {
+            row.setText(slot, String.format(format, r));
+        }
+    }
+
+    private int nextInt() {
         int r = power >= 0 ? Integer.MAX_VALUE : Integer.MIN_VALUE;
         if (power >= 0) {
             for (int i = 0; i <= power; i++) {
@@ -84,12 +108,7 @@ public class IntegerSampler extends FieldSampler {
                 r = Math.max(r, min + base.nextInt(max - min));
             }
         }
-        if (format == null) {
-            return new IntNode(r);
-        }else {
-            return new TextNode(String.format(format, r));
-        }
-      }
+        return r;
     }
 
 }
@@ -23,11 +23,12 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.TextNode;
+import com.mapr.synth.distributions.RowRandom;
 
 /**
  * Glue together elements of a list as strings.  Should normally only be done with a list of strings.
  *
- * Thread safe for sampling
+ * Each instance should only be used by one thread, just like the sampler whose values it joins.
  */
 public class JoinSampler extends FieldSampler {
     private FieldSampler delegate;
@@ -43,6 +44,32 @@ public class JoinSampler extends FieldSampler {
         this.separator = separator;
     }
 
+    @Override
+    public FieldSampler profiled(Profiler profiler, String name) {
+        delegate = delegate.profiled(profiler, name + ".value");
+        return super.profiled(profiler, name);
+    }
+
+    @Override
+    public void setRowRandom(RowRandom random) {
+        delegate.setRowRandom(random);
+    }
+
+    @Override
+    public void seek(long row) {
+        delegate.seek(row);
+    }
+
+    @Override
+    public void setCopy(int copy, int copies) {
+        delegate.setCopy(copy, copies);
+    }
+
+    @Override
+    public void setRepeated() {
+        delegate.setRepeated();
+    }
+
     @Override
     public JsonNode sample() {
         JsonNode value = delegate.sample();
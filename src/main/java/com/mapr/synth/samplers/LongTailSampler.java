@@ -41,4 +41,9 @@ public class LongTailSampler extends FieldSampler     {
     public JsonNode sample() {
         return new IntNode(dist.sample());
     }
+
+    @Override
+    public void sample(RowBuffer row, int slot) {
+        row.setLong(slot, dist.sample());
+    }
 }
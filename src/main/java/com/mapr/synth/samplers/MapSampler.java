@@ -22,13 +22,14 @@ package com.mapr.synth.samplers;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.google.common.base.Preconditions;
+import com.mapr.synth.distributions.RowRandom;
 
 import java.util.List;
 
 /**
  * Create a JSON map with values sampled from specified distributions.
  *
- * Thread safe for sampling
+ * The nested fields aren't thread safe, so each instance should only be used by one thread.
  */
 public class MapSampler extends FieldSampler {
     private SchemaSampler base = null;
@@ -42,6 +43,32 @@ public class MapSampler extends FieldSampler {
         this.base = new SchemaSampler(base);
     }
 
+    @Override
+    public void seek(long row) {
+        base.seek(row);
+    }
+
+    @Override
+    public void setCopy(int copy, int copies) {
+        base.setCopy(copy, copies);
+    }
+
+    @Override
+    public void setRepeated() {
+        base.setRepeated();
+    }
+
+    @Override
+    public FieldSampler profiled(Profiler profiler, String name) {
+        base.profile(profiler, name + ".");
+        return super.profiled(profiler, name);
+    }
+
+    @Override
+    public void setRowRandom(RowRandom random) {
+        base.setRowRandom(random);
+    }
+
     @Override
     public JsonNode sample() {
         Preconditions.checkState(base != null, "Need to specify definition");
@@ -0,0 +1,235 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth.samplers;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import org.apache.mahout.math.list.IntArrayList;
+import org.apache.mahout.math.list.LongArrayList;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The lines of a file that is mapped into memory rather than read.  Only the starting offsets of
+ * the lines live on the heap, a bit more than four bytes per line, so files much larger than the
+ * heap can be sampled.  Lines are decoded when they are asked for.
+ * <p>
+ * Finding the lines means reading the whole file once.  That can be avoided next time by keeping
+ * the offsets in an index file next to the data.  The index is only used if the length and
+ * modification time of the data still match.
+ * <p>
+ * Instances are immutable and can be shared between threads.
+ */
+final class MappedLines {
+    // each mapping covers at most this much of the file since a buffer can't be bigger than 2GB
+    private static final int CHUNK_BITS = 30;
+    // lines are located by a full offset for each block of lines and a 32-bit offset within the block
+    private static final int BLOCK_BITS = 8;
+
+    private static final int INDEX_MAGIC = 0x4c534958;
+    private static final int INDEX_VERSION = 1;
+
+    private final int chunkBits;
+    private final ByteBuffer[] chunks;
+    private final long length;
+    private final int lines;
+    private final long[] anchors;
+    // unsigned offsets relative to the block anchor, with one extra at the end for the end of the file
+    private final int[] starts;
+
+    private MappedLines(int chunkBits, ByteBuffer[] chunks, long length, long[] anchors, int[] starts) {
+        this.chunkBits = chunkBits;
+        this.chunks = chunks;
+        this.length = length;
+        this.lines = starts.length - 1;
+        this.anchors = anchors;
+        this.starts = starts;
+    }
+
+    /**
+     * Maps a file and finds its lines.
+     *
+     * @param file       The data to map.
+     * @param cacheIndex If true, the line offsets are read from (or written to) the file with
+     *                   {@code .idx} appended to the name.
+     */
+    static MappedLines open(File file, boolean cacheIndex) throws IOException {
+        return open(file, cacheIndex, CHUNK_BITS);
+    }
+
+    // smaller chunks make it possible to test lines that cross from one mapping to the next
+    static MappedLines open(File file, boolean cacheIndex, int chunkBits) throws IOException {
+        Preconditions.checkArgument(chunkBits > 0 && chunkBits <= CHUNK_BITS, "Bad chunk size %s", chunkBits);
+        ByteBuffer[] chunks;
+        long length;
+        long modified = file.lastModified();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            length = channel.size();
+            long chunkSize = 1L << chunkBits;
+            chunks = new ByteBuffer[(int) ((length + chunkSize - 1) >> chunkBits)];
+            for (int i = 0; i < chunks.length; i++) {
+                long offset = (long) i << chunkBits;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(chunkSize, length - offset));
+            }
+        }
+
+        File indexFile = new File(file.getPath() + ".idx");
+        if (cacheIndex && indexFile.exists()) {
+            MappedLines r = readIndex(indexFile, chunkBits, chunks, length, modified);
+            if (r != null) {
+                return r;
+            }
+        }
+
+        MappedLines r = scan(chunkBits, chunks, length);
+        if (cacheIndex) {
+            // write next to the index and rename so that nobody ever sees half an index
+            File tmp = new File(indexFile.getPath() + ".tmp");
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16)) {
+                r.writeIndex(out, modified);
+            }
+            Files.move(tmp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        return r;
+    }
+
+    private static MappedLines scan(int chunkBits, ByteBuffer[] chunks, long length) {
+        LongArrayList anchors = new LongArrayList();
+        IntArrayList starts = new IntArrayList();
+        long start = 0;
+        while (start < length) {
+            addStart(anchors, starts, start);
+            start = nextLine(chunkBits, chunks, length, start);
+        }
+        addStart(anchors, starts, length);
+
+        anchors.trimToSize();
+        starts.trimToSize();
+        return new MappedLines(chunkBits, chunks, length, anchors.elements(), starts.elements());
+    }
+
+    private static void addStart(LongArrayList anchors, IntArrayList starts, long start) {
+        int i = starts.size();
+        Preconditions.checkArgument(i < Integer.MAX_VALUE - 1, "Too many lines to map");
+        if ((i & ((1 << BLOCK_BITS) - 1)) == 0) {
+            anchors.add(start);
+        }
+        long delta = start - anchors.get(i >> BLOCK_BITS);
+        Preconditions.checkArgument(delta < (1L << 32), "Lines are too long to map");
+        starts.add((int) delta);
+    }
+
+    // offset just after the next newline at or after start, or the length if there isn't one
+    private static long nextLine(int chunkBits, ByteBuffer[] chunks, long length, long start) {
+        int chunk = (int) (start >> chunkBits);
+        int i = (int) (start - ((long) chunk << chunkBits));
+        while (chunk < chunks.length) {
+            ByteBuffer buf = chunks[chunk];
+            int n = buf.limit();
+            for (; i < n; i++) {
+                if (buf.get(i) == '\n') {
+                    return ((long) chunk << chunkBits) + i + 1;
+                }
+            }
+            chunk++;
+            i = 0;
+        }
+        return length;
+    }
+
+    private static MappedLines readIndex(File indexFile, int chunkBits, ByteBuffer[] chunks, long length, long modified) throws IOException {
+        try (FileChannel channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buf.getInt() != INDEX_MAGIC || buf.getInt() != INDEX_VERSION || buf.getLong() != length || buf.getLong() != modified) {
+                return null;
+            }
+            long[] anchors = new long[buf.getInt()];
+            buf.asLongBuffer().get(anchors);
+            buf.position(buf.position() + 8 * anchors.length);
+            int[] starts = new int[buf.getInt()];
+            buf.asIntBuffer().get(starts);
+            return new MappedLines(chunkBits, chunks, length, anchors, starts);
+        }
+    }
+
+    private void writeIndex(OutputStream out, long modified) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(INDEX_MAGIC);
+        data.writeInt(INDEX_VERSION);
+        data.writeLong(length);
+        data.writeLong(modified);
+        data.writeInt(anchors.length);
+        for (long v : anchors) {
+            data.writeLong(v);
+        }
+        data.writeInt(starts.length);
+        for (int v : starts) {
+            data.writeInt(v);
+        }
+        data.flush();
+    }
+
+    int size() {
+        return lines;
+    }
+
+    /**
+     * Returns line i without the line terminator.
+     */
+    String get(int i) {
+        Preconditions.checkElementIndex(i, lines);
+        long start = start(i);
+        byte[] bytes = new byte[(int) (start(i + 1) - start)];
+        int done = 0;
+        while (done < bytes.length) {
+            long offset = start + done;
+            int chunk = (int) (offset >> chunkBits);
+            // duplicates have their own position so concurrent readers don't interfere
+            ByteBuffer buf = chunks[chunk].duplicate();
+            buf.position((int) (offset - ((long) chunk << chunkBits)));
+            int n = Math.min(bytes.length - done, buf.remaining());
+            buf.get(bytes, done, n);
+            done += n;
+        }
+
+        int n = bytes.length;
+        if (n > 0 && bytes[n - 1] == '\n') {
+            n--;
+        }
+        if (n > 0 && bytes[n - 1] == '\r') {
+            n--;
+        }
+        return new String(bytes, 0, n, Charsets.UTF_8);
+    }
+
+    private long start(int i) {
+        return anchors[i >> BLOCK_BITS] + (starts[i] & 0xffffffffL);
+    }
+}
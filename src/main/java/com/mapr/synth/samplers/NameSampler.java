@@ -21,96 +21,142 @@ package com.mapr.synth.samplers;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.TextNode;
-import com.google.common.base.CharMatcher;
-import com.google.common.base.Charsets;
 import com.google.common.base.Preconditions;
-import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableList;
-import com.google.common.io.Resources;
-import org.apache.mahout.math.random.Multinomial;
+import com.google.common.collect.Maps;
+import com.mapr.synth.ResourceRegistry;
+import com.mapr.synth.ResourceTable;
+import com.mapr.synth.distributions.RowRandom;
+import org.apache.mahout.common.RandomUtils;
 
 import java.io.IOException;
-import java.util.Iterator;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.Map;
+import java.util.Random;
 
 /**
  * Sample from US names.
  * <p>
  * See http://www.census.gov/genealogy/www/data/1990surnames/names_files.html for data.
  *
- * Thread safe
+ * The name tables are shared by all instances, but each instance should only be used by one thread.
  */
 public class NameSampler extends FieldSampler {
     public enum Type {FIRST, LAST, FIRST_LAST, LAST_FIRST}
 
-    private static AtomicReference<Multinomial<String>> first = new AtomicReference<>(null);
-    private static AtomicReference<Multinomial<String>> last = new AtomicReference<>(null);
+    private static class Names {
+        final StringTable first;
+        final StringTable last;
 
-    private Type type = Type.FIRST_LAST;
-
-    public NameSampler() {
-        try {
-            if (first.compareAndSet(null, new Multinomial<>())) {
-                Preconditions.checkState(last.getAndSet(new Multinomial<>()) == null);
-
-                Splitter onTab = Splitter.on(CharMatcher.WHITESPACE).omitEmptyStrings().trimResults();
+        Names() {
+            Map<String, Double> firstWeights = Maps.newLinkedHashMap();
+            Map<String, Double> lastWeights = Maps.newLinkedHashMap();
+            try {
                 for (String resourceName : ImmutableList.of("dist.male.first", "dist.female.first")) {
-                    for (String line : Resources.readLines(Resources.getResource(resourceName), Charsets.UTF_8)) {
-                        if (!line.startsWith("#")) {
-                            Iterator<String> parts = onTab.split(line).iterator();
-                            String name = initialCap(parts.next());
-                            double weight = Double.parseDouble(parts.next());
-                            if (first.get().getWeight(name) == 0) {
-                                first.get().add(name, weight);
-                            } else {
-                                // do this instead of add because some first names may appear more than once
-                                first.get().set(name, first.get().getWeight(name) + weight);
-                            }
-                        }
+                    ResourceTable table = ResourceTable.read(resourceName, ResourceTable.WHITESPACE, false, false);
+                    for (int row = 0; row < table.rows(); row++) {
+                        String name = initialCap(table.get(row, 0));
+                        double weight = Double.parseDouble(table.get(row, 1));
+                        // some first names appear as both male and female names
+                        Double old = firstWeights.get(name);
+                        firstWeights.put(name, old == null ? weight : old + weight);
                     }
                 }
 
-                for (String line : Resources.readLines(Resources.getResource("dist.all.last"), Charsets.UTF_8)) {
-                    if (!line.startsWith("#")) {
-                        Iterator<String> parts = onTab.split(line).iterator();
-                        String name = initialCap(parts.next());
-                        double weight = Double.parseDouble(parts.next());
-                        last.get().add(name, weight);
-                    }
+                ResourceTable table = ResourceTable.read("dist.all.last", ResourceTable.WHITESPACE, false, false);
+                for (int row = 0; row < table.rows(); row++) {
+                    lastWeights.put(initialCap(table.get(row, 0)), Double.parseDouble(table.get(row, 1)));
                 }
+            } catch (IOException e) {
+                throw new RuntimeException("Couldn't read built-in resource file", e);
             }
-        } catch (IOException e) {
-            throw new RuntimeException("Couldn't read built-in resource file", e);
+            first = new StringTable(firstWeights);
+            last = new StringTable(lastWeights);
+        }
+
+        private static String initialCap(String s) {
+            return s.substring(0, 1).toUpperCase() + s.substring(1).toLowerCase();
         }
     }
 
+    // read on first use and shared by all instances
+    private final Names names = ResourceRegistry.get("names", new ResourceRegistry.Loader<Names>() {
+        @Override
+        public Names load() {
+            return new Names();
+        }
+    });
+
+    private Type type = Type.FIRST_LAST;
+    // first and last names are drawn from separate streams unless a row random is set
+    private Random firstRand = RandomUtils.getRandom();
+    private Random lastRand = RandomUtils.getRandom();
+
+    public NameSampler() {
+    }
+
     public NameSampler(Type type) {
         this();
         setTypeRaw(type);
     }
 
-    private String initialCap(String s) {
-        return s.substring(0, 1).toUpperCase() + s.substring(1).toLowerCase();
+    @Override
+    public JsonNode sample() {
+        // single names are already built, only combined names have to be put together
+        switch (type) {
+            case FIRST:
+                return names.first.getNode(names.first.sample(firstRand));
+            case LAST:
+                return names.last.getNode(names.last.sample(lastRand));
+            default:
+                return new TextNode(nextName());
+        }
     }
 
     @Override
-    public JsonNode sample() {
-      synchronized (this) {
+    public void sample(RowBuffer row, int slot) {
         switch (type) {
             case FIRST:
-                return new TextNode(first.get().sample());
+                names.first.set(row, slot, names.first.sample(firstRand));
+                break;
             case LAST:
-                return new TextNode(last.get().sample());
+                names.last.set(row, slot, names.last.sample(lastRand));
+                break;
+            default:
+                row.setText(slot, nextName());
+                break;
+        }
+    }
+
+    private String nextName() {
+        switch (type) {
+            case FIRST:
+                return first();
+            case LAST:
+                return last();
             case FIRST_LAST:
-                return new TextNode(first.get().sample() + " " + last.get().sample());
+                return first() + " " + last();
             case LAST_FIRST:
-                return new TextNode(last.get().sample() + ", " + first.get().sample());
+                return last() + ", " + first();
         }
-      }
-      // can't happen
+        // can't happen
         return null;
     }
 
+    // the tables are shared so we always use our own generators
+    private String first() {
+        return names.first.getString(names.first.sample(firstRand));
+    }
+
+    private String last() {
+        return names.last.getString(names.last.sample(lastRand));
+    }
+
+    @Override
+    public void setRowRandom(RowRandom random) {
+        firstRand = random;
+        lastRand = random;
+    }
+
     public void setTypeRaw(Type type) {
         this.type = type;
     }
@@ -0,0 +1,306 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth.samplers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.mapr.synth.distributions.RowRandom;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps track of how much time and memory each field of a schema costs.  Samplers are wrapped
+ * with {@link FieldSampler#profiled(Profiler, String)} so that every call records the elapsed
+ * time and, where the JVM can tell us, the bytes allocated by the calling thread.
+ * <p>
+ * Costs are kept both inclusive of nested samplers and for the sampler itself (self), which is
+ * the inclusive cost less that of the nested samplers that it called.  Profiling adds a few
+ * clock reads to every call, so very cheap fields will look more expensive than they really are.
+ */
+public class Profiler {
+    // in the order that names were first seen
+    private final Map<String, Entry> entries = Maps.newLinkedHashMap();
+
+    private final com.sun.management.ThreadMXBean memory;
+
+    // cost of the nested samplers called so far by the sampler running on this thread
+    private final ThreadLocal<long[]> nested = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[2];
+        }
+    };
+
+    public Profiler() {
+        ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        if (mx instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean) mx).isThreadAllocatedMemorySupported()) {
+            memory = (com.sun.management.ThreadMXBean) mx;
+            memory.setThreadAllocatedMemoryEnabled(true);
+        } else {
+            memory = null;
+        }
+    }
+
+    /**
+     * The costs of one sampler.
+     */
+    public static class Entry {
+        private final String name;
+        private final AtomicLong calls = new AtomicLong();
+        private final AtomicLong nanos = new AtomicLong();
+        private final AtomicLong selfNanos = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicLong selfBytes = new AtomicLong();
+
+        Entry(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCalls() {
+            return calls.get();
+        }
+
+        public long getNanos() {
+            return nanos.get();
+        }
+
+        public long getSelfNanos() {
+            return selfNanos.get();
+        }
+
+        public long getBytes() {
+            return bytes.get();
+        }
+
+        public long getSelfBytes() {
+            return selfBytes.get();
+        }
+    }
+
+    /**
+     * Wraps a sampler so that its calls are recorded under a name.  Nested samplers should be
+     * wrapped separately, normally by {@link FieldSampler#profiled(Profiler, String)}.  Samplers
+     * wrapped with the same name share an entry, which is how the copies of a schema used by
+     * different threads get added together.
+     */
+    public FieldSampler wrap(FieldSampler sampler, String name) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(name);
+            if (entry == null) {
+                entry = new Entry(name);
+                entries.put(name, entry);
+            }
+        }
+        return new ProfiledSampler(sampler, entry);
+    }
+
+    public List<Entry> getEntries() {
+        synchronized (entries) {
+            return Lists.newArrayList(entries.values());
+        }
+    }
+
+    /**
+     * Prints a table of costs, most expensive first.
+     */
+    public void report(PrintStream out) {
+        List<Entry> sorted = getEntries();
+        Collections.sort(sorted, new Comparator<Entry>() {
+            @Override
+            public int compare(Entry a, Entry b) {
+                return Long.compare(b.getSelfNanos(), a.getSelfNanos());
+            }
+        });
+        long total = 0;
+        int width = 5;
+        for (Entry e : sorted) {
+            total += e.getSelfNanos();
+            width = Math.max(width, e.getName().length());
+        }
+
+        String format = "%-" + width + "s %12s %10s %10s %10s %12s %7s\n";
+        out.printf(format, "field", "calls", "total-ms", "self-ms", "self-ns", "self-bytes", "self-%");
+        for (Entry e : sorted) {
+            long n = Math.max(1, e.getCalls());
+            out.printf(format, e.getName(), e.getCalls(),
+                    String.format("%.1f", e.getNanos() * 1e-6), String.format("%.1f", e.getSelfNanos() * 1e-6),
+                    String.format("%.0f", (double) e.getSelfNanos() / n),
+                    memory == null ? "-" : String.format("%.0f", (double) e.getSelfBytes() / n),
+                    String.format("%.1f", total == 0 ? 0 : 100.0 * e.getSelfNanos() / total));
+        }
+    }
+
+    private long allocated() {
+        return memory == null ? 0 : memory.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private class ProfiledSampler extends FieldSampler {
+        private final FieldSampler delegate;
+        private final Entry entry;
+
+        ProfiledSampler(FieldSampler delegate, Entry entry) {
+            this.delegate = delegate;
+            this.entry = entry;
+            setName(delegate.getName());
+            setFlattener(delegate.isFlat());
+        }
+
+        @Override
+        public JsonNode sample() {
+            long[] outer = nested.get();
+            long outerNanos = outer[0];
+            long outerBytes = outer[1];
+            outer[0] = 0;
+            outer[1] = 0;
+
+            long b0 = allocated();
+            long t0 = System.nanoTime();
+            try {
+                return delegate.sample();
+            } finally {
+                record(outer, outerNanos, outerBytes, System.nanoTime() - t0, allocated() - b0, true);
+            }
+        }
+
+        @Override
+        public void sample(RowBuffer row, int slot) {
+            long[] outer = nested.get();
+            long outerNanos = outer[0];
+            long outerBytes = outer[1];
+            outer[0] = 0;
+            outer[1] = 0;
+
+            long b0 = allocated();
+            long t0 = System.nanoTime();
+            try {
+                delegate.sample(row, slot);
+            } finally {
+                record(outer, outerNanos, outerBytes, System.nanoTime() - t0, allocated() - b0, true);
+            }
+        }
+
+        @Override
+        public Iterator<JsonNode> stream() {
+            final Iterator<JsonNode> values = delegate.stream();
+            if (values == null) {
+                return null;
+            }
+            // the work happens as values are pulled, so that is what gets measured
+            return new Iterator<JsonNode>() {
+                @Override
+                public boolean hasNext() {
+                    long[] outer = nested.get();
+                    long outerNanos = outer[0];
+                    long outerBytes = outer[1];
+                    outer[0] = 0;
+                    outer[1] = 0;
+
+                    long b0 = allocated();
+                    long t0 = System.nanoTime();
+                    try {
+                        return values.hasNext();
+                    } finally {
+                        record(outer, outerNanos, outerBytes, System.nanoTime() - t0, allocated() - b0, false);
+                    }
+                }
+
+                @Override
+                public JsonNode next() {
+                    long[] outer = nested.get();
+                    long outerNanos = outer[0];
+                    long outerBytes = outer[1];
+                    outer[0] = 0;
+                    outer[1] = 0;
+
+                    long b0 = allocated();
+                    long t0 = System.nanoTime();
+                    try {
+                        return values.next();
+                    } finally {
+                        record(outer, outerNanos, outerBytes, System.nanoTime() - t0, allocated() - b0, true);
+                    }
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        // outer holds what our nested samplers cost, we then add our cost to our caller's tally
+        private void record(long[] outer, long outerNanos, long outerBytes, long nanos, long bytes, boolean call) {
+            if (call) {
+                entry.calls.incrementAndGet();
+            }
+            entry.nanos.addAndGet(nanos);
+            entry.bytes.addAndGet(bytes);
+            entry.selfNanos.addAndGet(nanos - outer[0]);
+            entry.selfBytes.addAndGet(bytes - outer[1]);
+            outer[0] = outerNanos + nanos;
+            outer[1] = outerBytes + bytes;
+        }
+
+        @Override
+        public void setRowRandom(RowRandom random) {
+            delegate.setRowRandom(random);
+        }
+
+        @Override
+        public void seek(long row) {
+            delegate.seek(row);
+        }
+
+        @Override
+        public void setCopy(int copy, int copies) {
+            delegate.setCopy(copy, copies);
+        }
+
+        @Override
+        public void setRepeated() {
+            delegate.setRepeated();
+        }
+
+        @Override
+        public long parseTime(String value) {
+            return delegate.parseTime(value);
+        }
+
+        @Override
+        public FieldSampler profiled(Profiler profiler, String name) {
+            // already done
+            return this;
+        }
+    }
+}
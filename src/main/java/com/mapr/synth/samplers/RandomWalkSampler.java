@@ -24,6 +24,7 @@ import com.fasterxml.jackson.databind.node.DoubleNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.util.concurrent.AtomicDouble;
+import com.mapr.synth.distributions.SplitRandom;
 
 import java.io.IOException;
 import java.util.Random;
@@ -52,7 +53,7 @@ public class RandomWalkSampler extends FieldSampler {
         }
     };
 
-    private Random rand = new Random();
+    private Random rand = new SplitRandom();
     private boolean verbose = false;
 
     private AtomicDouble state = new AtomicDouble();
@@ -159,6 +160,7 @@ public class RandomWalkSampler extends FieldSampler {
 
     private void init() {
         if (seed != SEED_NOT_SET) {
+            // a seeded walk uses java.util.Random so it retraces the same steps as always
             rand = new Random(seed);
         }
     }
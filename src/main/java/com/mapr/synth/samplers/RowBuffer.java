@@ -0,0 +1,289 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth.samplers;
+
+import com.fasterxml.jackson.core.io.CharTypes;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.DoubleNode;
+import com.fasterxml.jackson.databind.node.IntNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.LongNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import com.google.common.base.Charsets;
+
+import java.util.List;
+
+/**
+ * Holds the values of a single record in typed slots, one per top-level field of a schema.
+ * <p>
+ * Samplers write into a row using {@link FieldSampler#sample(RowBuffer, int)}.  Numbers are kept
+ * in primitive arrays and strings are kept either as the (usually shared) String that the sampler
+ * already had or as a slice of UTF-8 bytes, so filling a row normally allocates nothing.  A
+ * JSON tree is only built if somebody asks for it with {@link #asJson()}.
+ * <p>
+ * Rows are re-used from record to record and are not thread safe.  Each thread should get
+ * its own row from {@link SchemaSampler#newRow()}.
+ */
+public class RowBuffer {
+    public enum Kind {
+        LONG, DOUBLE, TEXT, BYTES, NODE
+    }
+
+    private final JsonNodeFactory nodeFactory = JsonNodeFactory.withExactBigDecimals(false);
+
+    private final List<String> names;
+    private final Kind[] kinds;
+    private final long[] longs;
+    private final double[] doubles;
+    // String, byte[] or JsonNode depending on the kind of the slot
+    private final Object[] refs;
+    private final int[] offsets;
+    private final int[] lengths;
+
+    // set when the record could only be produced as a tree
+    private JsonNode tree;
+
+    public RowBuffer(List<String> names) {
+        this.names = names;
+        int n = names.size();
+        kinds = new Kind[n];
+        longs = new long[n];
+        doubles = new double[n];
+        refs = new Object[n];
+        offsets = new int[n];
+        lengths = new int[n];
+    }
+
+    public int size() {
+        return kinds.length;
+    }
+
+    public List<String> getNames() {
+        return names;
+    }
+
+    public Kind getKind(int slot) {
+        return kinds[slot];
+    }
+
+    public void setLong(int slot, long value) {
+        kinds[slot] = Kind.LONG;
+        longs[slot] = value;
+        refs[slot] = null;
+    }
+
+    public void setDouble(int slot, double value) {
+        kinds[slot] = Kind.DOUBLE;
+        doubles[slot] = value;
+        refs[slot] = null;
+    }
+
+    public void setText(int slot, String value) {
+        kinds[slot] = Kind.TEXT;
+        refs[slot] = value;
+    }
+
+    /**
+     * Stores a slice of already encoded UTF-8 bytes.  The bytes are not copied so the
+     * caller must not change them until the row has been consumed.
+     */
+    public void setBytes(int slot, byte[] utf8, int offset, int length) {
+        kinds[slot] = Kind.BYTES;
+        refs[slot] = utf8;
+        offsets[slot] = offset;
+        lengths[slot] = length;
+    }
+
+    /**
+     * Stores an arbitrary value.  Numeric and textual nodes are unpacked into the corresponding
+     * primitive slots so that downstream formatting doesn't have to care where they came from.
+     */
+    public void setNode(int slot, JsonNode value) {
+        if (value == null) {
+            kinds[slot] = Kind.NODE;
+            refs[slot] = NullNode.getInstance();
+        } else if (value.isIntegralNumber() && value.canConvertToLong()) {
+            setLong(slot, value.asLong());
+        } else if (value.isDouble()) {
+            setDouble(slot, value.asDouble());
+        } else if (value.isTextual()) {
+            setText(slot, value.asText());
+        } else {
+            kinds[slot] = Kind.NODE;
+            refs[slot] = value;
+        }
+    }
+
+    /**
+     * Fills this row from a record that has already been materialized as a tree.  This is
+     * used for schemas that cannot be laid out as fixed slots, such as those with flattened fields.
+     */
+    public void setTree(JsonNode record) {
+        for (int i = 0; i < kinds.length; i++) {
+            setNode(i, record.get(names.get(i)));
+        }
+        tree = record;
+    }
+
+    /**
+     * Returns the record as a tree if it came from {@link #setTree(JsonNode)}, otherwise null.
+     */
+    public JsonNode getTree() {
+        return tree;
+    }
+
+    /**
+     * Marks the start of a new record.
+     */
+    public void clear() {
+        tree = null;
+    }
+
+    public long getLong(int slot) {
+        return longs[slot];
+    }
+
+    public double getDouble(int slot) {
+        return doubles[slot];
+    }
+
+    /**
+     * Returns the contents of a TEXT slot, or decodes a BYTES slot.
+     */
+    public String getText(int slot) {
+        if (kinds[slot] == Kind.BYTES) {
+            return new String((byte[]) refs[slot], offsets[slot], lengths[slot], Charsets.UTF_8);
+        } else {
+            return (String) refs[slot];
+        }
+    }
+
+    public byte[] getBytes(int slot) {
+        return (byte[]) refs[slot];
+    }
+
+    public int getOffset(int slot) {
+        return offsets[slot];
+    }
+
+    public int getLength(int slot) {
+        return lengths[slot];
+    }
+
+    public JsonNode getNode(int slot) {
+        switch (kinds[slot]) {
+            case LONG:
+                long v = longs[slot];
+                return v == (int) v ? IntNode.valueOf((int) v) : LongNode.valueOf(v);
+            case DOUBLE:
+                return DoubleNode.valueOf(doubles[slot]);
+            case TEXT:
+            case BYTES:
+                return TextNode.valueOf(getText(slot));
+            default:
+                return (JsonNode) refs[slot];
+        }
+    }
+
+    /**
+     * Returns the value of a slot the way {@link JsonNode#asText()} would.
+     */
+    public String asText(int slot) {
+        switch (kinds[slot]) {
+            case LONG:
+                return Long.toString(longs[slot]);
+            case DOUBLE:
+                return Double.toString(doubles[slot]);
+            case TEXT:
+            case BYTES:
+                return getText(slot);
+            default:
+                return ((JsonNode) refs[slot]).asText();
+        }
+    }
+
+    /**
+     * Appends the value of a slot as JSON, the way {@link JsonNode#toString()} would.
+     */
+    public void appendJson(int slot, StringBuilder out) {
+        switch (kinds[slot]) {
+            case LONG:
+                out.append(longs[slot]);
+                break;
+            case DOUBLE:
+                out.append(Double.toString(doubles[slot]));
+                break;
+            case TEXT:
+            case BYTES:
+                out.append('"');
+                CharTypes.appendQuoted(out, getText(slot));
+                out.append('"');
+                break;
+            default:
+                out.append(refs[slot].toString());
+                break;
+        }
+    }
+
+    /**
+     * Appends the entire record as a JSON object.
+     */
+    public void appendJson(StringBuilder out) {
+        if (tree != null) {
+            out.append(tree.toString());
+            return;
+        }
+        out.append('{');
+        for (int i = 0; i < kinds.length; i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append('"');
+            CharTypes.appendQuoted(out, names.get(i));
+            out.append("\":");
+            appendJson(i, out);
+        }
+        out.append('}');
+    }
+
+    /**
+     * Materializes the record as a JSON tree.  This is only needed for output formats such as
+     * templates or XML that want to walk the record.
+     */
+    public JsonNode asJson() {
+        if (tree != null) {
+            return tree;
+        }
+        ObjectNode r = nodeFactory.objectNode();
+        for (int i = 0; i < kinds.length; i++) {
+            r.set(names.get(i), getNode(i));
+        }
+        return r;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder r = new StringBuilder();
+        appendJson(r);
+        return r.toString();
+    }
+}
@@ -26,8 +26,12 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.hash.Hashing;
+import com.mapr.synth.distributions.RowRandom;
 import org.apache.mahout.math.random.Sampler;
 
 import java.io.File;
@@ -42,7 +46,15 @@ public class SchemaSampler implements Sampler<JsonNode> {
 
     private List<FieldSampler> schema;
     private List<String> fields;
-    private Queue<JsonNode> buffer = new ArrayDeque<>();
+    // the rest of the records from a record with flattened arrays, if any
+    private CrossProduct pending = null;
+
+    // true if every top-level field maps to exactly one slot of a RowBuffer
+    private boolean fixedLayout;
+
+    // with a fixed seed, each top-level field has a generator that is positioned at each row
+    private RowRandom[] randoms = null;
+    private long nextRow = 0;
 
     public SchemaSampler(List<FieldSampler> s) {
         init(s);
@@ -67,10 +79,55 @@ public class SchemaSampler implements Sampler<JsonNode> {
         }));
     }
 
+    /**
+     * Reads one of several copies of a schema that generate parts of the same data in parallel.
+     * Fields that set their own seed would otherwise produce the same values in every copy, so
+     * for every copy but the first, each such seed is mixed with the number of the copy.
+     *
+     * @param input The schema definition.
+     * @param copy  Which copy this is, starting with 0.
+     */
+    public SchemaSampler(File input, int copy) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.configure(JsonParser.Feature.ALLOW_COMMENTS, true);
+        mapper.configure(JsonParser.Feature.ALLOW_UNQUOTED_FIELD_NAMES, true);
+        mapper.configure(JsonParser.Feature.ALLOW_SINGLE_QUOTES, true);
+        JsonNode tree = mapper.readTree(input);
+        if (copy > 0) {
+            reseed(tree, copy);
+        }
+        init(mapper.<List<FieldSampler>>readValue(mapper.treeAsTokens(tree), new TypeReference<List<FieldSampler>>() {
+        }));
+    }
+
+    // replaces the seed of every field, including nested ones, with a mix of the seed and the copy
+    private static void reseed(JsonNode tree, int copy) {
+        if (tree.isObject() && tree.has("class") && tree.path("seed").isIntegralNumber()) {
+            int seed = Hashing.murmur3_32().newHasher()
+                    .putLong(tree.get("seed").asLong())
+                    .putInt(copy)
+                    .hash().asInt();
+            ((ObjectNode) tree).put("seed", seed);
+        }
+        for (JsonNode child : tree) {
+            reseed(child, copy);
+        }
+    }
+
     public List<String> getFieldNames() {
         return fields;
     }
 
+    /**
+     * Converts the value of a time field back to milliseconds since the epoch.
+     *
+     * @param field Which top-level field the value came from.
+     * @param value The text of the value.
+     */
+    public long parseTime(int field, String value) {
+        return schema.get(field).parseTime(value);
+    }
+
     private void init(List<FieldSampler> s) {
         schema = s;
         fields = Lists.transform(schema, new Function<FieldSampler, String>() {
@@ -79,20 +136,167 @@ public class SchemaSampler implements Sampler<JsonNode> {
                 return input.getName();
             }
         });
+
+        fixedLayout = Sets.newHashSet(fields).size() == fields.size();
+        for (FieldSampler sampler : schema) {
+            fixedLayout &= !sampler.isFlat();
+        }
+    }
+
+    /**
+     * Makes the records generated by this sampler a pure function of the seed and the record number.
+     * Field i of record n is generated using a {@link RowRandom} for (seed, n, i) so two samplers with
+     * the same seed that are positioned with {@link #seek(long)} produce exactly the same records as
+     * a single sampler that generated all of them in order.
+     * <p>
+     * Samplers that depend on earlier records (such as event, random-walk or pitman-yor) can't do
+     * this and cause an IllegalArgumentException here.  So do flattened fields since an array in a
+     * flattened field turns one record into many.
+     * <p>
+     * The generators are not shared, so a seeded sampler should only be used by one thread.
+     *
+     * @param seed The seed for all of the data.
+     */
+    public void setSeed(long seed) {
+        for (FieldSampler sampler : schema) {
+            if (sampler.isFlat()) {
+                throw new IllegalArgumentException(String.format("Field %s (%s) can't be used with a fixed seed because it is flattened",
+                        sampler.getName(), sampler.getClass().getSimpleName()));
+            }
+        }
+        randoms = new RowRandom[schema.size()];
+        for (int i = 0; i < schema.size(); i++) {
+            randoms[i] = new RowRandom(seed, i);
+            schema.get(i).setRowRandom(randoms[i]);
+        }
+        nextRow = 0;
+    }
+
+    /**
+     * Sets the number of the next record to generate.  This determines the values of id fields and,
+     * after {@link #setSeed(long)}, everything else as well.
+     */
+    public void seek(long row) {
+        Preconditions.checkState(pending == null || !pending.hasNext(), "Can't seek with buffered records");
+        nextRow = row;
+        for (FieldSampler sampler : schema) {
+            sampler.seek(row);
+        }
+    }
+
+    /**
+     * Tells every field, including nested ones, which of several parallel copies of the schema this
+     * is.  See {@link FieldSampler#setCopy(int, int)}.
+     *
+     * @param copy   Which copy this is, starting with 0.
+     * @param copies How many copies there are in all.
+     */
+    public void setCopy(int copy, int copies) {
+        for (FieldSampler sampler : schema) {
+            sampler.setCopy(copy, copies);
+        }
+    }
+
+    /**
+     * Used when this schema is nested inside a sequence.  See {@link FieldSampler#setRepeated()}.
+     */
+    public void setRepeated() {
+        for (FieldSampler sampler : schema) {
+            sampler.setRepeated();
+        }
+    }
+
+    /**
+     * Used when this schema is nested inside a field of a seeded schema.  All of our fields draw
+     * from the enclosing field's generator which is positioned by the outer schema.
+     */
+    public void setRowRandom(RowRandom random) {
+        for (FieldSampler sampler : schema) {
+            sampler.setRowRandom(random);
+        }
+    }
+
+    /**
+     * Wraps all fields, including nested ones, so that their costs are recorded in a profiler.
+     *
+     * @param profiler Where to record costs.
+     * @param prefix   Put in front of field names to show where this schema is nested.
+     */
+    public void profile(Profiler profiler, String prefix) {
+        List<FieldSampler> profiled = Lists.newArrayList();
+        for (FieldSampler sampler : schema) {
+            String name = sampler.getName() != null ? sampler.getName() : sampler.getClass().getSimpleName();
+            profiled.add(sampler.profiled(profiler, prefix + name));
+        }
+        init(profiled);
+    }
+
+    // positions all generators at the start of the next record
+    private void startRow() {
+        if (randoms != null) {
+            for (RowRandom random : randoms) {
+                random.setRow(nextRow);
+            }
+            nextRow++;
+        }
+    }
+
+    /**
+     * Creates a row buffer laid out for this schema.  Rows are not thread safe, so each thread
+     * that calls {@link #sample(RowBuffer)} should have its own.
+     */
+    public RowBuffer newRow() {
+        return new RowBuffer(fields);
+    }
+
+    /**
+     * Samples a record directly into a row buffer without building a JSON tree.  Schemas that
+     * can't be laid out as one slot per field (because of flattened fields or repeated names)
+     * fall back to {@link #sample()} and the row is filled from the resulting tree.
+     *
+     * @param row The row to fill, normally from {@link #newRow()}.
+     */
+    public void sample(RowBuffer row) {
+        if (fixedLayout) {
+            startRow();
+            row.clear();
+            int slot = 0;
+            for (FieldSampler s : schema) {
+                s.sample(row, slot++);
+            }
+        } else {
+            row.setTree(sample());
+        }
     }
 
     @Override
     public JsonNode sample() {
-        // we may have buffered records
-        JsonNode x = buffer.poll();
+        // we may have records left over from the last cross product
+        if (pending != null && pending.hasNext()) {
+            return pending.next();
+        }
+        pending = null;
+        JsonNode x = null;
         while (x == null) {
             // nothing buffered ... generate some data
+            startRow();
             Map<String, JsonNode> generators = Maps.newTreeMap();
+            String streamName = null;
+            Iterator<JsonNode> stream = null;
             ObjectNode r = nodeFactory.objectNode();
             Iterator<String> fx = fields.iterator();
             for (FieldSampler s : schema) {
                 String fieldName = fx.next();
-                if (s.isFlat()) {
+                Iterator<JsonNode> values = s.isFlat() ? s.stream() : null;
+                if (values != null) {
+                    // a streamed field can only be read once, so only one of them can be streamed
+                    if (stream == null) {
+                        streamName = fieldName;
+                        stream = values;
+                    } else {
+                        generators.put(fieldName, nodeFactory.arrayNode().addAll(Lists.newArrayList(values)));
+                    }
+                } else if (s.isFlat()) {
                     // this sampler either generates an object or an array
                     JsonNode v = s.sample();
                     if (v.isObject()) {
@@ -112,36 +316,98 @@ public class SchemaSampler implements Sampler<JsonNode> {
                 }
             }
             // at this point r has all non generator fields
-            if (generators.size() > 0) {
+            if (generators.size() > 0 || stream != null) {
+                Preconditions.checkState(randoms == null, "Flattened arrays can't be used with a fixed seed");
                 // here we have to handle the case of more than one generator
-                crossProduct(buffer, r, Lists.newArrayList(generators.keySet()), generators, 0);
+                CrossProduct p = new CrossProduct(nodeFactory, r, generators, streamName, stream);
                 // the generators may or may not have actually generated anything
                 // but that will just cause us to go once more around the circle
-                x = buffer.poll();
+                if (p.hasNext()) {
+                    x = p.next();
+                    pending = p;
+                }
             } else {
                 // with no array generators, we can short-circuit the process
                 x = r;
             }
         }
-        // yes, there was a buffered record
         return x;
     }
 
-    private void crossProduct(Queue<JsonNode> buffer, ObjectNode r, List<String> fields, Map<String, JsonNode> generators, int currentFieldIndex) {
-        if (currentFieldIndex < fields.size()) {
-            // get this generator
-            JsonNode values = generators.get(fields.get(currentFieldIndex));
-            int n = values.size();
-            // and for each value it has
-            for (int j = 0; j < n; j++) {
-                // set that field ...
-                r.set(fields.get(currentFieldIndex), values.get(j));
-                // and recurse
-                crossProduct(buffer, r, fields, generators, currentFieldIndex + 1);
+    /**
+     * Produces every combination of values of the flattened arrays in a record, one record at a
+     * time, so memory use doesn't depend on how many combinations there are.  Combinations are
+     * counted off like an odometer with the last array (in name order) changing fastest.  A
+     * streamed field, if there is one, changes slowest of all and is only read as far as needed.
+     * <p>
+     * Each record is a shallow copy of the fields that aren't flattened, so the values of those
+     * fields are shared by all of the records rather than copied.
+     */
+    private static class CrossProduct implements Iterator<JsonNode> {
+        private final JsonNodeFactory factory;
+        private final ObjectNode base;
+        private final String[] names;
+        private final JsonNode[] values;
+        private final int[] index;
+        private final String streamName;
+        private final Iterator<JsonNode> stream;
+        private JsonNode streamValue;
+        private boolean done = false;
+
+        CrossProduct(JsonNodeFactory factory, ObjectNode base, Map<String, JsonNode> generators, String streamName, Iterator<JsonNode> stream) {
+            this.factory = factory;
+            this.base = base;
+            this.streamName = streamName;
+            this.stream = stream;
+            names = generators.keySet().toArray(new String[generators.size()]);
+            values = generators.values().toArray(new JsonNode[generators.size()]);
+            index = new int[names.length];
+            for (JsonNode v : values) {
+                done |= v.size() == 0;
             }
-        } else {
-            // when we bottom out we add a copied record to the buffer
-            buffer.add(r.deepCopy());
+            if (stream != null && !done) {
+                done = !stream.hasNext();
+                streamValue = done ? null : stream.next();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !done;
+        }
+
+        @Override
+        public JsonNode next() {
+            if (done) {
+                throw new NoSuchElementException();
+            }
+            ObjectNode r = factory.objectNode();
+            r.setAll(base);
+            if (stream != null) {
+                r.set(streamName, streamValue);
+            }
+            for (int i = 0; i < names.length; i++) {
+                r.set(names[i], values[i].get(index[i]));
+            }
+
+            int i = names.length - 1;
+            while (i >= 0 && ++index[i] == values[i].size()) {
+                index[i] = 0;
+                i--;
+            }
+            if (i < 0) {
+                if (stream != null && stream.hasNext()) {
+                    streamValue = stream.next();
+                } else {
+                    done = true;
+                }
+            }
+            return r;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
         }
     }
 }
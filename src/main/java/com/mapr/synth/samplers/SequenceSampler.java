@@ -26,10 +26,13 @@ import com.fasterxml.jackson.databind.node.IntNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
+import com.mapr.synth.distributions.FastRandom;
+import com.mapr.synth.distributions.RowRandom;
+import com.mapr.synth.distributions.SplitRandom;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
-import java.util.Random;
 
 /**
  * Create comma separated samples from another field definition or array of field definitions.
@@ -37,7 +40,7 @@ import java.util.Random;
 public class SequenceSampler extends FieldSampler {
     private JsonNodeFactory nodeFactory = JsonNodeFactory.withExactBigDecimals(false);
     private FieldSampler base = null;
-    private Random gen = new Random();
+    private FastRandom gen = new SplitRandom();
     private List<FieldSampler> array = null;
     private FieldSampler length = exponential(5);
 
@@ -54,9 +57,14 @@ public class SequenceSampler extends FieldSampler {
         return new FieldSampler() {
             @Override
             public JsonNode sample() {
-                int n = (int) Math.floor(-length * Math.log(gen.nextDouble()));
+                int n = (int) Math.floor(length * gen.nextExponential());
                 return new IntNode(n);
             }
+
+            @Override
+            public void setRowRandom(RowRandom random) {
+                // uses gen which is set by the enclosing sampler
+            }
         };
     }
 
@@ -70,6 +78,11 @@ public class SequenceSampler extends FieldSampler {
                 public JsonNode sample() {
                     return value;
                 }
+
+                @Override
+                public void setRowRandom(RowRandom random) {
+                    // constant
+                }
             };
         }
     }
@@ -77,6 +90,7 @@ public class SequenceSampler extends FieldSampler {
     @SuppressWarnings("unused")
     public void setBase(FieldSampler base) {
         this.base = base;
+        base.setRepeated();
     }
 
     @SuppressWarnings("UnusedDeclaration")
@@ -84,6 +98,68 @@ public class SequenceSampler extends FieldSampler {
         this.array = Lists.newArrayList(base);
     }
 
+    @Override
+    public FieldSampler profiled(Profiler profiler, String name) {
+        if (base != null) {
+            base = base.profiled(profiler, name + "[]");
+        } else if (array != null) {
+            List<FieldSampler> profiled = Lists.newArrayList();
+            for (FieldSampler sampler : array) {
+                profiled.add(sampler.profiled(profiler, name + "[" + profiled.size() + "]"));
+            }
+            array = profiled;
+        }
+        return super.profiled(profiler, name);
+    }
+
+    @Override
+    public void setRowRandom(RowRandom random) {
+        gen = random;
+        length.setRowRandom(random);
+        if (base != null) {
+            base.setRowRandom(random);
+        } else if (array != null) {
+            for (FieldSampler sampler : array) {
+                sampler.setRowRandom(random);
+            }
+        }
+    }
+
+    /**
+     * Elements of an array are sampled once per record so they are positioned like any other
+     * field.  A base sampler is repeated and mostly ignores this, but is told anyway.
+     */
+    @Override
+    public void seek(long row) {
+        for (FieldSampler sampler : elements()) {
+            sampler.seek(row);
+        }
+    }
+
+    @Override
+    public void setCopy(int copy, int copies) {
+        for (FieldSampler sampler : elements()) {
+            sampler.setCopy(copy, copies);
+        }
+    }
+
+    @Override
+    public void setRepeated() {
+        for (FieldSampler sampler : elements()) {
+            sampler.setRepeated();
+        }
+    }
+
+    private List<FieldSampler> elements() {
+        if (base != null) {
+            return Collections.singletonList(base);
+        } else if (array != null) {
+            return array;
+        } else {
+            return Collections.emptyList();
+        }
+    }
+
     @Override
     public JsonNode sample() {
         Preconditions.checkState(array != null || base != null, "Need to specify either base or array");
@@ -23,60 +23,65 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.databind.node.TextNode;
-import com.google.common.base.Charsets;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
-import com.google.common.io.Resources;
+import com.mapr.synth.ResourceRegistry;
+import com.mapr.synth.ResourceTable;
+import com.mapr.synth.distributions.RowRandom;
 import org.apache.mahout.common.RandomUtils;
 
-import java.io.IOException;
 import java.util.*;
 import java.util.regex.Pattern;
 
 /**
  * Samples from Social Security Numbers with roughly equal representation across different ages
+ * <p>
+ * The table of area codes is read once and shared through the {@link ResourceRegistry}.
  */
 public class SsnSampler extends FieldSampler {
+    // area codes along with the other fields of each as ready made nodes
+    private static class Areas {
+        final List<String> codes = Lists.newArrayList();
+        final List<TextNode[]> values = Lists.newArrayList();
+        final List<String> names;
+        final int typeField;
+
+        Areas(ResourceTable table) {
+            List<String> header = table.getHeader();
+            Preconditions.checkState(header != null);
+            names = header.subList(2, header.size());
+            typeField = names.indexOf("type");
+
+            for (int row = 0; row < table.rows(); row++) {
+                List<String> fields = table.getRow(row);
+                TextNode[] nodes = new TextNode[fields.size() - 2];
+                for (int i = 0; i < nodes.length; i++) {
+                    nodes[i] = new TextNode(fields.get(i + 2));
+                }
+                codes.add(String.format("%03d", Integer.parseInt(fields.get(1))));
+                values.add(nodes);
+            }
+        }
+    }
+
     private Random rand = RandomUtils.getRandom();
 
     private final JsonNodeFactory nodeFactory = JsonNodeFactory.withExactBigDecimals(false);
-    private final Map<String, List<String>> values = Maps.newHashMap();
-    private final List<String> codes = Lists.newArrayList();
+    private final Areas areas;
     private Set<String> keepTypes = Sets.newHashSet("normal");
     private Set<String> keepFields = Sets.newHashSet("ssn", "state");
-    private List<String> names;
     private boolean verbose = true;
 
     public SsnSampler() {
-        Splitter onComma = Splitter.on(",").trimResults();
-        try {
-            names = null;
-            for (String line : Resources.readLines(Resources.getResource("ssn-seeds"), Charsets.UTF_8)) {
-                if (line.startsWith("#")) {
-                    // last comment line contains actual field names
-                    names = Lists.newArrayList(onComma.split(line.substring(1)));
-                } else {
-                    Preconditions.checkState(names != null);
-                    assert names != null;
-
-                    List<String> fields = Lists.newArrayList(onComma.split(line));
-                    for (int i = Integer.parseInt(fields.get(1)); i <= Integer.parseInt(fields.get(1)); i++) {
-                        String key = String.format("%03d", i);
-                        values.put(key, fields.subList(2, fields.size()));
-                        codes.add(key);
-                    }
-
-                }
+        areas = ResourceRegistry.get("ssn:ssn-seeds", new ResourceRegistry.Loader<Areas>() {
+            @Override
+            public Areas load() {
+                return new Areas(ResourceTable.get("ssn-seeds", ',', false, true));
             }
-            assert names != null;
-            names = names.subList(2, names.size());
-        } catch (IOException e) {
-            throw new RuntimeException("Couldn't read built-in resource", e);
-        }
+        });
     }
 
     @SuppressWarnings("unused")
@@ -84,6 +89,11 @@ public class SsnSampler extends FieldSampler {
         rand = new Random(seed);
     }
 
+    @Override
+    public void setRowRandom(RowRandom random) {
+        rand = random;
+    }
+
     /**
      * Limits the fields that are returned to only those that are specified.
      */
@@ -91,7 +101,7 @@ public class SsnSampler extends FieldSampler {
     public void setFields(String fields) {
         keepFields = Sets.newHashSet(Splitter.on(Pattern.compile("[\\s,;]+")).split(fields));
         for (String field : keepFields) {
-            Preconditions.checkArgument(names.contains(field) || "ssn".equals(field), "Illegal field: %s", field);
+            Preconditions.checkArgument(areas.names.contains(field) || "ssn".equals(field), "Illegal field: %s", field);
         }
     }
 
@@ -113,27 +123,26 @@ public class SsnSampler extends FieldSampler {
     @Override
     public JsonNode sample() {
         while (true) {
-            int i = rand.nextInt(codes.size());
-            List<String> fields = values.get(codes.get(i));
+            int i = rand.nextInt(areas.codes.size());
+            TextNode[] fields = areas.values.get(i);
 
-            if (keepTypes.contains(fields.get(names.indexOf("type")))) {
+            if (keepTypes.contains(fields[areas.typeField].asText())) {
+                String code = areas.codes.get(i);
                 if (verbose) {
                     ObjectNode rx = new ObjectNode(nodeFactory);
-                    Iterator<String> nx = names.iterator();
-                    for (String field : fields) {
-                        Preconditions.checkState(nx.hasNext());
-                        String fieldName = nx.next();
+                    Preconditions.checkState(fields.length == areas.names.size());
+                    for (int k = 0; k < fields.length; k++) {
+                        String fieldName = areas.names.get(k);
                         if (keepFields.contains(fieldName)) {
-                            rx.set(fieldName, new TextNode(field));
+                            rx.set(fieldName, fields[k]);
                         }
                     }
-                    Preconditions.checkState(!nx.hasNext());
                     if (keepFields.contains("ssn")) {
-                        rx.set("ssn", new TextNode(String.format("%s-%02d-%04d", codes.get(i), rand.nextInt(99) + 1, rand.nextInt(9999) + 1)));
+                        rx.set("ssn", new TextNode(String.format("%s-%02d-%04d", code, rand.nextInt(99) + 1, rand.nextInt(9999) + 1)));
                     }
                     return rx;
                 } else {
-                    return new TextNode(String.format("%s-%02d-%04d", codes.get(i), rand.nextInt(99) + 1, rand.nextInt(9999) + 1));
+                    return new TextNode(String.format("%s-%02d-%04d", code, rand.nextInt(99) + 1, rand.nextInt(9999) + 1));
                 }
             }
         }
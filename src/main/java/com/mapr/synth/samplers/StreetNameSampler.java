@@ -21,48 +21,82 @@ package com.mapr.synth.samplers;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.TextNode;
-import com.google.common.base.Charsets;
-import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableList;
-import com.google.common.io.Resources;
-import org.apache.mahout.math.random.Multinomial;
+import com.google.common.collect.LinkedHashMultiset;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multiset;
+import com.mapr.synth.ResourceRegistry;
+import com.mapr.synth.ResourceTable;
+import com.mapr.synth.distributions.RowRandom;
+import com.mapr.synth.distributions.SplitRandom;
 
 import java.io.IOException;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 
 /**
  * Sample from a space of goofy but somewhat plausible street names.
  *
  * Tip of the hat to http://www.jimwegryn.com/Names/StreetNameGenerator.htm
  *
- * Thread safe
+ * The name parts are read once and shared, but instances are not thread safe.
  */
 public class StreetNameSampler extends FieldSampler {
-    List<Multinomial<String>> sampler = ImmutableList.of(
-            new Multinomial<>(), new Multinomial<>(), new Multinomial<>()
-    );
+    // loaded on first use and shared by all instances
+    private final List<StringTable> parts = ResourceRegistry.get("street-names", new ResourceRegistry.Loader<List<StringTable>>() {
+        @Override
+        public List<StringTable> load() {
+            return read();
+        }
+    });
 
-    public StreetNameSampler() {
-        Splitter onTabs = Splitter.on("\t");
+    private static List<StringTable> read() {
+        List<Multiset<String>> counts = ImmutableList.<Multiset<String>>of(
+                LinkedHashMultiset.<String>create(), LinkedHashMultiset.<String>create(), LinkedHashMultiset.<String>create()
+        );
         try {
-            for (String line : Resources.readLines(Resources.getResource("street-name-seeds"), Charsets.UTF_8)) {
-                if (!line.startsWith("#")) {
-                    Iterator<Multinomial<String>> i = sampler.iterator();
-                    for (String name : onTabs.split(line)) {
-                        i.next().add(name, 1);
-                    }
+            ResourceTable table = ResourceTable.read("street-name-seeds", '\t', false, false);
+            for (int row = 0; row < table.rows(); row++) {
+                Iterator<Multiset<String>> i = counts.iterator();
+                for (int column = 0; column < table.columns(row); column++) {
+                    i.next().add(table.get(row, column));
                 }
             }
         } catch (IOException e) {
             throw new RuntimeException("Couldn't read built-in resource", e);
         }
+
+        List<StringTable> r = Lists.newArrayList();
+        for (Multiset<String> part : counts) {
+            Map<String, Integer> weights = Maps.newLinkedHashMap();
+            for (Multiset.Entry<String> entry : part.entrySet()) {
+                weights.put(entry.getElement(), entry.getCount());
+            }
+            r.add(new StringTable(weights));
+        }
+        return r;
+    }
+
+    private Random rand = new SplitRandom();
+
+    public StreetNameSampler() {
     }
 
     @Override
     public JsonNode sample() {
-        synchronized (this) {
-          return new TextNode(sampler.get(0).sample() + " " + sampler.get(1).sample() + " " + sampler.get(2).sample());
-        }
+        return new TextNode(draw(0) + " " + draw(1) + " " + draw(2));
+    }
+
+    private String draw(int part) {
+        StringTable table = parts.get(part);
+        return table.getString(table.sample(rand));
+    }
+
+    @Override
+    public void setRowRandom(RowRandom random) {
+        rand = random;
     }
 }
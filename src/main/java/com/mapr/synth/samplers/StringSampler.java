@@ -20,27 +20,29 @@
 package com.mapr.synth.samplers;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.node.TextNode;
-import com.google.common.base.Charsets;
 import com.google.common.base.Preconditions;
-import com.google.common.base.Splitter;
-import com.google.common.io.Resources;
-import org.apache.mahout.math.random.Multinomial;
+import com.google.common.collect.Maps;
+import com.mapr.synth.ResourceRegistry;
+import com.mapr.synth.ResourceTable;
+import com.mapr.synth.distributions.RowRandom;
+import com.mapr.synth.distributions.SplitRandom;
 
 import java.io.IOException;
-import java.util.Iterator;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.Random;
 
 /**
- * Sample from a multinomial of strings.
+ * Sample from a multinomial of strings.  Draws take constant time and allocate nothing since
+ * the strings are kept in a {@link StringTable}.
  *
  * Tip of the hat to http://www.jimwegryn.com/Names/StreetNameGenerator.htm
  *
- * Thread safe for sampling
+ * Distributions read from resources are shared between instances through the
+ * {@link ResourceRegistry}, but each instance should only be used from a single thread.
  */
 public class StringSampler extends FieldSampler {
-    private AtomicReference<Multinomial<String>> distribution = new AtomicReference<>();
+    private StringTable distribution = null;
+    private Random rand = new SplitRandom();
 
     public StringSampler() {
     }
@@ -49,38 +51,52 @@ public class StringSampler extends FieldSampler {
         readDistribution(resource);
     }
 
-    protected void readDistribution(String resourceName) {
-        try {
-            if (distribution.compareAndSet(null, new Multinomial<>())) {
-                Splitter onTab = Splitter.on("\t").trimResults();
-                double i = 20;
-                for (String line : Resources.readLines(Resources.getResource(resourceName), Charsets.UTF_8)) {
-                    if (!line.startsWith("#")) {
-                        Iterator<String> parts = onTab.split(line).iterator();
-                        String name = translate(parts.next());
-                        double weight;
-                        if (parts.hasNext()) {
-                            weight = Double.parseDouble(parts.next());
-                        } else {
-                            weight = 1.0 / i;
-                        }
-                        distribution.get().add(name, weight);
-                    }
-                    i++;
+    protected void readDistribution(final String resourceName) {
+        if (distribution == null) {
+            // keyed by class as well as resource since sub-classes may translate the names
+            String key = getClass().getName() + ":" + resourceName;
+            distribution = ResourceRegistry.get(key, new ResourceRegistry.Loader<StringTable>() {
+                @Override
+                public StringTable load() throws IOException {
+                    return parse(resourceName);
                 }
-            }
+            });
+        }
+    }
 
-        } catch (IOException e) {
-            throw new RuntimeException("Couldn't read built-in resource file", e);
+    private StringTable parse(String resourceName) throws IOException {
+        Map<String, Double> r = Maps.newLinkedHashMap();
+        ResourceTable lines = ResourceTable.read(resourceName, '\t', false, true);
+        for (int row = 0; row < lines.rows(); row++) {
+            String name = translate(lines.get(row, 0));
+            double weight;
+            if (lines.columns(row) > 1) {
+                weight = Double.parseDouble(lines.get(row, 1));
+            } else {
+                // comments count towards the default weight
+                weight = 1.0 / (20 + lines.line(row));
+            }
+            add(r, name, weight);
         }
+        return new StringTable(r);
     }
 
     public void setDist(Map<String, ?> dist) {
         Preconditions.checkArgument(dist.size() > 0);
-        distribution.compareAndSet(null, new Multinomial<>());
+        // tables are immutable so this builds a new one even if we already have some values
+        Map<String, Double> r = Maps.newLinkedHashMap();
+        if (distribution != null) {
+            r.putAll(distribution.getWeights());
+        }
         for (String key : dist.keySet()) {
-            distribution.get().add(key, Double.parseDouble(dist.get(key).toString()));
+            add(r, key, Double.parseDouble(dist.get(key).toString()));
         }
+        distribution = new StringTable(r);
+    }
+
+    private static void add(Map<String, Double> weights, String key, double weight) {
+        Double old = weights.get(key);
+        weights.put(key, old == null ? weight : old + weight);
     }
 
 
@@ -90,8 +106,16 @@ public class StringSampler extends FieldSampler {
 
     @Override
     public JsonNode sample() {
-      synchronized (this) {
-        return new TextNode(distribution.get().sample());
-      }
+        return distribution.getNode(distribution.sample(rand));
+    }
+
+    @Override
+    public void sample(RowBuffer row, int slot) {
+        distribution.set(row, slot, distribution.sample(rand));
+    }
+
+    @Override
+    public void setRowRandom(RowRandom random) {
+        rand = random;
     }
 }
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth.samplers;
+
+import com.fasterxml.jackson.databind.node.TextNode;
+import com.google.common.collect.Maps;
+import com.mapr.synth.StringArena;
+import com.mapr.synth.distributions.AliasTable;
+
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * A weighted set of strings with the JSON node and UTF-8 encoding (packed in a {@link StringArena})
+ * of every string built up front, so that drawing a value and storing it in a row or a tree
+ * allocates nothing.
+ * <p>
+ * Immutable and safe to share between threads.  Drawing takes the caller's random number generator.
+ */
+public final class StringTable {
+    private final AliasTable<String> table;
+    private final TextNode[] nodes;
+    private final StringArena utf8;
+
+    /**
+     * Builds a table from strings and their weights, in the map's iteration order.
+     */
+    public StringTable(Map<String, ? extends Number> weights) {
+        table = AliasTable.of(weights);
+        int n = table.size();
+        nodes = new TextNode[n];
+        StringArena.Builder strings = new StringArena.Builder();
+        for (int i = 0; i < n; i++) {
+            nodes[i] = new TextNode(table.get(i));
+            strings.add(table.get(i));
+        }
+        utf8 = strings.build();
+    }
+
+    /**
+     * Returns the index of a random string.
+     */
+    public int sample(Random rand) {
+        return table.sampleIndex(rand);
+    }
+
+    public String getString(int i) {
+        return table.get(i);
+    }
+
+    public TextNode getNode(int i) {
+        return nodes[i];
+    }
+
+    /**
+     * Stores string i in a row without copying it.
+     */
+    public void set(RowBuffer row, int slot, int i) {
+        row.setBytes(slot, utf8.bytes(), utf8.offset(i), utf8.length(i));
+    }
+
+    /**
+     * Returns the strings and weights in order, such as for adding to them to make a new table.
+     */
+    public Map<String, Double> getWeights() {
+        Map<String, Double> r = Maps.newLinkedHashMap();
+        for (int i = 0; i < table.size(); i++) {
+            r.put(table.get(i), table.getWeight(i));
+        }
+        return r;
+    }
+}
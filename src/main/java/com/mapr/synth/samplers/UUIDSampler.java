@@ -21,26 +21,35 @@ package com.mapr.synth.samplers;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.TextNode;
+import com.mapr.synth.distributions.RowRandom;
+import com.mapr.synth.distributions.SplitRandom;
 
 import java.util.Random;
 
 /**
- * Samples a version 4 (random) UUID.  Note that the random bits generated are pull from the
- * standard Java random number generator and are subject to limitations because of that.
+ * Samples a version 4 (random) UUID.  The random bits come from a fast generator that is not
+ * cryptographically strong.  If the field sets its own seed, they come from the standard Java
+ * random number generator instead so that seeded schemas keep producing the same UUIDs.
  *
  * See http://en.wikipedia.org/wiki/Universally_unique_identifier#Version_4_.28random.29
  *
- * Thread safe.
+ * Not thread safe because the generator isn't synchronized, so each thread should have its own
+ * copy of the schema.
  */
 
 public class UUIDSampler extends FieldSampler {
-    private Random rand = new Random();
+    private Random rand = new SplitRandom();
     public UUIDSampler() {
     }
 
     @SuppressWarnings("unused")
     public void setSeed(long seed) {
-        rand.setSeed(seed);
+        rand = new Random(seed);
+    }
+
+    @Override
+    public void setRowRandom(RowRandom random) {
+        rand = random;
     }
 
     @Override
@@ -24,15 +24,14 @@ import com.fasterxml.jackson.databind.node.IntNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.databind.node.TextNode;
-import com.google.common.base.Charsets;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Splitter;
 import com.google.common.collect.*;
-import com.google.common.io.LineProcessor;
-import com.google.common.io.Resources;
+import com.mapr.synth.ResourceRegistry;
+import com.mapr.synth.ResourceTable;
+import com.mapr.synth.distributions.RowRandom;
 
 import java.io.FileNotFoundException;
-import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
@@ -51,33 +50,16 @@ import java.util.regex.Pattern;
  * mitsubishi, subaru, mazda, honda, toyota, hyundai, kia, nissan, ferrari, jaguar, delorean, chrysler, tesla</li>
  * <li><em>verbose</em> If set to true, the result will include a textual description of aspects of the generated VIN</li>
  * </ul>
+ * <p>
+ * The code tables are shared through the {@link ResourceRegistry} and each is only read when
+ * something needs it, so the Ford and BMW tables aren't read unless those makes come up.
  */
 public class VinSampler extends FieldSampler {
     private static Splitter onComma = Splitter.on(",").trimResults().omitEmptyStrings();
     private static Pattern rangePattern = Pattern.compile("([12][09]\\d\\d)(-[12][09]\\d\\d)");
 
-    private static Map<String, String> makes;
-
-    private static SetMultimap<String, String> byCountry = HashMultimap.create();
-    private static SetMultimap<String, String> byMake = HashMultimap.create();
-
-    private static Map<String, String> restraint = Maps.newHashMap();
-    private static List<String> restraintCodes;
-
-    private static Map<String, String> fordModels = Maps.newHashMap();
-    private static List<String> fordModelCodes;
-
-    private static Map<String, String> fordEngines = Maps.newHashMap();
-    private static List<String> fordEngineCodes;
-
     private static List<String> fordPlantCodes = Lists.newArrayList("5", "V", "G", "M", "F");
 
-    private static Map<String, String> bmwModels;
-    private static List<String> bmwModelCodes;
-
-    private static Map<String, String> bmwPlants;
-    private static List<String> bmwPlantCodes;
-
     private static Map<String, Integer> letterCode;
     private static List<String> letters;
 
@@ -88,6 +70,26 @@ public class VinSampler extends FieldSampler {
     }
 
 
+    // a table of codes and their descriptions
+    private static class Codes {
+        final Map<String, String> names;
+        final List<String> codes;
+
+        Codes(Map<String, String> names) {
+            this.names = names;
+            codes = Lists.newArrayList(names.keySet());
+        }
+    }
+
+    private final Codes makes = codes("vin-make.tsv");
+    private final Codes restraints = codes("ford-restraints.tsv");
+
+    // only read when needed
+    private Codes fordModels = null;
+    private Codes fordEngines = null;
+    private Codes bmwModels = null;
+    private Codes bmwPlants = null;
+
     private Random rand = new Random();
     private List<String> legalCodes;
     private List<Integer> legalYears;
@@ -98,7 +100,7 @@ public class VinSampler extends FieldSampler {
 
     @SuppressWarnings("UnusedDeclaration")
     public VinSampler() throws FileNotFoundException {
-        legalCodes = Lists.newArrayList(makes.keySet());
+        legalCodes = Lists.newArrayList(makes.codes);
         setYears("1990-2014");
     }
 
@@ -107,7 +109,7 @@ public class VinSampler extends FieldSampler {
         ObjectNode r = new ObjectNode(nodeFactory);
 
         String manufacturer = randomCode(legalCodes);
-        String restraint = randomCode(restraintCodes);
+        String restraint = randomCode(restraints.codes);
 
         int year = randomCode(legalYears);
         String yearCode = computeYearCode(year);
@@ -116,28 +118,36 @@ public class VinSampler extends FieldSampler {
         String front;
         String plant;
 
-        String make = makes.get(manufacturer);
+        String make = makes.names.get(manufacturer);
 
         switch (make) {
             case "Ford": {
-                String model = randomCode(fordModelCodes);
-                String engine = randomCode(fordEngineCodes);
+                if (fordModels == null) {
+                    fordModels = codes("ford-models.tsv");
+                    fordEngines = codes("ford-engines.tsv");
+                }
+                String model = randomCode(fordModels.codes);
+                String engine = randomCode(fordEngines.codes);
                 plant = randomCode(fordPlantCodes);
                 front = pad(manufacturer, 3, "AAAAAAAAAAAAAAAAAA") + restraint + pad(model, 3, "0000000000000000") + engine;
                 if (verbose) {
-                    r.set("model", new TextNode(fordModels.get(model)));
-                    r.set("engine", new TextNode(fordEngines.get(engine)));
+                    r.set("model", new TextNode(fordModels.names.get(model)));
+                    r.set("engine", new TextNode(fordEngines.names.get(engine)));
                 }
                 break;
             }
             case "BMW":
             case "BMW M": {
-                String model = randomCode(bmwModelCodes);
-                plant = randomCode(bmwPlantCodes);
+                if (bmwModels == null) {
+                    bmwModels = codes("bmw-models.tsv");
+                    bmwPlants = codes("bmw-plants.tsv");
+                }
+                String model = randomCode(bmwModels.codes);
+                plant = randomCode(bmwPlants.codes);
                 front = pad(manufacturer, 3, "AAAAAAAAAAAAAAAAAA") + restraint + model;
                 if (verbose) {
-                    r.set("model", new TextNode(bmwModels.get(model)));
-                    r.set("plant", new TextNode(bmwPlants.get(plant)));
+                    r.set("model", new TextNode(bmwModels.names.get(model)));
+                    r.set("plant", new TextNode(bmwPlants.names.get(plant)));
                 }
                 break;
             }
@@ -155,7 +165,7 @@ public class VinSampler extends FieldSampler {
 
         if (verbose) {
             r.set("VIN", new TextNode(vin));
-            r.set("manufacturer", new TextNode(makes.get(manufacturer)));
+            r.set("manufacturer", new TextNode(makes.names.get(manufacturer)));
             r.set("year", new IntNode(year));
         } else {
             return new TextNode(vin);
@@ -205,6 +215,7 @@ public class VinSampler extends FieldSampler {
     @SuppressWarnings("UnusedDeclaration")
     public void setCountries(String countries) {
         Set<String> s = Sets.newHashSet();
+        SetMultimap<String, String> byCountry = multimap("vin-by-country.tsv");
         for (String country : onComma.split(countries)) {
             s.addAll(byCountry.get(country));
         }
@@ -228,6 +239,7 @@ public class VinSampler extends FieldSampler {
     public void setMakes(String makes) {
 
         Set<String> s = Sets.newHashSet();
+        SetMultimap<String, String> byMake = multimap("vin-by-make.tsv");
         for (String country : onComma.split(makes)) {
             s.addAll(byMake.get(country));
         }
@@ -280,6 +292,11 @@ public class VinSampler extends FieldSampler {
         rand.setSeed(seed);
     }
 
+    @Override
+    public void setRowRandom(RowRandom random) {
+        rand = random;
+    }
+
     @SuppressWarnings("UnusedDeclaration")
     private void addYear(int year, List<String> years) {
         year = Math.max(year, 1980);
@@ -292,43 +309,30 @@ public class VinSampler extends FieldSampler {
         return (s + padding).substring(0, length);
     }
 
-    private static Map<String, String> mapResource(String name) throws IOException {
-        final Splitter onTab = Splitter.on("\t");
-
-        return Resources.readLines(Resources.getResource(name), Charsets.UTF_8, new LineProcessor<Map<String, String>>() {
-            final Map<String, String> r = Maps.newHashMap();
-
+    private static Codes codes(final String name) {
+        return ResourceRegistry.get("vin-codes:" + name, new ResourceRegistry.Loader<Codes>() {
             @Override
-            public boolean processLine(String line) throws IOException {
-                Iterator<String> pieces = onTab.split(line).iterator();
-                String key = pieces.next();
-                r.put(key, pieces.next());
-                return true;
-            }
-
-            @Override
-            public Map<String, String> getResult() {
-                return r;
+            public Codes load() {
+                // a hash map keeps the order of codes the same as it has always been
+                Map<String, String> r = Maps.newHashMap();
+                ResourceTable table = ResourceTable.get(name, '\t', false, false);
+                for (int row = 0; row < table.rows(); row++) {
+                    r.put(table.get(row, 0), table.get(row, 1));
+                }
+                return new Codes(r);
             }
         });
     }
 
-    private static SetMultimap<String, String> multiMapResource(String name) throws IOException {
-        final Splitter onTab = Splitter.on("\t");
-
-        return Resources.readLines(Resources.getResource(name), Charsets.UTF_8, new LineProcessor<SetMultimap<String, String>>() {
-            final SetMultimap<String, String> r = HashMultimap.create();
-
-            @Override
-            public boolean processLine(String line) throws IOException {
-                Iterator<String> pieces = onTab.split(line).iterator();
-                String key = pieces.next();
-                r.put(key, pieces.next());
-                return true;
-            }
-
+    private static SetMultimap<String, String> multimap(final String name) {
+        return ResourceRegistry.get("vin-multimap:" + name, new ResourceRegistry.Loader<SetMultimap<String, String>>() {
             @Override
-            public SetMultimap<String, String> getResult() {
+            public SetMultimap<String, String> load() {
+                SetMultimap<String, String> r = HashMultimap.create();
+                ResourceTable table = ResourceTable.get(name, '\t', false, false);
+                for (int row = 0; row < table.rows(); row++) {
+                    r.put(table.get(row, 0), table.get(row, 1));
+                }
                 return r;
             }
         });
@@ -374,23 +378,5 @@ public class VinSampler extends FieldSampler {
         letterCode.put("8", 8);
         letterCode.put("9", 9);
         letters = Lists.newArrayList(letterCode.keySet());
-
-        try {
-            bmwModels = mapResource("bmw-models.tsv");
-            bmwModelCodes = Lists.newArrayList(bmwModels.keySet());
-            bmwPlants = mapResource("bmw-plants.tsv");
-            bmwPlantCodes = Lists.newArrayList(bmwPlants.keySet());
-            fordModels = mapResource("ford-models.tsv");
-            fordEngines = mapResource("ford-engines.tsv");
-            fordEngineCodes = Lists.newArrayList(fordEngines.keySet());
-            fordModelCodes = Lists.newArrayList(fordModels.keySet());
-            restraint = mapResource("ford-restraints.tsv");
-            restraintCodes = Lists.newArrayList(restraint.keySet());
-            byMake = multiMapResource("vin-by-make.tsv");
-            makes = mapResource("vin-make.tsv");
-            byCountry = multiMapResource("vin-by-country.tsv");
-        } catch (IOException e) {
-            throw new RuntimeException("Can't read resources");
-        }
     }
 }
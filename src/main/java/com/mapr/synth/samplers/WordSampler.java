@@ -36,4 +36,9 @@ public class WordSampler extends FieldSampler {
     public JsonNode sample() {
         return new TextNode(gen.sample());
     }
+
+    @Override
+    public void sample(RowBuffer row, int slot) {
+        row.setText(slot, gen.sample());
+    }
 }
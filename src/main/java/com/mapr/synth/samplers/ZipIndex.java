@@ -0,0 +1,284 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth.samplers;
+
+import com.google.common.base.Preconditions;
+import org.apache.mahout.math.list.IntArrayList;
+
+/**
+ * A one degree grid over the locations of all zip codes.  This lets us find all of the zips that
+ * satisfy a location constraint by looking at only the cells near the constraint, after which
+ * sampling is a single draw from the matching subset.
+ * <p>
+ * Locations can be missing (NaN).  Those zips are never matched by any bound.  Immutable once built.
+ */
+class ZipIndex {
+    private static final int LATITUDE_CELLS = 180;
+    private static final int LONGITUDE_CELLS = 360;
+
+    private final double[] latitude;
+    private final double[] longitude;
+
+    // the zips in cell c are order[start[c]] ... order[start[c + 1] - 1]
+    private final int[] start = new int[LATITUDE_CELLS * LONGITUDE_CELLS + 1];
+    private final int[] order;
+
+    ZipIndex(double[] latitude, double[] longitude) {
+        Preconditions.checkArgument(latitude.length == longitude.length);
+        this.latitude = latitude;
+        this.longitude = longitude;
+
+        int n = 0;
+        for (int i = 0; i < latitude.length; i++) {
+            if (located(i)) {
+                start[cell(latitude[i], longitude[i]) + 1]++;
+                n++;
+            }
+        }
+        for (int c = 0; c < LATITUDE_CELLS * LONGITUDE_CELLS; c++) {
+            start[c + 1] += start[c];
+        }
+        order = new int[n];
+        int[] fill = start.clone();
+        for (int i = 0; i < latitude.length; i++) {
+            if (located(i)) {
+                order[fill[cell(latitude[i], longitude[i])]++] = i;
+            }
+        }
+    }
+
+    int size() {
+        return latitude.length;
+    }
+
+    /**
+     * Returns all zips that could satisfy a bound after their location is moved by up to
+     * latitudeFuzz and longitudeFuzz degrees.  With no fuzz, these are exactly the zips inside the
+     * bound.  Returns every zip if there is no bound at all.
+     */
+    int[] select(Bound bound, double latitudeFuzz, double longitudeFuzz) {
+        if (bound == null) {
+            int[] r = new int[latitude.length];
+            for (int i = 0; i < r.length; i++) {
+                r[i] = i;
+            }
+            return r;
+        }
+
+        // fuzz only moves points north and east so we have to look further south and west
+        int lat0 = latitudeCell(bound.minLatitude() - latitudeFuzz);
+        int lat1 = latitudeCell(bound.maxLatitude());
+        int lon0 = longitudeCell(bound.minLongitude() - longitudeFuzz);
+        int lon1 = longitudeCell(bound.maxLongitude());
+
+        IntArrayList r = new IntArrayList();
+        for (int i = lat0; i <= lat1; i++) {
+            for (int j = start[i * LONGITUDE_CELLS + lon0]; j < start[i * LONGITUDE_CELLS + lon1 + 1]; j++) {
+                int zip = order[j];
+                if (bound.mayAccept(latitude[zip], longitude[zip], latitudeFuzz, longitudeFuzz)) {
+                    r.add(zip);
+                }
+            }
+        }
+        // keep zip order so results don't depend on the shape of the grid
+        r.sort();
+        r.trimToSize();
+        return r.elements();
+    }
+
+    private boolean located(int i) {
+        return !Double.isNaN(latitude[i]) && !Double.isNaN(longitude[i]);
+    }
+
+    private static int cell(double latitude, double longitude) {
+        return latitudeCell(latitude) * LONGITUDE_CELLS + longitudeCell(longitude);
+    }
+
+    private static int latitudeCell(double latitude) {
+        return Math.max(0, Math.min(LATITUDE_CELLS - 1, (int) Math.floor(latitude + 90)));
+    }
+
+    private static int longitudeCell(double longitude) {
+        return Math.max(0, Math.min(LONGITUDE_CELLS - 1, (int) Math.floor(longitude + 180)));
+    }
+
+    /**
+     * A constraint on location along with a latitude/longitude box that contains it.
+     */
+    abstract static class Bound {
+        abstract boolean accept(double latitude, double longitude);
+
+        /**
+         * Returns true if some point with latitude in [latitude, latitude + dLatitude] and longitude
+         * in [longitude, longitude + dLongitude] might be accepted.
+         */
+        abstract boolean mayAccept(double latitude, double longitude, double dLatitude, double dLongitude);
+
+        abstract double minLatitude();
+
+        abstract double maxLatitude();
+
+        abstract double minLongitude();
+
+        abstract double maxLongitude();
+    }
+
+    static class BoundingBox extends Bound {
+        private double minLongitude;
+        private double maxLongitude;
+        private double minLatitude;
+        private double maxLatitude;
+
+        BoundingBox(double minLatitude, double maxLatitude, double minLongitude, double maxLongitude) {
+            this.minLongitude = Math.min(minLongitude, maxLongitude);
+            this.maxLongitude = Math.max(minLongitude, maxLongitude);
+            this.minLatitude = Math.min(minLatitude, maxLatitude);
+            this.maxLatitude = Math.max(minLatitude, maxLatitude);
+        }
+
+        @Override
+        boolean accept(double latitude, double longitude) {
+            return longitude >= minLongitude && longitude <= maxLongitude && latitude >= minLatitude && latitude <= maxLatitude;
+        }
+
+        @Override
+        boolean mayAccept(double latitude, double longitude, double dLatitude, double dLongitude) {
+            return longitude + dLongitude >= minLongitude && longitude <= maxLongitude
+                    && latitude + dLatitude >= minLatitude && latitude <= maxLatitude;
+        }
+
+        void setLongitude(double minLongitude, double maxLongitude) {
+            this.minLongitude = minLongitude;
+            this.maxLongitude = maxLongitude;
+        }
+
+        void setLatitude(double minLatitude, double maxLatitude) {
+            this.minLatitude = minLatitude;
+            this.maxLatitude = maxLatitude;
+        }
+
+        @Override
+        double minLatitude() {
+            return minLatitude;
+        }
+
+        @Override
+        double maxLatitude() {
+            return maxLatitude;
+        }
+
+        @Override
+        double minLongitude() {
+            return minLongitude;
+        }
+
+        @Override
+        double maxLongitude() {
+            return maxLongitude;
+        }
+    }
+
+    static class RadialBound extends Bound {
+        private static final double EARTH_RADIUS = 3959; // miles
+        private final double latitude;
+        private final double longitude;
+        private final double x;
+        private final double y;
+        private final double z;
+
+        // chord length on the unit sphere
+        private double radius;
+
+        RadialBound(double latitude, double longitude, double radius) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            x = Math.cos(Math.toRadians(longitude)) * Math.cos(Math.toRadians(latitude));
+            y = Math.sin(Math.toRadians(longitude)) * Math.cos(Math.toRadians(latitude));
+            z = Math.sin(Math.toRadians(latitude));
+            this.radius = 2 * Math.sin(radius / EARTH_RADIUS / 2);
+            Preconditions.checkArgument(Math.toDegrees(this.radius) < 70, "Outrageously large radius");
+        }
+
+        @Override
+        boolean accept(double latitude, double longitude) {
+            return distance(latitude, longitude) <= radius;
+        }
+
+        @Override
+        boolean mayAccept(double latitude, double longitude, double dLatitude, double dLongitude) {
+            // moving a point changes the chord to the center by no more than the angle it moved
+            return distance(latitude, longitude) <= radius + Math.toRadians(Math.hypot(dLatitude, dLongitude));
+        }
+
+        private double distance(double latitude, double longitude) {
+            double x0 = Math.cos(Math.toRadians(longitude)) * Math.cos(Math.toRadians(latitude));
+            double y0 = Math.sin(Math.toRadians(longitude)) * Math.cos(Math.toRadians(latitude));
+            double z0 = Math.sin(Math.toRadians(latitude));
+
+            return Math.hypot(x0 - x, Math.hypot(y0 - y, z0 - z));
+        }
+
+        void setRadius(double radius) {
+            this.radius = radius / EARTH_RADIUS;
+            Preconditions.checkArgument(Math.toDegrees(this.radius) < 70, "Outrageously large radius");
+        }
+
+        // the angle subtended by the radius, padded a bit against round-off
+        private double angle() {
+            return Math.toDegrees(2 * Math.asin(Math.min(1, radius / 2))) + 1e-6;
+        }
+
+        @Override
+        double minLatitude() {
+            return latitude - angle();
+        }
+
+        @Override
+        double maxLatitude() {
+            return latitude + angle();
+        }
+
+        @Override
+        double minLongitude() {
+            double width = longitudeWidth();
+            return width < 0 || longitude - width < -180 ? -180 : longitude - width;
+        }
+
+        @Override
+        double maxLongitude() {
+            double width = longitudeWidth();
+            return width < 0 || longitude + width > 180 ? 180 : longitude + width;
+        }
+
+        // half the longitude span of the cap, negative if it spans all longitudes (or wraps around)
+        private double longitudeWidth() {
+            double angle = angle();
+            if (Math.abs(latitude) + angle >= 90) {
+                return -1;
+            }
+            double r = Math.sin(Math.toRadians(angle)) / Math.cos(Math.toRadians(latitude));
+            if (r >= 1) {
+                return -1;
+            }
+            double width = Math.toDegrees(Math.asin(r)) + 1e-6;
+            return longitude - width < -180 || longitude + width > 180 ? -1 : width;
+        }
+    }
+}
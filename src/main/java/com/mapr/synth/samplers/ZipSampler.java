@@ -27,60 +27,88 @@ import com.google.common.base.*;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
-import com.google.common.io.Resources;
+import com.mapr.synth.ResourceRegistry;
+import com.mapr.synth.ResourceTable;
+import com.mapr.synth.distributions.RowRandom;
 
-import java.io.IOException;
 import java.util.*;
 import java.util.regex.Pattern;
 
 /**
  * Returns data structures containing various aspects of zip codes including location, population and such.
+ * <p>
+ * The zip code data is read once and shared by all instances through the {@link ResourceRegistry}.  Every value is kept as a ready made
+ * {@link TextNode} and location constraints are resolved into the list of matching zips (using a
+ * {@link ZipIndex}) on the first sample, so each sample is a single draw rather than a loop that
+ * rejects zips outside the constraint.  Each instance should only be used by one thread.
  */
 public class ZipSampler extends FieldSampler {
     private JsonNodeFactory nodeFactory = JsonNodeFactory.withExactBigDecimals(false);
 
-    private Map<String, List<String>> values = Maps.newHashMap();
+    private static class Zips {
+        final Map<String, TextNode[]> values = Maps.newHashMap();
+        final int zipCount;
+        final ZipIndex index;
+
+        Zips(ResourceTable table) {
+            List<String> names = table.getHeader();
+            Preconditions.checkState(names != null, "No field names in zip code data");
+            zipCount = table.rows();
+
+            // equal values share a node
+            TextNode[] nodes = new TextNode[table.strings().size()];
+            for (int i = 0; i < nodes.length; i++) {
+                nodes[i] = new TextNode(table.strings().get(i));
+            }
+            TextNode empty = new TextNode("");
+
+            boolean ragged = names.get(0).equals("V1");
+            for (int column = 0; column < names.size(); column++) {
+                values.put(names.get(column), new TextNode[zipCount]);
+            }
+            for (int row = 0; row < zipCount; row++) {
+                int n = table.columns(row);
+                Preconditions.checkState(n <= names.size() && (ragged || n == names.size()), "Wrong number of fields on line %s", table.line(row) + 1);
+                for (int column = 0; column < names.size(); column++) {
+                    values.get(names.get(column))[row] = column < n ? nodes[table.id(row, column)] : empty;
+                }
+            }
+            index = new ZipIndex(coordinate("latitude"), coordinate("longitude"));
+        }
+
+        private double[] coordinate(String field) {
+            TextNode[] column = values.get(field);
+            double[] r = new double[zipCount];
+            for (int i = 0; i < zipCount; i++) {
+                String v = column == null ? "" : column[i].asText();
+                r[i] = v.equals("") ? Double.NaN : Double.parseDouble(v);
+            }
+            return r;
+        }
+    }
+
     private Set<String> retainedFields = null;
     private Random rand = new Random();
-    private int zipCount;
     private double latitudeFuzz = 0;
     private double longitudeFuzz = 0;
 
-    private LocationBound limits = null;
+    private ZipIndex.Bound limits = null;
     private boolean verbose = true;
 
+    // resolved on first sample, null after any setting changes
+    private int[] candidates = null;
+    private String[] fields;
+    private TextNode[][] columns;
+
+    private final Zips zips;
+
     public ZipSampler() {
-        try {
-            List<String> names = null;
-            for (String line : Resources.readLines(Resources.getResource("zip.csv"), Charsets.UTF_8)) {
-                CsvSplitter onComma = new CsvSplitter();
-                if (line.startsWith("#")) {
-                    // last comment line contains actual field names
-                    names = Lists.newArrayList(onComma.split(line.substring(1)));
-                } else {
-                    Preconditions.checkState(names != null);
-                    assert names != null;
-                    Iterable<String> fields = onComma.split(line);
-                    Iterator<String> nx = names.iterator();
-                    for (String value : fields) {
-                        Preconditions.checkState(nx.hasNext());
-                        String fieldName = nx.next();
-                        List<String> dataList = values.get(fieldName);
-                        if (dataList == null) {
-                            dataList = Lists.newArrayList();
-                            values.put(fieldName, dataList);
-                        }
-                        dataList.add(value);
-                    }
-                    if (!names.iterator().next().equals("V1")) {
-                        Preconditions.checkState(!nx.hasNext());
-                    }
-                    zipCount++;
-                }
+        zips = ResourceRegistry.get("zips:zip.csv", new ResourceRegistry.Loader<Zips>() {
+            @Override
+            public Zips load() {
+                return new Zips(ResourceTable.get("zip.csv", ',', true, false));
             }
-        } catch (IOException e) {
-            throw new RuntimeException("Couldn't read built-in zip code data file", e);
-        }
+        });
     }
 
     @SuppressWarnings("unused")
@@ -88,20 +116,28 @@ public class ZipSampler extends FieldSampler {
         rand = new Random(seed);
     }
 
+    @Override
+    public void setRowRandom(RowRandom random) {
+        rand = random;
+    }
+
     @SuppressWarnings("UnusedDeclaration")
     public void setLatitudeFuzz(double fuzz) {
         latitudeFuzz = fuzz;
+        candidates = null;
     }
 
     @SuppressWarnings("UnusedDeclaration")
     public void setLongitudeFuzz(double fuzz) {
         longitudeFuzz = fuzz;
+        candidates = null;
     }
 
     @SuppressWarnings("UnusedDeclaration")
     public void setOnlyContinental(boolean onlyContinental) {
         if (onlyContinental) {
-            limits = new BoundingBox(22, 50, -130, -65);
+            limits = new ZipIndex.BoundingBox(22, 50, -130, -65);
+            candidates = null;
         }
     }
 
@@ -125,11 +161,12 @@ public class ZipSampler extends FieldSampler {
         double minLongitude = Math.min(boundList.get(0), boundList.get(1));
         double maxLongitude = Math.max(boundList.get(0), boundList.get(1));
         if (limits == null) {
-            limits = new BoundingBox(-90, 90, minLongitude, maxLongitude);
+            limits = new ZipIndex.BoundingBox(-90, 90, minLongitude, maxLongitude);
         } else {
-            Preconditions.checkArgument(limits instanceof BoundingBox);
-            ((BoundingBox) limits).setLongitude(minLongitude, maxLongitude);
+            Preconditions.checkArgument(limits instanceof ZipIndex.BoundingBox);
+            ((ZipIndex.BoundingBox) limits).setLongitude(minLongitude, maxLongitude);
         }
+        candidates = null;
     }
 
     /**
@@ -152,11 +189,12 @@ public class ZipSampler extends FieldSampler {
         double minLatitude = Math.min(boundList.get(0), boundList.get(1));
         double maxLatitude = Math.max(boundList.get(0), boundList.get(1));
         if (limits == null) {
-            limits = new BoundingBox(minLatitude, maxLatitude, -180, 180);
+            limits = new ZipIndex.BoundingBox(minLatitude, maxLatitude, -180, 180);
         } else {
-            Preconditions.checkArgument(limits instanceof BoundingBox);
-            ((BoundingBox) limits).setLatitude(minLatitude, maxLatitude);
+            Preconditions.checkArgument(limits instanceof ZipIndex.BoundingBox);
+            ((ZipIndex.BoundingBox) limits).setLatitude(minLatitude, maxLatitude);
         }
+        candidates = null;
     }
 
     /**
@@ -176,7 +214,8 @@ public class ZipSampler extends FieldSampler {
                         return Double.parseDouble(input);
                     }
                 });
-        limits = new RadialBound(center.get(0), center.get(1), 10);
+        limits = new ZipIndex.RadialBound(center.get(0), center.get(1), 10);
+        candidates = null;
     }
 
     /**
@@ -184,8 +223,9 @@ public class ZipSampler extends FieldSampler {
      */
     @SuppressWarnings("UnusedDeclaration")
     public void setMilesFrom(double distance) {
-        Preconditions.checkArgument(limits instanceof RadialBound);
-        ((RadialBound) limits).setRadius(distance);
+        Preconditions.checkArgument(limits instanceof ZipIndex.RadialBound);
+        ((ZipIndex.RadialBound) limits).setRadius(distance);
+        candidates = null;
     }
 
     /**
@@ -193,8 +233,9 @@ public class ZipSampler extends FieldSampler {
      */
     @SuppressWarnings("UnusedDeclaration")
     public void setKmFrom(double distance) {
-        Preconditions.checkArgument(limits instanceof RadialBound);
-        ((RadialBound) limits).setRadius(distance * 0.621371);
+        Preconditions.checkArgument(limits instanceof ZipIndex.RadialBound);
+        ((ZipIndex.RadialBound) limits).setRadius(distance * 0.621371);
+        candidates = null;
     }
 
     /**
@@ -204,176 +245,73 @@ public class ZipSampler extends FieldSampler {
     public void setFields(String fields) {
         Set<String> desiredFields = Sets.newHashSet(Splitter.on(Pattern.compile("[\\s,;]+")).split(fields));
         for (String field : desiredFields) {
-            Preconditions.checkArgument(values.containsKey(field), "Invalid field " + field);
+            Preconditions.checkArgument(zips.values.containsKey(field), "Invalid field " + field);
         }
         retainedFields = desiredFields;
+        candidates = null;
     }
 
     @SuppressWarnings("UnusedDeclaration")
     public void setVerbose(boolean verbose) {
         this.verbose = verbose;
+        candidates = null;
     }
 
     @Override
     public JsonNode sample() {
+        if (candidates == null) {
+            resolve();
+        }
+        boolean fuzzy = latitudeFuzz > 0 || longitudeFuzz > 0;
         while (true) {
-            int i = rand.nextInt(zipCount);
-            ObjectNode r = new ObjectNode(nodeFactory);
-            for (String key : values.keySet()) {
-                r.set(key, new TextNode(values.get(key).get(i)));
-            }
-
-            if (latitudeFuzz > 0 || longitudeFuzz > 0) {
-                r.set("longitude", new TextNode(String.format("%.4f", r.get("longitude").asDouble() + rand.nextDouble() * longitudeFuzz)));
-                r.set("latitude", new TextNode(String.format("%.4f", r.get("latitude").asDouble() + rand.nextDouble() * latitudeFuzz)));
+            int i = candidates[rand.nextInt(candidates.length)];
+            if (!fuzzy) {
+                // every candidate is known to satisfy the limits
+                return verbose ? build(i, null, null) : zips.values.get("zip")[i];
             }
 
-            if (limits == null || limits.accept(r)) {
+            // candidates could satisfy the limits, but fuzz can still push them outside
+            double longitude = zips.values.get("longitude")[i].asDouble() + rand.nextDouble() * longitudeFuzz;
+            double latitude = zips.values.get("latitude")[i].asDouble() + rand.nextDouble() * latitudeFuzz;
+            if (limits == null || limits.accept(latitude, longitude)) {
                 if (verbose) {
-                    if (retainedFields != null) {
-                        for (String key : values.keySet()) {
-                            if (!retainedFields.contains(key)) {
-                                r.remove(key);
-                            }
-                        }
-                    }
-                    return r;
+                    return build(i, new TextNode(String.format("%.4f", latitude)), new TextNode(String.format("%.4f", longitude)));
                 } else {
-                    return r.get("zip");
+                    return zips.values.get("zip")[i];
                 }
             }
         }
     }
 
-    private abstract class LocationBound {
-        abstract boolean accept(double latitude, double longitude);
-
-        boolean accept(JsonNode location) {
-            String longitude = location.get("longitude").asText();
-            String latitude = location.get("latitude").asText();
-            //noinspection SimplifiableIfStatement
-            if (longitude == null || longitude.equals("") || latitude == null || latitude.equals("")) {
-                return false;
+    private ObjectNode build(int i, TextNode latitude, TextNode longitude) {
+        ObjectNode r = new ObjectNode(nodeFactory);
+        for (int k = 0; k < fields.length; k++) {
+            String field = fields[k];
+            if (latitude != null && field.equals("latitude")) {
+                r.set(field, latitude);
+            } else if (longitude != null && field.equals("longitude")) {
+                r.set(field, longitude);
             } else {
-                return accept(Double.parseDouble(latitude), Double.parseDouble(longitude));
+                r.set(field, columns[k][i]);
             }
         }
+        return r;
     }
 
-    private class BoundingBox extends LocationBound {
-        private double minLongitude;
-        private double maxLongitude;
-        private double minLatitude;
-        private double maxLatitude;
-
-        private BoundingBox(double minLatitude, double maxLatitude, double minLongitude, double maxLongitude) {
-            this.minLongitude = Math.min(minLongitude, maxLongitude);
-            this.maxLongitude = Math.max(minLongitude, maxLongitude);
-            this.minLatitude = Math.min(minLatitude, maxLatitude);
-            this.maxLatitude = Math.max(minLatitude, maxLatitude);
-        }
-
-        @Override
-        boolean accept(double latitude, double longitude) {
-            return longitude >= minLongitude && longitude <= maxLongitude && latitude >= minLatitude && latitude <= maxLatitude;
-        }
-
-        public void setLongitude(double minLongitude, double maxLongitude) {
-            this.minLongitude = minLongitude;
-            this.maxLongitude = maxLongitude;
-        }
-
-        public void setLatitude(double minLatitude, double maxLatitude) {
-            this.minLatitude = minLatitude;
-            this.maxLatitude = maxLatitude;
-        }
-    }
-
-    private class RadialBound extends LocationBound {
-        private static final double EARTH_RADIUS = 3959; // miles
-        private final double x;
-        private final double y;
-        private final double z;
-
-        private double radius;
-
-        private RadialBound(double latitude, double longitude, double radius) {
-            x = Math.cos(Math.toRadians(longitude)) * Math.cos(Math.toRadians(latitude));
-            y = Math.sin(Math.toRadians(longitude)) * Math.cos(Math.toRadians(latitude));
-            z = Math.sin(Math.toRadians(latitude));
-            this.radius = 2 * Math.sin(radius / EARTH_RADIUS / 2);
-            Preconditions.checkArgument(Math.toDegrees(this.radius) < 70, "Outrageously large radius");
-        }
-
-        @Override
-        boolean accept(double latitude, double longitude) {
-            double x0 = Math.cos(Math.toRadians(longitude)) * Math.cos(Math.toRadians(latitude));
-            double y0 = Math.sin(Math.toRadians(longitude)) * Math.cos(Math.toRadians(latitude));
-            double z0 = Math.sin(Math.toRadians(latitude));
-
-            double distance = Math.hypot(x0 - x, Math.hypot(y0 - y, z0 - z));
-            return distance <= radius;
+    private void resolve() {
+        List<String> names = Lists.newArrayList();
+        for (String key : zips.values.keySet()) {
+            if (retainedFields == null || retainedFields.contains(key)) {
+                names.add(key);
+            }
         }
-
-        public void setRadius(double radius) {
-            this.radius = radius / EARTH_RADIUS;
-            Preconditions.checkArgument(Math.toDegrees(this.radius) < 70, "Outrageously large radius");
+        fields = names.toArray(new String[names.size()]);
+        columns = new TextNode[fields.length][];
+        for (int k = 0; k < fields.length; k++) {
+            columns[k] = zips.values.get(fields[k]);
         }
-    }
 
-    private class CsvSplitter {
-        public Iterable<String> split(final String string) {
-            return new Iterable<String>() {
-                @Override
-                public Iterator<String> iterator() {
-                    return new Iterator<String>() {
-                        int max = string.length();
-                        int position = 0;
-
-                        @Override
-                        public boolean hasNext() {
-                            return position <= max;
-                        }
-
-                        private char currentChar() {
-                            return string.charAt(position);
-                        }
-
-                        @Override
-                        public String next() {
-                            if (position == max) {
-                                position++;
-                                return "";
-                            } else if (currentChar() == '\"') {
-                                position++;
-                                int start = position;
-                                while (position < max && currentChar() != '\"') {
-                                    position++;
-                                }
-                                if (position >= max) {
-                                    throw new IllegalStateException("Unclosed quoted string");
-                                }
-                                String r = string.substring(start, position);
-                                position += 2;
-                                return r;
-                            } else {
-                                int start = position;
-                                while (position < max && currentChar() != ',') {
-                                    position++;
-                                }
-                                String r = string.substring(start, position);
-                                position++;
-                                return r;
-                            }
-                        }
-
-                        @Override
-                        public void remove() {
-                            throw new UnsupportedOperationException("Can't remove from CsvSplitter");
-                        }
-                    };
-                }
-            };
-        }
+        candidates = zips.index.select(limits, latitudeFuzz, longitudeFuzz);
+        Preconditions.checkArgument(candidates.length > 0, "No zip codes satisfy the location limits");
     }
 }
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth;
+
+import com.google.common.io.ByteStreams;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BlockGzipOutputStreamTest {
+    @Test
+    public void testRoundTrip() throws IOException {
+        Random rand = new Random(1);
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        try {
+            for (int blockSize : new int[]{1, 7, 1000, 1 << 20}) {
+                ByteArrayOutputStream expected = new ByteArrayOutputStream();
+                ByteArrayOutputStream actual = new ByteArrayOutputStream();
+                BlockGzipOutputStream out = new BlockGzipOutputStream(actual, pool, blockSize, 2);
+
+                // compressible text written in awkward pieces
+                for (int i = 0; i < 2000; i++) {
+                    byte[] line = String.format("%d,line %d,%.3f\n", i, rand.nextInt(100), rand.nextGaussian()).getBytes("UTF-8");
+                    if (i % 3 == 0) {
+                        for (byte b : line) {
+                            out.write(b);
+                        }
+                    } else {
+                        out.write(line, 0, line.length);
+                    }
+                    expected.write(line);
+                    if (i % 100 == 0) {
+                        out.flush();
+                    }
+                }
+                out.close();
+
+                // GZIPInputStream reads all of the members one after another, just like zcat
+                byte[] result = ByteStreams.toByteArray(new GZIPInputStream(new ByteArrayInputStream(actual.toByteArray())));
+                assertArrayEquals(expected.toByteArray(), result);
+                if (blockSize >= 1000) {
+                    assertTrue(actual.size() < expected.size() / 2);
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            ByteArrayOutputStream actual = new ByteArrayOutputStream();
+            new BlockGzipOutputStream(actual, pool, 100, 2).close();
+            byte[] result = ByteStreams.toByteArray(new GZIPInputStream(new ByteArrayInputStream(actual.toByteArray())));
+            assertEquals(0, result.length);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
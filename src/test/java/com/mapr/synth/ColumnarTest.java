@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import com.google.common.io.Resources;
+import com.mapr.synth.samplers.RowBuffer;
+import com.mapr.synth.samplers.SchemaSampler;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ColumnarTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void testSchema() throws IOException {
+        String schema = Resources.asCharSource(Resources.getResource("schema003.json"), Charsets.UTF_8).read();
+        // doubles, random integers, nested arrays and a column that is sometimes missing
+        schema = schema.trim().replaceAll("]$", ", " +
+                "{\"name\":\"g\", \"class\":\"gamma\", \"alpha\":2}, " +
+                "{\"name\":\"n\", \"class\":\"int\", \"min\":-100, \"max\":100}, " +
+                "{\"name\":\"seq\", \"class\":\"sequence\", \"base\":{\"class\":\"int\", \"min\":0, \"max\":100}}, " +
+                "{\"name\":\"country\", \"class\":\"country\"}]");
+        SchemaSampler s = new SchemaSampler(schema);
+
+        File f = tmp.newFile("x.col");
+        List<String> expected = Lists.newArrayList();
+        try (OutputStream out = new FileOutputStream(f)) {
+            // small groups so that we get several plus a partial one
+            ColumnarWriter writer = new ColumnarWriter(out, s.getFieldNames(), 300);
+            writer.header();
+            RowBuffer row = s.newRow();
+            for (int i = 0; i < 1000; i++) {
+                s.sample(row);
+                writer.write(row);
+                expected.add(row.asJson().toString());
+            }
+            writer.finish();
+        }
+
+        try (ColumnarReader in = new ColumnarReader(f)) {
+            assertEquals(s.getFieldNames(), in.getFieldNames());
+            assertEquals(1000, in.getRowCount());
+            assertEquals(4, in.getRowGroupCount());
+            assertEquals(100, in.getRowGroupSize(3));
+
+            RowBuffer row = in.newRow();
+            List<String> actual = Lists.newArrayList();
+            while (in.next(row)) {
+                actual.add(row.asJson().toString());
+            }
+            assertEquals(expected, actual);
+
+            int id = s.getFieldNames().indexOf("id");
+            int gender = s.getFieldNames().indexOf("gender");
+            int n = s.getFieldNames().indexOf("n");
+            for (int g = 0; g < in.getRowGroupCount(); g++) {
+                // ids are consecutive within each group
+                ColumnarReader.ColumnStats stats = in.getStats(g, id);
+                assertEquals(300L * g, stats.getMin());
+                assertEquals(300L * g + in.getRowGroupSize(g) - 1, stats.getMax());
+                // much smaller than 8 bytes per id
+                assertTrue(stats.getLength() < 200);
+
+                assertTrue(in.getStats(g, gender).isDictionary());
+                assertTrue(in.getStats(g, gender).getDistinct() <= 3);
+                assertTrue(in.getStats(g, n).getMin().longValue() >= -100);
+                assertTrue(in.getStats(g, n).getMax().longValue() < 100);
+            }
+
+            // we can go back to any group
+            in.readGroup(1);
+            assertTrue(in.next(row));
+            assertEquals(expected.get(300), row.asJson().toString());
+        }
+    }
+
+    @Test
+    public void testLongs() throws IOException {
+        Random rand = new Random(1);
+        List<String> names = ImmutableList.of("wide", "small", "mixed");
+        RowBuffer row = new RowBuffer(names);
+
+        File f = tmp.newFile("y.col");
+        List<String> expected = Lists.newArrayList();
+        try (OutputStream out = new FileOutputStream(f)) {
+            ColumnarWriter writer = new ColumnarWriter(out, names, 1000);
+            for (int i = 0; i < 2500; i++) {
+                // values whose deltas and range are both too big for 32 bits
+                row.setLong(0, rand.nextLong());
+                row.setLong(1, rand.nextInt(10) - 5 + (1L << 40));
+                if (i % 7 == 0) {
+                    row.setText(2, "x,\"y\"\n");
+                } else {
+                    row.setLong(2, i);
+                }
+                writer.write(row);
+                expected.add(row.asJson().toString());
+            }
+            writer.finish();
+        }
+
+        try (ColumnarReader in = new ColumnarReader(f)) {
+            List<String> actual = Lists.newArrayList();
+            while (in.next(row)) {
+                actual.add(row.asJson().toString());
+            }
+            assertEquals(expected, actual);
+            assertEquals(3, in.getRowGroupCount());
+            assertFalse(in.getStats(0, 2).isNumeric());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNotColumnar() throws IOException {
+        File f = tmp.newFile("z.col");
+        Files.write("a,b,c\n", f, Charsets.UTF_8);
+        new ColumnarReader(f);
+    }
+}
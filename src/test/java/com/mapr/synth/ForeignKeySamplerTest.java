@@ -25,6 +25,8 @@ import org.apache.mahout.math.function.DoubleFunction;
 import org.apache.mahout.math.random.*;
 import org.junit.Test;
 
+import static org.junit.Assert.assertTrue;
+
 public class ForeignKeySamplerTest {
     @Test
     public void testSample() {
@@ -33,6 +35,22 @@ public class ForeignKeySamplerTest {
         check(1000, getDistribution(1), new ForeignKeySampler(1000, 0.3));
     }
 
+    @Test
+    public void testHuge() {
+        // this would need a table with 100M entries if we didn't switch to rejection-inversion
+        ForeignKeySampler s = new ForeignKeySampler(100000000, 1);
+        int first = 0;
+        for (int i = 0; i < 100000; i++) {
+            int k = s.sample().asInt();
+            assertTrue(k >= 0 && k < 100000000);
+            if (k == 0) {
+                first++;
+            }
+        }
+        // p(0) = 1 / H(100M) which is about 0.0526
+        assertTrue(Math.abs(first / 100000.0 - 0.0526) < 0.003);
+    }
+
     private DoubleFunction getDistribution(final double alpha) {
         return new DoubleFunction() {
             @Override
@@ -34,25 +34,25 @@ public class NameSamplerTest {
         RandomUtils.useTestSeed();
         NameSampler ns = new NameSampler(NameSampler.Type.FIRST);
 
-        List<String> expected = Lists.newArrayList("Debra", "Eric", "Kent", "Robert", "Kim", "Susan", "Michelle", "Ethan", "Clinton", "Paul", "Curt", "Courtney", "Marcella", "Michael", "Rita", "Robert", "Antonio", "Ronald", "Aurelio", "Marcus");
+        List<String> expected = Lists.newArrayList("Jacquelyn", "Calvin", "Emery", "Christopher", "Meri", "William", "Irene", "Charlie", "Emma", "Susan", "Merle", "Ida", "Elizabeth", "Doris", "Anthony", "Juliana", "Jennifer", "Kevin", "Ricardo", "Shelby");
         for (String s : expected) {
             assertEquals("regression 1", s, ns.sample().asText());
         }
 
         ns.setType("LAST");
-        expected = Lists.newArrayList("Rose", "Vargas", "Ramirez", "Stephens", "Zarate", "Shields", "Acklin", "Tynan", "Valencia", "Meyer", "Velasco", "Medina", "Dees", "Harris", "Patterson", "Depriest", "Debose", "Landry", "Jackson", "Dixon");
+        expected = Lists.newArrayList("Martin", "Rea", "Stiller", "Roberts", "Bird", "Grosz", "Jones", "Denham", "Bozeman", "Friedman", "Northrup", "Lheureux", "Kirkland", "Moulton", "Washington", "Collins", "Vang", "Bryant", "Boone", "Zeman");
         for (String s : expected) {
             assertEquals("regression 2", s, ns.sample().asText());
         }
 
         ns.setType("LAST_FIRST");
-        expected = Lists.newArrayList(   "Wright, Samuel", "Campbell, Veronica", "Garrett, Carol", "Jones, Stanley", "Cook, Richard", "Miller, John", "Mcpeak, Leona", "Landin, Frank", "Levy, Bryan", "Gardner, Judy", "Davis, Sylvia", "Taylor, Randy", "George, Jose", "Pye, William", "Santiago, Amy", "Goodrich, Leslie", "Fenske, Amy", "Zendejas, Cynthia", "Garcia, Clifford", "Hartley, Melvin");
+        expected = Lists.newArrayList(   "Burrow, Monica", "Arnold, Peter", "Steed, Sara", "Abraham, Cynthia", "Hairston, Laura", "Blevins, Joan", "Clayton, Zachary", "Faria, Brittany", "Rucker, Nancy", "Nelson, Christopher", "Owens, Timothy", "Davis, Sally", "Redding, Janet", "Englehart, Williams", "Moore, Jo", "Peoples, Ruth", "Taylor, Mattie", "Miller, Laurie", "Grate, John", "Roundy, Tonya");
         for (String s : expected) {
             assertEquals("regression 3", s, ns.sample().asText());
         }
 
         ns.setType("FIRST_LAST");
-        expected = Lists.newArrayList("Margie Big", "Kimberly Mendez", "Vanetta Montford", "Lawanda Lopez", "Doris Hurtado", "Melissa Bennett", "Virginia Ferguson", "Phyllis Browning", "Tracy Fischer", "Marilyn Millard", "Mary Berg", "Jeffrey Murray", "Stuart Loredo", "Cheryl Marks", "John Casale", "Patricia Reyes", "Claire Mims", "Benjamin Bacon", "Mary Vallo", "James Porter");
+        expected = Lists.newArrayList("Vivienne Klein", "Marjorie Brown", "James Perlman", "Denyse Magruder", "Joseph King", "Agnes Wilson", "Inez Jackson", "Edward Price", "Alexis Nee", "Donald Rivera", "Aaron Hopkins", "Ethel Derr", "Robert Nuzzo", "Clarice Lopez", "Andrea Solomon", "Robert Espitia", "Jamie Kirk", "Dan Lamm", "Jeremy Vargas", "Jesse Grimm");
         for (String s : expected) {
             assertEquals("regression 4", s, ns.sample().asText());
         }
@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PacerTest {
+    @Test
+    public void testRate() throws InterruptedException {
+        Pacer p = Pacer.atRate(20000);
+        assertEquals(20, p.getBatchSize());
+
+        long t0 = System.nanoTime();
+        for (int i = 0; i < 200; i++) {
+            p.waitUntil(p.reserve(p.getBatchSize()));
+        }
+        double elapsed = (System.nanoTime() - t0) * 1e-9;
+
+        // 4000 rows at 20K rows/s, but the first batch is due right away
+        assertEquals(0.199, elapsed, 0.05);
+    }
+
+    @Test
+    public void testCatchUp() throws InterruptedException {
+        Pacer p = Pacer.atRate(1000);
+        assertEquals(1, p.getBatchSize());
+
+        // a stall means that the next rows are already late so they shouldn't wait
+        Thread.sleep(50);
+        long t0 = System.nanoTime();
+        for (int i = 0; i < 20; i++) {
+            assertTrue(p.isDue(p.reserve(1)));
+        }
+        assertTrue(System.nanoTime() - t0 < 20e6);
+        assertTrue(p.getMaxLag() > 0.02);
+    }
+
+    @Test
+    public void testEventTime() throws InterruptedException {
+        Pacer p = Pacer.byEventTime(3, 100);
+        assertEquals(3, p.getTimeField());
+
+        long t0 = System.nanoTime();
+        long d0 = p.deadline(1000000000L);
+        assertTrue(d0 <= t0);
+
+        // ten seconds of event time at 100x should take a tenth of a second
+        long d1 = p.deadline(1000010000L);
+        assertEquals(100e6, d1 - d0, 1e3);
+        p.waitUntil(d1);
+        assertTrue(System.nanoTime() - t0 >= 100e6);
+
+        // out of order rows are simply late
+        assertTrue(p.isDue(p.deadline(1000005000L)));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNoReservationsForEventTime() {
+        Pacer.byEventTime(0, 1).reserve(10);
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Splitter;
+import com.google.common.collect.Lists;
+import com.google.common.io.Resources;
+import com.mapr.synth.samplers.SchemaSampler;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class PipelineTest {
+    @Test
+    public void testOrderAndCounts() throws Exception {
+        long[] counts = {1000, 777, 0, 1};
+        List<SchemaSampler> samplers = samplers("schema003.json", counts);
+
+        final ByteArrayOutputStream[] files = new ByteArrayOutputStream[counts.length];
+        // small batches and a shallow pipeline make sure that batches get recycled many times
+        Pipeline p = new Pipeline(samplers, Synth.Format.CSV, Synth.Quote.DOUBLE_QUOTE, 3, 2, 7, 2);
+        AtomicLong rowCount = new AtomicLong();
+        List<Callable<Long>> tasks = p.tasks(counts, new Pipeline.Output() {
+            @Override
+            public OutputStream open(int file) throws IOException {
+                assertNull(files[file]);
+                files[file] = new ByteArrayOutputStream();
+                return files[file];
+            }
+        }, rowCount);
+
+        ExecutorService pool = Executors.newFixedThreadPool(tasks.size());
+        long total = 0;
+        for (Future<Long> f : pool.invokeAll(tasks)) {
+            total += f.get();
+        }
+        pool.shutdownNow();
+
+        assertEquals(1778, total);
+        assertEquals(1778, rowCount.get());
+
+        BitSet ids = new BitSet();
+        for (int i = 0; i < counts.length; i++) {
+            List<String> lines = Lists.newArrayList(Splitter.on("\n").omitEmptyStrings().split(files[i].toString("UTF-8")));
+            assertEquals("id,name,gender,address,first_visit,second_date,third_date", lines.get(0));
+            assertEquals(counts[i] + 1, lines.size());
+
+            // each file has a contiguous block of ids
+            int last = -1;
+            for (String line : lines.subList(1, lines.size())) {
+                int id = Integer.parseInt(line.substring(0, line.indexOf(',')));
+                assertTrue(last == -1 || id == last + 1);
+                assertFalse(ids.get(id));
+                ids.set(id);
+                last = id;
+            }
+        }
+        assertEquals(1778, ids.cardinality());
+
+        for (Pipeline.Stage stage : p.getStages()) {
+            assertTrue(stage.utilization(1) >= 0);
+        }
+    }
+
+    @Test
+    public void testFailure() throws Exception {
+        long[] counts = {10000, 10000};
+        Pipeline p = new Pipeline(samplers("schema001.json", counts), Synth.Format.CSV, Synth.Quote.DOUBLE_QUOTE, 1, 1, 10, 2);
+        List<Callable<Long>> tasks = p.tasks(counts, new Pipeline.Output() {
+            @Override
+            public OutputStream open(int file) throws IOException {
+                throw new IOException("disk on fire");
+            }
+        }, new AtomicLong());
+
+        // a failed writer must not leave the other stages blocked forever
+        ExecutorService pool = Executors.newFixedThreadPool(tasks.size());
+        int failures = 0;
+        for (Future<Long> f : pool.invokeAll(tasks)) {
+            try {
+                f.get();
+            } catch (java.util.concurrent.ExecutionException e) {
+                failures++;
+            }
+        }
+        pool.shutdownNow();
+        assertEquals(tasks.size(), failures);
+    }
+
+    // one sampler per file, each starting where the previous file ends
+    private List<SchemaSampler> samplers(String schema, long[] counts) throws IOException {
+        String text = Resources.asCharSource(Resources.getResource(schema), Charsets.UTF_8).read();
+        List<SchemaSampler> r = Lists.newArrayList();
+        long firstRow = 0;
+        for (long count : counts) {
+            SchemaSampler s = new SchemaSampler(text);
+            s.seek(firstRow);
+            r.add(s);
+            firstRow += count;
+        }
+        return r;
+    }
+}
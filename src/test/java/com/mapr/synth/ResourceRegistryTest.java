@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ResourceRegistryTest {
+    @Test
+    public void testTable() throws IOException {
+        ResourceTable t = ResourceTable.read("resource-table.csv", ',', true, true);
+        assertEquals(ImmutableList.of("name", "value", "extra"), t.getHeader());
+        assertEquals(4, t.rows());
+        assertEquals(ImmutableList.of("a,b", "1", "x"), t.getRow(0));
+        assertEquals(ImmutableList.of("c", "2", ""), t.getRow(1));
+        assertEquals(ImmutableList.of(""), t.getRow(2));
+        assertEquals(ImmutableList.of("d", "3", "c"), t.getRow(3));
+        assertEquals(5, t.line(3));
+
+        // equal values are only stored once
+        assertEquals(t.id(1, 0), t.id(3, 2));
+        assertEquals(t.id(1, 2), t.id(2, 0));
+        assertEquals(8, t.strings().size());
+
+        // without quoting or trimming, the raw text comes through
+        t = ResourceTable.read("resource-table.csv", ',', false, false);
+        assertEquals(ImmutableList.of("\"a", "b\"", "1", "x"), t.getRow(0));
+        assertEquals(ImmutableList.of("  c  ", "2", ""), t.getRow(1));
+    }
+
+    @Test
+    public void testArena() {
+        StringArena.Builder b = new StringArena.Builder();
+        assertEquals(0, b.add("abc"));
+        assertEquals(1, b.add("été"));
+        assertEquals(0, b.add("abc"));
+        assertEquals(2, b.add(""));
+        StringArena a = b.build();
+        assertEquals(3, a.size());
+        assertEquals("été", a.get(1));
+        assertEquals(5, a.length(1));
+        assertEquals(3, a.offset(1));
+        assertEquals("", a.get(2));
+    }
+
+    @Test
+    public void testLoadOnce() throws Exception {
+        final AtomicInteger loads = new AtomicInteger();
+        final ResourceRegistry.Loader<Object> loader = new ResourceRegistry.Loader<Object>() {
+            @Override
+            public Object load() {
+                loads.incrementAndGet();
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return new Object();
+            }
+        };
+
+        List<Callable<Object>> tasks = Lists.newArrayList();
+        for (int i = 0; i < 8; i++) {
+            tasks.add(new Callable<Object>() {
+                @Override
+                public Object call() {
+                    return ResourceRegistry.get("test:load-once", loader);
+                }
+            });
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(tasks.size());
+        Object first = null;
+        for (Future<Object> f : pool.invokeAll(tasks)) {
+            if (first == null) {
+                first = f.get();
+            }
+            assertSame(first, f.get());
+        }
+        pool.shutdownNow();
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void testFailure() {
+        final AtomicInteger loads = new AtomicInteger();
+        ResourceRegistry.Loader<String> loader = new ResourceRegistry.Loader<String>() {
+            @Override
+            public String load() throws IOException {
+                if (loads.incrementAndGet() == 1) {
+                    throw new IOException("not yet");
+                }
+                return "ok";
+            }
+        };
+        try {
+            ResourceRegistry.get("test:failure", loader);
+            fail("Should have failed");
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+        // failures aren't remembered
+        assertEquals("ok", ResourceRegistry.get("test:failure", loader));
+    }
+}
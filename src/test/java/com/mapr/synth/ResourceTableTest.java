@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth;
+
+import com.google.common.base.Charsets;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.*;
+
+public class ResourceTableTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void testSnapshots() throws IOException {
+        int checked = 0;
+        for (ResourceSnapshot.Spec spec : ResourceSnapshot.TABLES) {
+            if (getClass().getClassLoader().getResource(spec.resource) == null) {
+                // the build skips these as well
+                continue;
+            }
+            ResourceTable parsed = ResourceTable.parse(spec.resource, spec.delimiter, spec.quoted, spec.trim);
+            ResourceTable snapshot = ResourceTable.readSnapshot(spec.resource);
+            assertNotNull("No snapshot for " + spec.resource, snapshot);
+            assertSameTable(spec.resource, parsed, snapshot);
+            assertSameTable(spec.resource, parsed, ResourceTable.read(spec.resource, spec.delimiter, spec.quoted, spec.trim));
+            checked++;
+        }
+        assertTrue(checked > 20);
+    }
+
+    @Test
+    public void testStaleSnapshot() throws IOException {
+        String original = "a\tb\n\nc\td\te\n";
+        String edited = "a\tb\nc\td\tx\n";
+
+        // a snapshot made from the original text, with no header since there are no comments
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        byte[] snapshot;
+        try {
+            Thread.currentThread().setContextClassLoader(jar("original.jar", original, null));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ResourceTable.parse("table", '\t', false, false).writeSnapshot(out);
+            snapshot = out.toByteArray();
+
+            // snapshots in a jar are read rather than mapped
+            Thread.currentThread().setContextClassLoader(jar("current.jar", original, snapshot));
+            ResourceTable t = ResourceTable.readSnapshot("table");
+            assertNotNull(t);
+            assertNull(t.getHeader());
+            assertSameTable("table", ResourceTable.parse("table", '\t', false, false), t);
+
+            // once the text changes, the snapshot has to be ignored
+            Thread.currentThread().setContextClassLoader(jar("stale.jar", edited, snapshot));
+            assertNotNull(ResourceTable.readSnapshot("table"));
+            t = ResourceTable.read("table", '\t', false, false);
+            assertEquals(2, t.rows());
+            assertEquals("x", t.get(1, 2));
+            assertSameTable("table", ResourceTable.parse("table", '\t', false, false), t);
+        } finally {
+            Thread.currentThread().setContextClassLoader(loader);
+        }
+    }
+
+    // a class loader that only sees a jar holding a table and possibly its snapshot
+    private ClassLoader jar(String name, String text, byte[] snapshot) throws IOException {
+        File f = tmp.newFile(name);
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(f))) {
+            out.putNextEntry(new ZipEntry("table"));
+            out.write(text.getBytes(Charsets.UTF_8));
+            if (snapshot != null) {
+                out.putNextEntry(new ZipEntry(ResourceTable.snapshotName("table")));
+                out.write(snapshot);
+            }
+        }
+        return new URLClassLoader(new URL[]{f.toURI().toURL()}, null);
+    }
+
+    private void assertSameTable(String name, ResourceTable expected, ResourceTable actual) {
+        assertEquals(name, expected.getHeader(), actual.getHeader());
+        assertEquals(name, expected.rows(), actual.rows());
+        assertEquals(name, expected.strings().size(), actual.strings().size());
+        for (int i = 0; i < expected.rows(); i++) {
+            assertEquals(name, expected.line(i), actual.line(i));
+            assertEquals(name, expected.columns(i), actual.columns(i));
+            for (int j = 0; j < expected.columns(i); j++) {
+                assertEquals(name, expected.id(i, j), actual.id(i, j));
+                assertEquals(name, expected.get(i, j), actual.get(i, j));
+            }
+        }
+    }
+}
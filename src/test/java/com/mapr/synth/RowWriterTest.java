@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Resources;
+import com.mapr.synth.samplers.RowBuffer;
+import com.mapr.synth.samplers.SchemaSampler;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class RowWriterTest {
+    @Test
+    public void testAgainstPrintf() throws IOException {
+        Random rand = new Random(3);
+        List<String> names = ImmutableList.of("a", "b\tc", "d", "e");
+        RowBuffer row = new RowBuffer(names);
+
+        for (Synth.Format format : new Synth.Format[]{Synth.Format.CSV, Synth.Format.TSV, Synth.Format.JSON}) {
+            for (Synth.Quote quote : Synth.Quote.values()) {
+                ByteArrayOutputStream actual = new ByteArrayOutputStream();
+                // a tiny buffer makes sure that we cross block boundaries a lot
+                RowWriter writer = new RowWriter(actual, format, quote, names, 64);
+                StringBuilder expected = new StringBuilder();
+
+                writer.header();
+                if (format != Synth.Format.JSON) {
+                    expected.append(Joiner.on(format == Synth.Format.TSV ? "\t" : ",").join(names)).append("\n");
+                }
+                for (int i = 0; i < 1000; i++) {
+                    row.setLong(0, rand.nextLong() >> rand.nextInt(64));
+                    row.setDouble(1, rand.nextGaussian() * Math.pow(10, rand.nextInt(40) - 20));
+                    row.setText(2, randomString(rand));
+                    byte[] bytes = randomString(rand).getBytes(Charsets.UTF_8);
+                    byte[] padded = new byte[bytes.length + 3];
+                    System.arraycopy(bytes, 0, padded, 1, bytes.length);
+                    row.setBytes(3, padded, 1, bytes.length);
+
+                    writer.write(row);
+                    expected.append(printf(format, quote, row.asJson(), names));
+                }
+                writer.flush();
+                assertEquals(expected.toString(), new String(actual.toByteArray(), Charsets.UTF_8));
+            }
+        }
+    }
+
+    @Test
+    public void testSchema() throws IOException {
+        SchemaSampler s = new SchemaSampler(Resources.asCharSource(Resources.getResource("schema003.json"), Charsets.UTF_8).read());
+        RowBuffer row = s.newRow();
+        for (Synth.Quote quote : Synth.Quote.values()) {
+            ByteArrayOutputStream actual = new ByteArrayOutputStream();
+            RowWriter writer = new RowWriter(actual, Synth.Format.CSV, quote, s.getFieldNames());
+            StringBuilder expected = new StringBuilder();
+            for (int i = 0; i < 100; i++) {
+                s.sample(row);
+                writer.write(row);
+                expected.append(printf(Synth.Format.CSV, quote, row.asJson(), s.getFieldNames()));
+            }
+            writer.flush();
+            assertEquals(expected.toString(), new String(actual.toByteArray(), Charsets.UTF_8));
+        }
+    }
+
+    private String randomString(Random rand) {
+        StringBuilder r = new StringBuilder();
+        int n = rand.nextInt(20);
+        for (int i = 0; i < n; i++) {
+            switch (rand.nextInt(5)) {
+                case 0:
+                    // control characters, quotes and escapes
+                    String special = " \t\n\r\u000b\f\b\u0001\u001f\",\\";
+                    r.append(special.charAt(rand.nextInt(special.length())));
+                    break;
+                case 1:
+                    r.append((char) (0x80 + rand.nextInt(0x780)));
+                    break;
+                case 2:
+                    r.append((char) (0x800 + rand.nextInt(0xd000)));
+                    break;
+                case 3:
+                    r.appendCodePoint(0x10000 + rand.nextInt(0x10000));
+                    break;
+                default:
+                    r.append((char) (' ' + rand.nextInt(95)));
+                    break;
+            }
+        }
+        return r.toString();
+    }
+
+    // this is how Synth used to format things
+    private String printf(Synth.Format format, Synth.Quote quote, JsonNode fields, List<String> names) {
+        if (format == Synth.Format.JSON) {
+            return fields.toString() + "\n";
+        }
+        StringBuilder r = new StringBuilder();
+        String x = "";
+        for (String name : names) {
+            switch (quote) {
+                case DOUBLE_QUOTE:
+                    r.append(String.format("%s%s", x, fields.get(name)));
+                    break;
+                case OPTIMISTIC:
+                    r.append(String.format("%s%s", x, fields.get(name).asText()));
+                    break;
+                case BACK_SLASH:
+                    r.append(String.format("%s%s", x, fields.get(name).asText().replaceAll("([,\t\\s\\\\])", "\\\\$1")));
+                    break;
+            }
+            x = format == Synth.Format.TSV ? "\t" : ",";
+        }
+        return r.append("\n").toString();
+    }
+}
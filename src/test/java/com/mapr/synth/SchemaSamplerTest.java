@@ -23,6 +23,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.google.common.base.Charsets;
 import com.google.common.collect.*;
 import com.google.common.io.Resources;
+import com.mapr.synth.samplers.RowBuffer;
 import com.mapr.synth.samplers.SchemaSampler;
 import com.mapr.synth.samplers.StringSampler;
 import org.apache.mahout.math.stats.OnlineSummarizer;
@@ -37,6 +38,7 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
@@ -54,6 +56,78 @@ public class SchemaSamplerTest {
         System.out.printf("%s\n", Iterables.toString(s.sample()));
     }
 
+    @Test
+    public void testSeed() throws IOException {
+        String schema = Resources.asCharSource(Resources.getResource("schema003.json"), Charsets.UTF_8).read();
+        // add samplers with their own generators and nested samplers to what is in schema003
+        schema = schema.trim().replaceAll("]$", ", " +
+                "{\"name\":\"uuid\", \"class\":\"uuid\"}, " +
+                "{\"name\":\"ssn\", \"class\":\"ssn\"}, " +
+                "{\"name\":\"g\", \"class\":\"gamma\", \"alpha\":2}, " +
+                "{\"name\":\"seq\", \"class\":\"sequence\", \"base\":{\"class\":\"int\", \"min\":0, \"max\":100}}, " +
+                "{\"name\":\"m\", \"class\":\"map\", \"value\":[{\"name\":\"fk\", \"class\":\"foreign-key\", \"size\":1000}]}]");
+
+        SchemaSampler all = new SchemaSampler(schema);
+        all.setSeed(31);
+        List<String> expected = Lists.newArrayList();
+        for (int i = 0; i < 100; i++) {
+            expected.add(all.sample().toString());
+        }
+
+        // two samplers that split the rows between them
+        SchemaSampler first = new SchemaSampler(schema);
+        first.setSeed(31);
+        SchemaSampler second = new SchemaSampler(schema);
+        second.setSeed(31);
+        second.seek(50);
+        List<String> actual = Lists.newArrayList();
+        for (int i = 0; i < 50; i++) {
+            actual.add(first.sample().toString());
+        }
+        RowBuffer row = second.newRow();
+        for (int i = 0; i < 50; i++) {
+            second.sample(row);
+            actual.add(row.asJson().toString());
+        }
+        assertEquals(expected, actual);
+        assertTrue(expected.get(7).startsWith("{\"id\":7,"));
+
+        // and a different seed gives different data
+        SchemaSampler other = new SchemaSampler(schema);
+        other.setSeed(32);
+        assertFalse(expected.get(0).equals(other.sample().toString()));
+    }
+
+    @Test
+    public void testSeek() throws IOException {
+        SchemaSampler s = new SchemaSampler("[{\"name\":\"id\", \"class\":\"id\", \"start\":10}, {\"name\":\"m\", \"class\":\"map\", \"value\":[{\"name\":\"id\", \"class\":\"id\"}]}]");
+        s.seek(5000000000L);
+        assertEquals("{\"id\":5000000010,\"m\":{\"id\":5000000000}}", s.sample().toString());
+        RowBuffer row = s.newRow();
+        s.sample(row);
+        assertEquals(5000000011L, row.getLong(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSeedWithHistory() throws IOException {
+        SchemaSampler s = new SchemaSampler("[{\"name\":\"x\", \"class\":\"random-walk\"}]");
+        s.setSeed(1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSeedWithFlattened() throws IOException {
+        // the values could be seeded, but flattening them isn't supported
+        SchemaSampler s = new SchemaSampler("[{\"name\":\"x\", \"class\":\"flatten\", \"value\":{\"class\":\"map\", \"value\":[{\"name\":\"a\", \"class\":\"int\", \"min\":1, \"max\":5}]}}]");
+        s.setSeed(1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSeedWithIdInSequence() throws IOException {
+        // a seeded id is the record number, so every element of the sequence would be the same
+        SchemaSampler s = new SchemaSampler("[{\"name\":\"x\", \"class\":\"sequence\", \"base\":{\"class\":\"map\", \"value\":[{\"name\":\"a\", \"class\":\"id\"}]}}]");
+        s.setSeed(1);
+    }
+
     @Test
     public void testInt() throws IOException {
         SchemaSampler s = new SchemaSampler(Resources.asCharSource(Resources.getResource("schema001.json"), Charsets.UTF_8).read());
@@ -168,6 +242,34 @@ public class SchemaSamplerTest {
         }
     }
 
+    @Test
+    public void testCrossProduct() throws IOException {
+        String sequence = "{\"class\":\"sequence\", \"array\":[%s]}";
+        StringBuilder big = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            big.append(i > 0 ? "," : "").append(String.format("{\"class\":\"int\", \"min\":%d, \"max\":%d}", i, i + 1));
+        }
+        SchemaSampler s = new SchemaSampler("[{\"name\":\"id\", \"class\":\"id\"}, " +
+                "{\"name\":\"b\", \"class\":\"flatten\", \"value\":" + String.format(sequence, big) + "}, " +
+                "{\"name\":\"a\", \"class\":\"flatten\", \"value\":" + String.format(sequence, big) + "}, " +
+                "{\"name\":\"m\", \"class\":\"map\", \"value\":[{\"name\":\"z\", \"class\":\"int\"}]}]");
+
+        // a million records per id, in order with the last array (by name) changing fastest
+        JsonNode first = null;
+        for (int i = 0; i < 1000 * 1000 + 2; i++) {
+            JsonNode x = s.sample();
+            assertEquals(i / 1000000, x.get("id").asInt());
+            assertEquals(i / 1000 % 1000, x.get("a").asInt());
+            assertEquals(i % 1000, x.get("b").asInt());
+            if (i == 0) {
+                first = x;
+            } else if (i < 1000000) {
+                // fields that aren't flattened are shared, not copied
+                assertSame(first.get("m"), x.get("m"));
+            }
+        }
+    }
+
     @Test
     public void testMap() throws IOException {
         SchemaSampler s = new SchemaSampler(Resources.asCharSource(Resources.getResource("schema011.json"), Charsets.UTF_8).read());
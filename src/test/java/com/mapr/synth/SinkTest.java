@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Splitter;
+import com.google.common.collect.Lists;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Resources;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class SinkTest {
+    @Test
+    public void testWholeLines() throws IOException {
+        final List<byte[]> batches = Lists.newArrayList();
+        Sink sink = new Sink(100, true) {
+            @Override
+            protected OutputStream connect(int file) throws IOException {
+                return new OutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        throw new UnsupportedOperationException("Should only see whole batches");
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        byte[] batch = new byte[len];
+                        System.arraycopy(b, off, batch, 0, len);
+                        batches.add(batch);
+                    }
+                };
+            }
+        };
+
+        Random rand = new Random(1);
+        StringBuilder expected = new StringBuilder();
+        try (OutputStream out = sink.open(0)) {
+            for (int i = 0; i < 1000; i++) {
+                StringBuilder line = new StringBuilder();
+                // now and then a line won't fit in a batch
+                int n = rand.nextInt(50) == 0 ? 250 : rand.nextInt(40);
+                for (int j = 0; j < n; j++) {
+                    line.append((char) ('a' + rand.nextInt(26)));
+                }
+                line.append('\n');
+                expected.append(line);
+                out.write(line.toString().getBytes(Charsets.UTF_8));
+            }
+        }
+
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        int split = 0;
+        for (byte[] batch : batches) {
+            assertTrue(batch.length <= 100);
+            if (batch[batch.length - 1] != '\n') {
+                split++;
+            }
+            actual.write(batch);
+        }
+        assertEquals(expected.toString(), actual.toString("UTF-8"));
+        // only long lines get split
+        assertTrue(split > 0 && split < 60);
+
+        assertEquals(expected.length(), sink.getBytes());
+        assertEquals(batches.size(), sink.getBatches());
+        assertTrue(sink.getMaxLatency() >= sink.getMeanLatency());
+    }
+
+    @Test
+    public void testReconnect() throws Exception {
+        final ServerSocket server = new ServerSocket(0);
+        final CountDownLatch dropped = new CountDownLatch(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        Future<String> received = pool.submit(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                // hang up on the first connection straight away
+                server.accept().close();
+                dropped.countDown();
+
+                try (Socket s = server.accept()) {
+                    return new String(ByteStreams.toByteArray(s.getInputStream()), Charsets.UTF_8);
+                }
+            }
+        });
+
+        SocketSink sink = new SocketSink("localhost", server.getLocalPort(), 1000, 5);
+        try (OutputStream out = sink.open(0)) {
+            dropped.await();
+            for (int i = 0; i < 100000; i++) {
+                out.write(String.format("line-%d\n", i).getBytes(Charsets.UTF_8));
+            }
+        }
+        String data = received.get();
+        pool.shutdown();
+        server.close();
+
+        assertEquals(1, sink.getReconnects());
+        // some lines went down with the first connection, but the rest must arrive intact
+        int last = -1;
+        for (String line : Splitter.on('\n').omitEmptyStrings().split(data)) {
+            assertTrue(line, line.matches("line-\\d+"));
+            int i = Integer.parseInt(line.substring(5));
+            assertTrue(i > last);
+            last = i;
+        }
+        assertEquals(99999, last);
+        assertTrue(data.endsWith("\n"));
+    }
+
+    @Test
+    public void testServerGoesAway() throws Exception {
+        final ServerSocket server = new ServerSocket(0);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        Future<Integer> received = pool.submit(new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                // take some data and then stop listening altogether so reconnects fail
+                try (Socket s = server.accept()) {
+                    server.close();
+                    InputStream in = s.getInputStream();
+                    byte[] buf = new byte[10000];
+                    int n = 0;
+                    while (n < 100000) {
+                        int k = in.read(buf);
+                        assertTrue(k > 0);
+                        n += k;
+                    }
+                    return n;
+                }
+            }
+        });
+
+        String schema = Resources.getResource("schema003.json").getFile();
+        try {
+            Synth.main(new String[]{"-schema", schema, "-count", "100M", "-sink", "tcp:localhost:" + server.getLocalPort(), "-sink-retries", "2"});
+            fail("Should have noticed that the server went away");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+        assertTrue(received.get() >= 100000);
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SynthTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void testFirstRow() {
+        long count = 10000000007L;
+        for (int parts : new int[]{1, 3, 7, 1000}) {
+            assertEquals(0, Synth.firstRow(count, 0, parts));
+            assertEquals(count, Synth.firstRow(count, parts, parts));
+            for (int i = 0; i < parts; i++) {
+                // parts are contiguous and differ in size by at most one row
+                long size = Synth.firstRow(count, i + 1, parts) - Synth.firstRow(count, i, parts);
+                assertTrue(size == count / parts || size == count / parts + 1);
+            }
+        }
+
+        // fewer rows than parts leaves some parts empty
+        assertEquals(2, Synth.firstRow(2, 5, 7));
+    }
+
+    @Test
+    public void testSeededFieldPerThread() throws Exception {
+        File schema = tmp.newFile("schema.json");
+        Files.write("[{name:'id', class:'uuid', seed:17}]", schema, Charsets.UTF_8);
+        File output = tmp.newFolder("output");
+        Synth.main(new String[]{"-schema", schema.getPath(), "-count", "200", "-threads", "2", "-format", "JSON", "-output", output.getPath()});
+
+        File[] files = output.listFiles();
+        assertEquals(2, files.length);
+        Arrays.sort(files);
+
+        // each thread seeds its copy differently, so no uuid shows up in both files
+        ObjectMapper mapper = new ObjectMapper();
+        List<Set<String>> ids = Lists.newArrayList();
+        for (File file : files) {
+            Set<String> values = Sets.newHashSet();
+            for (String line : Files.readLines(file, Charsets.UTF_8)) {
+                values.add(mapper.readTree(line).get("id").asText());
+            }
+            assertEquals(100, values.size());
+            ids.add(values);
+        }
+        assertTrue(Sets.intersection(ids.get(0), ids.get(1)).isEmpty());
+    }
+
+    @Test
+    public void testNestedIdsPerThread() throws Exception {
+        File schema = tmp.newFile("schema.json");
+        Files.write("[{name:'ids', class:'sequence', base:{class:'id'}}, {name:'top', class:'id'}]", schema, Charsets.UTF_8);
+        File output = tmp.newFolder("output");
+        Synth.main(new String[]{"-schema", schema.getPath(), "-count", "200", "-threads", "2", "-format", "JSON", "-output", output.getPath()});
+
+        File[] files = output.listFiles();
+        assertEquals(2, files.length);
+        Arrays.sort(files);
+
+        // top-level ids are contiguous in each file, nested ids are interleaved between files
+        ObjectMapper mapper = new ObjectMapper();
+        Set<Long> nested = Sets.newHashSet();
+        int nestedCount = 0;
+        long top = 0;
+        for (int i = 0; i < files.length; i++) {
+            for (String line : Files.readLines(files[i], Charsets.UTF_8)) {
+                JsonNode record = mapper.readTree(line);
+                assertEquals(top++, record.get("top").asLong());
+                for (JsonNode id : record.get("ids")) {
+                    assertEquals(i, id.asLong() % 2);
+                    nested.add(id.asLong());
+                    nestedCount++;
+                }
+            }
+        }
+        assertEquals(200, top);
+        assertTrue(nestedCount > 0);
+        assertEquals(nestedCount, nested.size());
+    }
+}
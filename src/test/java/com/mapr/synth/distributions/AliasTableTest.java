@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth.distributions;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class AliasTableTest {
+    @Test
+    public void testFrequencies() {
+        Random gen = new Random(1);
+        for (int n : new int[]{1, 2, 3, 10, 1000}) {
+            List<Integer> values = Lists.newArrayList();
+            double[] weights = new double[n];
+            double total = 0;
+            for (int i = 0; i < n; i++) {
+                values.add(i);
+                // lots of tiny weights, some zeros and a few big ones
+                weights[i] = i % 7 == 3 ? 0 : Math.pow(gen.nextDouble(), 4);
+                total += weights[i];
+            }
+            if (total == 0) {
+                weights[0] = total = 1;
+            }
+            AliasTable<Integer> table = new AliasTable<>(values, weights);
+
+            int draws = 1000000;
+            int[] counts = new int[n];
+            SplitRandom r = new SplitRandom(n);
+            for (int i = 0; i < draws; i++) {
+                counts[table.sample(r)]++;
+            }
+            for (int i = 0; i < n; i++) {
+                double p = weights[i] / total;
+                if (p == 0) {
+                    assertEquals(0, counts[i]);
+                } else {
+                    assertEquals(p * draws, counts[i], 5 * Math.sqrt(draws * p * (1 - p)) + 1);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testEdges() {
+        AliasTable<String> table = new AliasTable<>(ImmutableList.of("a", "b", "c"), new double[]{1, 0, 3});
+        assertEquals("a", table.get(table.sampleIndex(0.0)));
+        assertEquals(2, table.sampleIndex(Math.nextAfter(1.0, 0)));
+        for (double u = 0; u < 1; u += 0.001) {
+            assertTrue(table.sampleIndex(u) != 1);
+        }
+        assertEquals(3, table.getWeight(2), 0);
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth.distributions;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ChineseRestaurantTest {
+    @Test
+    public void testTree() {
+        Random rand = new Random(1);
+        FenwickTree tree = new FenwickTree();
+        List<Double> ref = Lists.newArrayList();
+        // enough to span several chunks
+        for (int i = 0; i < 10000; i++) {
+            double v = rand.nextInt(5) == 0 ? 0 : rand.nextInt(10);
+            tree.append(v);
+            ref.add(v);
+            if (rand.nextInt(3) == 0) {
+                int j = rand.nextInt(ref.size());
+                double w = rand.nextInt(10);
+                tree.set(j, w);
+                ref.set(j, w);
+            }
+        }
+
+        double sum = 0;
+        for (int i = 0; i < ref.size(); i++) {
+            assertEquals(sum, tree.prefix(i), 0);
+            assertEquals(ref.get(i), tree.get(i), 0);
+            sum += ref.get(i);
+        }
+        assertEquals(sum, tree.total(), 0);
+
+        for (int i = 0; i < 1000; i++) {
+            double u = rand.nextDouble() * sum;
+            int j = tree.find(u);
+            assertTrue(ref.get(j) > 0);
+            assertTrue(tree.prefix(j) <= u && u < tree.prefix(j + 1));
+        }
+        assertEquals(ref.size(), tree.find(sum));
+    }
+
+    @Test
+    public void testGrowth() {
+        // for a Dirichlet process the expected number of values is alpha * log(1 + n / alpha)
+        ChineseRestaurant dp = new ChineseRestaurant(50, 0);
+        dp.setSeed(1);
+        int n = 200000;
+        for (int i = 0; i < n; i++) {
+            dp.sample();
+        }
+        assertEquals(n, dp.count());
+        double expected = 50 * Math.log(1 + n / 50.0);
+        assertEquals(expected, dp.size(), 3 * Math.sqrt(expected));
+
+        // with a discount, the fraction of values seen once goes to the discount
+        ChineseRestaurant py = new ChineseRestaurant(10, 0.5);
+        py.setSeed(2);
+        for (int i = 0; i < n; i++) {
+            py.sample();
+        }
+        assertEquals(0.5, singletons(py), 0.03);
+    }
+
+    @Test
+    public void testSetCount() {
+        ChineseRestaurant cr = new ChineseRestaurant(1, 0.5);
+        cr.setSeed(3);
+        cr.setCount(3, 1000);
+        cr.setCount(5, 3000);
+        int[] hits = new int[7];
+        for (int i = 0; i < 10000; i++) {
+            int k = cr.sample();
+            hits[Math.min(k, 6)]++;
+        }
+        // values with no count are never drawn again
+        assertEquals(0, hits[0] + hits[1] + hits[2] + hits[4]);
+        assertEquals(0.25, hits[3] / (hits[3] + hits[5] + 0.0), 0.03);
+        assertEquals(4000 + 10000, cr.count());
+    }
+
+    @Test
+    public void testConcurrent() throws Exception {
+        final ConcurrentChineseRestaurant cr = new ConcurrentChineseRestaurant(10, 0.5);
+        final int n = 100000;
+        List<Callable<Integer>> tasks = Lists.newArrayList();
+        for (int t = 0; t < 4; t++) {
+            final int seed = t;
+            tasks.add(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    Random rand = new SplitRandom(seed);
+                    for (int i = 0; i < n; i++) {
+                        cr.sample(rand);
+                    }
+                    return n;
+                }
+            });
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(tasks.size());
+        for (Future<Integer> f : pool.invokeAll(tasks)) {
+            f.get();
+        }
+        pool.shutdownNow();
+
+        assertEquals(4 * n, cr.count());
+        long sum = 0;
+        int once = 0;
+        for (int j = 0; j < cr.size(); j++) {
+            long k = cr.count(j);
+            assertTrue(k >= 1);
+            sum += k;
+            once += k == 1 ? 1 : 0;
+        }
+        assertEquals(4 * n, sum);
+        assertEquals(0.5, (double) once / cr.size(), 0.03);
+    }
+
+    private double singletons(ChineseRestaurant cr) {
+        int once = 0;
+        for (int j = 0; j < cr.size(); j++) {
+            once += cr.count(j) == 1 ? 1 : 0;
+        }
+        return (double) once / cr.size();
+    }
+}
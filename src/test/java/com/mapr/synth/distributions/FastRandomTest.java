@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth.distributions;
+
+import org.apache.commons.math3.distribution.ExponentialDistribution;
+import org.apache.commons.math3.distribution.NormalDistribution;
+import org.apache.mahout.math.stats.OnlineSummarizer;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.*;
+
+public class FastRandomTest {
+    @Test
+    public void testSameAsSplittable() {
+        SplittableRandom reference = new SplittableRandom(42);
+        SplitRandom r = new SplitRandom(42);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(reference.nextLong(), r.nextLong());
+        }
+    }
+
+    @Test
+    public void testSplit() {
+        SplitRandom r1 = new SplitRandom(7);
+        SplitRandom r2 = new SplitRandom(7);
+        FastRandom s1 = r1.split();
+        FastRandom s2 = r2.split();
+
+        // splitting is repeatable, but the child differs from the parent
+        long x = s1.nextLong();
+        assertEquals(x, s2.nextLong());
+        assertEquals(r1.nextLong(), r2.nextLong());
+        assertTrue(x != r1.nextLong());
+        assertTrue(r1.split().nextLong() != r1.split().nextLong());
+    }
+
+    @Test
+    public void testGaussian() {
+        checkQuantiles(new SplitRandom(1), new NormalDistribution(), true);
+        checkQuantiles(new RowRandom(1, 0), new NormalDistribution(), true);
+    }
+
+    @Test
+    public void testExponential() {
+        checkQuantiles(new SplitRandom(2), new ExponentialDistribution(1), false);
+    }
+
+    @Test
+    public void testBoundedInt() {
+        SplitRandom r = new SplitRandom(3);
+        int[] counts = new int[7];
+        for (int i = 0; i < 70000; i++) {
+            counts[r.nextInt(7)]++;
+        }
+        for (int count : counts) {
+            assertEquals(10000, count, 400);
+        }
+    }
+
+    private void checkQuantiles(FastRandom r, org.apache.commons.math3.distribution.RealDistribution reference, boolean gaussian) {
+        int n = 1000000;
+        double[] x = new double[n];
+        OnlineSummarizer s = new OnlineSummarizer();
+        for (int i = 0; i < n; i++) {
+            x[i] = gaussian ? r.nextGaussian() : r.nextExponential();
+            s.add(x[i]);
+        }
+        Arrays.sort(x);
+        assertEquals(reference.getNumericalMean(), s.getMean(), 0.005);
+        assertEquals(Math.sqrt(reference.getNumericalVariance()), s.getSD(), 0.005);
+
+        // the tails are where ziggurat implementations usually go wrong
+        for (double q : new double[]{0.0001, 0.001, 0.01, 0.1, 0.5, 0.9, 0.99, 0.999, 0.9999}) {
+            double p = reference.cumulativeProbability(x[(int) (q * n)]);
+            assertEquals(q, p, 4 * Math.sqrt(q * (1 - q) / n));
+        }
+    }
+}
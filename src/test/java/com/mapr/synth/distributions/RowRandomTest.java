@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth.distributions;
+
+import org.apache.mahout.math.stats.OnlineSummarizer;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RowRandomTest {
+    @Test
+    public void testPosition() {
+        RowRandom r1 = new RowRandom(1, 3);
+        RowRandom r2 = new RowRandom(1, 3);
+
+        r1.setRow(17);
+        long[] x = {r1.nextLong(), r1.nextLong(), r1.nextLong()};
+
+        // going somewhere else and coming back gives the same values
+        r2.setRow(5);
+        r2.nextLong();
+        r2.setRow(17);
+        for (long v : x) {
+            assertEquals(v, r2.nextLong());
+        }
+
+        // but different rows, fields and seeds give different values
+        r2.setRow(18);
+        assertTrue(x[0] != r2.nextLong());
+        assertTrue(x[0] != new RowRandom(1, 4).nextLong());
+        assertTrue(x[0] != new RowRandom(2, 3).nextLong());
+    }
+
+    @Test
+    public void testDistribution() {
+        RowRandom r = new RowRandom(0, 0);
+        OnlineSummarizer uniform = new OnlineSummarizer();
+        OnlineSummarizer normal = new OnlineSummarizer();
+        int[] counts = new int[10];
+        for (int row = 0; row < 100000; row++) {
+            r.setRow(row);
+            uniform.add(r.nextDouble());
+            normal.add(r.nextGaussian());
+            counts[r.nextInt(10)]++;
+        }
+        assertEquals(0.5, uniform.getMean(), 0.005);
+        assertEquals(0.25, uniform.getQuartile(1), 0.005);
+        assertEquals(0, normal.getMean(), 0.01);
+        assertEquals(1, normal.getSD(), 0.01);
+        for (int count : counts) {
+            assertEquals(10000, count, 400);
+        }
+    }
+}
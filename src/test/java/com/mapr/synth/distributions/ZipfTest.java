@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth.distributions;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ZipfTest {
+    @Test
+    public void testDistribution() {
+        Random rand = new SplitRandom(1);
+        int n = 50;
+        int draws = 1000000;
+        for (double exponent : new double[]{0, 0.3, 1, 1.5, 3}) {
+            Zipf z = new Zipf(n, exponent);
+            int[] counts = new int[n];
+            for (int i = 0; i < draws; i++) {
+                counts[(int) z.sample(rand)]++;
+            }
+
+            double sum = 0;
+            for (int i = 0; i < n; i++) {
+                sum += Math.pow(i + 1, -exponent);
+            }
+            double chi2 = 0;
+            int cells = 0;
+            for (int i = 0; i < n; i++) {
+                double expected = draws * Math.pow(i + 1, -exponent) / sum;
+                if (expected > 5) {
+                    chi2 += (counts[i] - expected) * (counts[i] - expected) / expected;
+                    cells++;
+                }
+            }
+            // chi^2 with at most 49 degrees of freedom is very unlikely to exceed 100
+            assertTrue(String.format("exponent = %.1f, chi2 = %.1f", exponent, chi2), chi2 < 100);
+            assertTrue(cells > 5);
+        }
+    }
+
+    @Test
+    public void testHuge() {
+        Random rand = new SplitRandom(2);
+        long n = 1L << 40;
+        Zipf z = new Zipf(n, 0.5);
+        int small = 0;
+        for (int i = 0; i < 100000; i++) {
+            long k = z.sample(rand);
+            assertTrue(k >= 0 && k < n);
+            if (k < n / 4) {
+                small++;
+            }
+        }
+        // for exponent 1/2 the mass below x is about sqrt(x/n)
+        assertEquals(0.5, small / 100000.0, 0.01);
+    }
+}
@@ -27,6 +27,8 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Multiset;
 import com.google.common.collect.Sets;
 import com.google.common.io.Resources;
+import com.mapr.synth.distributions.SplitRandom;
+import com.mapr.synth.samplers.FieldSampler;
 import com.mapr.synth.samplers.SchemaSampler;
 import org.junit.Test;
 
@@ -36,11 +38,13 @@ import java.text.SimpleDateFormat;
 import java.util.Collection;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.Iterator;
 import java.util.Random;
 import java.util.TimeZone;
 import java.util.TreeSet;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 public class CommuterTest {
@@ -122,6 +126,29 @@ public class CommuterTest {
         }
     }
 
+    @Test
+    public void testStreamed() throws IOException {
+        String spec = "{class:'commuter', flat:true, work:10, start:'2014-01-01 00:00:00', end:'2014-01-15 00:00:00', " +
+                "home:{class:'map', value:[{name:'latitude', class:'int', min:40, max:41}, {name:'longitude', class:'int', min:-100, max:-99}]}}";
+        Commuter c1 = (Commuter) FieldSampler.newSampler(spec);
+        c1.rand = new SplitRandom(3);
+        Commuter c2 = (Commuter) FieldSampler.newSampler(spec);
+        c2.rand = new SplitRandom(3);
+
+        // streaming gives the same points as building the whole array
+        for (int k = 0; k < 3; k++) {
+            Iterator<JsonNode> points = c2.stream();
+            int n = 0;
+            for (JsonNode point : c1.sample()) {
+                assertTrue(points.hasNext());
+                assertEquals(point, points.next());
+                n++;
+            }
+            assertFalse(points.hasNext());
+            assertTrue(n > 1000);
+        }
+    }
+
     private void verifyFields(JsonNode jsonNode, Collection<String> expectedFields) {
         TreeSet<String> c = Sets.newTreeSet(Lists.newArrayList(jsonNode.fieldNames()));
         assertEquals(String.format("Expected fields %s but got %s", expectedFields.toString(), c.toString()),
@@ -123,6 +123,42 @@ public class DriveTest {
         }
     }
 
+    @Test
+    public void testRouteCache() {
+        Random rand = new Random(3);
+        GeoPoint home = new GeoPoint((rand.nextDouble() - 0.5) * Math.PI / 2, rand.nextDouble() * Math.PI * 2);
+        GeoPoint work = home.nearby(10, rand);
+        GeoPoint store = home.nearby(5, rand);
+
+        Car car = new Car();
+        assertNotSame(car.route(home, work, rand), car.route(home, work, rand));
+
+        // same places, same route even if the points are different objects
+        car.setRouteCache(2, 0);
+        List<Car.Segment> commute = car.route(home, work, rand);
+        assertSame(commute, car.route(new GeoPoint(home.as3D()), new GeoPoint(work.as3D()), rand));
+        List<Car.Segment> back = car.route(work, home, rand);
+        assertNotSame(commute, back);
+        assertSame(commute, car.route(home, work, rand));
+
+        // the way home was used least recently so it gets forgotten
+        car.route(home, store, rand);
+        assertSame(commute, car.route(home, work, rand));
+        assertNotSame(back, car.route(work, home, rand));
+
+        car.setRouteCache(2, 0.25);
+        commute = car.route(home, work, rand);
+        int replanned = 0;
+        for (int i = 0; i < 1000; i++) {
+            List<Car.Segment> r = car.route(home, work, rand);
+            if (r != commute) {
+                replanned++;
+                commute = r;
+            }
+        }
+        assertEquals(250, replanned, 50);
+    }
+
     static Vector3D project(Vector3D east, Vector3D north, Vector3D step) {
         return new Vector3D(step.dotProduct(east) * Constants.EARTH_RADIUS_KM, step.dotProduct(north) * Constants.EARTH_RADIUS_KM, 0);
     }
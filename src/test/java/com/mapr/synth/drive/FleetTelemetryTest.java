@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth.drive;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.mapr.synth.RowOutput;
+import com.mapr.synth.distributions.RowRandom;
+import com.mapr.synth.distributions.SplitRandom;
+import com.mapr.synth.samplers.FieldSampler;
+import com.mapr.synth.samplers.RowBuffer;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FleetTelemetryTest {
+    private static final String SPEC = "{class:'commuter', work:10, start:'2014-01-01 00:00:00', end:'2014-01-04 00:00:00', " +
+            "home:{class:'map', value:[{name:'latitude', class:'int', min:30, max:45}, {name:'longitude', class:'int', min:-110, max:-80}]}}";
+
+    @Test
+    public void testMerge() throws IOException, InterruptedException {
+        int vehicles = 7;
+        List<List<double[]>> readings = run(vehicles, 3);
+
+        // every vehicle drives exactly as a single commuter with the same seed would until a
+        // commute that should have started before getting back from an errand has to leave late
+        int late = 0;
+        for (int i = 0; i < vehicles; i++) {
+            Commuter c = (Commuter) FieldSampler.newSampler(SPEC.replace("class:'commuter'", "class:'commuter', flat:true"));
+            c.setLocationRandom(new RowRandom(3, i));
+            c.rand = new SplitRandom(3 + i);
+            Iterator<JsonNode> points = c.stream();
+            boolean same = true;
+            double t = Double.NEGATIVE_INFINITY;
+            for (double[] r : readings.get(i)) {
+                assertTrue(r[0] >= t);
+                t = r[0];
+                if (same) {
+                    assertTrue(points.hasNext());
+                    JsonNode p = points.next();
+                    same = p.get("t").asDouble() == r[0];
+                    if (same) {
+                        assertEquals(p.get("latitude").asDouble(), r[1], 0);
+                        assertEquals(p.get("longitude").asDouble(), r[2], 0);
+                        assertEquals(p.get("mph").asDouble(), r[3], 0);
+                    } else {
+                        assertTrue(r[0] > p.get("t").asDouble());
+                        late++;
+                    }
+                }
+            }
+            if (same) {
+                assertFalse(points.hasNext());
+            }
+            assertTrue(readings.get(i).size() > 100);
+        }
+        assertTrue(late < vehicles / 2);
+    }
+
+    @Test
+    public void testSeed() throws IOException, InterruptedException {
+        List<List<double[]>> r1 = run(5, 7);
+        List<List<double[]>> r2 = run(5, 7);
+
+        // homes come from the seed as well so vehicles start in different places, but the same ones each time
+        Set<String> homes = Sets.newHashSet();
+        for (int i = 0; i < r1.size(); i++) {
+            assertEquals(r1.get(i).size(), r2.get(i).size());
+            for (int j = 0; j < r1.get(i).size(); j++) {
+                assertTrue(Arrays.equals(r1.get(i).get(j), r2.get(i).get(j)));
+            }
+            homes.add(String.format("%.0f %.0f", r1.get(i).get(0)[1], r1.get(i).get(0)[2]));
+        }
+        assertTrue(homes.size() > 1);
+    }
+
+    // runs a seeded fleet and returns the t, latitude, longitude and mph of each reading for each vehicle
+    private List<List<double[]>> run(int vehicles, long seed) throws IOException, InterruptedException {
+        FleetTelemetry fleet = new FleetTelemetry(SPEC, vehicles, 3, 2);
+        fleet.setSeed(seed);
+
+        final List<List<double[]>> readings = Lists.newArrayList();
+        for (int i = 0; i < vehicles; i++) {
+            readings.add(Lists.<double[]>newArrayList());
+        }
+        final double[] last = {Double.NEGATIVE_INFINITY};
+        long rows = fleet.run(new RowOutput() {
+            @Override
+            public void header() {
+            }
+
+            @Override
+            public void write(RowBuffer row) {
+                double t = row.getDouble(1);
+                assertTrue(t >= last[0]);
+                last[0] = t;
+                readings.get((int) row.getLong(0)).add(new double[]{t, row.getDouble(4), row.getDouble(5), row.getDouble(6)});
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void finish() {
+            }
+        }, Long.MAX_VALUE);
+
+        long total = 0;
+        for (List<double[]> r : readings) {
+            total += r.size();
+        }
+        assertEquals(total, rows);
+        return readings;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth.drive;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class FleetTest {
+    @Test
+    public void testSameAsEngine() {
+        Random rand = new Random(1);
+        // more than one block so that the fork-join path gets used
+        int n = 3000;
+        Fleet fleet = new Fleet(n);
+        Engine[] engines = new Engine[n];
+        for (int i = 0; i < n; i++) {
+            engines[i] = new Engine();
+        }
+
+        double[] target = new double[n];
+        double[] brake = new double[n];
+        double[] brakes = {0, 0.1, 0.2, 0.8};
+        double t = 0;
+        for (int step = 0; step < 1200; step++) {
+            t += 0.1;
+            for (int i = 0; i < n; i++) {
+                if (step % 50 == 0 || rand.nextDouble() < 0.01) {
+                    target[i] = rand.nextDouble() * 80 * Constants.MPH;
+                    brake[i] = brakes[rand.nextInt(brakes.length)];
+                }
+            }
+            fleet.stepToTime(t, target, brake);
+            for (int i = 0; i < n; i++) {
+                engines[i].stepToTime(t, target[i], brake[i]);
+            }
+        }
+
+        // the physics have to be identical, not just close
+        for (int i = 0; i < n; i++) {
+            assertEquals(engines[i].getSpeed(), fleet.getSpeed(i), 0);
+            assertEquals(engines[i].getThrottle(), fleet.getThrottle(i), 0);
+            assertEquals(engines[i].getRpm(), fleet.getRpm(i), 0);
+            assertEquals(engines[i].getGear(), fleet.getGear(i));
+            assertEquals(engines[i].getDistance(), fleet.getDistance(i), 0);
+        }
+    }
+
+    @Test
+    public void testTimeTo60() {
+        // same as EngineTest, but for a (small) fleet
+        Fleet fleet = new Fleet(10);
+        double[] target = new double[10];
+        Arrays.fill(target, 90 * EngineTest.MPH_TO_M_S);
+        double[] brake = new double[10];
+        double t = 0;
+        while (fleet.getSpeed(0) < 60 * EngineTest.MPH_TO_M_S) {
+            t += 0.1;
+            fleet.stepToTime(t, target, brake);
+            for (int i = 0; i < 10; i++) {
+                assertEquals(fleet.getSpeed(0), fleet.getSpeed(i), 0);
+            }
+        }
+        assertEquals("Time to 60", t, (6.5 + 8) / 2, (8 - 6.5) / 2);
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth.samplers;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.mapr.synth.distributions.RowRandom;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MappedLinesTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void testLines() throws IOException {
+        Random rand = new Random(5);
+        List<String> expected = Lists.newArrayList();
+        File f = tmp.newFile("lines.txt");
+        try (Writer out = Files.newBufferedWriter(f.toPath(), Charsets.UTF_8)) {
+            for (int i = 0; i < 2000; i++) {
+                StringBuilder line = new StringBuilder();
+                int n = rand.nextInt(3) == 0 ? 0 : rand.nextInt(200);
+                for (int j = 0; j < n; j++) {
+                    line.append(rand.nextInt(4) == 0 ? (char) (0x400 + rand.nextInt(0x100)) : (char) ('a' + rand.nextInt(26)));
+                }
+                expected.add(line.toString());
+                out.write(line.toString());
+                // mixed line endings and no newline at the very end
+                if (i < 1999) {
+                    out.write(rand.nextBoolean() ? "\r\n" : "\n");
+                }
+            }
+        }
+
+        // tiny mappings so that lots of lines cross from one to the next
+        check(expected, MappedLines.open(f, false, 6));
+
+        File index = new File(f.getPath() + ".idx");
+        assertTrue(!index.exists());
+        check(expected, MappedLines.open(f, true, 6));
+        assertTrue(index.exists());
+        check(expected, MappedLines.open(f, true));
+
+        // a changed file makes the index stale
+        try (Writer out = Files.newBufferedWriter(f.toPath(), Charsets.UTF_8)) {
+            out.write("x\ny\n");
+        }
+        check(Lists.newArrayList("x", "y"), MappedLines.open(f, true));
+        check(Lists.newArrayList("x", "y"), MappedLines.open(f, true));
+    }
+
+    @Test
+    public void testSameAsParsed() throws IOException {
+        File csv = tmp.newFile("numbers.csv");
+        File json = tmp.newFile("numbers.jsonl");
+        try (Writer a = Files.newBufferedWriter(csv.toPath(), Charsets.UTF_8);
+             Writer b = Files.newBufferedWriter(json.toPath(), Charsets.UTF_8)) {
+            a.write("a,b\n");
+            for (int i = 0; i < 1000; i++) {
+                a.write(String.format("%d,%d\n", i, i * i));
+                b.write(String.format("{\"a\":%d, \"b\":[%d]}\n", i, i * i));
+            }
+        }
+
+        for (File f : new File[]{csv, json}) {
+            FileSampler parsed = new FileSampler();
+            parsed.setFile(f.getPath());
+            parsed.setSkew(2);
+            parsed.setRowRandom(new RowRandom(3, 0));
+
+            FileSampler mapped = new FileSampler();
+            mapped.setSkew(2);
+            mapped.setFile(f.getPath());
+            mapped.setMapped(true);
+            mapped.setCacheIndex(true);
+            mapped.setRowRandom(new RowRandom(3, 0));
+
+            for (int i = 0; i < 1000; i++) {
+                assertEquals(parsed.sample(), mapped.sample());
+            }
+        }
+    }
+
+    private void check(List<String> expected, MappedLines lines) {
+        assertEquals(expected.size(), lines.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), lines.get(i));
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth.samplers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.base.Charsets;
+import com.google.common.collect.Maps;
+import com.google.common.io.Resources;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ProfilerTest {
+    @Test
+    public void testNested() throws IOException {
+        SchemaSampler s = new SchemaSampler(Resources.asCharSource(Resources.getResource("schema009.json"), Charsets.UTF_8).read());
+        Profiler profiler = new Profiler();
+        s.profile(profiler, "");
+
+        RowBuffer row = s.newRow();
+        for (int i = 0; i < 1000; i++) {
+            JsonNode x = s.sample();
+            // profiling mustn't change what comes out
+            assertTrue(x.get("z").asText().matches("(xyz(,xyz)*)?"));
+            s.sample(row);
+            assertTrue(row.asText(0).matches("[34],[67],[89]"));
+        }
+
+        Map<String, Profiler.Entry> entries = Maps.newHashMap();
+        for (Profiler.Entry entry : profiler.getEntries()) {
+            entries.put(entry.getName(), entry);
+            assertTrue(entry.getSelfNanos() <= entry.getNanos());
+            assertTrue(entry.getSelfNanos() >= 0);
+        }
+        assertEquals(entries.keySet().toString(), 9, entries.size());
+
+        for (String name : new String[]{"x", "y", "z", "x.value", "z.value", "x.value[0]", "x.value[2]"}) {
+            assertEquals(name, 2000, entries.get(name).getCalls());
+        }
+        // the sequence in z has about 5 elements
+        assertTrue(entries.get("z.value[]").getCalls() > 5000);
+
+        // nested costs are included in the total, but not in self
+        Profiler.Entry x = entries.get("x");
+        Profiler.Entry value = entries.get("x.value");
+        assertTrue(x.getNanos() >= value.getNanos());
+        assertEquals(x.getNanos() - x.getSelfNanos(), value.getNanos());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        profiler.report(new PrintStream(out));
+        String[] lines = out.toString("UTF-8").split("\n");
+        assertEquals(10, lines.length);
+        assertTrue(lines[0].startsWith("field"));
+    }
+
+    @Test
+    public void testCopies() throws IOException {
+        // each thread has its own copy of the schema, but they should be reported together
+        String schema = Resources.asCharSource(Resources.getResource("schema009.json"), Charsets.UTF_8).read();
+        Profiler profiler = new Profiler();
+        for (int i = 0; i < 3; i++) {
+            SchemaSampler s = new SchemaSampler(schema);
+            s.profile(profiler, "");
+            for (int j = 0; j < 100; j++) {
+                s.sample();
+            }
+        }
+
+        assertEquals(9, profiler.getEntries().size());
+        for (Profiler.Entry entry : profiler.getEntries()) {
+            if (entry.getName().equals("x")) {
+                assertEquals(300, entry.getCalls());
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth.samplers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.DoubleNode;
+import com.fasterxml.jackson.databind.node.IntNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Resources;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class RowBufferTest {
+    @Test
+    public void testFormattingMatchesJackson() {
+        ObjectNode expected = JsonNodeFactory.instance.objectNode();
+        expected.set("a", new IntNode(31));
+        expected.set("b", new DoubleNode(2.5e-7));
+        expected.set("c", new TextNode("tab\tquote\"slash\\ été"));
+        expected.set("d", JsonNodeFactory.instance.arrayNode().add(1).add("x"));
+
+        RowBuffer row = new RowBuffer(ImmutableList.of("a", "b", "c", "d"));
+        row.setLong(0, 31);
+        row.setDouble(1, 2.5e-7);
+        byte[] bytes = "xxtab\tquote\"slash\\ été".getBytes(Charsets.UTF_8);
+        row.setBytes(2, bytes, 2, bytes.length - 2);
+        row.setNode(3, expected.get("d"));
+
+        assertEquals(expected.toString(), row.toString());
+        assertEquals(expected, row.asJson());
+        for (int i = 0; i < row.size(); i++) {
+            String name = row.getNames().get(i);
+            StringBuilder value = new StringBuilder();
+            row.appendJson(i, value);
+            assertEquals(expected.get(name).toString(), value.toString());
+            assertEquals(expected.get(name).asText(), row.asText(i));
+        }
+    }
+
+    @Test
+    public void testSetNodeUnpacks() {
+        RowBuffer row = new RowBuffer(ImmutableList.of("a", "b", "c"));
+        row.setNode(0, new IntNode(3));
+        row.setNode(1, new DoubleNode(0.5));
+        row.setNode(2, new TextNode("x"));
+        assertEquals(RowBuffer.Kind.LONG, row.getKind(0));
+        assertEquals(RowBuffer.Kind.DOUBLE, row.getKind(1));
+        assertEquals(RowBuffer.Kind.TEXT, row.getKind(2));
+        assertEquals(3, row.getLong(0));
+        assertEquals(0.5, row.getDouble(1), 0);
+        assertEquals("x", row.getText(2));
+    }
+
+    @Test
+    public void testSchemaRows() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        SchemaSampler s = new SchemaSampler(Resources.asCharSource(Resources.getResource("schema003.json"), Charsets.UTF_8).read());
+        RowBuffer row = s.newRow();
+        for (int i = 0; i < 1000; i++) {
+            s.sample(row);
+            assertEquals(RowBuffer.Kind.LONG, row.getKind(0));
+            assertEquals(i, row.getLong(0));
+
+            JsonNode r = row.asJson();
+            assertEquals(s.getFieldNames().size(), r.size());
+            assertEquals(r, mapper.readTree(row.toString()));
+        }
+    }
+
+    @Test
+    public void testFlattenedFallback() throws IOException {
+        SchemaSampler s = new SchemaSampler("[{\"name\":\"id\", \"class\":\"id\"}, " +
+                "{\"name\":\"x\", \"class\":\"flatten\", \"value\":{\"class\":\"sequence\", \"array\":[" +
+                "{\"class\":\"int\", \"min\":3, \"max\":4}, {\"class\":\"int\", \"min\":7, \"max\":8}]}}]");
+        RowBuffer row = s.newRow();
+        for (int i = 0; i < 10; i++) {
+            s.sample(row);
+            assertEquals(i / 2, row.getLong(0));
+            assertEquals(i % 2 == 0 ? 3 : 7, row.getLong(1));
+            assertEquals(String.format("{\"id\":%d,\"x\":%d}", i / 2, i % 2 == 0 ? 3 : 7), row.toString());
+        }
+    }
+}
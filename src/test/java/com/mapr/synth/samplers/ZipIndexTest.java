@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Ted Dunning under one or more contributor license
+ * agreements.  See the NOTICE file that may be
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Ted Dunning licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.mapr.synth.samplers;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ZipIndexTest {
+    private static final int N = 20000;
+
+    @Test
+    public void testSelect() {
+        Random rand = new Random(1);
+        double[] latitude = new double[N];
+        double[] longitude = new double[N];
+        for (int i = 0; i < N; i++) {
+            latitude[i] = rand.nextDouble() * 180 - 90;
+            longitude[i] = rand.nextDouble() * 360 - 180;
+        }
+        // zips without a location are only selected when there are no limits
+        latitude[17] = Double.NaN;
+        longitude[18] = Double.NaN;
+
+        ZipIndex index = new ZipIndex(latitude, longitude);
+        assertEquals(N, index.select(null, 0, 0).length);
+
+        ZipIndex.Bound[] bounds = {
+                new ZipIndex.BoundingBox(22, 50, -130, -65),
+                new ZipIndex.BoundingBox(-90, 90, 170, 180),
+                new ZipIndex.RadialBound(33.97, -118.24, 200),
+                new ZipIndex.RadialBound(80, 10, 1000),
+                new ZipIndex.RadialBound(-10, 179.5, 300),
+                new ZipIndex.RadialBound(0, 0, 20)
+        };
+        for (ZipIndex.Bound bound : bounds) {
+            int[] selected = index.select(bound, 0, 0);
+            int[] expected = new int[N];
+            int n = 0;
+            for (int i = 0; i < N; i++) {
+                if (!Double.isNaN(latitude[i]) && !Double.isNaN(longitude[i]) && bound.accept(latitude[i], longitude[i])) {
+                    expected[n++] = i;
+                }
+            }
+            assertEquals(Arrays.toString(Arrays.copyOf(expected, n)), Arrays.toString(selected));
+
+            // with fuzz, every zip that could land inside has to be a candidate
+            int[] fuzzy = index.select(bound, 3, 5);
+            assertTrue(fuzzy.length >= selected.length);
+            for (int i = 0; i < N; i++) {
+                if (i == 17 || i == 18) {
+                    continue;
+                }
+                for (int k = 0; k < 5; k++) {
+                    if (bound.accept(latitude[i] + rand.nextDouble() * 3, longitude[i] + rand.nextDouble() * 5)) {
+                        assertTrue(Arrays.binarySearch(fuzzy, i) >= 0);
+                    }
+                }
+            }
+        }
+    }
+}